@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -13,6 +14,7 @@ import edu.eur.absa.evaluation.results.EvaluationResults;
 import edu.eur.absa.model.DataEntity;
 import edu.eur.absa.model.Dataset;
 import edu.eur.absa.model.Span;
+import edu.eur.absa.model.SpanSubset;
 
 /**
  * AbstractAlgorithm is the template class that every Algorithm should subclass.
@@ -44,7 +46,7 @@ public abstract class AbstractAlgorithm {
 	/**
 	 * the training, validation, test splits of the data
 	 */
-	protected ArrayList<HashSet<Span>> dataSubSets = new ArrayList<>();
+	protected ArrayList<Set<Span>> dataSubSets = new ArrayList<>();
 	/**
 	 * The DataEntities that are in the test set are stored separately, this is used in the evaluation method
 	 * The reason this is different from dataSubSets is that how you split your data might not be the same
@@ -113,9 +115,9 @@ public abstract class AbstractAlgorithm {
 	 * A method to set the data subsets (e.g., training, validation, test set) for this Algorithm
 	 * @param dataSubSets The data subsets for training, validation, testing, etc.
 	 */
-	public void setDataSubSets(ArrayList<HashSet<Span>> dataSubSets, Dataset dataset){
+	public void setDataSubSets(ArrayList<? extends Set<Span>> dataSubSets, Dataset dataset){
 		this.dataset = dataset;
-		this.dataSubSets = dataSubSets;
+		this.dataSubSets = new ArrayList<>(dataSubSets);
 		testAnnotatables.clear();
 		testAnnotatables.addAll(dataset.getSubSpans(getTestData(), this.targetSpanType));
 		
@@ -263,43 +265,53 @@ public abstract class AbstractAlgorithm {
 	 * Get the data subset that corresponds to the test set
 	 * @return The test data subset
 	 */
-	protected HashSet<Span> getTestData(){
+	protected Set<Span> getTestData(){
 		return dataSubSets.get(dataSubSets.size()-1);
 	}
 	/**
-	 * Return all spans in a single HashSet (useful for the preprocess method)
+	 * Return all spans in a single Set (useful for the preprocess method)
 	 * The distinction between training/test/etc set is lost, so be careful to
 	 * not use this in the train() method
 	 * @return All data as Spans of type <code>unitOfAnalysisSpanType</code>
 	 */
-	protected HashSet<Span> getCombinedData(){
-		HashSet<Span> allData = new HashSet<>();
-		for (HashSet<Span> subset : dataSubSets){
-			allData.addAll(subset);
-		}
-		return allData;
+	protected Set<Span> getCombinedData(){
+		return combine(dataSubSets);
 	}
 	/**
 	 * Get all training data, which is all subsets (also for validation etc.) except the test data subset
 	 * @return All subsets except the test set
 	 */
-	protected ArrayList<HashSet<Span>> getTrainingData(){
-		ArrayList<HashSet<Span>> allTrainingSubSets = new ArrayList<>();
-		allTrainingSubSets.addAll(dataSubSets);
-		allTrainingSubSets.remove(getTestData());
-		return allTrainingSubSets;
+	protected ArrayList<Set<Span>> getTrainingData(){
+		return new ArrayList<>(dataSubSets.subList(0, dataSubSets.size()-1));
 	}
 	/**
 	 * Get all training data from (maybe) different subsets into one set. If there is a validation set, it is
 	 * combined with the training data
-	 * @return All subsets extent the test set, but flattened into a single HashSet
+	 * @return All subsets extent the test set, but flattened into a single Set
+	 */
+	protected Set<Span> getCombinedTrainingData(){
+		return combine(dataSubSets.subList(0, dataSubSets.size()-1));
+	}
+	
+	/**
+	 * Flatten the given subsets into a single Set. When all of them are <code>SpanSubset</code>s of the same <code>Dataset</code>, 
+	 * which is the case for the subsets made by <code>Experiment</code>, their bit sets are combined instead of copying every Span.
+	 * @param subsets
+	 * @return
 	 */
-	protected HashSet<Span> getCombinedTrainingData(){
-		HashSet<Span> trainingData = new HashSet<>();
-		for (int i = 0; i < dataSubSets.size()-1; i++){
-			trainingData.addAll(dataSubSets.get(i));
+	private Set<Span> combine(List<Set<Span>> subsets){
+		ArrayList<SpanSubset> spanSubsets = new ArrayList<>();
+		for (Set<Span> subset : subsets){
+			if (subset instanceof SpanSubset && ((SpanSubset)subset).getDataset() == dataset)
+				spanSubsets.add((SpanSubset)subset);
+		}
+		if (spanSubsets.size() == subsets.size())
+			return SpanSubset.union(dataset, spanSubsets);
+		HashSet<Span> allData = new HashSet<>();
+		for (Set<Span> subset : subsets){
+			allData.addAll(subset);
 		}
-		return trainingData;
+		return allData;
 	}
 	
 	/**
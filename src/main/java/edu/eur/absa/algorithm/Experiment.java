@@ -5,7 +5,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.TreeSet;
+import java.util.Random;
 
 import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
 import org.apache.commons.math3.stat.inference.TTest;
@@ -16,6 +16,7 @@ import edu.eur.absa.evaluation.evaluators.Evaluator;
 import edu.eur.absa.evaluation.results.EvaluationResults;
 import edu.eur.absa.model.Dataset;
 import edu.eur.absa.model.Span;
+import edu.eur.absa.model.SpanSubset;
 
 /**
  * A utility class to run experiments with a given Algorithm.
@@ -34,11 +35,12 @@ public class Experiment {
 	private HashSet<AbstractAlgorithm> algs = new HashSet<>();
 	private Dataset dataset=null;
 	private Dataset testSet=null;
-	private ArrayList<ArrayList<HashSet<Span>>> multipleDataSubSets = new ArrayList<>();
+	private ArrayList<ArrayList<SpanSubset>> multipleDataSubSets = new ArrayList<>();
 	private String unitOfAnalysisSpanType = null;
 	private int nrFolds;
 	private double[] subSetProportions;
 	private int repetitions;
+	private Random random = new Random();
 	
 	private boolean testOnly = false;
 	private boolean run = false;
@@ -59,6 +61,18 @@ public class Experiment {
 		return this;
 	}
 	
+	/**
+	 * Fix the seed used for dividing the data into subsets, so the same subsets are used every time the experiment is run
+	 * @param seed
+	 * @return
+	 */
+	public Experiment setRandomSeed(long seed){
+		if (!run && !dataSplit){
+			random = new Random(seed);
+		}
+		return this;
+	}
+	
 	public Experiment addAlgorithms(AbstractAlgorithm... algs){
 		if (!run){
 			for (AbstractAlgorithm a : algs){
@@ -79,25 +93,26 @@ public class Experiment {
 		
 	public Experiment setTrainingAndTestSet(Dataset trainingData, Dataset testData, boolean useAllData, double... trainingSubSetProportions){
 		if (!run && !dataSplit && !algs.isEmpty()){
+			//single run always
+			ArrayList<SpanSubset> singleRun = new ArrayList<>();
+			singleRun.addAll(trainingData.createSubSets(unitOfAnalysisSpanType, random, false, trainingSubSetProportions));
+			ArrayList<Span> testSpans = new ArrayList<>();
+			testSpans.addAll(testData.getSpans(unitOfAnalysisSpanType));
+			//merge datasets
+			try {
+				trainingData.mergeDataset(testData);
+			} catch(Exception e){
+				throw new IllegalArgumentException("The test data cannot be merged into the training data", e);
+			}
 			this.dataset = trainingData;
 			this.testSet = testData;
 			multipleDataSubSets = new ArrayList<>();
-			//single run always
-			ArrayList<HashSet<Span>> singleRun = new ArrayList<>();
-			singleRun.addAll(trainingData.createSubSets(unitOfAnalysisSpanType, false, trainingSubSetProportions));
-			HashSet<Span> testSet = new HashSet<>();
-			testSet.addAll(testData.getSpans(unitOfAnalysisSpanType));
-			singleRun.add(testSet);
-			multipleDataSubSets.add(singleRun);
 			repetitions = 1;
 			nrFolds= 0;
 			dataSplit = true;	
-			//merge datasets
-			try {
-				dataset.mergeDataset(testData);
-			} catch(Exception e){
-				e.printStackTrace();
-			}
+			//the test spans have new ids in the merged dataset, so the test set can only be made now
+			singleRun.add(new SpanSubset(dataset, testSpans));
+			multipleDataSubSets.add(singleRun);
 		}
 		return this;
 	}
@@ -116,13 +131,11 @@ public class Experiment {
 				folds[i] = (1.0/nrFolds);
 			}
 			for (int rep = 0; rep < repetitions; rep++){
-				ArrayList<HashSet<Span>> testFolds = dataset.createSubSets(unitOfAnalysisSpanType, folds);
-				TreeSet<Span> allData = dataset.getSpans(unitOfAnalysisSpanType);
+				ArrayList<SpanSubset> testFolds = dataset.createSubSets(unitOfAnalysisSpanType, random, true, folds);
+				SpanSubset allData = new SpanSubset(dataset, dataset.getSpans(unitOfAnalysisSpanType));
 				for (int i = 0; i < nrFolds; i++){
-					TreeSet<Span> nonTestData = new TreeSet<>();
-					nonTestData.addAll(allData);
-					nonTestData.removeAll(testFolds.get(i));
-					ArrayList<HashSet<Span>> foldSubSets = Dataset.createSubSets(nonTestData, remainingSubSetProportions);
+					SpanSubset nonTestData = allData.minus(testFolds.get(i));
+					ArrayList<SpanSubset> foldSubSets = Dataset.createSubSets(nonTestData, random, true, remainingSubSetProportions);
 					foldSubSets.add(testFolds.get(i));
 					multipleDataSubSets.add(foldSubSets);
 				}
@@ -142,8 +155,8 @@ public class Experiment {
 			this.repetitions = repetitions;
 			this.subSetProportions = subSetProportions;
 			for (int rep = 0; rep < repetitions; rep++){
-				ArrayList<HashSet<Span>> singleRun = new ArrayList<>();
-				singleRun.addAll(dataset.createSubSets(unitOfAnalysisSpanType, subSetProportions));
+				ArrayList<SpanSubset> singleRun = new ArrayList<>();
+				singleRun.addAll(dataset.createSubSets(unitOfAnalysisSpanType, random, true, subSetProportions));
 				multipleDataSubSets.add(singleRun);
 			}
 			dataSplit = true;
@@ -168,7 +181,7 @@ public class Experiment {
 		
 		for (AbstractAlgorithm alg : algs){
 			boolean preprocessed = false;
-			for (ArrayList<HashSet<Span>> subsets : multipleDataSubSets){
+			for (ArrayList<SpanSubset> subsets : multipleDataSubSets){
 //				Framework.log(subsets.toString());
 				alg.setDataSubSets(subsets, dataset);
 				if (!preprocessed){
@@ -70,9 +70,9 @@ public class Prediction extends DataEntity{
 	@Override
 	public String toString(){
 		if (annotatable == null){
-			return parentSpan.toString() + "\n" + spanType + "\n" + annotations.toString();
+			return parentSpan.toString() + "\n" + spanType + "\n" + showAnnotations();
 		} else {
-			return annotatable.toString() + "\n" + annotations.toString();
+			return annotatable.toString() + "\n" + showAnnotations();
 		}
 	}
 }
@@ -9,7 +9,6 @@ import edu.eur.absa.algorithm.Prediction;
 import edu.eur.absa.Framework;
 import edu.eur.absa.evaluation.evaluators.AnnotationLabelEvaluator;
 import edu.eur.absa.evaluation.evaluators.SpanLabelEvaluator;
-import edu.eur.absa.model.Dataset;
 import edu.eur.absa.model.Span;
 
 public class CheatingAspectCategoryClassificationAlgorithm extends AbstractAlgorithm {
@@ -41,11 +40,8 @@ public class CheatingAspectCategoryClassificationAlgorithm extends AbstractAlgor
 	@Override
 	public void predict() {
 		for (Span sentenceSpan : getTestData()){
-			Dataset dataset = sentenceSpan.getDataset();
-			Span textualUnit = sentenceSpan.getTextualUnit();
-			TreeSet<Span> opinions = dataset.getSpans(textualUnit, "opinion");
 			HashSet<Object> assignedLabels = new HashSet<>();
-			TreeSet<Span> opinionsPerSentence = sentenceSpan.getCoveredSpans(opinions);
+			TreeSet<Span> opinionsPerSentence = sentenceSpan.getCoveredSpans("opinion");
 //			Main.debug("Number of opinions: "+opinionsPerSentence.size() + "\t\t\t" + sentenceSpan.getAnnotations().get("categories"));
 			for (Span opinionSpan : opinionsPerSentence){
 				if (!predictions.containsKey(sentenceSpan))
@@ -3,6 +3,8 @@ package edu.eur.absa.algorithm.ontology;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.TreeSet;
 
 import weka.attributeSelection.ASEvaluation;
@@ -34,6 +36,7 @@ import edu.eur.absa.external.NRCReviewSentimentLexicon;
 import edu.eur.absa.external.ReasoningOntology;
 import edu.eur.absa.model.DataEntity;
 import edu.eur.absa.model.Dataset;
+import edu.eur.absa.model.DerivedAnnotations;
 import edu.eur.absa.model.Relation;
 import edu.eur.absa.model.Span;
 import edu.eur.absa.model.Word;
@@ -88,7 +91,7 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 		
 	}
 	
-	protected void setDataSubsets(ArrayList<HashSet<Span>> dataSubSets, Dataset dataset){
+	protected void setDataSubsets(ArrayList<? extends Set<Span>> dataSubSets, Dataset dataset){
 		super.setDataSubSets(dataSubSets, dataset);
 		ontAlg.setBinaryProperties("use_sentence");
 		if (hasProperty("ont")){
@@ -112,6 +115,8 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 	@Override
 	public void preprocess() {
 		Framework.log(getLabel() + " - Preprocessing ...");
+		//the sentence of an opinion, shared with the ontology algorithm, see getSentence(Span)
+		DerivedAnnotations.addSentenceContext(dataset);
 		
 		if (hasProperty("use_ontology")){
 //			 ont =new ReasoningOntology(Main.EXTERNALDATA_PATH + "RestaurantSentiment.owl");
@@ -143,7 +148,7 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 		
 		for (Span reviewSpan : getCombinedData()){
 //			this.extractStatements(span);
-			TreeSet<Span> opinionsForReview = reviewSpan.getDataset().getSpans(reviewSpan, "opinion");
+			NavigableSet<Span> opinionsForReview = reviewSpan.getDataset().getSpans(reviewSpan, "opinion");
 			
 			for (Span span : opinionsForReview){
 				//Framework.log("Opinion span: "+span.toString());
@@ -154,7 +159,7 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 	
 				
 				
-				TreeSet<Word> scope;
+				NavigableSet<Word> scope;
 				Span sentence = null;
 				try {
 				sentence = getSentence(span);
@@ -166,7 +171,7 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 						Framework.log(w.toString() + "\t" + w.getId());
 					}
 					Framework.log(dataset.getSpans(span.first()).toString());
-					TreeSet<Span> sentences = dataset.getSpans(span.getTextualUnit(), "sentence"); 
+					NavigableSet<Span> sentences = dataset.getSpans(span.getTextualUnit(), "sentence"); 
 					for (Span s : sentences) {
 						Framework.log(""+s.contains(span.first()));
 						Framework.log(""+s.contains(span.last()));
@@ -177,7 +182,7 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 						}
 					}
 				}
-				TreeSet<Span> opinionsPerSentence = sentence.getCoveredSpans(opinionsForReview);
+				TreeSet<Span> opinionsPerSentence = sentence.getCoveredSpans("opinion");
 				
 				if (hasProperty("use_sentence")){
 					scope = sentence.getWords();
@@ -284,7 +289,7 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 						double instanceValue = 0.0;
 						double dicts = 0.0;
 						if (hasProperty("use_stanford_sentiment")){
-							double sentiment = getSentimentScore(word.getAnnotation("phraseSentiment", ArrayList.class));
+							double sentiment = getSentimentScore(word.getDoubles("phraseSentiment"));
 							instanceValue += sentiment;
 	//						instanceValues.put(listOfAttributes.get(ann.getEntryText(attr)), sentiment);
 							dicts++;
@@ -489,11 +494,11 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 				
 				
 				if (hasProperty("use_stanford_sentence_sentiment")){
-					double sentiment = getSentimentScore(sentence.getAnnotation("phraseSentiment", ArrayList.class));
+					double sentiment = getSentimentScore(sentence.getDoubles("phraseSentiment"));
 					instanceValues.put(listOfAttributes.get("stanfordSentiment"), sentiment);
 				}
 				if (hasProperty("use_stanford_opinion_sentiment")){
-					double sentiment = getSentimentScore(span.getAnnotation("phraseSentiment", ArrayList.class));
+					double sentiment = getSentimentScore(span.getDoubles("phraseSentiment"));
 					instanceValues.put(listOfAttributes.get("stanfordOpinionSentiment"), sentiment);
 				}
 				
@@ -736,46 +741,36 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 	
 	
 	public Span getSentence(Span opinionSpan){
-		TreeSet<Span> sentences = opinionSpan.getDataset().getSpans("sentence", opinionSpan.first());
-		sentences.addAll(opinionSpan.getDataset().getSpans("sentence", opinionSpan.last()));
-		return sentences.first();
+		//shared with the ontology algorithm through the derived "containingSentence" annotation, added in preprocess()
+		return opinionSpan.getAnnotation("containingSentence", Span.class);
 	}
 	
-	public TreeSet<Word> getDepWindow(TreeSet<Word> span, int distance){
-		TreeSet<Word> scope = new TreeSet<Word>();
-		scope.addAll(span);
-		for (Word word : span){
-			for (Relation rel : word.getRelations().getRelationsToChildren("deps")){
-				if (rel.getChild() instanceof Word)
-					scope.add((Word)rel.getChild());
-			}
-			for (Relation rel : word.getRelations().getRelationsToParents("deps")){
-				if (rel.getParent() instanceof Word)
-					scope.add((Word)rel.getParent());
-			}
-		}
-		if (distance > 0){
-			return getDepWindow(scope, distance-1);
-		} else {
-			return scope;
-		}
+	public TreeSet<Word> getDepWindow(NavigableSet<Word> span, int distance){
+		if (span.isEmpty())
+			return new TreeSet<Word>();
+		//a distance of 0 already includes the direct neighbours in the dependency graph
+		return span.first().getTextualUnit().getDependencyGraph().neighborhood(span, distance+1);
 	}
 	
-	public double getSentimentScore(ArrayList<Double> sentimentScores){
-		if (sentimentScores == null || sentimentScores.isEmpty())
+	public double getSentimentScore(double[] sentimentScores){
+		if (sentimentScores == null || sentimentScores.length == 0)
 			return 0.0;
 		
 		double score = 0;
-		if (sentimentScores.size()> 0){
-			for (int i = 0; i < 5; i++){
-				score += sentimentScores.get(i)*(i-2);
-			}
+		for (int i = 0; i < 5; i++){
+			score += sentimentScores[i]*(i-2);
 		}
 		return score;
 	}
 
+	/**
+	 * The "depDistance" annotation is not stored by any NLP component, but can be added as a derived annotation, 
+	 * e.g., with <code>DerivedAnnotations.dependencyDistance("opinion")</code>. Without it, every word gets a weight of 1.
+	 * @param w
+	 * @return
+	 */
 	public double getDepDistanceWeight(Word w){
-		double distance = (w.getAnnotation("depDistance"));
+		double distance = w.getDouble("depDistance", 1.0);
 		
 		distance = 1.0 / Math.max(1.0,distance);
 //		distance = Math.max(distance, 0.25);
@@ -1187,10 +1182,10 @@ public class AspectSentimentSVMAlgorithm extends AbstractAlgorithm {
 			Framework.debug("RelationType: "+gramType);
 			for (Relation r : relations.get(gramType)){
 				DataEntity parent = r.getParent();
-				TreeSet<Relation> parentPhrases = parent.getRelations().getRelationsToChildren("syntacticHead");
+				NavigableSet<Relation> parentPhrases = parent.getRelations().getRelationsToChildren("syntacticHead");
 				
 				DataEntity child = r.getChild();
-				TreeSet<Relation> childPhrases = child.getRelations().getRelationsToChildren("syntacticHead");
+				NavigableSet<Relation> childPhrases = child.getRelations().getRelationsToChildren("syntacticHead");
 				
 				Framework.debug(""+parent.getAnnotation("lemma") + " " +
 						parent.getAnnotation("pos") + " " +
@@ -5,6 +5,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.TreeSet;
 
 import org.json.JSONException;
@@ -20,6 +22,7 @@ import edu.eur.absa.evaluation.evaluators.AnnotationLabelEvaluator;
 import edu.eur.absa.evaluation.evaluators.Evaluator;
 import edu.eur.absa.external.ReasoningOntology;
 import edu.eur.absa.model.Dataset;
+import edu.eur.absa.model.DerivedAnnotations;
 import edu.eur.absa.model.Relation;
 import edu.eur.absa.model.Span;
 import edu.eur.absa.model.Word;
@@ -51,8 +54,9 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 
 	}
 
-	public void setDataSubSets(ArrayList<HashSet<Span>> dataSubSets, Dataset dataset){
+	public void setDataSubSets(ArrayList<? extends Set<Span>> dataSubSets, Dataset dataset){
 		super.setDataSubSets(dataSubSets, dataset);
+		DerivedAnnotations.addSentenceContext(dataset);
 		if (hasProperty("use_bow_backup")){
 			
 			if (backupAlg==null){
@@ -109,7 +113,7 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 	}
 	
 	public void testData(Span review) {
-		TreeSet<Span> opinionsForReview = review.getDataset().getSpans(review, "opinion");
+		NavigableSet<Span> opinionsForReview = review.getDataset().getSpans(review, "opinion");
 		for (Span opinion : opinionsForReview){
 			Framework.log(opinion.toString());
 			Span sentence = getSentence(opinion);
@@ -126,7 +130,7 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 	
 	public void predictForReview(Span review){
 		Framework.log(System.currentTimeMillis()+"\tStart next review");
-		TreeSet<Span> opinionsForReview = review.getDataset().getSpans(review, "opinion");
+		NavigableSet<Span> opinionsForReview = review.getDataset().getSpans(review, "opinion");
 		Framework.log("Need to assign sentiment to "+opinionsForReview.size()+" opinions in this review");
 		for (Span opinion : opinionsForReview){
 			HashMap<String, Double> foundURIs = findURIs(opinion, opinionsForReview, ont);
@@ -202,7 +206,7 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 	 * @param ont
 	 * @return
 	 */
-	public HashMap<String, Double> findURIs(Span opinion, TreeSet<Span> opinionsForReview, ReasoningOntology ont){
+	public HashMap<String, Double> findURIs(Span opinion, NavigableSet<Span> opinionsForReview, ReasoningOntology ont){
 		Framework.log(System.currentTimeMillis()+"\tStart findURIs() for next opinion"); 
 		if (ont == null){
 			Framework.error("Ontology is null!");
@@ -212,8 +216,8 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 		}
 		Dataset dataset = opinion.getDataset();
 		Span sentence = getSentence(opinion);
-		TreeSet<Span> opinionsPerSentence = sentence.getCoveredSpans(opinionsForReview);
-		TreeSet<Word> scope = getScope(opinion, sentence, opinionsPerSentence.size());
+		TreeSet<Span> opinionsPerSentence = sentence.getCoveredSpans("opinion");
+		NavigableSet<Word> scope = getScope(opinion, sentence, opinionsPerSentence.size());
 		String category = opinion.getAnnotation("category", String.class);
 		HashMap<String, Double> foundURIs = new HashMap<>();
 		Framework.log(System.currentTimeMillis()+"\tScope contains "+scope.size()+" words. Start loop.");
@@ -371,38 +375,19 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 	
 	
 	private boolean detectNegationAndFindRelatedWords(Word word, HashSet<Word> relatedWords){
-		boolean negate = false;
 		for (Relation rel : word.getRelations().getRelationsToChildren("deps")){
 			if (rel.getChild() instanceof Word){
 				Word child = (Word)rel.getChild();
 				relatedWords.add(child);
 				
 			}
-			if (rel.getAnnotation("relationShortName").equals("neg")){
-				negate = true;
-			}
-			
 		}
 		for (Relation rel : word.getRelations().getRelationsToParents("deps")){
 			if (rel.getParent() instanceof Word)
 				relatedWords.add((Word)rel.getParent());
 		}
-		
-		if (!negate){
-			//check for negation in preceding words
-			int maxLookingBack = 3;
-			Word currentWord = word;
-			while (maxLookingBack > 0 && currentWord.hasPreviousWord()){
-				currentWord = currentWord.getPreviousWord();
-				maxLookingBack--;
-				if (currentWord.getLemma().equalsIgnoreCase("not") || 
-						currentWord.getLemma().equalsIgnoreCase("never")){
-					negate = true;
-				}
-				
-			}
-		}
-		return negate;
+		//a "neg" dependency, or "not" or "never" in the preceding words, see DerivedAnnotations.negation()
+		return word.getAnnotation("negated", Boolean.class);
 	}
 	
 	private void executeNegation(String URI, HashMap<String, Double> foundURIs){
@@ -423,8 +408,8 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 		}
 	}
 	
-	private TreeSet<Word> getScope(Span opinion, Span sentence, int opinionsPerSentence){
-		TreeSet<Word> scope;
+	private NavigableSet<Word> getScope(Span opinion, Span sentence, int opinionsPerSentence){
+		NavigableSet<Word> scope;
 		if (hasProperty("use_sentence")){
 			scope = sentence.getWords();
 //			scope = span.getDataset().getSpans("sentence", span.first()).first();
@@ -486,40 +471,26 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 //		}
 //		return sentences.first();
 		
-		TreeSet<Span> sentences = new TreeSet<Span>();
-		sentences.addAll(opinionSpan.getDataset().getSpans("sentence", opinionSpan.first()));
-		sentences.addAll(opinionSpan.getDataset().getSpans("sentence", opinionSpan.last()));
-		if (sentences.isEmpty()) {
+		//added once in setDataSubSets, see DerivedAnnotations.addSentenceContext(Dataset)
+		Span sentence = opinionSpan.getAnnotation("containingSentence", Span.class);
+		if (sentence == null) {
 			Framework.log("No sentences?");
 			Framework.log("Content opinionSpan: "+opinionSpan.size());
 			Framework.log("Textual unit: "+opinionSpan.getTextualUnit().toString());
-			TreeSet<Span> sentenceList = opinionSpan.getDataset().getSpans(
+			NavigableSet<Span> sentenceList = opinionSpan.getDataset().getSpans(
 					opinionSpan.getTextualUnit(), "sentence");
-			for (Span sentence : sentenceList) {
-				Framework.log(sentence.contains(opinionSpan.first()) + "\t" + sentence.contains(opinionSpan.last()) + "\t" + sentence.getWords());
+			for (Span candidate : sentenceList) {
+				Framework.log(candidate.contains(opinionSpan.first()) + "\t" + candidate.contains(opinionSpan.last()) + "\t" + candidate.getWords());
 			}
 		}
-		return sentences.first();
+		return sentence;
 	}
 	
-	public TreeSet<Word> getDepWindow(TreeSet<Word> span, int distance){
-		TreeSet<Word> scope = new TreeSet<Word>();
-		scope.addAll(span);
-		for (Word word : span){
-			for (Relation rel : word.getRelations().getRelationsToChildren("deps")){
-				if (rel.getChild() instanceof Word)
-					scope.add((Word)rel.getChild());
-			}
-			for (Relation rel : word.getRelations().getRelationsToParents("deps")){
-				if (rel.getParent() instanceof Word)
-					scope.add((Word)rel.getParent());
-			}
-		}
-		if (distance > 0){
-			return getDepWindow(scope, distance-1);
-		} else {
-			return scope;
-		}
+	public TreeSet<Word> getDepWindow(NavigableSet<Word> span, int distance){
+		if (span.isEmpty())
+			return new TreeSet<Word>();
+		//a distance of 0 already includes the direct neighbours in the dependency graph
+		return span.first().getTextualUnit().getDependencyGraph().neighborhood(span, distance+1);
 	}
 	
 	//old predict
@@ -534,7 +505,7 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 			for (Span opinion : review.getDataset().getSpans(review, "opinion")){
 				dataset = opinion.getDataset();
 				
-				Span sentence = dataset.getSpans("sentence", opinion.first()).first();
+				Span sentence = getSentence(opinion);
 				boolean explicitAspect = (sentence.size() > opinion.size());
 				if (failureAnalysis){
 					Framework.log("===");
@@ -701,7 +672,7 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 //			Framework.log("\t"+relWord.getLemma());
 //		}
 		
-		if (parent || rel.getAnnotation("relationShortName").equals("nsubj")){
+		if (parent || rel.annotationEquals("relationShortName", "nsubj")){
 			return relWord;
 		} else { 
 			return null;
@@ -727,7 +698,7 @@ public class OntologySentimentAlgorithm extends AbstractAlgorithm {
 			return 0;
 		}
 		int children = 0;
-		TreeSet<Relation> relationsToChildren = parent.getRelations().getRelationsToChildren("deps");
+		NavigableSet<Relation> relationsToChildren = parent.getRelations().getRelationsToChildren("deps");
 		TreeSet<Word> directChildren = new TreeSet<>();
 		for (Relation relToChild : relationsToChildren){
 			String depName = relToChild.getAnnotation("relationShortName");
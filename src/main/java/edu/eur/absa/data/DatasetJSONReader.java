@@ -5,152 +5,244 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import edu.eur.absa.Framework;
 import edu.eur.absa.model.DataEntity;
 import edu.eur.absa.model.Dataset;
 import edu.eur.absa.model.Relation;
 import edu.eur.absa.model.Span;
+import edu.eur.absa.model.TextualUnitBuilder;
 import edu.eur.absa.model.Word;
 import edu.eur.absa.model.exceptions.IllegalSpanException;
 import edu.eur.absa.nlp.NLPTask;
 
+/**
+ * Reads a <code>Dataset</code> that has been saved with {@link DatasetJSONWriter}. The file is parsed as a stream of tokens, and the 
+ * textual units, <code>Word</code>s, <code>Span</code>s and <code>Relation</code>s are created while they are parsed, one entity at a time, 
+ * so neither the text of the file nor a complete JSON tree is kept in memory. 
+ * The entities have to be created in the order textual units, <code>Word</code>s, <code>Span</code>s, <code>Relation</code>s, 
+ * which is the order in which <code>DatasetJSONWriter</code> writes them. A section that comes earlier in the file than the sections it 
+ * depends on (as in files written by older versions) is parsed as a whole and set aside until it can be processed.
+ *
+ */
 public class DatasetJSONReader implements IDataReader {
 
+	/**
+	 * Order to read:
+	 * 1. Textual spans, since they can be created empty and words have a hard link to them
+	 * 2. Words, link them to their textual span
+	 * 3. Other spans, find their words and link to textual span
+	 * 4. Relations, as all necessary Annotatables should be loaded by now
+	 */
+	private static final String[] SECTIONS = {"textualUnits", "words", "spans", "relations"};
+	
 	@Override
 	public Dataset read(File file) throws IOException, ClassNotFoundException, JSONException, IllegalSpanException {
 		Framework.debug("DatasetJSONReader: Start reading " + file + "...");
-		BufferedReader in = new BufferedReader(new FileReader(file));
-		String line;
-		String json = "";
-		while ((line = in.readLine()) != null){
-			json += line + "\n";
-		}
-		in.close();
-		
-		JSONObject datasetJSON = new JSONObject(json.trim());
-		Dataset dataset = new Dataset(file.getName(),datasetJSON.getString("textualUnitSpanType"));
-		for (Object nlpTask : datasetJSON.getJSONArray("performedNLPTasks")){
-			dataset.getPerformedNLPTasks().add(NLPTask.valueOf((String)nlpTask));
+		try (BufferedReader in = new BufferedReader(new FileReader(file))){
+			return new DatasetParser(file.getName(), new JSONTokener(in)).parse();
 		}
+	}
+	
+	//the state of reading one file
+	private class DatasetParser {
 		
-		JSONObject annotationDataTypesJSON = datasetJSON.getJSONObject("annotationDataTypes");
-		for (String annotationType : annotationDataTypesJSON.keySet()){
-			dataset.getAnnotationDataTypes().put(annotationType, Class.forName(annotationDataTypesJSON.getString(annotationType)));
-		}
+		private final String name;
+		private final JSONTokener tokener;
+		private Dataset dataset = null;
+		//the header can come in any order, so parts of it are kept until the Dataset can be created
+		private JSONArray performedNLPTasksJSON = null;
+		private JSONObject annotationDataTypesJSON = null;
+		private boolean headerDone = false;
+		//the number of sections that have been processed, in the order of SECTIONS
+		private int sectionsDone = 0;
+		private HashMap<String, JSONArray> deferredSections = new HashMap<>();
 		/**
-		 * Order to read:
-		 * 1. Textual spans, since they can be created empty and words have a hard link to them
-		 * 2. Words, link them to their textual span
-		 * 3. Other spans, find their words and link to textual span
-		 * 4. Relations, as all necessary Annotatables should be loaded by now
-		 * 
 		 * Since Annotatables get a fresh id on object creation, keep a mapping of the old ids at
 		 * hand to resolve the links in the dataset
 		 */
-		HashMap<Integer, DataEntity> oldIds = new HashMap<>();
-
-		for (Object textualUnit : datasetJSON.getJSONArray("textualUnits")){
-			Span textualSpan = new Span(dataset.getTextualUnitSpanType(), dataset);
-			JSONObject textualSpanJSON = (JSONObject)textualUnit;
-			//generic Annotatable stuff to do
-			processAnnotatable(textualSpan, textualSpanJSON, oldIds);
+		private int[] newIds = new int[1024];
+		//the Words or Spans of the current textual unit are created in bulk once the next textual unit comes along
+		private TextualUnitBuilder builder = null;
+		private ArrayList<JSONObject> builderJSONs = new ArrayList<>();
+		
+		private DatasetParser(String name, JSONTokener tokener){
+			this.name = name;
+			this.tokener = tokener;
 		}
-		for (Object wordObj : datasetJSON.getJSONArray("words")){
-			JSONObject wordJSON = (JSONObject)wordObj;
-			int textualUnitId = wordJSON.getInt("textualUnitId");
-			Span textualUnit = (Span)oldIds.get(textualUnitId);
-			Word word;
-			if (textualUnit.size()==0){
-				word = new Word(wordJSON.getString("word"),wordJSON.getInt("startOffset"),textualUnit, dataset);
-			} else {
-				word = new Word(wordJSON.getString("word"), wordJSON.getInt("startOffset"), textualUnit.last());
+		
+		private Dataset parse() throws ClassNotFoundException, IllegalSpanException{
+			if (tokener.nextClean() != '{')
+				throw tokener.syntaxError("A Dataset file has to start with '{'");
+			char c = tokener.nextClean();
+			while (c != '}'){
+				tokener.back();
+				String key = tokener.nextValue().toString();
+				if (tokener.nextClean() != ':')
+					throw tokener.syntaxError("Expected ':' after "+key);
+				int section = Arrays.asList(SECTIONS).indexOf(key);
+				if (section >= 0 && section == sectionsDone && isHeaderDone()){
+					streamSection(key);
+				} else if (section >= 0){
+					deferredSections.put(key, (JSONArray)tokener.nextValue());
+				} else {
+					readHeader(key, tokener.nextValue());
+				}
+				processDeferredSections(false);
+				c = tokener.nextClean();
+				if (c == ','){
+					c = tokener.nextClean();
+				} else if (c != '}'){
+					throw tokener.syntaxError("Expected ',' or '}' after "+key);
+				}
+			}
+			if (!isHeaderDone())
+				throw new JSONException("The Dataset file does not have a textualUnitSpanType and annotationDataTypes");
+			processDeferredSections(true);
+			return dataset;
+		}
+		
+		private void readHeader(String key, Object value) throws ClassNotFoundException{
+			if (key.equals("textualUnitSpanType")){
+				dataset = new Dataset(name, (String)value);
+			} else if (key.equals("performedNLPTasks")){
+				performedNLPTasksJSON = (JSONArray)value;
+			} else if (key.equals("annotationDataTypes")){
+				annotationDataTypesJSON = (JSONObject)value;
+			}
+			if (dataset != null && performedNLPTasksJSON != null){
+				for (Object nlpTask : performedNLPTasksJSON){
+					dataset.getPerformedNLPTasks().add(NLPTask.valueOf((String)nlpTask));
+				}
+				performedNLPTasksJSON = null;
+			}
+			if (dataset != null && annotationDataTypesJSON != null){
+				for (String annotationType : annotationDataTypesJSON.keySet()){
+					dataset.getAnnotationDataTypes().put(annotationType, Class.forName(annotationDataTypesJSON.getString(annotationType)));
+				}
+				annotationDataTypesJSON = null;
+				headerDone = true;
+			}
+		}
+		
+		private boolean isHeaderDone(){
+			return headerDone;
+		}
+		
+		//process the sections that were set aside as soon as the sections before them are done, or at the end of the file whatever is missing
+		private void processDeferredSections(boolean endOfFile) throws IllegalSpanException{
+			if (!isHeaderDone())
+				return;
+			while (sectionsDone < SECTIONS.length){
+				JSONArray sectionJSON = deferredSections.remove(SECTIONS[sectionsDone]);
+				if (sectionJSON == null && !endOfFile)
+					return;
+				if (sectionJSON != null){
+					for (Object entityJSON : sectionJSON){
+						processEntity(SECTIONS[sectionsDone], (JSONObject)entityJSON);
+					}
+				}
+				finishSection();
+			}
+		}
+		
+		private void streamSection(String section) throws IllegalSpanException{
+			if (tokener.nextClean() != '[')
+				throw tokener.syntaxError("Expected '[' at the start of "+section);
+			char c = tokener.nextClean();
+			while (c != ']'){
+				tokener.back();
+				Object entityJSON = tokener.nextValue();
+				if (!(entityJSON instanceof JSONObject))
+					throw tokener.syntaxError("Expected an object in "+section);
+				processEntity(section, (JSONObject)entityJSON);
+				c = tokener.nextClean();
+				if (c == ','){
+					c = tokener.nextClean();
+				} else if (c != ']'){
+					throw tokener.syntaxError("Expected ',' or ']' in "+section);
+				}
 			}
-			//generic Annotatable stuff
-			processAnnotatable(word, wordJSON, oldIds);
+			finishSection();
+		}
+		
+		private void finishSection() throws IllegalSpanException{
+			buildTextualUnit();
+			sectionsDone++;
 		}
-		if (datasetJSON.has("spans")){
-			for (Object spanObj : datasetJSON.getJSONArray("spans")){
-				JSONObject spanJSON = (JSONObject)spanObj;
-				
-				Word firstWord = (Word) oldIds.get(spanJSON.getInt("firstWordId"));
-				Word lastWord = (Word) oldIds.get(spanJSON.getInt("lastWordId"));
-				String spanType = spanJSON.getString("spanType");
+		
+		private void processEntity(String section, JSONObject entityJSON) throws IllegalSpanException{
+			if (section.equals("textualUnits")){
+				Span textualSpan = new Span(dataset.getTextualUnitSpanType(), dataset);
+				//generic Annotatable stuff to do
+				processAnnotatable(textualSpan, entityJSON);
+			} else if (section.equals("words")){
+				Span textualUnit = (Span)getEntity(entityJSON.getInt("textualUnitId"));
+				startTextualUnit(textualUnit);
+				builder.addWord(entityJSON.getString("word"), entityJSON.getInt("startOffset"));
+				builderJSONs.add(entityJSON);
+			} else if (section.equals("spans")){
+				Word firstWord = (Word) getEntity(entityJSON.getInt("firstWordId"));
+				Word lastWord = (Word) getEntity(entityJSON.getInt("lastWordId"));
 				if (firstWord == null || lastWord == null){
-					Framework.log(spanJSON.toString(2));
+					Framework.log(entityJSON.toString(2));
+					throw new JSONException("Span "+entityJSON.getInt("id")+" refers to a Word that is not in the file");
 				}
-				Span span = new Span(spanType, firstWord, lastWord);
+				startTextualUnit(firstWord.getTextualUnit());
+				builder.addSpan(entityJSON.getString("spanType"), firstWord, lastWord);
+				builderJSONs.add(entityJSON);
+			} else {
+				DataEntity parent = getEntity(entityJSON.getInt("parentId"));
+				DataEntity child = getEntity(entityJSON.getInt("childId"));
+				String type = entityJSON.getString("type");
+				Relation rel = new Relation(type, parent, child);
 				//generic Annotatable stuff
-				processAnnotatable(span, spanJSON, oldIds);
+				processAnnotatable(rel, entityJSON);
 			}
 		}
-		if (datasetJSON.has("relations")){
-			for (Object relObj : datasetJSON.getJSONArray("relations")){
-				JSONObject relJSON = (JSONObject)relObj;
-				DataEntity parent = oldIds.get(relJSON.getInt("parentId"));
-				DataEntity child = oldIds.get(relJSON.getInt("childId"));
-				String type = relJSON.getString("type");
-				Relation rel = new Relation(type, parent, child);
+		
+		private void startTextualUnit(Span textualUnit){
+			if (builder != null && builder.getTextualUnit() != textualUnit)
+				buildTextualUnit();
+			if (builder == null)
+				builder = new TextualUnitBuilder(textualUnit);
+		}
+		
+		private void buildTextualUnit(){
+			if (builder == null)
+				return;
+			Word[] words = builder.build();
+			for (int i = 0; i < builderJSONs.size(); i++){
 				//generic Annotatable stuff
-				processAnnotatable(rel, relJSON, oldIds);
+				processAnnotatable(words.length > 0 ? words[i] : builder.getSpan(i), builderJSONs.get(i));
 			}
+			builder = null;
+			builderJSONs.clear();
 		}
 		
-//		for (Object textualUnit : datasetJSON.getJSONArray("textualUnits")){
-//			TreeMap<Integer, Word> wordByOrder = new TreeMap<>();
-//			Span textualSpan = new Span(dataset.getTextualUnitSpanType(), dataset);
-//			JSONObject textualSpanJSON = (JSONObject)textualUnit;
-//			for (Object wordObj : textualSpanJSON.getJSONArray("words")){
-//				JSONObject wordJSON = (JSONObject)wordObj;
-//				Word word;
-//				if (wordByOrder.isEmpty()){
-//					word = new Word(wordJSON.getString("word"),wordJSON.getInt("startOffset"),textualSpan, dataset);
-//					wordByOrder.put(word.getOrder(), word);
-//				} else {
-//					word = new Word(wordJSON.getString("word"), wordJSON.getInt("startOffset"), wordByOrder.get(wordByOrder.lastKey()));
-//					wordByOrder.put(word.getOrder(), word);
-//				}
-//				JSONObject annotationsJSON = wordJSON.getJSONObject("annotations");
-//				for (String annotationKey : annotationsJSON.keySet()){
-//					word.getAnnotations().put(annotationKey, translateJSONToProperObject(dataset, annotationKey, annotationsJSON));
-//				}
-//			}
-//			for (Object spanObj : textualSpanJSON.getJSONArray("spans")){
-//				JSONObject spanJSON = (JSONObject)spanObj;
-//				Span span;
-//				if (spanJSON.getString("spanType").equalsIgnoreCase(dataset.getTextualUnitSpanType())){
-//					//this is the span we already created earlier to put our words in
-//					span = textualSpan;
-//				} else {
-//					Word firstWord = wordByOrder.get(spanJSON.getInt("first"));
-//					Word lastWord = wordByOrder.get(spanJSON.getInt("last"));
-//					String spanType = spanJSON.getString("spanType");
-//					
-//					span = new Span(spanType, firstWord, lastWord);
-//				}
-//				//now fix the annotations for both cases
-//				JSONObject annotationsJSON = spanJSON.getJSONObject("annotations");
-//				for (String annotationKey : annotationsJSON.keySet()){
-//					span.getAnnotations().put(annotationKey, translateJSONToProperObject(dataset, annotationKey, annotationsJSON));
-//				}
-//			}
-//			
-//		}
+		private DataEntity getEntity(int oldId){
+			if (oldId <= 0 || oldId >= newIds.length)
+				return null;
+			return dataset.getAnnotatable(newIds[oldId]);
+		}
 		
-		return dataset;
-	}
-	
-	private void processAnnotatable(DataEntity ann, JSONObject annJSON, HashMap<Integer, DataEntity> oldIds){
-		oldIds.put(annJSON.getInt("id"), ann);
-		JSONObject annotationsJSON = annJSON.getJSONObject("annotations");
-		for (String annotationKey : annotationsJSON.keySet()){
-			ann.putAnnotation(annotationKey, translateJSONToProperObject(ann.getDataset(), annotationKey, annotationsJSON));
+		private void processAnnotatable(DataEntity ann, JSONObject annJSON){
+			int oldId = annJSON.getInt("id");
+			if (oldId >= newIds.length)
+				newIds = Arrays.copyOf(newIds, Math.max(newIds.length * 2, oldId + 1));
+			newIds[oldId] = ann.getId();
+			JSONObject annotationsJSON = annJSON.getJSONObject("annotations");
+			for (String annotationKey : annotationsJSON.keySet()){
+				ann.putAnnotation(annotationKey, translateJSONToProperObject(ann.getDataset(), annotationKey, annotationsJSON));
+			}
 		}
 	}
 	
@@ -177,6 +269,30 @@ public class DatasetJSONReader implements IDataReader {
 			}
 			//now cast to the right HashSet<?>
 			return dataset.getAnnotationDataTypes().get(annotationKey).cast(objects);
+		} else if (dataset.getAnnotationDataTypes().get(annotationKey).equals(double[].class)){
+			//primitive arrays are stored as JSONArrays as well
+			JSONArray arrayData = annotationsJSON.getJSONArray(annotationKey);
+			double[] values = new double[arrayData.length()];
+			for (int i = 0; i < values.length; i++){
+				values[i] = arrayData.getDouble(i);
+			}
+			return values;
+		} else if (dataset.getAnnotationDataTypes().get(annotationKey).equals(float[].class)){
+			JSONArray arrayData = annotationsJSON.getJSONArray(annotationKey);
+			float[] values = new float[arrayData.length()];
+			for (int i = 0; i < values.length; i++){
+				values[i] = (float) arrayData.getDouble(i);
+			}
+			return values;
+		} else if (dataset.getAnnotationDataTypes().get(annotationKey).equals(int[].class)){
+			JSONArray arrayData = annotationsJSON.getJSONArray(annotationKey);
+			int[] values = new int[arrayData.length()];
+			for (int i = 0; i < values.length; i++){
+				values[i] = arrayData.getInt(i);
+			}
+			return values;
+		} else if (dataset.getAnnotationDataTypes().get(annotationKey).equals(Integer.class)){
+			return annotationsJSON.getInt(annotationKey);
 		} else {
 			return dataset.getAnnotationDataTypes().get(annotationKey).cast(annotationsJSON.get(annotationKey));
 		}
@@ -5,6 +5,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import edu.eur.absa.Framework;
@@ -36,79 +37,106 @@ public class DatasetJSONWriter implements IDataWriter{
 	@Override
 	public void write(Dataset dataset, File file) throws IOException {
 		Framework.debug("DatasetJSONWriter: Start writing " + file + "...");
-		JSONObject datasetJSON = new JSONObject();
-		
-		datasetJSON.put("textualUnitSpanType", dataset.getTextualUnitSpanType());
-		for (NLPTask performedTask : dataset.getPerformedNLPTasks()){
-			datasetJSON.append("performedNLPTasks", performedTask);
-		}
-		
-		JSONObject annotationDataTypesJSON = new JSONObject();
-		datasetJSON.put("annotationDataTypes", annotationDataTypesJSON);
-		for (String annotationType : dataset.getAnnotationDataTypes().keySet()){
-			annotationDataTypesJSON.put(annotationType, dataset.getAnnotationDataTypes().get(annotationType).getName());
-		}
-		
-		for (int id = 1; id <= dataset.getCurrentId(); id++){
-			DataEntity a = dataset.getAnnotatable(id);
-			JSONObject annJSON = new JSONObject();
-			if (a instanceof Word){
-				Word word = (Word)a;
-				annJSON.put("startOffset", word.getStartOffset());
-				annJSON.put("word",word.getWord());
-				annJSON.put("order", word.getOrder());
-				annJSON.put("id", word.getId());
-				annJSON.put("textualUnitId", word.getTextualUnit().getId());
-//				wordJSON.put("annotations", word.getAnnotations());
-				datasetJSON.append("words", annJSON);
-				
-			}
-			if (a instanceof Span){
-				Span span = (Span)a;
-				annJSON.put("id", span.getId());
-				annJSON.put("spanType", span.getType());
-				if (span.size() == 0){
-					Framework.debug("Span without words: (" + span.getId() + ") " + span+"\nTextual Unit: "+span.getTextualUnit());
-				}
-				annJSON.put("firstWordId", span.first().getId());
-				annJSON.put("lastWordId", span.last().getId());
-				annJSON.put("textualUnitId", span.getTextualUnit().getId());
-//				spanJSON.put("annotations", span.getAnnotations());
-				if (span.getTextualUnit().getId()==span.getId()){
-					datasetJSON.append("textualUnits", annJSON);
-				} else {
-					datasetJSON.append("spans",annJSON);
-				}
+		if (dataset.isSpilledToDisk())
+			throw new IOException("A Dataset that has been spilled to disk has to be loaded before it can be written");
+		//the file is written one entity at a time, with the sections in the order DatasetJSONReader needs them
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(file))){
+			out.write("{");
+			writeKey(out, "textualUnitSpanType", true);
+			out.write(JSONObject.quote(dataset.getTextualUnitSpanType()));
+			
+			writeKey(out, "performedNLPTasks", false);
+			JSONArray performedNLPTasksJSON = new JSONArray();
+			for (NLPTask performedTask : dataset.getPerformedNLPTasks()){
+				performedNLPTasksJSON.put(performedTask.toString());
 			}
-			if (a instanceof Relation){
-				Relation rel = (Relation)a;
-				annJSON.put("id", rel.getId());
-				annJSON.put("type", rel.getType());
-				annJSON.put("parentId", rel.getParent().getId());
-				annJSON.put("childId", rel.getChild().getId());
-				datasetJSON.append("relations",annJSON);
+			out.write(performedNLPTasksJSON.toString());
+			
+			writeKey(out, "annotationDataTypes", false);
+			JSONObject annotationDataTypesJSON = new JSONObject();
+			for (String annotationType : dataset.getAnnotationDataTypes().keySet()){
+				annotationDataTypesJSON.put(annotationType, dataset.getAnnotationDataTypes().get(annotationType).getName());
 			}
-			JSONObject annotationsJSON = new JSONObject();
-			annJSON.put("annotations", annotationsJSON);
-			if (a == null){
-				Framework.debug("Removed id: "+id);
-			} else {
-				for (String annotationKey : a.getAnnotationTypes()){
-					annotationsJSON.put(annotationKey, (Object)a.getAnnotation(annotationKey));
-					
+			out.write(prettyJSON ? annotationDataTypesJSON.toString(2) : annotationDataTypesJSON.toString());
+			
+			for (String section : new String[]{"textualUnits", "words", "spans", "relations"}){
+				writeKey(out, section, false);
+				out.write("[");
+				boolean first = true;
+				for (int id = 1; id <= dataset.getCurrentId(); id++){
+					DataEntity a = dataset.getAnnotatable(id);
+					if (a == null){
+						if (section.equals("textualUnits"))
+							Framework.debug("Removed id: "+id);
+					} else if (section.equals(getSection(a))){
+						out.write(first ? "" : ",");
+						if (prettyJSON)
+							out.write("\n    ");
+						out.write(toJSON(a).toString());
+						first = false;
+					}
 				}
+				if (prettyJSON && !first)
+					out.write("\n  ");
+				out.write("]");
 			}
-			
+			out.write(prettyJSON ? "\n}" : "}");
+		}
+	}
+	
+	private void writeKey(BufferedWriter out, String key, boolean first) throws IOException{
+		if (!first)
+			out.write(",");
+		if (prettyJSON)
+			out.write("\n  ");
+		out.write(JSONObject.quote(key));
+		out.write(":");
+	}
+	
+	private static String getSection(DataEntity a){
+		if (a instanceof Word)
+			return "words";
+		if (a instanceof Span)
+			return (((Span)a).getTextualUnit() == a) ? "textualUnits" : "spans";
+		if (a instanceof Relation)
+			return "relations";
+		return null;
+	}
+	
+	private static JSONObject toJSON(DataEntity a){
+		JSONObject annJSON = new JSONObject();
+		if (a instanceof Word){
+			Word word = (Word)a;
+			annJSON.put("startOffset", word.getStartOffset());
+			annJSON.put("word",word.getWord());
+			annJSON.put("order", word.getOrder());
+			annJSON.put("id", word.getId());
+			annJSON.put("textualUnitId", word.getTextualUnit().getId());
+		}
+		if (a instanceof Span){
+			Span span = (Span)a;
+			annJSON.put("id", span.getId());
+			annJSON.put("spanType", span.getType());
+			if (span.size() == 0){
+				Framework.debug("Span without words: (" + span.getId() + ") " + span+"\nTextual Unit: "+span.getTextualUnit());
+			}
+			annJSON.put("firstWordId", span.first().getId());
+			annJSON.put("lastWordId", span.last().getId());
+			annJSON.put("textualUnitId", span.getTextualUnit().getId());
 		}
-		
-		BufferedWriter out;
-		out = new BufferedWriter(new FileWriter(file));
-		if (prettyJSON){
-			out.write(datasetJSON.toString(2));
-		} else {
-			out.write(datasetJSON.toString());
+		if (a instanceof Relation){
+			Relation rel = (Relation)a;
+			annJSON.put("id", rel.getId());
+			annJSON.put("type", rel.getType());
+			annJSON.put("parentId", rel.getParent().getId());
+			annJSON.put("childId", rel.getChild().getId());
 		}
-		out.close();
+		JSONObject annotationsJSON = new JSONObject();
+		annJSON.put("annotations", annotationsJSON);
+		for (String annotationKey : a.getAnnotationTypes()){
+			annotationsJSON.put(annotationKey, translateObjectToJSON(a.getAnnotation(annotationKey)));
+		}
+		return annJSON;
 	}
 
 	@Override
@@ -123,4 +151,28 @@ public class DatasetJSONWriter implements IDataWriter{
 	
 	
 
+	//primitive arrays are written as JSONArrays, everything else is left to JSONObject
+	private static Object translateObjectToJSON(Object value){
+		if (value instanceof double[]){
+			JSONArray array = new JSONArray();
+			for (double d : (double[]) value){
+				array.put(d);
+			}
+			return array;
+		} else if (value instanceof float[]){
+			JSONArray array = new JSONArray();
+			for (float f : (float[]) value){
+				//through the String, so the float is not written with the extra digits of its double value
+				array.put(Double.parseDouble(Float.toString(f)));
+			}
+			return array;
+		} else if (value instanceof int[]){
+			JSONArray array = new JSONArray();
+			for (int i : (int[]) value){
+				array.put(i);
+			}
+			return array;
+		}
+		return value;
+	}
 }
@@ -2,8 +2,8 @@ package edu.eur.absa.data;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.NavigableSet;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 import nu.xom.Builder;
 import nu.xom.Document;
@@ -199,8 +199,8 @@ public class SemEval2014Task4ABSAReader implements IDataReader {
 	public static void showStatistics(Dataset dataset){
 		
 		
-		TreeSet<Span> aspectTerms = dataset.getSpans("aspectTerm");
-		TreeSet<Span> aspectCategories= dataset.getSpans("aspectCategory");
+		NavigableSet<Span> aspectTerms = dataset.getSpans("aspectTerm");
+		NavigableSet<Span> aspectCategories= dataset.getSpans("aspectCategory");
 		HashMap<String, Integer> sentimentFreqsTerms = new HashMap<>();
 		HashMap<String, Integer> sentimentFreqsCategories = new HashMap<>();
 		HashMap<String, Integer> categoryFreqs = new HashMap<>();
@@ -216,7 +216,7 @@ public class SemEval2014Task4ABSAReader implements IDataReader {
 		}	
 		
 		
-		TreeSet<Span> sentences = dataset.getSpans("sentence");
+		NavigableSet<Span> sentences = dataset.getSpans("sentence");
 		HashMap<Integer, Integer> termsPerSentence = new HashMap<>();
 		HashMap<Integer, Integer> categoriesPerSentence = new HashMap<>();
 		
@@ -224,7 +224,7 @@ public class SemEval2014Task4ABSAReader implements IDataReader {
 		int deviatingCategoryOpinions = 0;
 		for (Span sentence : sentences){
 			//count aspectTerm data
-			TreeSet<Span> termsInSentence = dataset.getSpans(sentence, "aspectTerm");
+			NavigableSet<Span> termsInSentence = dataset.getSpans(sentence, "aspectTerm");
 			termsPerSentence.put(termsInSentence.size(), termsPerSentence.getOrDefault(termsInSentence.size(),0)+1);
 			if (!termsInSentence.isEmpty()){
 				HashMap<String, Integer> sentSentFreqs = new HashMap<>();
@@ -239,7 +239,7 @@ public class SemEval2014Task4ABSAReader implements IDataReader {
 				deviatingTermOpinions += termsInSentence.size() - sortedPolarities.lastKey();
 			}
 			//count aspectCategory data
-			TreeSet<Span> categoriesInSentence = dataset.getSpans(sentence, "aspectCategory");
+			NavigableSet<Span> categoriesInSentence = dataset.getSpans(sentence, "aspectCategory");
 			categoriesPerSentence.put(categoriesInSentence.size(), categoriesPerSentence.getOrDefault(categoriesInSentence.size(),0)+1);
 			if (!categoriesInSentence.isEmpty()){
 				HashMap<String, Integer> sentSentFreqs = new HashMap<>();
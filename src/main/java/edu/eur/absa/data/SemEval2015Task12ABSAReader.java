@@ -3,6 +3,7 @@ package edu.eur.absa.data;
 import java.io.File;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.NavigableSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
@@ -180,7 +181,7 @@ public class SemEval2015Task12ABSAReader implements IDataReader {
 	public static void showStatistics(Dataset dataset){
 		
 		
-		TreeSet<Span> opinions = dataset.getSpans("opinion");
+		NavigableSet<Span> opinions = dataset.getSpans("opinion");
 		HashMap<String, Integer> sentimentFreqs = new HashMap<>();
 		HashMap<String, Integer> categoryFreqs = new HashMap<>();
 		for (Span opinion : opinions){
@@ -190,11 +191,11 @@ public class SemEval2015Task12ABSAReader implements IDataReader {
 			categoryFreqs.put(cat, categoryFreqs.getOrDefault(cat, 0)+1);
 		}
 		
-		TreeSet<Span> sentences = dataset.getSpans("sentence");
+		NavigableSet<Span> sentences = dataset.getSpans("sentence");
 		HashMap<Integer, Integer> opinionsPerSentence = new HashMap<>();
 		int deviatingOpinionsS = 0;
 		for (Span sentence : sentences){
-			TreeSet<Span> opinionsInSentence = sentence.getCoveredSpans(opinions);
+			TreeSet<Span> opinionsInSentence = sentence.getCoveredSpans("opinion");
 			opinionsPerSentence.put(opinionsInSentence.size(), opinionsPerSentence.getOrDefault(opinionsInSentence.size(),0)+1);
 			if (!opinionsInSentence.isEmpty()){
 				HashMap<String, Integer> sentSentFreqs = new HashMap<>();
@@ -211,11 +212,11 @@ public class SemEval2015Task12ABSAReader implements IDataReader {
 			}
 		}
 		
-		TreeSet<Span> reviews = dataset.getSpans("review");
+		NavigableSet<Span> reviews = dataset.getSpans("review");
 		HashMap<Integer, Integer> opinionsPerReview = new HashMap<>();
 		int deviatingOpinionsR = 0;
 		for (Span review : reviews){
-			TreeSet<Span> opinionsInReview = review.getCoveredSpans(opinions);
+			TreeSet<Span> opinionsInReview = review.getCoveredSpans("opinion");
 			opinionsPerReview.put(opinionsInReview.size(), opinionsPerReview.getOrDefault(opinionsInReview.size(),0)+1);
 			if (!opinionsInReview.isEmpty()){
 				HashMap<String, Integer> sentSentFreqs = new HashMap<>();
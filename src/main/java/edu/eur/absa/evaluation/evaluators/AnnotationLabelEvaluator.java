@@ -57,7 +57,7 @@ public class AnnotationLabelEvaluator implements Evaluator {
 			if (parentSpan.getType().equals(spanType)){
 				analysisSpans.add(parentSpan);
 			} else {
-				analysisSpans.addAll(parentSpan.getCoveredSpans(parentSpan.getDataset().getSpans(spanType)));
+				analysisSpans.addAll(parentSpan.getCoveredSpans(spanType));
 			}
 			
 			for (Span span : analysisSpans){
@@ -78,10 +78,8 @@ public class SpanLabelEvaluator implements Evaluator {
 			}
 			
 			
-			//get all spans within the textual unit of the parentSpan with type = spanType
-			TreeSet<Span> golds = dataset.getSpans(parentSpan.getTextualUnit(), spanType);
-			//only get spans out of this set that are covered by the parentSpan (e.g., only opinions under this sentence)
-			golds = parentSpan.getCoveredSpans(golds);
+			//get the spans with type = spanType that are covered by the parentSpan (e.g., only opinions under this sentence)
+			TreeSet<Span> golds = parentSpan.getCoveredSpans(spanType);
 			
 			HashSet<Object> goldLabels = new HashSet<>();
 			for (Span s : golds){
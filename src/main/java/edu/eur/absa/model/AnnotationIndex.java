@@ -0,0 +1,95 @@
+package edu.eur.absa.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+
+/**
+ * Inverted index for a single annotation type, from each annotation value to the <code>DataEntity</code>s that have that value.
+ * Values are compared with <code>equals</code>, so for an annotation holding a collection, the whole collection is the key.
+ * The entities per value are kept ordered by id, just like the other indexes of a <code>Dataset</code>.
+ * Instances are created with {@link Dataset#addAnnotationIndex(String)} and kept up to date by <code>DataEntity.putAnnotation</code>.
+ *
+ */
+class AnnotationIndex {
+
+	private final String annotationType;
+	private HashMap<Object, IdOrderedSet<DataEntity>> entitiesByValue = new HashMap<>();
+
+	AnnotationIndex(String annotationType){
+		this.annotationType = annotationType;
+	}
+
+	String getAnnotationType(){
+		return annotationType;
+	}
+
+	void add(DataEntity entity, Object value){
+		if (value == null)
+			return;
+		IdOrderedSet<DataEntity> entities = entitiesByValue.get(value);
+		if (entities == null){
+			entities = new IdOrderedSet<>();
+			entitiesByValue.put(value, entities);
+		}
+		entities.append(entity);
+	}
+
+	/**
+	 * Add all entities of another index, which all have higher ids than the entities in this index, as is the case when merging
+	 * <code>Dataset</code>s. The sets of the other index are appended or taken over, so the other index should not be used afterwards.
+	 * @param other
+	 */
+	void appendAll(AnnotationIndex other){
+		for (Map.Entry<Object, IdOrderedSet<DataEntity>> entry : other.entitiesByValue.entrySet()){
+			IdOrderedSet<DataEntity> entities = entitiesByValue.get(entry.getKey());
+			if (entities == null)
+				entitiesByValue.put(entry.getKey(), entry.getValue());
+			else
+				entities.appendAll(entry.getValue());
+		}
+	}
+
+	void remove(DataEntity entity, Object value){
+		if (value == null)
+			return;
+		IdOrderedSet<DataEntity> entities = entitiesByValue.get(value);
+		if (entities != null){
+			entities.removeEntity(entity);
+			if (entities.isEmpty())
+				entitiesByValue.remove(value);
+		}
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return The existing read-only set of entities with this value, ordered by id (empty if there are none)
+	 */
+	NavigableSet<DataEntity> get(Object value){
+		IdOrderedSet<DataEntity> entities = entitiesByValue.get(value);
+		if (entities == null)
+			return Collections.emptyNavigableSet();
+		return entities;
+	}
+
+	/**
+	 *
+	 * @return The existing read-only set of values that occur in the index
+	 */
+	Set<Object> getValues(){
+		return Collections.unmodifiableSet(entitiesByValue.keySet());
+	}
+
+	void compact(){
+		for (IdOrderedSet<DataEntity> entities : entitiesByValue.values()){
+			entities.compact();
+		}
+	}
+
+	void clear(){
+		entitiesByValue = new HashMap<>();
+	}
+}
@@ -0,0 +1,155 @@
+package edu.eur.absa.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The <code>AnnotationSchema</code> of a <code>Dataset</code> keeps track of all annotation types that are in use, together with their data type.
+ * Each annotation type gets a small integer slot the first time a value is stored for it, and every <code>DataEntity</code> keeps its
+ * annotation values in an array indexed by these slots, instead of in its own <code>HashMap</code>.
+ * The slot of an annotation type can be retrieved once and then used with the slot-based accessors in <code>DataEntity</code>
+ * to avoid the lookup of the annotation type altogether.
+ * The schema is shared by all threads writing into a <code>Dataset</code>, so it is thread-safe: new slots are registered under a lock,
+ * while looking up slots and their types does not need one.
+ * <p>Some <code>String</code> annotations only take values from a small vocabulary, like part-of-speech tags or polarities. The values of these 
+ * dictionary encoded annotation types are replaced by the single instance kept in the <code>StringDictionary</code> of the <code>Dataset</code>, 
+ * so every distinct value is in memory only once, and comparing values mostly comes down to comparing references.</p>
+ *
+ */
+public class AnnotationSchema {
+
+	//the registered data types per annotation type, this is what Dataset.getAnnotationDataTypes() exposes
+	private ConcurrentHashMap<String, Class<?>> dataTypes = new ConcurrentHashMap<>();
+	private ConcurrentHashMap<String, Integer> slots = new ConcurrentHashMap<>();
+	//replaced by a longer copy when a slot is added, so readers never see a half-registered slot
+	private volatile String[] annotationTypesBySlot = new String[0];
+	private volatile Class<?>[] dataTypesBySlot = new Class<?>[0];
+	private volatile boolean[] dictionaryEncodedBySlot = new boolean[0];
+	//annotation types with values from a small vocabulary
+	private Set<String> dictionaryEncodedTypes = ConcurrentHashMap.newKeySet();
+	
+	public AnnotationSchema(){
+		for (String annotationType : new String[]{"pos", "lemma", "nerLabel", "relationShortName", "relationLongName", 
+				"relationParentShortName", "category", "polarity"}){
+			dictionaryEncodedTypes.add(annotationType);
+		}
+	}
+
+	/**
+	 *
+	 * @param annotationType
+	 * @return The slot for this annotation type, or -1 if no value has been stored for it yet
+	 */
+	public int getSlot(String annotationType){
+		Integer slot = slots.get(annotationType);
+		if (slot == null)
+			return -1;
+		return slot;
+	}
+
+	/**
+	 * Get the slot for this annotation type, registering the annotation type if needed. When the annotation type has no data type yet,
+	 * the given data type is registered for it.
+	 * @param annotationType
+	 * @param dataType
+	 * @return
+	 */
+	public int getOrCreateSlot(String annotationType, Class<?> dataType){
+		Integer slot = slots.get(annotationType);
+		if (slot != null)
+			return slot;
+		synchronized (this){
+			slot = slots.get(annotationType);
+			if (slot == null){
+				dataTypes.putIfAbsent(annotationType, dataType);
+				slot = annotationTypesBySlot.length;
+				String[] newAnnotationTypes = Arrays.copyOf(annotationTypesBySlot, slot+1);
+				Class<?>[] newDataTypes = Arrays.copyOf(dataTypesBySlot, slot+1);
+				boolean[] newDictionaryEncoded = Arrays.copyOf(dictionaryEncodedBySlot, slot+1);
+				newAnnotationTypes[slot] = annotationType;
+				newDataTypes[slot] = dataTypes.get(annotationType);
+				newDictionaryEncoded[slot] = isDictionaryEncoded(annotationType, newDataTypes[slot]);
+				dataTypesBySlot = newDataTypes;
+				dictionaryEncodedBySlot = newDictionaryEncoded;
+				annotationTypesBySlot = newAnnotationTypes;
+				//publish the slot last, anyone who can see it can also see the arrays above
+				slots.put(annotationType, slot);
+			}
+			return slot;
+		}
+	}
+
+	public String getAnnotationType(int slot){
+		return annotationTypesBySlot[slot];
+	}
+
+	public Class<?> getDataType(int slot){
+		return dataTypesBySlot[slot];
+	}
+
+	public Class<?> getDataType(String annotationType){
+		return dataTypes.get(annotationType);
+	}
+
+	/**
+	 *
+	 * @param slot
+	 * @return true if the values in this slot are replaced by the instance kept in the <code>StringDictionary</code>
+	 */
+	public boolean isDictionaryEncoded(int slot){
+		return dictionaryEncodedBySlot[slot];
+	}
+
+	private boolean isDictionaryEncoded(String annotationType, Class<?> dataType){
+		return String.class.equals(dataType) && dictionaryEncodedTypes.contains(annotationType);
+	}
+
+	/**
+	 * Dictionary encode the values of this annotation type. This has to be done before any value of this type is stored,
+	 * annotation types that already have a slot are not changed anymore.
+	 * @param annotationType
+	 */
+	public synchronized void addDictionaryEncodedType(String annotationType){
+		dictionaryEncodedTypes.add(annotationType);
+	}
+
+	/**
+	 * Create a new schema with only the annotation types that the given policy keeps, used by {@link Dataset#compact(RetentionPolicy)}.
+	 * The kept annotation types keep their relative slot order.
+	 * @param policy
+	 * @param slotMap Filled with the new slot for each slot of this schema, or -1 when its annotation type is not kept
+	 * @return The new schema
+	 */
+	synchronized AnnotationSchema retain(RetentionPolicy policy, int[] slotMap){
+		AnnotationSchema retained = new AnnotationSchema();
+		retained.dictionaryEncodedTypes.addAll(dictionaryEncodedTypes);
+		for (int slot = 0; slot < annotationTypesBySlot.length; slot++){
+			String annotationType = annotationTypesBySlot[slot];
+			slotMap[slot] = policy.keepsAnnotation(annotationType) ? retained.getOrCreateSlot(annotationType, dataTypesBySlot[slot]) : -1;
+		}
+		//data types that were registered before any value was stored
+		for (Map.Entry<String, Class<?>> dataType : dataTypes.entrySet()){
+			if (policy.keepsAnnotation(dataType.getKey()))
+				retained.dataTypes.putIfAbsent(dataType.getKey(), dataType.getValue());
+		}
+		return retained;
+	}
+
+	/**
+	 *
+	 * @return The number of slots in use
+	 */
+	public int size(){
+		return annotationTypesBySlot.length;
+	}
+
+	/**
+	 *
+	 * @return An existing Map (changes will be seen by this schema)
+	 */
+	public Map<String, Class<?>> getDataTypes(){
+		return dataTypes;
+	}
+}
@@ -1,6 +1,10 @@
 package edu.eur.absa.model;
 
-import java.util.HashMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -15,8 +19,11 @@ public abstract class DataEntity implements Comparable<DataEntity> {
 	protected int id;
 	protected Span textualUnit;
 	protected Dataset dataset;
-	protected HashMap<String,Object> annotations = new HashMap<>();
+	//annotation values, indexed by the slots of the AnnotationSchema of the Dataset (null when not present)
+	protected Object[] annotationValues = null;
 	protected Relations relations = null;
+	//marks an entity whose textual unit has been written to the spill file of its Dataset, see Dataset#spillToDisk
+	private static final Object[] SPILLED = new Object[0];
 	
 	/**
 	 * Return the textual unit this <code>Span</code> appears in. By definition, all <code>Word</code>s within a <code>Span</code> must originate from the same 
@@ -31,6 +38,50 @@ public abstract class DataEntity implements Comparable<DataEntity> {
 		return dataset;
 	}
 	
+	/**
+	 * Throws an <code>UnsupportedOperationException</code> when the <code>Dataset</code> of this <code>DataEntity</code> has been frozen, see {@link Dataset#freeze()}.
+	 * Objects that are not registered in their <code>Dataset</code> (id 0, like <code>Prediction</code>s) can still be changed.
+	 */
+	protected void checkNotFrozen(){
+		if (id != 0 && dataset != null && dataset.isFrozen())
+			throw new UnsupportedOperationException("The Dataset of this "+getClass().getSimpleName()+" has been frozen");
+	}
+	
+	/**
+	 * Throws an <code>IllegalStateException</code> when this <code>DataEntity</code> has been written to the spill file of its <code>Dataset</code>.
+	 * Its textual unit reads a new object back in, so this one would no longer show (or keep) the annotations of the <code>Dataset</code>.
+	 */
+	void checkNotSpilled(){
+		if (annotationValues == SPILLED)
+			throw new IllegalStateException("This "+getClass().getSimpleName()+" has been written to the spill file of its Dataset, "
+					+"get it again with Dataset.getAnnotatable("+id+")");
+	}
+	
+	/**
+	 * Let go of the annotations and <code>Relation</code>s of this <code>DataEntity</code> once it has been written to the spill file of its 
+	 * <code>Dataset</code>, so any further use of this object fails instead of silently missing the version that is read back in.
+	 */
+	void detachSpilled(){
+		annotationValues = SPILLED;
+		relations = null;
+	}
+	
+	/**
+	 * Remove unused slots at the end of the annotation array, used by {@link Dataset#freeze()}.
+	 */
+	void compactAnnotations(){
+		if (annotationValues == null)
+			return;
+		int length = annotationValues.length;
+		while (length > 0 && annotationValues[length-1] == null)
+			length--;
+		if (length == 0){
+			annotationValues = null;
+		} else if (length < annotationValues.length){
+			annotationValues = Arrays.copyOf(annotationValues, length);
+		}
+	}
+	
 	public int getId(){
 		return id;
 	}
@@ -46,7 +97,13 @@ public abstract class DataEntity implements Comparable<DataEntity> {
 //	}
 	
 	public String showAnnotations(){
-		return annotations.toString();
+		StringBuilder sb = new StringBuilder("{");
+		for (String annotationType : getAnnotationTypes()){
+			if (sb.length() > 1)
+				sb.append(", ");
+			sb.append(annotationType).append("=").append(getAnnotationValue(annotationType));
+		}
+		return sb.append("}").toString();
 	}
 	
 	public int compareTo(DataEntity anotherAnn) {
@@ -58,6 +115,7 @@ public abstract class DataEntity implements Comparable<DataEntity> {
 	}
 
 	public Relations getRelations() {
+		checkNotSpilled();
 		if (relations == null){
 			relations = new Relations();
 		}
@@ -89,7 +147,26 @@ public abstract class DataEntity implements Comparable<DataEntity> {
 	
 	@SuppressWarnings("unchecked")
 	public <T> T getAnnotation(String annotationType, Class<T> dataType){
-		Object value = annotations.get(annotationType);
+		Object value = getAnnotationValue(annotationType);
+		if (value == null)
+			return null;
+		if (dataType.isInstance(value)){
+			return (T)value;
+		} else {
+			throw new ClassCastException("The annotation you requested is not of the type you specified");
+		}
+	}
+	
+	/**
+	 * Get the annotation stored in the given slot, see {@link AnnotationSchema#getSlot(String)}. Derived annotations 
+	 * (see {@link Dataset#addDerivedAnnotation(String, Class, java.util.function.Function)}) do not have a slot, so they are not returned.
+	 * @param slot
+	 * @param dataType
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getAnnotation(int slot, Class<T> dataType){
+		Object value = getAnnotationValue(slot);
 		if (value == null)
 			return null;
 		if (dataType.isInstance(value)){
@@ -102,8 +179,12 @@ public abstract class DataEntity implements Comparable<DataEntity> {
 	
 	@SuppressWarnings("unchecked")
 	public <T> T getAnnotation(String annotationType){
-		Class<T> classT = (Class<T>) dataset.getAnnotationDataTypes().get(annotationType);
-		return getAnnotation(annotationType, classT);
+		AnnotationSchema schema = dataset.getAnnotationSchema();
+		int slot = schema.getSlot(annotationType);
+		if (slot < 0 || getAnnotationValue(slot) == null)
+			return (T) dataset.getDerivedAnnotation(this, annotationType);
+		Class<T> classT = (Class<T>) schema.getDataType(slot);
+		return getAnnotation(slot, classT);
 	}
 	
 	public String getAnnotationEntryText(String annotationType){
@@ -111,21 +192,327 @@ public abstract class DataEntity implements Comparable<DataEntity> {
 	}
 	
 	public Object putAnnotation(String annotationType, Object value){
-		if (!dataset.getAnnotationDataTypes().containsKey(annotationType))
-			dataset.getAnnotationDataTypes().put(annotationType, value.getClass());
-		return annotations.put(annotationType, dataset.getAnnotationDataTypes().get(annotationType).cast(value));
+		AnnotationSchema schema = dataset.getAnnotationSchema();
+		int slot = schema.getSlot(annotationType);
+		if (slot < 0)
+			slot = schema.getOrCreateSlot(annotationType, value.getClass());
+		return putAnnotation(slot, value);
+	}
+	
+	/**
+	 * Store an annotation in the given slot, see {@link AnnotationSchema#getSlot(String)}. Storing <code>null</code> removes the annotation.
+	 * @param slot
+	 * @param value
+	 * @return The previous value in this slot
+	 */
+	public Object putAnnotation(int slot, Object value){
+		checkNotFrozen();
+		checkNotSpilled();
+		AnnotationSchema schema = dataset.getAnnotationSchema();
+		Object castValue = schema.getDataType(slot).cast(value);
+		if (castValue != null && schema.isDictionaryEncoded(slot))
+			castValue = dataset.getStringDictionary().intern((String)castValue);
+		if (annotationValues == null){
+			if (castValue == null)
+				return null;
+			annotationValues = new Object[slot+1];
+		} else if (annotationValues.length <= slot){
+			if (castValue == null)
+				return null;
+			annotationValues = Arrays.copyOf(annotationValues, slot+1);
+		}
+		Object previousValue = annotationValues[slot];
+		annotationValues[slot] = castValue;
+		if (id != 0)
+			dataset.annotationChanged(this, slot, previousValue, castValue);
+		return previousValue;
+	}
+	
+	private Object getAnnotationValue(int slot){
+		checkNotSpilled();
+		if (slot < 0 || annotationValues == null || slot >= annotationValues.length)
+			return null;
+		return annotationValues[slot];
+	}
+	
+	//the stored annotation, or else the derived one
+	private Object getAnnotationValue(String annotationType){
+		Object value = getAnnotationValue(dataset.getAnnotationSchema().getSlot(annotationType));
+		if (value == null)
+			value = dataset.getDerivedAnnotation(this, annotationType);
+		return value;
+	}
+	
+	/**
+	 * Check whether the annotation of the given type is equal to the given value. For dictionary encoded annotation types 
+	 * (see {@link AnnotationSchema#isDictionaryEncoded(int)}) only references are compared.
+	 * @param annotationType
+	 * @param value
+	 * @return
+	 */
+	public boolean annotationEquals(String annotationType, Object value){
+		int slot = dataset.getAnnotationSchema().getSlot(annotationType);
+		Object storedValue = getAnnotationValue(slot);
+		if (storedValue == null){
+			Object derivedValue = dataset.getDerivedAnnotation(this, annotationType);
+			return derivedValue == null ? value == null : derivedValue.equals(value);
+		}
+		if (value == null)
+			return false;
+		if (dataset.getAnnotationSchema().isDictionaryEncoded(slot) && value instanceof String)
+			return storedValue == dataset.getStringDictionary().lookup((String)value);
+		return storedValue.equals(value);
+	}
+	
+	/**
+	 * Check whether the annotation of the given type is the <code>String</code> with the given code in the <code>StringDictionary</code> 
+	 * of the <code>Dataset</code>. Resolve the code once with {@link StringDictionary#lookupCode(String)} when comparing many entities 
+	 * against the same value: for dictionary encoded annotation types, only references are compared and the value is not looked up again.
+	 * To compare with an <code>Integer</code> annotation instead, pass the value as an <code>Integer</code> to {@link #annotationEquals(String, Object)}.
+	 * @param annotationType
+	 * @param code
+	 * @return false if the code is -1
+	 */
+	public boolean annotationEquals(String annotationType, int code){
+		String value = dataset.getStringDictionary().getString(code);
+		if (value == null)
+			return false;
+		int slot = dataset.getAnnotationSchema().getSlot(annotationType);
+		Object storedValue = getAnnotationValue(slot);
+		if (storedValue == null)
+			return value.equals(dataset.getDerivedAnnotation(this, annotationType));
+		if (dataset.getAnnotationSchema().isDictionaryEncoded(slot))
+			return storedValue == value;
+		return storedValue.equals(value);
+	}
+	
+	/**
+	 * Get the code of the annotation of the given type in the <code>StringDictionary</code> of the <code>Dataset</code>. 
+	 * @param annotationType
+	 * @return The code, or -1 if there is no such annotation or its value is not in the dictionary
+	 */
+	public int getAnnotationCode(String annotationType){
+		Object value = getAnnotationValue(annotationType);
+		if (value instanceof String)
+			return dataset.getStringDictionary().lookupCode((String)value);
+		return -1;
+	}
+	
+	/**
+	 * Get a numeric vector annotation, such as the sentiment scores in "phraseSentiment", as a <code>double[]</code>. 
+	 * A <code>double[]</code> annotation is returned as is, so it should not be modified. Values stored as <code>float[]</code> or <code>int[]</code>,
+	 * or as a <code>List</code> of numbers (as in Datasets processed before these were stored as <code>double[]</code>), are converted.
+	 * @param annotationType
+	 * @return The values, or <code>null</code> if there is no such annotation
+	 * @throws ClassCastException If the annotation is not a numeric vector
+	 */
+	public double[] getDoubles(String annotationType){
+		Object value = getAnnotationValue(annotationType);
+		if (value == null || value instanceof double[])
+			return (double[]) value;
+		double[] values;
+		if (value instanceof float[]){
+			float[] floats = (float[]) value;
+			values = new double[floats.length];
+			for (int i = 0; i < floats.length; i++){
+				values[i] = floats[i];
+			}
+		} else if (value instanceof int[]){
+			int[] ints = (int[]) value;
+			values = new double[ints.length];
+			for (int i = 0; i < ints.length; i++){
+				values[i] = ints[i];
+			}
+		} else if (value instanceof List){
+			List<?> list = (List<?>) value;
+			values = new double[list.size()];
+			for (int i = 0; i < values.length; i++){
+				values[i] = ((Number)list.get(i)).doubleValue();
+			}
+		} else {
+			throw new ClassCastException("The annotation you requested is not a numeric vector");
+		}
+		return values;
+	}
+	
+	/**
+	 * Get a numeric annotation as a <code>double</code>, without having to handle the boxed value.
+	 * @param annotationType
+	 * @param defaultValue
+	 * @return The value, or <code>defaultValue</code> if there is no such annotation
+	 */
+	public double getDouble(String annotationType, double defaultValue){
+		Object value = getAnnotationValue(annotationType);
+		if (value == null)
+			return defaultValue;
+		return ((Number) value).doubleValue();
+	}
+	
+	/**
+	 * Get a numeric annotation as an <code>int</code>, without having to handle the boxed value.
+	 * @param annotationType
+	 * @param defaultValue
+	 * @return The value, or <code>defaultValue</code> if there is no such annotation
+	 */
+	public int getInt(String annotationType, int defaultValue){
+		Object value = getAnnotationValue(annotationType);
+		if (value == null)
+			return defaultValue;
+		return ((Number) value).intValue();
 	}
 	
 	public boolean hasAnnotation(String annotationType){
-		return annotations.containsKey(annotationType);
+		return getAnnotationValue(annotationType) != null;
 	}
 	
+	public boolean hasAnnotation(int slot){
+		return getAnnotationValue(slot) != null;
+	}
+	
+	/**
+	 * 
+	 * @return A read-only view on the annotation types that have a value for this <code>DataEntity</code>
+	 */
 	public Set<String> getAnnotationTypes(){
-		return annotations.keySet();
+		checkNotSpilled();
+		return new AbstractSet<String>(){
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>(){
+					int nextSlot = findSlot(0);
+					
+					private int findSlot(int slot){
+						while (annotationValues != null && slot < annotationValues.length && annotationValues[slot] == null)
+							slot++;
+						return slot;
+					}
+					
+					@Override
+					public boolean hasNext() {
+						return annotationValues != null && nextSlot < annotationValues.length;
+					}
+
+					@Override
+					public String next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						String annotationType = dataset.getAnnotationSchema().getAnnotationType(nextSlot);
+						nextSlot = findSlot(nextSlot+1);
+						return annotationType;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				int size = 0;
+				if (annotationValues != null){
+					for (Object value : annotationValues){
+						if (value != null)
+							size++;
+					}
+				}
+				return size;
+			}
+			
+			@Override
+			public boolean contains(Object o){
+				//only the stored annotations, not the derived ones
+				return (o instanceof String) && getAnnotationValue(dataset.getAnnotationSchema().getSlot((String)o)) != null;
+			}
+		};
+	}
+	
+	/**
+	 * Move this <code>DataEntity</code> to another <code>Dataset</code> as part of merging its whole <code>Dataset</code> into the other one,
+	 * see {@link Dataset#mergeDataset(Dataset)}. The id is shifted by the given offset, so the order of ids stays the same.
+	 * @param newDataset
+	 * @param idOffset
+	 * @param slotMap The slot in the new <code>AnnotationSchema</code> for each slot in the old one, or <code>null</code> if they are the same
+	 */
+	void shiftToDataset(Dataset newDataset, int idOffset, int[] slotMap){
+		dataset = newDataset;
+		id += idOffset;
+		if (annotationValues == null)
+			return;
+		Object[] oldValues = annotationValues;
+		if (slotMap != null){
+			int length = 0;
+			for (int slot = 0; slot < oldValues.length; slot++){
+				if (oldValues[slot] != null)
+					length = Math.max(length, slotMap[slot]+1);
+			}
+			annotationValues = new Object[length];
+			for (int slot = 0; slot < oldValues.length; slot++){
+				if (oldValues[slot] != null)
+					annotationValues[slotMap[slot]] = oldValues[slot];
+			}
+		}
+		//dictionary encoded values have to be the instances of the new dictionary
+		AnnotationSchema schema = newDataset.getAnnotationSchema();
+		for (int slot = 0; slot < annotationValues.length; slot++){
+			if (annotationValues[slot] != null && schema.isDictionaryEncoded(slot))
+				annotationValues[slot] = newDataset.getStringDictionary().intern((String)annotationValues[slot]);
+		}
+	}
+	
+	/**
+	 * Move this <code>DataEntity</code> to a shard of its <code>Dataset</code> or back, see {@link Dataset#partition(int)}. 
+	 * Shards share the <code>AnnotationSchema</code> and <code>StringDictionary</code> with their <code>Dataset</code>, so the annotations stay as they are.
+	 * @param newDataset
+	 * @param newId
+	 */
+	void moveToShard(Dataset newDataset, int newId){
+		dataset = newDataset;
+		id = newId;
+	}
+	
+	/**
+	 * Move the annotations to the slots of a compacted <code>AnnotationSchema</code>, see {@link Dataset#compact(RetentionPolicy)}.
+	 * Annotations without a new slot are dropped, and dictionary encoded values are replaced by the instances of the new <code>StringDictionary</code>.
+	 * @param slotMap The new slot for each old slot, or -1 for annotation types that are not kept
+	 * @param newSchema
+	 * @param newDictionary
+	 */
+	void retainAnnotations(int[] slotMap, AnnotationSchema newSchema, StringDictionary newDictionary){
+		if (annotationValues == null)
+			return;
+		Object[] oldValues = annotationValues;
+		int length = 0;
+		for (int slot = 0; slot < oldValues.length; slot++){
+			if (oldValues[slot] != null)
+				length = Math.max(length, slotMap[slot]+1);
+		}
+		if (length == 0){
+			annotationValues = null;
+			return;
+		}
+		annotationValues = new Object[length];
+		for (int slot = 0; slot < oldValues.length; slot++){
+			int newSlot = slotMap[slot];
+			if (oldValues[slot] != null && newSlot >= 0){
+				Object value = oldValues[slot];
+				if (newSchema.isDictionaryEncoded(newSlot))
+					value = newDictionary.intern((String)value);
+				annotationValues[newSlot] = value;
+			}
+		}
 	}
 	
 	public void moveToDifferentDataset(Dataset newDataset){
+		checkNotFrozen();
+		AnnotationSchema oldSchema = dataset.getAnnotationSchema();
+		Object[] oldValues = annotationValues;
 		dataset = newDataset;
 		id = dataset.getNextId(this);
+		//slots differ per Dataset, so put the annotations in the slots of the new Dataset
+		annotationValues = null;
+		if (oldValues != null){
+			AnnotationSchema newSchema = dataset.getAnnotationSchema();
+			for (int slot = 0; slot < oldValues.length; slot++){
+				if (oldValues[slot] != null)
+					putAnnotation(newSchema.getOrCreateSlot(oldSchema.getAnnotationType(slot), oldSchema.getDataType(slot)), oldValues[slot]);
+			}
+		}
 	}
 }
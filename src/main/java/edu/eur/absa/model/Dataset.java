@@ -1,12 +1,25 @@
 package edu.eur.absa.model;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Random;
-import java.util.TreeMap;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 import edu.eur.absa.Framework;
 import edu.eur.absa.nlp.NLPTask;
@@ -15,6 +28,18 @@ import edu.eur.absa.nlp.AbstractNLPComponent;
 /**
  * <code>Dataset</code> is the container for all <code>Span</code>s that are processed together. Contains no textual information apart from that, but instead gives the tools for data set management.
  * It allows you to use an arbitrary <code>spanType</code> and divide the data set into training/validation/test based on that.
+ * <p>By default a <code>Dataset</code> is meant to be filled by a single thread. After {@link #setConcurrent(boolean)} has been called
+ * with <code>true</code>, multiple threads can create <code>Word</code>s, <code>Span</code>s and <code>Relation</code>s and put annotations
+ * in the same <code>Dataset</code>, as long as each textual unit, with everything in it, is only changed by one thread at a time. 
+ * Reading the dataset-wide indexes (e.g., {@link #getSpans(String)}) is only safe once all threads are done.</p>
+ * <p>Once a <code>Dataset</code> is complete, {@link #freeze()} turns it into a read-only snapshot that can be read by many threads at the same time.</p>
+ * <p>Entities can be selected on their annotation values without scanning everything by declaring an index on the annotation type
+ * with {@link #addAnnotationIndex(String)}, and combining it with span type and textual unit filters through {@link #query()}.</p>
+ * <p>Context that is not in the data, like the sentence of an opinion, can be added as a derived annotation type with 
+ * {@link #addDerivedAnnotation(String, Class, Function)}. It is only computed for the entities it is asked for.</p>
+ * <p>To process parts of a <code>Dataset</code> independently, {@link #partition(int)} splits it into shards along the textual units,
+ * and {@link #reassemble(Collection)} puts them back together with the original ids.</p>
+ * <p>A <code>Dataset</code> that does not fit in memory can keep most of its textual units in a spill file with {@link #spillToDisk(File, long)}.</p>
  * 
  * @author Kim Schouten
  *
@@ -22,13 +47,32 @@ import edu.eur.absa.nlp.AbstractNLPComponent;
 public class Dataset {
 
 	//it is useful to have all span in one place
-	private TreeSet<Span> spans = new TreeSet<>();
-	private HashMap<String, TreeSet<Span>> spansByType = new HashMap<>();
-	private HashMap<Span, TreeSet<Span>> spansByTextualUnit = new HashMap<>();
+	//ids are handed out in increasing order, so these sets are appended to instead of sorted
+	private IdOrderedSet<Span> spans = new IdOrderedSet<>();
+	private HashMap<String, IdOrderedSet<Span>> spansByType = new HashMap<>();
+	//the per textual unit indexes are only changed by the thread that owns the textual unit, but the maps themselves are shared
+	private ConcurrentHashMap<Span, IdOrderedSet<Span>> spansByTextualUnit = new ConcurrentHashMap<>();
+	//spans by textual unit and then by type
+	private ConcurrentHashMap<Span, HashMap<String, IdOrderedSet<Span>>> spansByTextualUnitAndType = new ConcurrentHashMap<>();
+	//interval index per textual unit to quickly find the spans containing a word
+	private ConcurrentHashMap<Span, SpanIntervalIndex> spanIndexByTextualUnit = new ConcurrentHashMap<>();
 	//relations by type
-	private HashMap<String, TreeSet<Relation>> relationsByType = new HashMap<>();
-	//all annotatables by ID
-	private HashMap<Integer, DataEntity> annotatablesById = new HashMap<>();
+	private HashMap<String, IdOrderedSet<Relation>> relationsByType = new HashMap<>();
+	//declared inverted indexes from annotation values to entities, by annotation type and by annotation slot
+	private ConcurrentHashMap<String, AnnotationIndex> annotationIndexes = new ConcurrentHashMap<>();
+	private volatile AnnotationIndex[] annotationIndexesBySlot = new AnnotationIndex[0];
+	//annotation types that are computed on demand instead of stored
+	private ConcurrentHashMap<String, DerivedAnnotation> derivedAnnotations = new ConcurrentHashMap<>();
+	//all annotatables, the index in the array is the ID (removed annotatables leave a null behind)
+	//the array is split into pages, so it can grow without losing entities registered by other threads at the same time
+	private static final int REGISTRY_PAGE_BITS = 12;
+	private static final int REGISTRY_PAGE_SIZE = 1 << REGISTRY_PAGE_BITS;
+	private volatile DataEntity[][] annotatablesById = new DataEntity[16][];
+	private final Object registryLock = new Object();
+	//guards the dataset-wide indexes above in concurrent mode
+	private final ReentrantLock indexLock = new ReentrantLock();
+	private volatile boolean concurrent = false;
+	private volatile boolean frozen = false;
 	
 	
 	
@@ -38,14 +82,46 @@ public class Dataset {
 	
 	private HashSet<NLPTask> performedNLPTasks = new HashSet<>();
 	private String textualUnitSpanType;
-	private HashMap<String, Class<?>> annotationDataTypes = new HashMap<>();
+	private AnnotationSchema annotationSchema = new AnnotationSchema();
+	//dictionary encoding for Strings that are repeated a lot, like tokens, lemmas and POS tags
+	private StringDictionary stringDictionary = new StringDictionary();
 	
 	private String filename;
 	//global annotatable identifier
-	private int nextId = 0;
+	private final AtomicInteger nextId = new AtomicInteger();
+	
+	//when partitioned: the shards this Dataset has been split into, and the last id before the split
+	private ArrayList<Dataset> shards = null;
+	private int partitionedLastId = 0;
+	//when this is a shard: the Dataset it is part of, and the global id for each local id (index 0 is not used)
+	private Dataset shardParent = null;
+	private int[] globalIds = null;
+	private int globalIdCount = 0;
+	//when spilled to disk: the file with the textual units that are not in memory
+	private SpillStore spillStore = null;
 	
 	public Dataset(String filename, String textualUnitSpanType){
 		this.textualUnitSpanType = textualUnitSpanType;
+		//the text of the phrases made by the parsers is taken from the stored text of the Span they were tokenized in
+		addDerivedAnnotation("text", String.class, DerivedAnnotations.spanText("syntacticPhrase", "discoursePhrase"), false);
+	}
+	
+	//an empty shard of the given Dataset, sharing its schema and dictionary, see partition(int)
+	private Dataset(Dataset parent){
+		this.textualUnitSpanType = parent.textualUnitSpanType;
+		this.filename = parent.filename;
+		this.annotationSchema = parent.annotationSchema;
+		this.stringDictionary = parent.stringDictionary;
+		this.performedNLPTasks.addAll(parent.performedNLPTasks);
+		this.concurrent = parent.concurrent;
+		this.shardParent = parent;
+		this.globalIds = new int[16];
+		for (String annotationType : parent.annotationIndexes.keySet()){
+			annotationIndexes.put(annotationType, new AnnotationIndex(annotationType));
+		}
+		for (DerivedAnnotation derived : parent.derivedAnnotations.values()){
+			derivedAnnotations.put(derived.getAnnotationType(), derived.copy());
+		}
 	}
 	
 	
@@ -61,183 +137,719 @@ public class Dataset {
 	 * @param subSetProportions These should sum up to one.
 	 * @return The data split into subsets, put together in a list. Last one in the list is the test set.
 	 */
-	public ArrayList<HashSet<Span>> createSubSets(String spanType, double... subSetProportions){
+	public ArrayList<SpanSubset> createSubSets(String spanType, double... subSetProportions){
 		return Dataset.createSubSets(getSpans(spanType), subSetProportions);
 	}
 	
-	public ArrayList<HashSet<Span>> createSubSets(String spanType, boolean useAllData, double... subSetProportions){
+	public ArrayList<SpanSubset> createSubSets(String spanType, boolean useAllData, double... subSetProportions){
 		return createSubSets(getSpans(spanType), useAllData, subSetProportions);
 	}
 	
-	public static ArrayList<HashSet<Span>> createSubSets(TreeSet<Span> spansToDivide, double... subSetProportions){
+	/**
+	 * Same as {@link #createSubSets(String, boolean, double...)}, but shuffles with the given random number generator, 
+	 * so the subsets can be reproduced by using a generator with the same seed.
+	 * @param spanType
+	 * @param random
+	 * @param useAllData
+	 * @param subSetProportions
+	 * @return
+	 */
+	public ArrayList<SpanSubset> createSubSets(String spanType, Random random, boolean useAllData, double... subSetProportions){
+		return createSubSets(getSpans(spanType), random, useAllData, subSetProportions);
+	}
+	
+	public static ArrayList<SpanSubset> createSubSets(Collection<Span> spansToDivide, double... subSetProportions){
 		return createSubSets(spansToDivide, true, subSetProportions);
 	}
 	
-	public static ArrayList<HashSet<Span>> createSubSets(TreeSet<Span> spansToDivide, boolean useAllData, double... subSetProportions){
+	public static ArrayList<SpanSubset> createSubSets(Collection<Span> spansToDivide, boolean useAllData, double... subSetProportions){
+		return createSubSets(spansToDivide, new Random(), useAllData, subSetProportions);
+	}
+	
+	/**
+	 * Randomly divide the given Spans, which all have to be part of the same <code>Dataset</code>, into subsets. 
+	 * The Spans are shuffled by their id with the given random number generator, so the same seed gives the same subsets.
+	 * @param spansToDivide
+	 * @param random
+	 * @param useAllData
+	 * @param subSetProportions
+	 * @return The data split into subsets, put together in a list. Last one in the list is the test set.
+	 */
+	public static ArrayList<SpanSubset> createSubSets(Collection<Span> spansToDivide, Random random, boolean useAllData, double... subSetProportions){
 		if (spansToDivide == null || spansToDivide.isEmpty()){
 			Framework.error("Cannot divide dataset with a span type that does not exist");
 		}
+		Dataset dataset = spansToDivide.iterator().next().getDataset();
 		
-		//prepare the list of subsets
-		ArrayList<HashSet<Span>> subsets = new ArrayList<>();
-		//put the set of spans (of the given type) in random order
-		TreeMap<Double,Span> randomizedSpans = new TreeMap<>();
-		
-		Random r = new Random();
-		
+		//put the ids of the spans in random order (Fisher-Yates shuffle)
+		int[] randomizedIds = new int[spansToDivide.size()];
+		int nextInt = 0;
 		for (Span s : spansToDivide){
-			while (randomizedSpans.putIfAbsent(r.nextDouble(), s) != null);
-		}
-		//this code is obsolete in favor of just putting everything in an ArrayList, which gives the same functionality
-		//and probably uses less memory than an additional TreeMap.
-//		TreeMap<Integer,Span> randomlyOrderedSpans = new TreeMap<>();
-//		int nextInt = 0;
-//		for (Double d : randomizedSpans.keySet()){
-//			randomlyOrderedSpans.put(nextInt, randomizedSpans.get(d));
-//			nextInt++;
-//		}
-		
-		ArrayList<Span> randomizedList = new ArrayList<>();
-		randomizedList.addAll(randomizedSpans.values());
+			randomizedIds[nextInt++] = s.getId();
+		}
+		for (int i = randomizedIds.length - 1; i > 0; i--){
+			int j = random.nextInt(i + 1);
+			int id = randomizedIds[i];
+			randomizedIds[i] = randomizedIds[j];
+			randomizedIds[j] = id;
+		}
 		
-		int nextInt = 0;
+		//prepare the list of subsets
+		ArrayList<BitSet> subsetIds = new ArrayList<>();
+		nextInt = 0;
 		for (double subsetProportion : subSetProportions){
-			HashSet<Span> subset = new HashSet<Span>();
-			int numberOfSpans = (int) (spansToDivide.size() * subsetProportion);
-//			subset.addAll(randomlyOrderedSpans.subMap(nextInt, nextInt+numberOfSpans).values());
-			subset.addAll(randomizedList.subList(nextInt, nextInt+numberOfSpans));
+			BitSet subset = new BitSet();
+			int numberOfSpans = (int) (randomizedIds.length * subsetProportion);
+			for (int i = nextInt; i < nextInt+numberOfSpans; i++){
+				subset.set(randomizedIds[i]);
+			}
 			nextInt += numberOfSpans;
-			subsets.add(subset);
+			subsetIds.add(subset);
+		}
+		if (useAllData){
+			BitSet lastSubset = subsetIds.get(subsetIds.size()-1);
+			for (int i = nextInt; i < randomizedIds.length; i++){
+				lastSubset.set(randomizedIds[i]);
+			}
 		}
-//		subsets.get(subsets.size()-1).addAll(randomlyOrderedSpans.tailMap(nextInt).values());
-		if (useAllData)
-			subsets.get(subsets.size()-1).addAll(randomizedList.subList(nextInt, randomizedList.size()));
 		
+		ArrayList<SpanSubset> subsets = new ArrayList<>();
 		Framework.debug("Total size: "+spansToDivide.size());
-		for (HashSet<Span> subset : subsets){
+		for (BitSet ids : subsetIds){
+			SpanSubset subset = new SpanSubset(dataset, ids);
 			Framework.debug("Subset: "+subset.size());
+			subsets.add(subset);
 		}
 		return subsets;
 	}
 	
 	
 	public void addSpan(Span span){
-		//maybe this works too:
+		checkNotFrozen();
+		lockIndexes();
+		try {
+			indexSpanByType(span);
+		} finally {
+			unlockIndexes();
+		}
+		indexSpanByTextualUnit(span);
+		spanAdded(span);
+	}
+	
+	/**
+	 * Register a number of <code>Span</code>s at once, taking the lock on the dataset-wide indexes only once.
+	 * The <code>Span</code>s have to be ordered by id. Used by {@link TextualUnitBuilder}.
+	 * @param newSpans
+	 */
+	void addSpans(Collection<Span> newSpans){
+		checkNotFrozen();
+		lockIndexes();
+		try {
+			for (Span span : newSpans){
+				indexSpanByType(span);
+			}
+		} finally {
+			unlockIndexes();
+		}
+		for (Span span : newSpans){
+			indexSpanByTextualUnit(span);
+			spanAdded(span);
+		}
+	}
+	
+	private void indexSpanByType(Span span){
 		String spanType = span.getType();
-		//rest of code
 		if (!spansByType.containsKey(spanType))
-			spansByType.put(spanType, new TreeSet<>());
-		spansByType.get(spanType).add(span);
-		
+			spansByType.put(spanType, new IdOrderedSet<>());
+		spansByType.get(spanType).append(span);
+		spans.append(span);
+	}
+	
+	private void indexSpanByTextualUnit(Span span){
+		String spanType = span.getType();
 		if (!spansByTextualUnit.containsKey(span.getTextualUnit()))
-			spansByTextualUnit.put(span.getTextualUnit(), new TreeSet<Span>());
-		spansByTextualUnit.get(span.getTextualUnit()).add(span);
-		
-		spans.add(span);
-		
+			spansByTextualUnit.put(span.getTextualUnit(), new IdOrderedSet<Span>());
+		spansByTextualUnit.get(span.getTextualUnit()).append(span);
 		
+		HashMap<String, IdOrderedSet<Span>> spansOfUnitByType = spansByTextualUnitAndType.get(span.getTextualUnit());
+		if (spansOfUnitByType == null){
+			spansOfUnitByType = new HashMap<>();
+			spansByTextualUnitAndType.put(span.getTextualUnit(), spansOfUnitByType);
+		}
+		IdOrderedSet<Span> spansOfUnitAndType = spansOfUnitByType.get(spanType);
+		if (spansOfUnitAndType == null){
+			spansOfUnitAndType = new IdOrderedSet<>();
+			spansOfUnitByType.put(spanType, spansOfUnitAndType);
+		}
+		spansOfUnitAndType.append(span);
+	}
+	
+	//a new Span goes into the interval index of its textual unit, when that has been built
+	private void spanAdded(Span span){
+		if (spillStore != null)
+			spillStore.changed(span, false);
+		SpanIntervalIndex index = spanIndexByTextualUnit.get(span.getTextualUnit());
+		if (index != null){
+			index.update(span, true);
+		}
+	}
+	
+	/**
+	 * Notify this <code>Dataset</code> that the <code>Word</code>s of the given <code>Span</code> have changed, so the 
+	 * interval index for its textual unit has to take the new word orders of the <code>Span</code>.
+	 * @param span
+	 */
+	void spanChanged(Span span){
+		if (spillStore != null)
+			spillStore.changed(span, false);
+		SpanIntervalIndex index = spanIndexByTextualUnit.get(span.getTextualUnit());
+		if (index != null){
+			index.update(span, false);
+		}
+	}
+	
+	/**
+	 * Notify this <code>Dataset</code> that the order of the given <code>Word</code> has changed, so the interval index
+	 * for its textual unit is outdated.
+	 * @param word
+	 */
+	void wordOrderChanged(Word word){
+		SpanIntervalIndex index = spanIndexByTextualUnit.get(word.getTextualUnit());
+		if (index != null){
+			index.invalidateAll();
+		}
+	}
+	
+	private SpanIntervalIndex getSpanIndex(Span textualUnit){
+		useTextualUnit(textualUnit);
+		SpanIntervalIndex index = spanIndexByTextualUnit.get(textualUnit);
+		if (index == null){
+			//queries from multiple threads have to end up with the same index, or Spans added in between would be missed
+			index = spanIndexByTextualUnit.computeIfAbsent(textualUnit, unit -> new SpanIntervalIndex(this, unit));
+		}
+		return index;
 	}
 	
 	public void addRelation(Relation rel){
-		if (!relationsByType.containsKey(rel.getType())){
-			relationsByType.put(rel.getType(), new TreeSet<Relation>());
+		checkNotFrozen();
+		lockIndexes();
+		try {
+			if (!relationsByType.containsKey(rel.getType())){
+				relationsByType.put(rel.getType(), new IdOrderedSet<Relation>());
+			}
+			relationsByType.get(rel.getType()).append(rel);
+		} finally {
+			unlockIndexes();
+		}
+		dependencyRelationChanged(rel);
+	}
+	
+	/**
+	 * Notify this <code>Dataset</code> that the given <code>Relation</code> has been added or its annotations have changed, so
+	 * the dependency graph of its textual unit is outdated if it is a dependency relation.
+	 * @param rel
+	 */
+	void dependencyRelationChanged(Relation rel){
+		if (DependencyGraph.RELATION_TYPE.equals(rel.getType()) && rel.getChild().getTextualUnit() != null){
+			rel.getChild().getTextualUnit().invalidateDependencyGraph();
+		}
+	}
+	
+	/**
+	 * Switch concurrent mode on or off. In concurrent mode, the dataset-wide indexes are locked whenever a <code>Span</code> or 
+	 * <code>Relation</code> is added, so multiple threads can fill this <code>Dataset</code> at the same time, each working on 
+	 * its own textual units. Id allocation, the <code>AnnotationSchema</code> and the <code>StringDictionary</code> are always thread-safe.
+	 * Switch this on before starting the threads and off again after they are done.
+	 * @param concurrent
+	 * @return This Dataset
+	 */
+	public Dataset setConcurrent(boolean concurrent){
+		this.concurrent = concurrent;
+		return this;
+	}
+	
+	public boolean isConcurrent(){
+		return concurrent;
+	}
+	
+	/**
+	 * Freeze this <code>Dataset</code> when it is complete, for instance after all NLP components have been run. 
+	 * All indexes are shrunk to their actual size, the dependency graphs and interval indexes that are otherwise created on demand 
+	 * are created now, and from then on every attempt to change the <code>Dataset</code> or anything in it
+	 * throws an <code>UnsupportedOperationException</code>. Since nothing changes anymore, a frozen <code>Dataset</code> can be 
+	 * read by multiple threads at the same time without any locking. <code>Prediction</code>s for a frozen <code>Dataset</code> can still be made.
+	 * A <code>Dataset</code> cannot be unfrozen, but you can read it again from file to get a mutable copy.
+	 * @return This Dataset, which is now a read-only snapshot
+	 */
+	public Dataset freeze(){
+		if (frozen)
+			return this;
+		checkNotSpilled();
+		spans.compact();
+		for (IdOrderedSet<Span> spansOfType : spansByType.values()){
+			spansOfType.compact();
+		}
+		for (IdOrderedSet<Relation> relationsOfType : relationsByType.values()){
+			relationsOfType.compact();
 		}
-		relationsByType.get(rel.getType()).add(rel);
+		boolean withDependencyGraphs = relationsByType.containsKey(DependencyGraph.RELATION_TYPE);
+		for (Span textualUnit : spansByTextualUnit.keySet()){
+			spansByTextualUnit.get(textualUnit).compact();
+			HashMap<String, IdOrderedSet<Span>> spansOfUnitByType = spansByTextualUnitAndType.get(textualUnit);
+			for (IdOrderedSet<Span> spansOfUnitAndType : spansOfUnitByType.values()){
+				spansOfUnitAndType.compact();
+			}
+			getSpanIndex(textualUnit).buildAll(spansOfUnitByType.keySet());
+			textualUnit.freezeTextualUnit(withDependencyGraphs);
+		}
+		Iterator<DataEntity> entities = getDataEntityIterator();
+		while (entities.hasNext()){
+			entities.next().compactAnnotations();
+		}
+		for (AnnotationIndex index : annotationIndexes.values()){
+			index.compact();
+		}
+		frozen = true;
+		return this;
+	}
+	
+	public boolean isFrozen(){
+		return frozen;
+	}
+	
+	/**
+	 * Throws an <code>UnsupportedOperationException</code> when this <code>Dataset</code> has been frozen, or when it has been
+	 * partitioned and its content is in the shards.
+	 */
+	void checkNotFrozen(){
+		if (frozen)
+			throw new UnsupportedOperationException("This Dataset has been frozen");
+		if (shards != null)
+			throw new UnsupportedOperationException("This Dataset has been partitioned, change its shards instead");
+	}
+	
+	private void lockIndexes(){
+		if (concurrent)
+			indexLock.lock();
+	}
+	
+	private void unlockIndexes(){
+		//also unlock when concurrent mode was switched off in the mean time
+		if (indexLock.isHeldByCurrentThread())
+			indexLock.unlock();
 	}
 	
 	/**
 	 * 
-	 * @return An existing TreeSet (do not change it)
+	 * @return The existing read-only set of all Spans, ordered by id
+	 * @throws UnsupportedOperationException When this Dataset has been spilled to disk, see {@link #spillToDisk(File, long)}
 	 */
-	public TreeSet<Span> getSpans(){
+	public NavigableSet<Span> getSpans(){
+		checkNotSpilled();
 		return spans;
 	}
 	/**
 	 * 
 	 * @param spanType
-	 * @return An existing TreeSet (do not change it)
+	 * @return The existing read-only set of Spans of this type, ordered by id (null if there are none)
+	 * @throws UnsupportedOperationException When this Dataset has been spilled to disk and the span type is not the textual unit 
+	 * span type, see {@link #spillToDisk(File, long)}
 	 */
-	public TreeSet<Span> getSpans(String spanType){
+	public NavigableSet<Span> getSpans(String spanType){
+		//the textual units themselves always stay in memory
+		if (!spanType.equals(textualUnitSpanType))
+			checkNotSpilled();
 		return spansByType.get(spanType);
 	}
 	/**
 	 * 
 	 * @param textualUnit
-	 * @return An existing TreeSet (do not change it)
+	 * @return The existing read-only set of Spans in this textual unit, ordered by id (null if there are none)
 	 */
-	public TreeSet<Span> getSpans(Span textualUnit){
+	public NavigableSet<Span> getSpans(Span textualUnit){
+		useTextualUnit(textualUnit);
 		return spansByTextualUnit.get(textualUnit);
 	}
 	/**
 	 * 
 	 * @param textualUnit
 	 * @param spanType
-	 * @return A new <code>TreeSet</code> with the selected Spans 
+	 * @return The existing read-only set of Spans of this type in this textual unit (empty if there are none)
 	 */
-	public TreeSet<Span> getSpans(Span textualUnit, String spanType){
-		TreeSet<Span> spans = new TreeSet<>();
-		spans.addAll(getSpans(textualUnit));
-		spans.retainAll(getSpans(spanType));
+	public NavigableSet<Span> getSpans(Span textualUnit, String spanType){
+		useTextualUnit(textualUnit);
+		HashMap<String, IdOrderedSet<Span>> spansOfUnitByType = spansByTextualUnitAndType.get(textualUnit);
+		if (spansOfUnitByType == null)
+			return Collections.emptyNavigableSet();
+		NavigableSet<Span> spans = spansOfUnitByType.get(spanType);
+		if (spans == null)
+			return Collections.emptyNavigableSet();
 		return spans;
 	}
 	
+	/**
+	 * Get the <code>Span</code>s of the given type that contain the given <code>Word</code>. This uses the interval index
+	 * of the textual unit of the <code>Word</code>, so it does not need to look at every <code>Span</code> in the textual unit.
+	 * @param spanType
+	 * @param containingWord
+	 * @return A new <code>TreeSet</code> with the selected Spans
+	 */
 	public TreeSet<Span> getSpans(String spanType, Word containingWord){
-		TreeSet<Span> spans = getSpans(containingWord.getTextualUnit(), spanType);
-		TreeSet<Span> spansWithWord = new TreeSet<>();
-		for (Span span : spans){
-			if (span.contains(containingWord)){
-				spansWithWord.add(span);
-			}
-		}
-		return spansWithWord;
+		return getSpansContaining(spanType, containingWord);
 	}
 	
+	/**
+	 * Get all <code>Span</code>s, of any type, that contain the given <code>Word</code>.
+	 * @param containingWord
+	 * @return A new <code>TreeSet</code> with the selected Spans
+	 */
 	public TreeSet<Span> getSpans(Word containingWord){
+		return getSpansContaining(null, containingWord);
+	}
 	
-		TreeSet<Span> spans = getSpans(containingWord.getTextualUnit());
-		TreeSet<Span> spansWithWord = new TreeSet<>();
-		for (Span span : spans){
-			if (span.contains(containingWord)){
-				spansWithWord.add(span);
-			}
+	private TreeSet<Span> getSpansContaining(String spanType, Word containingWord){
+		int order = containingWord.getOrder();
+		TreeSet<Span> spansWithWord = getSpanIndex(containingWord.getTextualUnit()).getOverlappingSpans(spanType, order, order);
+		//the index works on word order, so double check for Words that have been taken out of the text
+		Iterator<Span> it = spansWithWord.iterator();
+		while (it.hasNext()){
+			if (!it.next().contains(containingWord))
+				it.remove();
 		}
 		return spansWithWord;
 	}
 	
-	public HashSet<Span> getSubSpans(HashSet<Span> originalData, String subSpanType){
+	/**
+	 * Get the <code>Span</code>s of the given textual unit and type that overlap with the range of word orders 
+	 * from <code>fromOrder</code> to <code>toOrder</code> (both inclusive), meaning they contain at least one <code>Word</code> in that range.
+	 * @param textualUnit
+	 * @param spanType The span type to look for, or <code>null</code> for all span types
+	 * @param fromOrder
+	 * @param toOrder
+	 * @return A new <code>TreeSet</code> with the selected Spans
+	 */
+	public TreeSet<Span> getOverlappingSpans(Span textualUnit, String spanType, int fromOrder, int toOrder){
+		return getSpanIndex(textualUnit).getOverlappingSpans(spanType, fromOrder, toOrder);
+	}
+	
+	/**
+	 * Get the <code>Span</code>s of the given type that have at least one <code>Word</code> in common with the given <code>Span</code>.
+	 * @param span
+	 * @param spanType The span type to look for, or <code>null</code> for all span types
+	 * @return A new <code>TreeSet</code> with the selected Spans
+	 */
+	public TreeSet<Span> getOverlappingSpans(Span span, String spanType){
+		if (span.isEmpty())
+			return new TreeSet<>();
+		return getOverlappingSpans(span.getTextualUnit(), spanType, span.first().getOrder(), span.last().getOrder());
+	}
+	
+	/**
+	 * Get the <code>Span</code>s of the given type that are completely covered by the given <code>Span</code>, using the index of its textual unit,
+	 * e.g., the opinions under a sentence.
+	 * @param span
+	 * @param spanType The span type to look for, or <code>null</code> for all span types
+	 * @return A new <code>TreeSet</code> with the selected Spans
+	 */
+	public TreeSet<Span> getCoveredSpans(Span span, String spanType){
+		if (span.isEmpty())
+			return new TreeSet<>();
+		TreeSet<Span> coveredSpans = getSpanIndex(span.getTextualUnit()).getCoveredSpans(spanType, span.first().getOrder(), span.last().getOrder());
+		//the index works on word order, so double check for Words that have been taken out of the text
+		Iterator<Span> it = coveredSpans.iterator();
+		while (it.hasNext()){
+			Span covered = it.next();
+			if (!span.contains(covered.first()) || !span.contains(covered.last()))
+				it.remove();
+		}
+		return coveredSpans;
+	}
+	
+	public HashSet<Span> getSubSpans(Collection<Span> originalData, String subSpanType){
 		HashSet<Span> subSpanData = new HashSet<Span>();
 //		Framework.log("Subspantype:"+subSpanType);
 		for (Span span : originalData){
-			subSpanData.addAll(
-					span.getCoveredSpans(
-							getSpans(span.getTextualUnit(), subSpanType)
-					)
-			);
+			subSpanData.addAll(getCoveredSpans(span, subSpanType));
 		}
 		return subSpanData;
 	}
 	
+	/**
+	 * Keep an inverted index from the values of the given annotation type to the entities that have them, so selecting e.g. all opinions
+	 * with a certain category, or all Words with a URI, does not need a scan over all entities anymore. Annotations that are already
+	 * there are indexed right away, and the index is kept up to date when annotations are put or entities are removed.
+	 * @param annotationType
+	 * @return This Dataset
+	 */
+	public Dataset addAnnotationIndex(String annotationType){
+		checkNotFrozen();
+		checkNotSpilled();
+		lockIndexes();
+		try {
+			if (!annotationIndexes.containsKey(annotationType)){
+				AnnotationIndex index = new AnnotationIndex(annotationType);
+				int slot = annotationSchema.getSlot(annotationType);
+				if (slot >= 0){
+					Iterator<DataEntity> entities = getDataEntityIterator();
+					while (entities.hasNext()){
+						DataEntity entity = entities.next();
+						index.add(entity, entity.getAnnotation(slot, Object.class));
+					}
+				}
+				annotationIndexes.put(annotationType, index);
+				updateAnnotationIndexSlots();
+			}
+		} finally {
+			unlockIndexes();
+		}
+		return this;
+	}
+	
+	public boolean hasAnnotationIndex(String annotationType){
+		return annotationIndexes.containsKey(annotationType);
+	}
+	
+	/**
+	 * Get all entities that have the given value for the given annotation type. When there is an index on the annotation type
+	 * (see {@link #addAnnotationIndex(String)}), this is a single lookup, otherwise all entities are scanned.
+	 * @param annotationType
+	 * @param value
+	 * @return The read-only set of entities from the index, or a new <code>TreeSet</code> if there is no index, ordered by id
+	 * @throws UnsupportedOperationException When this Dataset has been spilled to disk, see {@link #spillToDisk(File, long)}
+	 */
+	public NavigableSet<DataEntity> getAnnotatedEntities(String annotationType, Object value){
+		checkNotSpilled();
+		AnnotationIndex index = annotationIndexes.get(annotationType);
+		if (index != null)
+			return index.get(value);
+		TreeSet<DataEntity> entities = new TreeSet<>();
+		int code = value instanceof String ? stringDictionary.lookupCode((String)value) : -1;
+		Iterator<DataEntity> it = getDataEntityIterator();
+		while (it.hasNext()){
+			DataEntity entity = it.next();
+			if (code >= 0 ? entity.annotationEquals(annotationType, code) : entity.annotationEquals(annotationType, value))
+				entities.add(entity);
+		}
+		return entities;
+	}
+	
+	/**
+	 * 
+	 * @param annotationType
+	 * @return The existing read-only set of values that occur for this annotation type, or null if there is no index on the annotation type
+	 * @throws UnsupportedOperationException When this Dataset has been spilled to disk, see {@link #spillToDisk(File, long)}
+	 */
+	public Set<Object> getAnnotationValues(String annotationType){
+		checkNotSpilled();
+		AnnotationIndex index = annotationIndexes.get(annotationType);
+		if (index == null)
+			return null;
+		return index.getValues();
+	}
+	
+	/**
+	 * Start a query that selects entities of this <code>Dataset</code> on their type, textual unit and annotation values,
+	 * using the available indexes.
+	 * @return
+	 */
+	public DatasetQuery query(){
+		return new DatasetQuery(this);
+	}
+	
+	/**
+	 * Add an annotation type whose values are computed by the given function instead of being stored. The value for an entity is computed
+	 * the first time it is asked for through <code>getAnnotation</code> (or <code>hasAnnotation</code>, <code>getDouble</code>, etc.),
+	 * and is then remembered until it is invalidated with {@link #invalidateDerivedAnnotation(String)}.
+	 * A stored annotation of the same type takes precedence. Derived annotations are not written to file, and an existing derived 
+	 * annotation type with the same name is replaced. See {@link DerivedAnnotations} for some ready-made providers.
+	 * @param annotationType
+	 * @param dataType
+	 * @param provider
+	 * @return This Dataset
+	 */
+	public Dataset addDerivedAnnotation(String annotationType, Class<?> dataType, Function<? super DataEntity, ?> provider){
+		return addDerivedAnnotation(annotationType, dataType, provider, true);
+	}
+	
+	/**
+	 * Same as {@link #addDerivedAnnotation(String, Class, Function)}, but the computed values are only remembered when <code>cached</code> is true.
+	 * Values that are cheap to compute but take a lot of space, like the text of a <code>Span</code>, are better left uncached.
+	 * @param annotationType
+	 * @param dataType
+	 * @param provider
+	 * @param cached
+	 * @return This Dataset
+	 */
+	public Dataset addDerivedAnnotation(String annotationType, Class<?> dataType, Function<? super DataEntity, ?> provider, boolean cached){
+		derivedAnnotations.put(annotationType, new DerivedAnnotation(annotationType, dataType, provider, cached));
+		return this;
+	}
+	
+	public boolean hasDerivedAnnotation(String annotationType){
+		return derivedAnnotations.containsKey(annotationType);
+	}
+	
+	public void removeDerivedAnnotation(String annotationType){
+		derivedAnnotations.remove(annotationType);
+	}
+	
+	/**
+	 * Forget all computed values of this derived annotation type, e.g., after the data they are computed from has changed.
+	 * @param annotationType
+	 */
+	public void invalidateDerivedAnnotation(String annotationType){
+		DerivedAnnotation derived = derivedAnnotations.get(annotationType);
+		if (derived != null)
+			derived.invalidateAll();
+	}
+	
+	/**
+	 * Forget the computed value of this derived annotation type for a single entity.
+	 * @param annotationType
+	 * @param entity
+	 */
+	public void invalidateDerivedAnnotation(String annotationType, DataEntity entity){
+		DerivedAnnotation derived = derivedAnnotations.get(annotationType);
+		if (derived != null)
+			derived.invalidate(entity);
+	}
+	
+	/**
+	 * 
+	 * @param entity
+	 * @param annotationType
+	 * @return The (possibly remembered) value of the derived annotation for this entity, or null if there is no such derived annotation type
+	 */
+	Object getDerivedAnnotation(DataEntity entity, String annotationType){
+		if (derivedAnnotations.isEmpty())
+			return null;
+		DerivedAnnotation derived = derivedAnnotations.get(annotationType);
+		if (derived == null)
+			return null;
+		return derived.get(entity);
+	}
+	
+	/**
+	 * Notify this <code>Dataset</code> that an annotation of the given entity has changed, so the index on its annotation type (if any) can be updated.
+	 * @param entity
+	 * @param slot
+	 * @param oldValue
+	 * @param newValue
+	 */
+	void annotationChanged(DataEntity entity, int slot, Object oldValue, Object newValue){
+		if (spillStore != null)
+			spillStore.changed(entity, false);
+		if (annotationIndexes.isEmpty())
+			return;
+		AnnotationIndex[] indexes = annotationIndexesBySlot;
+		if (slot >= indexes.length)
+			indexes = updateAnnotationIndexSlots();
+		if (slot >= indexes.length || indexes[slot] == null)
+			return;
+		lockIndexes();
+		try {
+			indexes[slot].remove(entity, oldValue);
+			indexes[slot].add(entity, newValue);
+		} finally {
+			unlockIndexes();
+		}
+	}
+	
+	//add the annotations of an entity to all indexes, or take them out
+	private void updateAnnotationIndexes(DataEntity entity, boolean add){
+		for (AnnotationIndex index : annotationIndexes.values()){
+			Object value = entity.getAnnotation(annotationSchema.getSlot(index.getAnnotationType()), Object.class);
+			if (add)
+				index.add(entity, value);
+			else
+				index.remove(entity, value);
+		}
+	}
+	
+	//slots are registered on the fly, so the indexes by slot are looked up again when an unknown slot comes along
+	private AnnotationIndex[] updateAnnotationIndexSlots(){
+		AnnotationIndex[] indexes = new AnnotationIndex[annotationSchema.size()];
+		for (AnnotationIndex index : annotationIndexes.values()){
+			int slot = annotationSchema.getSlot(index.getAnnotationType());
+			if (slot >= 0 && slot < indexes.length)
+				indexes[slot] = index;
+		}
+		annotationIndexesBySlot = indexes;
+		return indexes;
+	}
+	
 	/**
 	 * 
 	 * @param relationType
-	 * @return An existing TreeSet (do not change it)
+	 * @return The existing read-only set of Relations of this type, ordered by id (null if there are none)
+	 * @throws UnsupportedOperationException When this Dataset has been spilled to disk, see {@link #spillToDisk(File, long)}
 	 */
-	public TreeSet<Relation> getRelations(String relationType){
+	public NavigableSet<Relation> getRelations(String relationType){
+		checkNotSpilled();
 		return relationsByType.get(relationType);
 	}
 	
-	
+	/**
+	 * Get an entity by its id. When this Dataset has been spilled to disk (see {@link #spillToDisk(File, long)}) and the entity is in
+	 * the spill file, its textual unit is read back in first.
+	 * @param id
+	 * @return The DataEntity with this id, or null if there is no such DataEntity (anymore)
+	 */
 	public DataEntity getAnnotatable(int id){
-		return annotatablesById.get(id);
+		DataEntity entity = getRegisteredEntity(id);
+		if (entity == null && spillStore != null)
+			return spillStore.lookup(id);
+		return entity;
+	}
+	
+	//the entity with this id in the registry, without reading anything back in from the spill file
+	DataEntity getRegisteredEntity(int id){
+		if (id < 0)
+			return null;
+		DataEntity[][] pages = annotatablesById;
+		int page = id >>> REGISTRY_PAGE_BITS;
+		if (page >= pages.length || pages[page] == null)
+			return null;
+		return pages[page][id & (REGISTRY_PAGE_SIZE - 1)];
 	}
 	
+	/**
+	 * 
+	 * @return An Iterator over all DataEntity objects in this Dataset, ordered by id
+	 * @throws UnsupportedOperationException When this Dataset has been spilled to disk, see {@link #spillToDisk(File, long)}
+	 */
 	public Iterator<DataEntity> getDataEntityIterator(){
-		return annotatablesById.values().iterator();
+		checkNotSpilled();
+		return new Iterator<DataEntity>(){
+			final int lastId = getCurrentId();
+			int nextEntityId = findNext(1);
+			
+			private int findNext(int id){
+				while (id <= lastId && getRegisteredEntity(id) == null)
+					id++;
+				return id;
+			}
+			
+			@Override
+			public boolean hasNext() {
+				return nextEntityId <= lastId;
+			}
+
+			@Override
+			public DataEntity next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				DataEntity d = getRegisteredEntity(nextEntityId);
+				nextEntityId = findNext(nextEntityId+1);
+				return d;
+			}
+		};
 	}
 	
 	
 	
 	public Dataset process(AbstractNLPComponent nlp, String spanType){
+		checkNotFrozen();
 		nlp.process(this, spanType);
 		performedNLPTasks.add(nlp.getTask());
 		return this;
@@ -251,8 +863,49 @@ public class Dataset {
 		return textualUnitSpanType;
 	}
 	
-	public HashMap<String, Class<?>> getAnnotationDataTypes(){
-		return annotationDataTypes;
+	/**
+	 * 
+	 * @return An existing Map with the data type per annotation type (changes will be seen by the <code>AnnotationSchema</code>)
+	 */
+	public Map<String, Class<?>> getAnnotationDataTypes(){
+		return annotationSchema.getDataTypes();
+	}
+	
+	/**
+	 * Estimate the heap space used by this <code>Dataset</code>, per entity class, span type, relation type and annotation type.
+	 * @return
+	 */
+	public DatasetMemoryReport createMemoryReport(){
+		return new DatasetMemoryReport(this);
+	}
+	
+	public AnnotationSchema getAnnotationSchema(){
+		return annotationSchema;
+	}
+	
+	public StringDictionary getStringDictionary(){
+		return stringDictionary;
+	}
+	
+	//the span and relation indexes themselves, without copying them, used by DatasetMemoryReport
+	IdOrderedSet<Span> peekSpans(){
+		return spans;
+	}
+	
+	Map<String, IdOrderedSet<Span>> peekSpansByType(){
+		return spansByType;
+	}
+	
+	Map<Span, IdOrderedSet<Span>> peekSpansByTextualUnit(){
+		return spansByTextualUnit;
+	}
+	
+	Map<Span, HashMap<String, IdOrderedSet<Span>>> peekSpansByTextualUnitAndType(){
+		return spansByTextualUnitAndType;
+	}
+	
+	Map<String, IdOrderedSet<Relation>> peekRelationsByType(){
+		return relationsByType;
 	}
 	
 	public String getFilename(){
@@ -260,26 +913,241 @@ public class Dataset {
 	}
 	
 	/**
-	 * Get the next unique identifier and also register this Annotatable with that id in this Dataset
+	 * Get the next unique identifier and also register this Annotatable with that id in this Dataset.
+	 * This is safe to call from multiple threads at the same time.
 	 * @param a
 	 * @return
 	 */
 	public int getNextId(DataEntity a){
-		nextId++;
-		annotatablesById.put(nextId, a);
-		return nextId;
+		checkNotFrozen();
+		int id = nextId.incrementAndGet();
+		getRegistryPage(id)[id & (REGISTRY_PAGE_SIZE - 1)] = a;
+		if (spillStore != null)
+			spillStore.changed(a, true);
+		return id;
 	}
+	
+	/**
+	 * Reserve a block of consecutive ids, so that many entities can be created at once, see {@link TextualUnitBuilder}.
+	 * The entities have to be registered with {@link #registerAll(DataEntity[])} afterwards.
+	 * @param count
+	 * @return The first id of the block
+	 */
+	int allocateIds(int count){
+		checkNotFrozen();
+		return nextId.getAndAdd(count) + 1;
+	}
+	
+	/**
+	 * Register entities that got their id from {@link #allocateIds(int)}.
+	 * @param entities
+	 */
+	void registerAll(DataEntity[] entities){
+		DataEntity[] page = null;
+		int pageNumber = -1;
+		for (DataEntity entity : entities){
+			int id = entity.getId();
+			if (id >>> REGISTRY_PAGE_BITS != pageNumber){
+				pageNumber = id >>> REGISTRY_PAGE_BITS;
+				page = getRegistryPage(id);
+			}
+			page[id & (REGISTRY_PAGE_SIZE - 1)] = entity;
+		}
+		if (spillStore != null){
+			for (DataEntity entity : entities){
+				spillStore.changed(entity, true);
+			}
+		}
+	}
+	
+	private DataEntity[] getRegistryPage(int id){
+		int page = id >>> REGISTRY_PAGE_BITS;
+		DataEntity[][] pages = annotatablesById;
+		if (page < pages.length && pages[page] != null)
+			return pages[page];
+		synchronized (registryLock){
+			pages = annotatablesById;
+			if (page >= pages.length)
+				pages = Arrays.copyOf(pages, Math.max(pages.length * 2, page + 1));
+			if (pages[page] == null)
+				pages[page] = new DataEntity[REGISTRY_PAGE_SIZE];
+			annotatablesById = pages;
+			return pages[page];
+		}
+	}
+	
 	public int getCurrentId(){
-		return nextId;
+		return nextId.get();
 	}
 	public void removeAnnotatable(DataEntity a){
-		annotatablesById.remove(a.getId());
+		checkNotFrozen();
+		if (spillStore != null)
+			spillStore.changed(a, false);
+		int id = a.getId();
+		DataEntity[][] pages = annotatablesById;
+		int page = id >>> REGISTRY_PAGE_BITS;
+		if (id > 0 && page < pages.length && pages[page] != null)
+			pages[page][id & (REGISTRY_PAGE_SIZE - 1)] = null;
+		if (!annotationIndexes.isEmpty()){
+			lockIndexes();
+			try {
+				updateAnnotationIndexes(a, false);
+			} finally {
+				unlockIndexes();
+			}
+		}
+	}
+	/**
+	 * Drop everything the given policy does not keep: Spans of other types, Relations of other types (or between entities that are dropped),
+	 * and annotations of other types. <code>Word</code>s, textual units and the "text" annotation are always kept. All indexes are rebuilt from what is left,
+	 * the <code>AnnotationSchema</code> is shrunk to the kept annotation types, and the <code>StringDictionary</code> to the values still in use.
+	 * This is meant to be done once all NLP components have been run and before an experiment starts, as annotation slots and dictionary 
+	 * codes change, so anything that kept those (like <code>Prediction</code>s) is outdated. Ids do not change, so existing subsets stay valid
+	 * for the entities that are kept.
+	 * @param policy
+	 * @return This Dataset
+	 * @throws UnsupportedOperationException When this Dataset is a shard, since a shard shares its <code>AnnotationSchema</code> 
+	 * and <code>StringDictionary</code> with the partitioned Dataset, see {@link #partition(int)}
+	 */
+	public Dataset compact(RetentionPolicy policy){
+		checkNotFrozen();
+		checkNotSpilled();
+		if (shardParent != null)
+			throw new UnsupportedOperationException("A shard shares its AnnotationSchema with the partitioned Dataset, compact that Dataset instead");
+		lockIndexes();
+		try {
+			Framework.log("Compacting Dataset with "+policy+"....");
+			//Spans
+			int droppedSpans = 0;
+			for (Span span : spans){
+				if (span.getTextualUnit() != span && !policy.keepsSpanType(span.getType())){
+					unregister(span);
+					droppedSpans++;
+				}
+			}
+			//Relations, which can only be kept if both ends are kept
+			ArrayList<Relation> keptRelations = new ArrayList<>();
+			int droppedRelations = 0;
+			for (IdOrderedSet<Relation> relationsOfType : relationsByType.values()){
+				for (Relation rel : relationsOfType){
+					if (policy.keepsRelationType(rel.getType()) && isRegistered(rel.getParent()) && isRegistered(rel.getChild())){
+						keptRelations.add(rel);
+					} else {
+						unregister(rel);
+						droppedRelations++;
+					}
+				}
+			}
+			//annotations, moved to the slots of a smaller schema
+			int[] slotMap = new int[annotationSchema.size()];
+			AnnotationSchema retainedSchema = annotationSchema.retain(policy, slotMap);
+			StringDictionary retainedDictionary = new StringDictionary();
+			Iterator<DataEntity> entities = getDataEntityIterator();
+			while (entities.hasNext()){
+				DataEntity entity = entities.next();
+				entity.retainAnnotations(slotMap, retainedSchema, retainedDictionary);
+				entity.relations = null;
+			}
+			annotationSchema = retainedSchema;
+			stringDictionary = retainedDictionary;
+			//link the kept Relations to their ends again, and rebuild all indexes
+			for (Relation rel : keptRelations){
+				rel.getParent().getRelations().addRelationToChild(rel);
+				rel.getChild().getRelations().addRelationToParent(rel);
+			}
+			for (String annotationType : new ArrayList<>(annotationIndexes.keySet())){
+				if (!policy.keepsAnnotation(annotationType))
+					annotationIndexes.remove(annotationType);
+			}
+			rebuildIndexes();
+			Framework.log("Compacting Dataset....Done! Dropped "+droppedSpans+" Spans, "+droppedRelations+" Relations and "
+					+(slotMap.length - annotationSchema.size())+" annotation types");
+		} finally {
+			unlockIndexes();
+		}
+		return this;
+	}
+	
+	private boolean isRegistered(DataEntity entity){
+		return entity.getDataset() == this && getRegisteredEntity(entity.getId()) == entity;
+	}
+	
+	//take an entity out of the registry, without the per-entity index updates of removeAnnotatable
+	private void unregister(DataEntity entity){
+		int id = entity.getId();
+		DataEntity[][] pages = annotatablesById;
+		int page = id >>> REGISTRY_PAGE_BITS;
+		if (id > 0 && page < pages.length && pages[page] != null)
+			pages[page][id & (REGISTRY_PAGE_SIZE - 1)] = null;
+	}
+	
+	//rebuild the span, relation and annotation indexes from the registry, in id order
+	private void rebuildIndexes(){
+		spans = new IdOrderedSet<>();
+		spansByType = new HashMap<>();
+		spansByTextualUnit = new ConcurrentHashMap<>();
+		spansByTextualUnitAndType = new ConcurrentHashMap<>();
+		spanIndexByTextualUnit = new ConcurrentHashMap<>();
+		relationsByType = new HashMap<>();
+		for (AnnotationIndex index : annotationIndexes.values()){
+			index.clear();
+		}
+		updateAnnotationIndexSlots();
+		Iterator<DataEntity> entities = getDataEntityIterator();
+		while (entities.hasNext()){
+			DataEntity entity = entities.next();
+			if (entity instanceof Span){
+				indexSpanByType((Span)entity);
+				indexSpanByTextualUnit((Span)entity);
+			} else if (entity instanceof Relation){
+				Relation rel = (Relation)entity;
+				if (!relationsByType.containsKey(rel.getType()))
+					relationsByType.put(rel.getType(), new IdOrderedSet<Relation>());
+				relationsByType.get(rel.getType()).append(rel);
+			}
+			if (!annotationIndexes.isEmpty())
+				updateAnnotationIndexes(entity, true);
+		}
+		for (Span textualUnit : spansByTextualUnit.keySet()){
+			textualUnit.invalidateTextualUnit();
+		}
+		for (DerivedAnnotation derived : derivedAnnotations.values()){
+			derived.invalidateAll();
+		}
+	}
+	
+	//forget all contents, used for the Dataset that has been merged into another one
+	private void clear(){
+		spans = new IdOrderedSet<>();
+		spansByType = new HashMap<>();
+		spansByTextualUnit = new ConcurrentHashMap<>();
+		spansByTextualUnitAndType = new ConcurrentHashMap<>();
+		spanIndexByTextualUnit = new ConcurrentHashMap<>();
+		relationsByType = new HashMap<>();
+		for (AnnotationIndex index : annotationIndexes.values()){
+			index.clear();
+		}
+		//ids start over, so computed values would end up at the wrong entities
+		for (DerivedAnnotation derived : derivedAnnotations.values()){
+			derived.invalidateAll();
+		}
+		annotatablesById = new DataEntity[16][];
+		nextId.set(0);
 	}
+	
 	/**
-	 * Use this method to add the contents of another Dataset object into this Dataset
+	 * Use this method to add the contents of another Dataset object into this Dataset.
+	 * The registry pages of the other Dataset are taken over as they are, after the last page in use by this Dataset, so the ids of 
+	 * the added DataEntity objects are shifted by a whole number of pages and there can be a gap in the ids between both parts.
+	 * The span, relation and annotation indexes of the other Dataset are appended to those of this Dataset, so nothing is re-indexed 
+	 * one by one, except for annotation indexes that only this Dataset has. The other Dataset is empty afterwards.
 	 * @param moreData The Dataset whose content will be added to this Dataset
 	 */
 	public void mergeDataset(Dataset moreData) throws Exception{
+		checkNotFrozen();
+		moreData.checkNotFrozen();
+		checkNotSpilled();
+		moreData.checkNotSpilled();
 		//first, check compatibility
 		HashSet<NLPTask> moreDataNLPTasks = new HashSet<>();
 		moreDataNLPTasks.addAll(moreData.performedNLPTasks);
@@ -297,10 +1165,10 @@ public class Dataset {
 			throw new Exception("Datasets are not compatible: different textual unit span types are in use");
 		}
 		HashMap<String, Class<?>> moreDataAnnotationDataTypes = new HashMap<>();
-		moreDataAnnotationDataTypes.putAll(moreData.annotationDataTypes);
-		for (String annotationType : annotationDataTypes.keySet()){
+		moreDataAnnotationDataTypes.putAll(moreData.getAnnotationDataTypes());
+		for (String annotationType : getAnnotationDataTypes().keySet()){
 			if (!moreDataAnnotationDataTypes.containsKey(annotationType) ||
-					!moreDataAnnotationDataTypes.get(annotationType).equals(annotationDataTypes.get(annotationType))){
+					!moreDataAnnotationDataTypes.get(annotationType).equals(getAnnotationDataTypes().get(annotationType))){
 				throw new Exception("Datasets are not compatible: different sets of annotations are in use");
 			}
 			moreDataAnnotationDataTypes.remove(annotationType);
@@ -310,17 +1178,405 @@ public class Dataset {
 		}
 		//ok, both Datasets are compatible, add everything to this Dataset
 		Framework.log("Merging two Datasets....");
-		for (DataEntity d : moreData.annotatablesById.values()){
-			//this will also update the id's and dataset references of each DataEntity
-			d.moveToDifferentDataset(this); 
-			//special references for Spans and Relations for indexing purposes
-			if (d instanceof Span){
-				this.addSpan((Span)d);
+		//annotation slots differ per Dataset, so map the slots of moreData to the slots in this Dataset
+		AnnotationSchema moreDataSchema = moreData.getAnnotationSchema();
+		int[] slotMap = new int[moreDataSchema.size()];
+		boolean sameSlots = true;
+		for (int slot = 0; slot < slotMap.length; slot++){
+			slotMap[slot] = annotationSchema.getOrCreateSlot(moreDataSchema.getAnnotationType(slot), moreDataSchema.getDataType(slot));
+			sameSlots = sameSlots && slotMap[slot] == slot;
+		}
+		//all entities of moreData keep their relative order and come after the entities of this Dataset, starting on a new page 
+		//of the registry, so the registry pages of moreData are taken over as they are
+		DataEntity[][] moreDataPages = moreData.annotatablesById;
+		int firstPage = (getCurrentId() >>> REGISTRY_PAGE_BITS) + 1;
+		int idOffset = firstPage << REGISTRY_PAGE_BITS;
+		synchronized (registryLock){
+			DataEntity[][] pages = annotatablesById;
+			if (firstPage + moreDataPages.length > pages.length)
+				pages = Arrays.copyOf(pages, Math.max(pages.length * 2, firstPage + moreDataPages.length));
+			System.arraycopy(moreDataPages, 0, pages, firstPage, moreDataPages.length);
+			annotatablesById = pages;
+			nextId.set(idOffset + moreData.getCurrentId());
+		}
+		//the annotation indexes of moreData are appended below, only the ones it does not have are filled entity by entity
+		ArrayList<AnnotationIndex> indexesToFill = new ArrayList<>();
+		for (AnnotationIndex index : annotationIndexes.values()){
+			if (!moreData.annotationIndexes.containsKey(index.getAnnotationType()))
+				indexesToFill.add(index);
+		}
+		//every entity stays at the same position in its page, it only gets its new id and Dataset
+		for (DataEntity[] page : moreDataPages){
+			if (page == null)
+				continue;
+			for (DataEntity d : page){
+				if (d != null){
+					d.shiftToDataset(this, idOffset, sameSlots ? null : slotMap);
+					for (AnnotationIndex index : indexesToFill){
+						//the new ids are higher than all ids in the index, so this appends
+						index.add(d, d.getAnnotation(annotationSchema.getSlot(index.getAnnotationType()), Object.class));
+					}
+				}
 			}
-			if (d instanceof Relation){
-				this.addRelation((Relation)d);
+		}
+		for (AnnotationIndex index : annotationIndexes.values()){
+			AnnotationIndex moreDataIndex = moreData.annotationIndexes.get(index.getAnnotationType());
+			if (moreDataIndex != null)
+				index.appendAll(moreDataIndex);
+		}
+		//the indexes of moreData are still ordered by id, so they can be appended as a whole
+		spans.appendAll(moreData.spans);
+		for (String spanType : moreData.spansByType.keySet()){
+			if (spansByType.containsKey(spanType)){
+				spansByType.get(spanType).appendAll(moreData.spansByType.get(spanType));
+			} else {
+				spansByType.put(spanType, moreData.spansByType.get(spanType));
 			}
 		}
+		for (String relationType : moreData.relationsByType.keySet()){
+			if (relationsByType.containsKey(relationType)){
+				relationsByType.get(relationType).appendAll(moreData.relationsByType.get(relationType));
+			} else {
+				relationsByType.put(relationType, moreData.relationsByType.get(relationType));
+			}
+		}
+		//textual units are never shared between Datasets
+		spansByTextualUnit.putAll(moreData.spansByTextualUnit);
+		spansByTextualUnitAndType.putAll(moreData.spansByTextualUnitAndType);
+		for (Span textualUnit : moreData.spansByTextualUnit.keySet()){
+			textualUnit.invalidateTextualUnit();
+		}
+		moreData.clear();
 		Framework.log("Merging two Datasets....Done!");
 	}
+	
+	/**
+	 * Split this Dataset into <code>n</code> shards along the textual units, so that the shards can be processed independently, e.g.,
+	 * each in its own thread. Every textual unit ends up in exactly one shard, together with its <code>Word</code>s, <code>Span</code>s
+	 * and <code>Relation</code>s, and the textual units are divided in id order into <code>n</code> runs of about the same size.
+	 * Each shard is a <code>Dataset</code> of its own, with its own ids starting at 1 and its own indexes, but it shares the 
+	 * <code>AnnotationSchema</code> and <code>StringDictionary</code> with this Dataset, so annotations are moved as they are.
+	 * Use {@link #getGlobalId(int)} and {@link #getLocalId(int)} to translate between the ids of this Dataset and those of a shard.
+	 * <p>The entities are moved, not copied: this Dataset is empty and cannot be changed until the shards are put back together with 
+	 * {@link #reassemble(Collection)}. Subsets that were created before the split are only valid again after that.</p>
+	 * @param n The number of shards, there can be fewer when there are fewer textual units
+	 * @return The shards, in the order of their textual units
+	 * @throws IllegalStateException When a <code>Relation</code> links two textual units, as these cannot be put in different shards,
+	 * or when there are no textual units at all
+	 */
+	public ArrayList<Dataset> partition(int n){
+		checkNotFrozen();
+		checkNotSpilled();
+		if (n < 1)
+			throw new IllegalArgumentException("A Dataset cannot be split into "+n+" shards");
+		//divide the textual units, in id order, into runs of about the same number of Words and Spans
+		TreeSet<Span> textualUnits = new TreeSet<>(spansByTextualUnit.keySet());
+		if (textualUnits.isEmpty())
+			throw new IllegalStateException("This Dataset cannot be partitioned: it has no textual units");
+		Framework.log("Partitioning Dataset into "+n+" shards....");
+		long totalSize = 0;
+		for (Span textualUnit : textualUnits){
+			totalSize += textualUnit.size() + spansByTextualUnit.get(textualUnit).size();
+		}
+		HashMap<Span, Integer> shardOfTextualUnit = new HashMap<>();
+		int shardCount = 0;
+		long size = 0;
+		for (Span textualUnit : textualUnits){
+			if (shardCount == 0 || (shardCount < n && size * n >= totalSize * shardCount))
+				shardCount++;
+			shardOfTextualUnit.put(textualUnit, shardCount - 1);
+			size += textualUnit.size() + spansByTextualUnit.get(textualUnit).size();
+		}
+		//find the shard of every entity before anything is moved, so a Relation between textual units leaves this Dataset as it is
+		int lastId = getCurrentId();
+		int[] shardOfEntity = new int[lastId + 1];
+		for (int id = 1; id <= lastId; id++){
+			DataEntity entity = getAnnotatable(id);
+			if (entity == null)
+				continue;
+			Integer shard = shardOfTextualUnit.get(getTextualUnitOf(entity));
+			if (shard == null)
+				throw new IllegalStateException("This Dataset cannot be partitioned: "+entity+" is not part of a textual unit");
+			if (entity instanceof Relation && !shard.equals(shardOfTextualUnit.get(getTextualUnitOf(((Relation)entity).getChild()))))
+				throw new IllegalStateException("This Dataset cannot be partitioned: "+entity+" links two textual units");
+			shardOfEntity[id] = shard;
+		}
+		//move the entities in id order, so their local ids have the same order as their global ids
+		ArrayList<Dataset> newShards = new ArrayList<>();
+		for (int i = 0; i < shardCount; i++){
+			newShards.add(new Dataset(this));
+		}
+		for (int id = 1; id <= lastId; id++){
+			DataEntity entity = getAnnotatable(id);
+			if (entity != null)
+				newShards.get(shardOfEntity[id]).moveIntoShard(entity, id);
+		}
+		for (Dataset shard : newShards){
+			shard.globalIds = Arrays.copyOf(shard.globalIds, shard.globalIdCount + 1);
+			shard.rebuildIndexes();
+		}
+		clear();
+		partitionedLastId = lastId;
+		shards = newShards;
+		Framework.log("Partitioning Dataset into "+n+" shards....Done! Created "+shardCount+" shards");
+		return new ArrayList<>(newShards);
+	}
+	
+	/**
+	 * Put the shards created by {@link #partition(int)} back into the <code>Dataset</code> they came from. All entities get their 
+	 * original ids back, and entities that were created in a shard in the mean time get new ids after those. All indexes are rebuilt,
+	 * and the NLP tasks that have been performed on all shards are added to the <code>Dataset</code>. The shards are empty afterwards.
+	 * @param shards All shards of one <code>Dataset</code>, in any order
+	 * @return The <code>Dataset</code> the shards came from
+	 */
+	public static Dataset reassemble(Collection<Dataset> shards){
+		if (shards.isEmpty())
+			throw new IllegalArgumentException("There are no shards to reassemble");
+		Dataset dataset = shards.iterator().next().shardParent;
+		if (dataset == null || dataset.shards == null)
+			throw new IllegalArgumentException("These shards are not part of a partitioned Dataset");
+		if (shards.size() != dataset.shards.size() || !new HashSet<>(shards).containsAll(dataset.shards))
+			throw new IllegalArgumentException("Reassembling needs all "+dataset.shards.size()+" shards of the Dataset, and nothing else");
+		for (Dataset shard : dataset.shards){
+			//the annotations are moved as they are, so they have to be in the slots of the Dataset
+			if (shard.annotationSchema != dataset.annotationSchema || shard.stringDictionary != dataset.stringDictionary)
+				throw new IllegalStateException("A shard no longer shares its AnnotationSchema and StringDictionary with the Dataset");
+		}
+		Framework.log("Reassembling Dataset from "+shards.size()+" shards....");
+		int nextNewId = dataset.partitionedLastId;
+		HashSet<NLPTask> sharedNLPTasks = new HashSet<>(dataset.shards.get(0).performedNLPTasks);
+		for (Dataset shard : dataset.shards){
+			int shardLastId = shard.getCurrentId();
+			for (int localId = 1; localId <= shardLastId; localId++){
+				DataEntity entity = shard.getAnnotatable(localId);
+				if (entity == null)
+					continue;
+				//entities that are new in this shard come after those of all earlier shards, so the order within each shard stays the same
+				int globalId = (localId <= shard.globalIdCount) ? shard.globalIds[localId] : ++nextNewId;
+				entity.moveToShard(dataset, globalId);
+				dataset.getRegistryPage(globalId)[globalId & (REGISTRY_PAGE_SIZE - 1)] = entity;
+			}
+			sharedNLPTasks.retainAll(shard.performedNLPTasks);
+			shard.clear();
+			shard.shardParent = null;
+			shard.globalIds = null;
+			shard.globalIdCount = 0;
+		}
+		dataset.shards = null;
+		dataset.partitionedLastId = 0;
+		dataset.nextId.set(nextNewId);
+		dataset.performedNLPTasks.addAll(sharedNLPTasks);
+		dataset.rebuildIndexes();
+		Framework.log("Reassembling Dataset from "+shards.size()+" shards....Done!");
+		return dataset;
+	}
+	
+	/**
+	 * 
+	 * @return Whether this Dataset is a shard of another Dataset, see {@link #partition(int)}
+	 */
+	public boolean isShard(){
+		return shardParent != null;
+	}
+	
+	/**
+	 * 
+	 * @param localId The id of an entity in this shard
+	 * @return The id the entity has in the partitioned <code>Dataset</code>, or -1 when the entity was created in this shard 
+	 * (it gets a new id when reassembling). When this Dataset is not a shard, the given id.
+	 */
+	public int getGlobalId(int localId){
+		if (shardParent == null)
+			return localId;
+		if (localId < 1 || localId > globalIdCount)
+			return -1;
+		return globalIds[localId];
+	}
+	
+	/**
+	 * 
+	 * @param globalId The id of an entity in the partitioned <code>Dataset</code>
+	 * @return The id of that entity in this shard, or -1 when it is in another shard. When this Dataset is not a shard, the given id.
+	 */
+	public int getLocalId(int globalId){
+		if (shardParent == null)
+			return globalId;
+		//the global ids are increasing, as the entities were moved in id order
+		int localId = Arrays.binarySearch(globalIds, 1, globalIdCount + 1, globalId);
+		return localId < 0 ? -1 : localId;
+	}
+	
+	//register an entity that is moved from the partitioned Dataset into this shard
+	private void moveIntoShard(DataEntity entity, int globalId){
+		int localId = nextId.incrementAndGet();
+		if (localId >= globalIds.length)
+			globalIds = Arrays.copyOf(globalIds, globalIds.length * 2);
+		globalIds[localId] = globalId;
+		globalIdCount = localId;
+		entity.moveToShard(this, localId);
+		getRegistryPage(localId)[localId & (REGISTRY_PAGE_SIZE - 1)] = entity;
+	}
+	
+	static Span getTextualUnitOf(DataEntity entity){
+		while (entity instanceof Relation){
+			entity = ((Relation)entity).getParent();
+		}
+		return entity.getTextualUnit();
+	}
+	
+	/**
+	 * Keep only part of the textual units of this Dataset in memory, for data sets that are too large for the heap. 
+	 * All textual units are written to the given spill file, with their <code>Word</code>s, <code>Span</code>s, <code>Relation</code>s and
+	 * annotations, and only the textual unit <code>Span</code>s themselves (with their own annotations) stay in memory. As soon as the 
+	 * content of a textual unit is used, e.g., by going over its <code>Word</code>s or through {@link #getSpans(Span, String)}, it is read back in.
+	 * When the textual units in memory take more than <code>memoryBudget</code> bytes (estimated per entity with a {@link DatasetMemoryReport}),
+	 * the least recently used ones are written out again, but only when they have changed. Going over {@link #getSpans(String)} for the 
+	 * textual unit span type therefore streams the textual units through memory in file order.
+	 * <p>While spilled, {@link #getAnnotatable(int)} reads the textual unit of the entity back in when needed, and so does a {@link SpanSubset}.
+	 * The dataset-wide views, which would only show the textual units in memory, throw an <code>UnsupportedOperationException</code>: 
+	 * {@link #getSpans()}, {@link #getSpans(String)} (except for the textual unit span type), {@link #getRelations(String)}, 
+	 * {@link #getDataEntityIterator()} and the annotation indexes. Entities of a textual unit that has been written out are read back in as 
+	 * new objects, and the old objects throw an <code>IllegalStateException</code> when they are used, so hold on to textual units 
+	 * (or ids) rather than to what is in them. Use {@link #keepInMemory(Span)} to make sure a textual unit is not written out while 
+	 * other textual units are read in, e.g., when going over the <code>Word</code>s of two textual units at once. Spilling is meant for 
+	 * one thread going over the textual units, and it cannot be combined with freezing, compacting, merging or partitioning.</p>
+	 * @param spillFile The file to write to, which is overwritten, and deleted again by {@link #loadFromDisk()}
+	 * @param memoryBudget The number of bytes the textual units in memory may take
+	 * @return This Dataset
+	 * @throws IOException When the spill file cannot be written, or a textual unit cannot be spilled because a <code>Relation</code> or
+	 * annotation refers to another textual unit (in which case nothing is spilled)
+	 */
+	public Dataset spillToDisk(File spillFile, long memoryBudget) throws IOException{
+		checkNotFrozen();
+		checkNotSpilled();
+		Framework.log("Spilling Dataset to "+spillFile+"....");
+		DatasetMemoryReport report = new DatasetMemoryReport(this);
+		long entityBytes = 0;
+		long entityCount = 0;
+		for (long bytes : report.getBytesByEntityClass().values()){
+			entityBytes += bytes;
+		}
+		for (long count : report.getCountByEntityClass().values()){
+			entityCount += count;
+		}
+		SpillStore store = new SpillStore(this, spillFile, memoryBudget, Math.max(1, entityBytes / Math.max(1, entityCount)));
+		spillStore = store;
+		try {
+			store.spillAll(new TreeSet<>(spansByTextualUnit.keySet()));
+		} catch (IOException e){
+			spillStore = null;
+			store.close();
+			throw e;
+		}
+		Framework.log("Spilling Dataset to "+spillFile+"....Done!");
+		return this;
+	}
+	
+	/**
+	 * 
+	 * @return Whether this Dataset keeps part of its textual units in a spill file, see {@link #spillToDisk(File, long)}
+	 */
+	public boolean isSpilledToDisk(){
+		return spillStore != null;
+	}
+	
+	/**
+	 * Read all textual units back in from the spill file, whatever the memory budget, and delete the spill file.
+	 * Nothing happens when this Dataset has not been spilled to disk.
+	 * @throws IOException
+	 */
+	public void loadFromDisk() throws IOException{
+		if (spillStore == null)
+			return;
+		Framework.log("Loading Dataset from its spill file....");
+		spillStore.loadAll();
+		spillStore.close();
+		spillStore = null;
+		Framework.log("Loading Dataset from its spill file....Done!");
+	}
+	
+	/**
+	 * Read the given textual unit back in when it has been spilled to disk, and keep it in memory until {@link #releaseFromMemory(Span)}
+	 * is called for it, whatever the memory budget. Calls can be nested, the textual unit is released by the last one.
+	 * Nothing happens when this Dataset has not been spilled to disk, see {@link #spillToDisk(File, long)}.
+	 * @param textualUnit
+	 */
+	public void keepInMemory(Span textualUnit){
+		if (spillStore != null)
+			spillStore.keepInMemory(textualUnit);
+	}
+	
+	/**
+	 * Let the given textual unit be written out to the spill file again, see {@link #keepInMemory(Span)}.
+	 * @param textualUnit
+	 */
+	public void releaseFromMemory(Span textualUnit){
+		if (spillStore != null)
+			spillStore.release(textualUnit);
+	}
+	
+	private void checkNotSpilled(){
+		if (spillStore != null)
+			throw new UnsupportedOperationException("This Dataset has been spilled to disk, load it first");
+	}
+	
+	//the content of a textual unit is needed: read it back in when it has been spilled
+	private void useTextualUnit(Span textualUnit){
+		if (spillStore != null)
+			spillStore.use(textualUnit);
+	}
+	
+	/**
+	 * Read the content of the given textual unit back in from the spill file, called by the textual unit when its <code>Word</code>s are used.
+	 * @param textualUnit
+	 */
+	void pageIn(Span textualUnit){
+		if (spillStore != null)
+			spillStore.pageIn(textualUnit);
+	}
+	
+	//an entity of a textual unit that has been written to the spill file leaves the registry, the annotation indexes and the derived values
+	void unregisterSpilled(DataEntity entity){
+		unregister(entity);
+		if (!annotationIndexes.isEmpty())
+			updateAnnotationIndexes(entity, false);
+		for (DerivedAnnotation derived : derivedAnnotations.values()){
+			derived.invalidate(entity);
+		}
+	}
+	
+	//after textual units have been written to the spill file: their Spans and Relations leave the indexes, in one pass per index
+	void removeSpilledFromIndexes(Collection<Span> textualUnits){
+		for (Span textualUnit : textualUnits){
+			spansByTextualUnit.remove(textualUnit);
+			spansByTextualUnitAndType.remove(textualUnit);
+			spanIndexByTextualUnit.remove(textualUnit);
+		}
+		spans.removeUnregistered();
+		for (IdOrderedSet<Span> spansOfType : spansByType.values()){
+			spansOfType.removeUnregistered();
+		}
+		for (IdOrderedSet<Relation> relationsOfType : relationsByType.values()){
+			relationsOfType.removeUnregistered();
+		}
+	}
+	
+	//after a textual unit has been read back from the spill file: its entities, which are already registered, go into the indexes
+	void indexPagedIn(Span textualUnit, DataEntity[] entities){
+		indexSpanByTextualUnit(textualUnit);
+		for (DataEntity entity : entities){
+			if (entity instanceof Span){
+				indexSpanByType((Span)entity);
+				indexSpanByTextualUnit((Span)entity);
+			} else if (entity instanceof Relation){
+				Relation rel = (Relation)entity;
+				if (!relationsByType.containsKey(rel.getType()))
+					relationsByType.put(rel.getType(), new IdOrderedSet<Relation>());
+				relationsByType.get(rel.getType()).append(rel);
+			}
+			if (!annotationIndexes.isEmpty())
+				updateAnnotationIndexes(entity, true);
+		}
+		textualUnit.invalidateTextualUnit();
+	}
 }
@@ -0,0 +1,395 @@
+package edu.eur.absa.model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.eur.absa.Framework;
+
+/**
+ * Estimate of the heap space used by a <code>Dataset</code>, broken down by entity class, span type, relation type and annotation type.
+ * This can be used to find out what dominates the memory of a processed <code>Dataset</code>, and to compare storage changes before rolling them out.
+ * <p>The numbers are estimates, not measurements: object sizes are computed from the declared fields, assuming a 64-bit JVM with
+ * compressed references (12 byte object headers, 4 byte references, objects aligned to 8 bytes) and compact Latin-1 <code>String</code>s, 
+ * and the sizes of collections are approximated from the number of elements. Values that are shared, like dictionary encoded annotation 
+ * values, are counted once, in the <code>StringDictionary</code>. The estimates per <code>Word</code>, <code>Span</code> and 
+ * <code>Relation</code> are checked against JOL measurements in <code>DatasetMemoryReportTest</code>.</p>
+ * The bytes of an entity (the object itself, its annotations, its <code>Relations</code> and, for textual units, the <code>Word</code> list
+ * and cached derived structures) are counted for its entity class, so the totals per entity class add up to the bytes of all entities. 
+ * The same bytes are also broken down by span type, relation type and annotation type, where the <code>Relations</code> of an entity are counted 
+ * for their relation types instead of for its span type. The indexes of the <code>Dataset</code> are reported separately.
+ *
+ */
+public class DatasetMemoryReport {
+
+	private static final int HEADER = 12;
+	private static final int REFERENCE = 4;
+	private static final int ARRAY_HEADER = 16;
+	//per element in a HashMap/HashSet/ConcurrentHashMap or TreeMap/TreeSet, the tables of the hash maps are counted separately
+	private static final int HASH_ENTRY = 32;
+	private static final int TREE_ENTRY = 40;
+	private static final int HASH_MAP = 48;
+	private static final int TREE_MAP = 48;
+	//the array holder that an IdOrderedSet shares with its views
+	private static final int ID_ORDERED_SET_STORE = 24;
+
+	private final Dataset dataset;
+	private final TreeMap<String, Long> bytesByEntityClass = new TreeMap<>();
+	private final TreeMap<String, Long> countByEntityClass = new TreeMap<>();
+	private final TreeMap<String, Long> bytesBySpanType = new TreeMap<>();
+	private final TreeMap<String, Long> countBySpanType = new TreeMap<>();
+	private final TreeMap<String, Long> bytesByRelationType = new TreeMap<>();
+	private final TreeMap<String, Long> countByRelationType = new TreeMap<>();
+	private final TreeMap<String, Long> bytesByAnnotationType = new TreeMap<>();
+	private final TreeMap<String, Long> bytesByIndex = new TreeMap<>();
+	private final HashMap<Class<?>, Long> shallowSizes = new HashMap<>();
+
+	/**
+	 * Create the report by going over all entities in the given <code>Dataset</code> once.
+	 * @param dataset
+	 */
+	public DatasetMemoryReport(Dataset dataset){
+		this.dataset = dataset;
+		AnnotationSchema schema = dataset.getAnnotationSchema();
+		Iterator<DataEntity> entities = dataset.getDataEntityIterator();
+		while (entities.hasNext()){
+			DataEntity entity = entities.next();
+			long bytes = shallowSize(entity.getClass());
+			//annotations
+			if (entity.annotationValues != null){
+				bytes += arraySize(entity.annotationValues.length, REFERENCE);
+				for (int slot = 0; slot < entity.annotationValues.length; slot++){
+					Object value = entity.annotationValues[slot];
+					if (value != null && !schema.isDictionaryEncoded(slot)){
+						long valueBytes = valueSize(value);
+						add(bytesByAnnotationType, schema.getAnnotationType(slot), valueBytes);
+						bytes += valueBytes;
+					}
+				}
+			}
+			//relations, the Relations object is split over the relation types it holds
+			if (entity.relations != null){
+				Relations relations = entity.relations;
+				//four HashMaps, of which only the ones in use have a table
+				bytes += shallowSize(Relations.class) + 4 * HASH_MAP;
+				if (!relations.getChildRelationTypes().isEmpty())
+					bytes += 2 * arraySize(16, REFERENCE);
+				if (!relations.getParentRelationTypes().isEmpty())
+					bytes += 2 * arraySize(16, REFERENCE);
+				for (String relationType : relations.getChildRelationTypes()){
+					long typeBytes = relationSetSize(relations.getRelationsToChildren(relationType).size());
+					add(bytesByRelationType, relationType, typeBytes);
+					bytes += typeBytes;
+				}
+				for (String relationType : relations.getParentRelationTypes()){
+					long typeBytes = relationSetSize(relations.getRelationsToParents(relationType).size());
+					add(bytesByRelationType, relationType, typeBytes);
+					bytes += typeBytes;
+				}
+			}
+			if (entity instanceof Word)
+				bytes += valueSize(((Word) entity).getWord());
+			if (entity instanceof Span){
+				Span span = (Span) entity;
+				if (span.getTextualUnit() == span){
+					int nrOfWords = span.isEmpty() ? 0 : span.last().getOrder() + 1;
+					bytes += shallowSize(ArrayList.class) + arraySize(nrOfWords, REFERENCE);
+					bytes += deepArraySize(span.peekDependencyGraph());
+				}
+				add(bytesBySpanType, span.getType(), bytes - relationBytes(entity));
+				add(countBySpanType, span.getType(), 1);
+			} else if (entity instanceof Relation){
+				Relation relation = (Relation) entity;
+				add(bytesByRelationType, relation.getType(), bytes - relationBytes(entity));
+				add(countByRelationType, relation.getType(), 1);
+			}
+			add(bytesByEntityClass, entity.getClass().getSimpleName(), bytes);
+			add(countByEntityClass, entity.getClass().getSimpleName(), 1);
+		}
+		//indexes
+		int nrOfIds = dataset.getCurrentId() + 1;
+		long registryPages = (nrOfIds + 4095) / 4096;
+		add(bytesByIndex, "registry", arraySize(16, REFERENCE) + registryPages * arraySize(4096, REFERENCE));
+		//every Span is in the set of all Spans, in the sets by type, by textual unit, and by textual unit and type
+		long spanIndexBytes = setSize(dataset.peekSpans()) + mapSize(dataset.peekSpansByType()) + mapSize(dataset.peekSpansByTextualUnit());
+		Map<Span, HashMap<String, IdOrderedSet<Span>>> spansByTextualUnitAndType = dataset.peekSpansByTextualUnitAndType();
+		spanIndexBytes += HASH_MAP + hashTableSize(spansByTextualUnitAndType.size());
+		for (HashMap<String, IdOrderedSet<Span>> spansOfUnitByType : spansByTextualUnitAndType.values()){
+			spanIndexBytes += HASH_ENTRY + mapSize(spansOfUnitByType);
+		}
+		add(bytesByIndex, "spans", spanIndexBytes);
+		add(bytesByIndex, "relations", mapSize(dataset.peekRelationsByType()));
+		StringDictionary dictionary = dataset.getStringDictionary();
+		long dictionaryBytes = shallowSize(StringDictionary.class) + HASH_MAP + hashTableSize(dictionary.size()) + arraySize(dictionary.size(), REFERENCE);
+		for (int code = 0; code < dictionary.size(); code++){
+			dictionaryBytes += HASH_ENTRY + 16 + valueSize(dictionary.getString(code));
+		}
+		add(bytesByIndex, "stringDictionary", dictionaryBytes);
+	}
+
+	//the part of the bytes of an entity that is already counted for the relation types of its Relations
+	private long relationBytes(DataEntity entity){
+		if (entity.relations == null)
+			return 0;
+		long bytes = 0;
+		for (String relationType : entity.relations.getChildRelationTypes()){
+			bytes += relationSetSize(entity.relations.getRelationsToChildren(relationType).size());
+		}
+		for (String relationType : entity.relations.getParentRelationTypes()){
+			bytes += relationSetSize(entity.relations.getRelationsToParents(relationType).size());
+		}
+		return bytes;
+	}
+
+	//a TreeSet with its TreeMap, the read-only view on it, and the entries in the HashMaps of Relations
+	private static long relationSetSize(int size){
+		return 16 + TREE_MAP + 24 + 2 * HASH_ENTRY + (long) size * TREE_ENTRY;
+	}
+
+	//an index map with the IdOrderedSets in it
+	private long mapSize(Map<?, ? extends IdOrderedSet<?>> map){
+		long bytes = HASH_MAP + hashTableSize(map.size()) + (long) map.size() * HASH_ENTRY;
+		for (IdOrderedSet<?> set : map.values()){
+			bytes += setSize(set);
+		}
+		return bytes;
+	}
+
+	private long setSize(IdOrderedSet<?> set){
+		return shallowSize(IdOrderedSet.class) + ID_ORDERED_SET_STORE + arraySize(set.capacity(), REFERENCE);
+	}
+
+	//the table of a hash map that has grown to the given size: a power of two of at least 16 slots, at most 3/4 full
+	private static long hashTableSize(int size){
+		if (size == 0)
+			return 0;
+		int slots = 16;
+		while (slots * 3 / 4 < size){
+			slots *= 2;
+		}
+		return arraySize(slots, REFERENCE);
+	}
+
+	private static void add(Map<String, Long> map, String key, long bytes){
+		map.merge(key == null ? "null" : key, bytes, Long::sum);
+	}
+
+	private static long align(long bytes){
+		return (bytes + 7) & ~7L;
+	}
+
+	private static long arraySize(int length, int elementSize){
+		return align(ARRAY_HEADER + (long) length * elementSize);
+	}
+
+	/**
+	 *
+	 * @param type
+	 * @return The estimated size of an object of this class, without anything it refers to
+	 */
+	long shallowSize(Class<?> type){
+		Long size = shallowSizes.get(type);
+		if (size == null){
+			long bytes = HEADER;
+			for (Class<?> c = type; c != null; c = c.getSuperclass()){
+				for (Field field : c.getDeclaredFields()){
+					if (!Modifier.isStatic(field.getModifiers()))
+						bytes += fieldSize(field.getType());
+				}
+			}
+			size = align(bytes);
+			shallowSizes.put(type, size);
+		}
+		return size;
+	}
+
+	private static int fieldSize(Class<?> type){
+		if (type == long.class || type == double.class)
+			return 8;
+		if (type == int.class || type == float.class)
+			return 4;
+		if (type == short.class || type == char.class)
+			return 2;
+		if (type == byte.class || type == boolean.class)
+			return 1;
+		return REFERENCE;
+	}
+
+	private static long primitiveArraySize(Object array){
+		Class<?> componentType = array.getClass().getComponentType();
+		return arraySize(java.lang.reflect.Array.getLength(array), fieldSize(componentType));
+	}
+
+	/**
+	 * Estimate the size of an annotation value, including everything it refers to.
+	 * @param value
+	 * @return
+	 */
+	long valueSize(Object value){
+		if (value == null)
+			return 0;
+		if (value instanceof String)
+			return shallowSize(String.class) + arraySize(((String)value).length(), 1);
+		if (value.getClass().isArray()){
+			if (value.getClass().getComponentType().isPrimitive())
+				return primitiveArraySize(value);
+			Object[] array = (Object[]) value;
+			long bytes = arraySize(array.length, REFERENCE);
+			for (Object o : array){
+				bytes += valueSize(o);
+			}
+			return bytes;
+		}
+		if (value instanceof Collection){
+			Collection<?> collection = (Collection<?>) value;
+			long bytes;
+			if (value instanceof ArrayList){
+				bytes = shallowSize(ArrayList.class) + arraySize(collection.size(), REFERENCE);
+			} else {
+				bytes = 16 + HASH_MAP + hashTableSize(collection.size()) + (long) collection.size() * HASH_ENTRY;
+			}
+			for (Object o : collection){
+				bytes += valueSize(o);
+			}
+			return bytes;
+		}
+		if (value instanceof Map){
+			Map<?,?> map = (Map<?,?>) value;
+			long bytes = HASH_MAP + hashTableSize(map.size()) + (long) map.size() * HASH_ENTRY;
+			for (Map.Entry<?,?> entry : map.entrySet()){
+				bytes += valueSize(entry.getKey()) + valueSize(entry.getValue());
+			}
+			return bytes;
+		}
+		if (value instanceof DataEntity)
+			return 0;
+		return shallowSize(value.getClass());
+	}
+
+	//an object together with the primitive arrays it refers to, as used by the derived structures of textual units
+	private long deepArraySize(Object object){
+		if (object == null)
+			return 0;
+		long bytes = shallowSize(object.getClass());
+		for (Field field : object.getClass().getDeclaredFields()){
+			if (Modifier.isStatic(field.getModifiers()) || !field.getType().isArray() || !field.getType().getComponentType().isPrimitive())
+				continue;
+			try {
+				field.setAccessible(true);
+				Object array = field.get(object);
+				if (array != null)
+					bytes += primitiveArraySize(array);
+			} catch (IllegalAccessException e){
+				e.printStackTrace();
+			}
+		}
+		return bytes;
+	}
+
+	public Dataset getDataset(){
+		return dataset;
+	}
+
+	/**
+	 *
+	 * @return The estimated bytes per entity class (e.g., "Word"), ordered by name
+	 */
+	public Map<String, Long> getBytesByEntityClass(){
+		return bytesByEntityClass;
+	}
+
+	public Map<String, Long> getCountByEntityClass(){
+		return countByEntityClass;
+	}
+
+	/**
+	 *
+	 * @return The estimated bytes per span type, not including the Relations of the Spans, ordered by span type
+	 */
+	public Map<String, Long> getBytesBySpanType(){
+		return bytesBySpanType;
+	}
+
+	public Map<String, Long> getCountBySpanType(){
+		return countBySpanType;
+	}
+
+	/**
+	 *
+	 * @return The estimated bytes per relation type, including the entries for these Relations in the <code>Relations</code> of their parents and children
+	 */
+	public Map<String, Long> getBytesByRelationType(){
+		return bytesByRelationType;
+	}
+
+	public Map<String, Long> getCountByRelationType(){
+		return countByRelationType;
+	}
+
+	/**
+	 *
+	 * @return The estimated bytes of the annotation values per annotation type, not including the shared values of dictionary encoded annotation types
+	 */
+	public Map<String, Long> getBytesByAnnotationType(){
+		return bytesByAnnotationType;
+	}
+
+	/**
+	 *
+	 * @return The estimated bytes of the indexes of the <code>Dataset</code> and its <code>StringDictionary</code>
+	 */
+	public Map<String, Long> getBytesByIndex(){
+		return bytesByIndex;
+	}
+
+	/**
+	 *
+	 * @return The estimated bytes of all entities and indexes together
+	 */
+	public long getTotalBytes(){
+		long total = 0;
+		for (long bytes : bytesByEntityClass.values()){
+			total += bytes;
+		}
+		for (long bytes : bytesByIndex.values()){
+			total += bytes;
+		}
+		return total;
+	}
+
+	/**
+	 * Write the report to the log.
+	 */
+	public void log(){
+		Framework.log(toString());
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder();
+		sb.append("Estimated memory use of ").append(dataset.getFilename()).append(": ").append(getTotalBytes()).append(" bytes\n");
+		append(sb, "Entity class", bytesByEntityClass, countByEntityClass);
+		append(sb, "Span type", bytesBySpanType, countBySpanType);
+		append(sb, "Relation type", bytesByRelationType, countByRelationType);
+		append(sb, "Annotation type", bytesByAnnotationType, null);
+		append(sb, "Index", bytesByIndex, null);
+		return sb.toString();
+	}
+
+	private static void append(StringBuilder sb, String title, Map<String, Long> bytes, Map<String, Long> counts){
+		sb.append(title).append(":\n");
+		for (Map.Entry<String, Long> entry : bytes.entrySet()){
+			sb.append("\t").append(entry.getKey()).append("\t").append(entry.getValue()).append(" bytes");
+			if (counts != null && counts.containsKey(entry.getKey())){
+				long count = counts.get(entry.getKey());
+				sb.append("\t").append(count).append(" objects\t").append(entry.getValue() / count).append(" bytes each");
+			}
+			sb.append("\n");
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Selects the entities of a <code>Dataset</code> that match a combination of filters, e.g.:
+ * <pre>
+ * dataset.query().spanType("opinion").where("category", "FOOD#QUALITY").inTextualUnit(review).getSpans();
+ * </pre>
+ * Of all the filters that can be answered from an index of the <code>Dataset</code> (annotation indexes declared with
+ * {@link Dataset#addAnnotationIndex(String)}, the span type and relation type indexes, and the textual unit indexes),
+ * the one with the fewest candidates is used, and only those candidates are checked against the other filters.
+ * Without any such filter, all entities are scanned. <code>String</code> annotation values are resolved to their code in the
+ * <code>StringDictionary</code> once per query, not for every candidate.
+ * Results are ordered by id.
+ *
+ */
+public class DatasetQuery {
+
+	private final Dataset dataset;
+	private Class<? extends DataEntity> entityClass = DataEntity.class;
+	private String spanType;
+	private String relationType;
+	private Span textualUnit;
+	private Span coveringSpan;
+	private ArrayList<String> annotationTypes = new ArrayList<>();
+	private ArrayList<Object> annotationValues = new ArrayList<>();
+
+	DatasetQuery(Dataset dataset){
+		this.dataset = dataset;
+	}
+
+	/**
+	 * Only select <code>Span</code>s of the given type.
+	 * @param spanType
+	 * @return This query
+	 */
+	public DatasetQuery spanType(String spanType){
+		this.entityClass = Span.class;
+		this.spanType = spanType;
+		return this;
+	}
+
+	/**
+	 * Only select <code>Relation</code>s of the given type.
+	 * @param relationType
+	 * @return This query
+	 */
+	public DatasetQuery relationType(String relationType){
+		this.entityClass = Relation.class;
+		this.relationType = relationType;
+		return this;
+	}
+
+	/**
+	 * Only select entities of the given class, e.g., <code>Word.class</code>.
+	 * @param entityClass
+	 * @return This query
+	 */
+	public DatasetQuery entityClass(Class<? extends DataEntity> entityClass){
+		this.entityClass = entityClass;
+		return this;
+	}
+
+	/**
+	 * Only select entities that have the given value for the given annotation type.
+	 * Can be used multiple times, in which case all annotations have to match.
+	 * @param annotationType
+	 * @param value
+	 * @return This query
+	 */
+	public DatasetQuery where(String annotationType, Object value){
+		annotationTypes.add(annotationType);
+		annotationValues.add(value);
+		return this;
+	}
+
+	/**
+	 * Only select entities in the given textual unit.
+	 * @param textualUnit
+	 * @return This query
+	 */
+	public DatasetQuery inTextualUnit(Span textualUnit){
+		this.textualUnit = textualUnit;
+		return this;
+	}
+
+	/**
+	 * Only select <code>Span</code>s that are completely covered by the given <code>Span</code>.
+	 * @param span
+	 * @return This query
+	 */
+	public DatasetQuery coveredBy(Span span){
+		this.entityClass = Span.class;
+		this.coveringSpan = span;
+		return this;
+	}
+
+	/**
+	 *
+	 * @return A new <code>TreeSet</code> with all selected entities
+	 */
+	public TreeSet<DataEntity> getEntities(){
+		return select(DataEntity.class);
+	}
+
+	/**
+	 *
+	 * @return A new <code>TreeSet</code> with the selected entities that are <code>Span</code>s
+	 */
+	public TreeSet<Span> getSpans(){
+		return select(Span.class);
+	}
+
+	/**
+	 *
+	 * @return A new <code>TreeSet</code> with the selected entities that are <code>Relation</code>s
+	 */
+	public TreeSet<Relation> getRelations(){
+		return select(Relation.class);
+	}
+
+	/**
+	 *
+	 * @return The number of selected entities
+	 */
+	public int count(){
+		int count = 0;
+		int[] codes = resolveCodes();
+		Iterator<? extends DataEntity> it = getCandidates();
+		while (it.hasNext()){
+			if (matches(it.next(), codes))
+				count++;
+		}
+		return count;
+	}
+
+	private <T extends DataEntity> TreeSet<T> select(Class<T> resultClass){
+		TreeSet<T> result = new TreeSet<>();
+		int[] codes = resolveCodes();
+		Iterator<? extends DataEntity> it = getCandidates();
+		while (it.hasNext()){
+			DataEntity entity = it.next();
+			if (resultClass.isInstance(entity) && matches(entity, codes))
+				result.add(resultClass.cast(entity));
+		}
+		return result;
+	}
+
+	//pick the smallest set of candidates any of the filters can give from an index
+	private Iterator<? extends DataEntity> getCandidates(){
+		Collection<? extends DataEntity> candidates = null;
+		for (int i = 0; i < annotationTypes.size(); i++){
+			//the annotation indexes only cover the textual units in memory while the Dataset is spilled to disk
+			if (dataset.hasAnnotationIndex(annotationTypes.get(i)) && !dataset.isSpilledToDisk())
+				candidates = smallest(candidates, dataset.getAnnotatedEntities(annotationTypes.get(i), annotationValues.get(i)));
+		}
+		if (spanType != null){
+			if (textualUnit != null)
+				candidates = smallest(candidates, dataset.getSpans(textualUnit, spanType));
+			else
+				candidates = smallest(candidates, orEmpty(dataset.getSpans(spanType)));
+		} else if (textualUnit != null && Span.class.isAssignableFrom(entityClass)){
+			candidates = smallest(candidates, orEmpty(dataset.getSpans(textualUnit)));
+		}
+		if (relationType != null)
+			candidates = smallest(candidates, orEmpty(dataset.getRelations(relationType)));
+		if (coveringSpan != null && (candidates == null || candidates.size() > coveringSpan.size()))
+			candidates = dataset.getCoveredSpans(coveringSpan, spanType);
+		if (candidates == null)
+			return dataset.getDataEntityIterator();
+		return candidates.iterator();
+	}
+
+	private static Collection<? extends DataEntity> smallest(Collection<? extends DataEntity> current, Collection<? extends DataEntity> other){
+		if (current == null || other.size() < current.size())
+			return other;
+		return current;
+	}
+
+	private static <T> Collection<T> orEmpty(Collection<T> entities){
+		if (entities == null)
+			return Collections.emptySet();
+		return entities;
+	}
+
+	//the dictionary code of every String annotation value, or -1 if the value is no String or not in the dictionary
+	private int[] resolveCodes(){
+		int[] codes = new int[annotationValues.size()];
+		for (int i = 0; i < codes.length; i++){
+			Object value = annotationValues.get(i);
+			codes[i] = value instanceof String ? dataset.getStringDictionary().lookupCode((String)value) : -1;
+		}
+		return codes;
+	}
+
+	private boolean matches(DataEntity entity, int[] codes){
+		if (!entityClass.isInstance(entity))
+			return false;
+		if (spanType != null && !spanType.equals(((Span)entity).getType()))
+			return false;
+		if (relationType != null && !relationType.equals(((Relation)entity).getType()))
+			return false;
+		if (textualUnit != null && entity.getTextualUnit() != textualUnit)
+			return false;
+		if (coveringSpan != null){
+			Span span = (Span) entity;
+			if (span.isEmpty() || span.getTextualUnit() != coveringSpan.getTextualUnit()
+					|| !coveringSpan.contains(span.first()) || !coveringSpan.contains(span.last()))
+				return false;
+		}
+		for (int i = 0; i < annotationTypes.size(); i++){
+			if (codes[i] >= 0){
+				if (!entity.annotationEquals(annotationTypes.get(i), codes[i]))
+					return false;
+			} else if (!entity.annotationEquals(annotationTypes.get(i), annotationValues.get(i))){
+				return false;
+			}
+		}
+		return true;
+	}
+}
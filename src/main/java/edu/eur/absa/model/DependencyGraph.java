@@ -0,0 +1,265 @@
+package edu.eur.absa.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Compact adjacency structure for the "deps" <code>Relation</code>s between the <code>Word</code>s of a single textual unit, in compressed sparse row form.
+ * Nodes are word orders. For every word order, the edges of that <code>Word</code> are stored consecutively, starting at <code>getFirstEdge(order)</code>
+ * and ending before <code>getEndEdge(order)</code>. Each dependency is stored twice, once from the governor to the dependent and once the other way around,
+ * so the graph can be walked in both directions. Per edge, the relation short name (e.g., "nsubj") is kept as a code of the <code>StringDictionary</code>.
+ * Relations to or from anything other than a <code>Word</code> of this textual unit (e.g., the root relation to the sentence) are left out.
+ * <p>The <code>Relation</code> objects remain the primary representation. The graph is derived from them on demand through {@link Span#getDependencyGraph()}
+ * and is discarded by the textual unit whenever its <code>Word</code>s or its "deps" <code>Relation</code>s change.</p>
+ * The neighborhood queries reuse scratch arrays that are kept per thread, so they do not allocate anything apart from the result
+ * and a graph can be queried by multiple threads at the same time.
+ *
+ */
+public class DependencyGraph {
+
+	public static final String RELATION_TYPE = "deps";
+
+	private final Span textualUnit;
+	private final StringDictionary dictionary;
+	//edges of the Word with order i are at positions offsets[i] to offsets[i+1]
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] relationCodes;
+	//true when the target is the dependent of the relation, false when it is the governor
+	private final boolean[] towardsDependent;
+
+	//scratch space for the breadth-first search, shared by all graphs used by a thread
+	private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>(){
+		@Override
+		protected Scratch initialValue(){
+			return new Scratch();
+		}
+	};
+	
+	//the visited marks are only valid for the current stamp, so they never need clearing
+	private static class Scratch {
+		private int[] queue = new int[64];
+		private int[] visitedStamps = new int[64];
+		private int stamp = 0;
+	}
+
+	DependencyGraph(Span textualUnit, StringDictionary dictionary){
+		this.textualUnit = textualUnit;
+		this.dictionary = dictionary;
+		int size = textualUnit.isEmpty() ? 0 : textualUnit.last().getOrder()+1;
+		offsets = new int[size+1];
+		//first pass: count the edges of every Word
+		int nrOfEdges = 0;
+		for (Word w : textualUnit){
+			for (Relation rel : w.getRelations().getRelationsToChildren(RELATION_TYPE)){
+				if (isEdge(rel)){
+					offsets[w.getOrder()+1]++;
+					offsets[((Word)rel.getChild()).getOrder()+1]++;
+					nrOfEdges += 2;
+				}
+			}
+		}
+		for (int i = 0; i < size; i++){
+			offsets[i+1] += offsets[i];
+		}
+		targets = new int[nrOfEdges];
+		relationCodes = new int[nrOfEdges];
+		towardsDependent = new boolean[nrOfEdges];
+		//second pass: fill in the edges
+		int[] next = Arrays.copyOf(offsets, size);
+		for (Word w : textualUnit){
+			for (Relation rel : w.getRelations().getRelationsToChildren(RELATION_TYPE)){
+				if (isEdge(rel)){
+					int governor = w.getOrder();
+					int dependent = ((Word)rel.getChild()).getOrder();
+					int code = dictionary.getCode(rel.getAnnotation("relationShortName", String.class));
+					int edge = next[governor]++;
+					targets[edge] = dependent;
+					relationCodes[edge] = code;
+					towardsDependent[edge] = true;
+					edge = next[dependent]++;
+					targets[edge] = governor;
+					relationCodes[edge] = code;
+					towardsDependent[edge] = false;
+				}
+			}
+		}
+	}
+
+	private boolean isEdge(Relation rel){
+		return rel.getChild() instanceof Word && rel.getParent() instanceof Word 
+				&& textualUnit.contains(rel.getChild()) && textualUnit.contains(rel.getParent());
+	}
+
+	/**
+	 * Get all <code>Word</code>s that are at most <code>distance</code> dependency relations away from the given <code>Word</code>,
+	 * following relations in both directions. The <code>Word</code> itself is included.
+	 * @param word
+	 * @param distance
+	 * @return A new <code>TreeSet</code> with the selected Words
+	 */
+	public TreeSet<Word> neighborhood(Word word, int distance){
+		TreeSet<Word> result = new TreeSet<>();
+		Scratch s = startSearch();
+		int queueEnd = visit(s, word, 0);
+		search(s, queueEnd, distance, result);
+		return result;
+	}
+
+	/**
+	 * Get all <code>Word</code>s that are at most <code>distance</code> dependency relations away from any of the given <code>Word</code>s,
+	 * following relations in both directions. The given <code>Word</code>s themselves are included.
+	 * @param words
+	 * @param distance
+	 * @return A new <code>TreeSet</code> with the selected Words
+	 */
+	public TreeSet<Word> neighborhood(Collection<Word> words, int distance){
+		TreeSet<Word> result = new TreeSet<>();
+		Scratch s = startSearch();
+		int queueEnd = 0;
+		for (Word word : words){
+			queueEnd = visit(s, word, queueEnd);
+		}
+		search(s, queueEnd, distance, result);
+		return result;
+	}
+
+	/**
+	 * Get the number of dependency relations between the given <code>Word</code> and the nearest of the given other <code>Word</code>s,
+	 * following relations in both directions.
+	 * @param word
+	 * @param others
+	 * @return The distance (0 if the <code>Word</code> is one of the others), or -1 if none of the others can be reached
+	 */
+	public int distance(Word word, Collection<Word> others){
+		Scratch s = startSearch();
+		int queueEnd = 0;
+		for (Word other : others){
+			queueEnd = visit(s, other, queueEnd);
+		}
+		if (!textualUnit.contains(word) || word.getOrder() >= size())
+			return -1;
+		int target = word.getOrder();
+		int[] queue = s.queue;
+		int[] visitedStamps = s.visitedStamps;
+		int stamp = s.stamp;
+		int queueStart = 0;
+		for (int depth = 0; queueStart < queueEnd; depth++){
+			int levelEnd = queueEnd;
+			for (int i = queueStart; i < levelEnd; i++){
+				int node = queue[i];
+				if (node == target)
+					return depth;
+				for (int edge = offsets[node]; edge < offsets[node+1]; edge++){
+					int next = targets[edge];
+					if (visitedStamps[next] != stamp){
+						visitedStamps[next] = stamp;
+						queue[queueEnd++] = next;
+					}
+				}
+			}
+			queueStart = levelEnd;
+		}
+		return -1;
+	}
+
+	private Scratch startSearch(){
+		Scratch s = scratch.get();
+		if (s.queue.length < size()){
+			int length = Math.max(size(), s.queue.length * 2);
+			s.queue = new int[length];
+			s.visitedStamps = new int[length];
+			s.stamp = 0;
+		}
+		s.stamp++;
+		if (s.stamp == Integer.MAX_VALUE){
+			Arrays.fill(s.visitedStamps, 0);
+			s.stamp = 1;
+		}
+		return s;
+	}
+
+	private int visit(Scratch s, Word word, int queueEnd){
+		if (textualUnit.contains(word) && word.getOrder() < size() && s.visitedStamps[word.getOrder()] != s.stamp){
+			s.visitedStamps[word.getOrder()] = s.stamp;
+			s.queue[queueEnd++] = word.getOrder();
+		}
+		return queueEnd;
+	}
+
+	//breadth-first search, level by level, starting with the Words in the queue
+	private void search(Scratch s, int queueEnd, int distance, TreeSet<Word> result){
+		int[] queue = s.queue;
+		int[] visitedStamps = s.visitedStamps;
+		int stamp = s.stamp;
+		int queueStart = 0;
+		for (int depth = 0; depth < distance && queueStart < queueEnd; depth++){
+			int levelEnd = queueEnd;
+			for (int i = queueStart; i < levelEnd; i++){
+				int node = queue[i];
+				for (int edge = offsets[node]; edge < offsets[node+1]; edge++){
+					int target = targets[edge];
+					if (visitedStamps[target] != stamp){
+						visitedStamps[target] = stamp;
+						queue[queueEnd++] = target;
+					}
+				}
+			}
+			queueStart = levelEnd;
+		}
+		for (int i = 0; i < queueEnd; i++){
+			result.add(textualUnit.getTextualUnitWord(queue[i]));
+		}
+	}
+
+	public Span getTextualUnit(){
+		return textualUnit;
+	}
+
+	public StringDictionary getDictionary(){
+		return dictionary;
+	}
+
+	/**
+	 *
+	 * @return The number of Words, i.e., the highest word order plus one
+	 */
+	public int size(){
+		return offsets.length - 1;
+	}
+
+	public int getFirstEdge(int order){
+		return offsets[order];
+	}
+
+	public int getEndEdge(int order){
+		return offsets[order+1];
+	}
+
+	/**
+	 *
+	 * @param edge
+	 * @return The word order of the Word at the other end of this edge
+	 */
+	public int getTarget(int edge){
+		return targets[edge];
+	}
+
+	public int getRelationCode(int edge){
+		return relationCodes[edge];
+	}
+
+	public String getRelationShortName(int edge){
+		return dictionary.getString(relationCodes[edge]);
+	}
+
+	/**
+	 *
+	 * @param edge
+	 * @return true if the target of this edge is the dependent in the relation, false if it is the governor
+	 */
+	public boolean isTowardsDependent(int edge){
+		return towardsDependent[edge];
+	}
+}
@@ -0,0 +1,102 @@
+package edu.eur.absa.model;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * An annotation type whose values are computed from the <code>DataEntity</code> itself instead of being stored, see
+ * {@link Dataset#addDerivedAnnotation(String, Class, Function)}. A value is computed the first time it is asked for, and then
+ * remembered per entity id until it is invalidated. The remembered values are kept apart from the stored annotations, so they
+ * are never written to file, and they can be filled in from multiple threads, also when the <code>Dataset</code> is frozen.
+ *
+ */
+class DerivedAnnotation {
+
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	//stands in for a computed value of null, so that it is not computed again
+	private static final Object NO_VALUE = new Object();
+
+	private final String annotationType;
+	private final Class<?> dataType;
+	private final Function<? super DataEntity, ?> provider;
+	//when false, the value is computed every time, for values that are cheap to compute but take a lot of space
+	private final boolean cached;
+	private volatile Object[][] values = new Object[16][];
+	private final Object lock = new Object();
+
+	DerivedAnnotation(String annotationType, Class<?> dataType, Function<? super DataEntity, ?> provider, boolean cached){
+		this.annotationType = annotationType;
+		this.dataType = dataType;
+		this.provider = provider;
+		this.cached = cached;
+	}
+
+	String getAnnotationType(){
+		return annotationType;
+	}
+
+	Class<?> getDataType(){
+		return dataType;
+	}
+
+	/**
+	 *
+	 * @return A new derived annotation with the same provider, but without any remembered values (for a <code>Dataset</code> with other ids)
+	 */
+	DerivedAnnotation copy(){
+		return new DerivedAnnotation(annotationType, dataType, provider, cached);
+	}
+
+	Object get(DataEntity entity){
+		int id = entity.getId();
+		if (!cached || id == 0)
+			//id 0 is not registered in the Dataset (e.g., a Prediction), so there is nowhere to remember the value
+			return compute(entity);
+		Object[] page = getPage(id);
+		Object value = page[id & (PAGE_SIZE - 1)];
+		if (value == null){
+			value = compute(entity);
+			//computing a value twice from different threads does no harm, so no need to lock here
+			page[id & (PAGE_SIZE - 1)] = (value == null) ? NO_VALUE : value;
+		}
+		return (value == NO_VALUE) ? null : value;
+	}
+
+	private Object compute(DataEntity entity){
+		Object value = provider.apply(entity);
+		if (value != null && !dataType.isInstance(value))
+			throw new ClassCastException("The derived annotation "+annotationType+" is not of type "+dataType.getName());
+		return value;
+	}
+
+	void invalidate(DataEntity entity){
+		int id = entity.getId();
+		Object[][] pages = values;
+		int page = id >>> PAGE_BITS;
+		if (page < pages.length && pages[page] != null)
+			pages[page][id & (PAGE_SIZE - 1)] = null;
+	}
+
+	void invalidateAll(){
+		synchronized (lock){
+			values = new Object[16][];
+		}
+	}
+
+	private Object[] getPage(int id){
+		int page = id >>> PAGE_BITS;
+		Object[][] pages = values;
+		if (page < pages.length && pages[page] != null)
+			return pages[page];
+		synchronized (lock){
+			pages = values;
+			if (page >= pages.length)
+				pages = Arrays.copyOf(pages, Math.max(pages.length * 2, page + 1));
+			if (pages[page] == null)
+				pages[page] = new Object[PAGE_SIZE];
+			values = pages;
+			return pages[page];
+		}
+	}
+}
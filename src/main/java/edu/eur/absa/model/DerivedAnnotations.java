@@ -0,0 +1,185 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Ready-made providers for {@link Dataset#addDerivedAnnotation(String, Class, Function)}, for context that is needed by several
+ * algorithms but is not stored in the data, e.g.:
+ * <pre>
+ * dataset.addDerivedAnnotation("containingSentence", Span.class, DerivedAnnotations.containingSpan("sentence"));
+ * Span sentence = opinion.getAnnotation("containingSentence");
+ * </pre>
+ *
+ */
+public class DerivedAnnotations {
+
+	private DerivedAnnotations(){
+	}
+
+	/**
+	 * Add the "containingSentence" (see {@link #containingSpan(String)}) and "negated" (see {@link #negation()}) annotations to the
+	 * <code>Dataset</code>, unless it already has them. The sentiment algorithms call this once when they get their data, so that the
+	 * values are computed once per entity and shared by all algorithms and folds on the same <code>Dataset</code>.
+	 * @param dataset
+	 */
+	public static void addSentenceContext(Dataset dataset){
+		if (!dataset.hasDerivedAnnotation("containingSentence"))
+			dataset.addDerivedAnnotation("containingSentence", Span.class, containingSpan("sentence"));
+		if (!dataset.hasDerivedAnnotation("negated"))
+			dataset.addDerivedAnnotation("negated", Boolean.class, negation());
+	}
+
+	/**
+	 * The first <code>Span</code> of the given type that contains the first or the last <code>Word</code> of a <code>Span</code>,
+	 * or that contains a <code>Word</code>, e.g., the sentence of an opinion.
+	 * @param spanType
+	 * @return A provider of <code>Span</code> values
+	 */
+	public static Function<DataEntity, Span> containingSpan(String spanType){
+		return entity -> {
+			Dataset dataset = entity.getDataset();
+			TreeSet<Span> containingSpans;
+			if (entity instanceof Word){
+				containingSpans = dataset.getSpans(spanType, (Word)entity);
+			} else if (entity instanceof Span && !((Span)entity).isEmpty()){
+				Span span = (Span)entity;
+				containingSpans = dataset.getSpans(spanType, span.first());
+				containingSpans.addAll(dataset.getSpans(spanType, span.last()));
+			} else {
+				return null;
+			}
+			return containingSpans.isEmpty() ? null : containingSpans.first();
+		};
+	}
+
+	/**
+	 * The text of a <code>Span</code>, taken from the stored "text" annotation of the <code>Span</code> that was tokenized, using the offsets 
+	 * of the <code>Word</code>s. The offsets of a <code>Word</code> are relative to the text of the <code>Span</code> that was tokenized, 
+	 * which is not always the textual unit, e.g., a review is tokenized per sentence. So the text is taken from the smallest <code>Span</code>
+	 * with a stored "text" that contains the <code>Word</code>s and has them at their offsets. A <code>Span</code> that crosses such 
+	 * <code>Span</code>s, like a discourse phrase over two sentences, gets the pieces joined with a space. Where no such <code>Span</code> 
+	 * is found, the <code>Word</code>s are joined with spaces instead.
+	 * Every <code>Dataset</code> has this as the "text" annotation of syntactic and discourse phrases, so that they do not need to store their text.
+	 * @param spanTypes The types of the Spans that get a text
+	 * @return A provider of <code>String</code> values, which gives <code>null</code> for Spans of other types, textual units and empty Spans
+	 */
+	public static Function<DataEntity, String> spanText(String... spanTypes){
+		return new SpanText(spanTypes);
+	}
+
+	//a class instead of a lambda, since every Dataset has one and memory measurements cannot look inside lambdas that hold values
+	private static class SpanText implements Function<DataEntity, String> {
+
+		private final HashSet<String> spanTypes;
+
+		SpanText(String[] spanTypes){
+			this.spanTypes = new HashSet<>(Arrays.asList(spanTypes));
+		}
+
+		@Override
+		public String apply(DataEntity entity){
+			if (!(entity instanceof Span))
+				return null;
+			Span span = (Span)entity;
+			if (!spanTypes.contains(span.getType()) || span.isEmpty() || span == span.getTextualUnit())
+				return null;
+			int textSlot = span.getDataset().getAnnotationSchema().getSlot("text");
+			StringBuilder text = new StringBuilder();
+			Word word = span.first();
+			while (word != null && word.getOrder() <= span.last().getOrder()){
+				Span tokenizedSpan = textSlot < 0 ? null : getTokenizedSpan(word, textSlot);
+				if (text.length() > 0)
+					text.append(' ');
+				if (tokenizedSpan == null){
+					text.append(word.getWord());
+					word = word.getNextWord();
+					continue;
+				}
+				//the Words of this Span that are in the tokenized Span are one piece of the text
+				Word last = tokenizedSpan.last().getOrder() < span.last().getOrder() ? tokenizedSpan.last() : span.last();
+				String tokenizedText = tokenizedSpan.getAnnotation(textSlot, String.class);
+				if (isAtOffsets(last, tokenizedText) && word.getStartOffset() <= last.getEndOffset()){
+					text.append(tokenizedText, word.getStartOffset(), last.getEndOffset());
+					word = last.getNextWord();
+				} else {
+					text.append(word.getWord());
+					word = word.getNextWord();
+				}
+			}
+			return text.toString();
+		}
+	}
+
+	//the smallest Span with a stored text that contains the Word, and has the Word at its offsets
+	private static Span getTokenizedSpan(Word word, int textSlot){
+		Span tokenizedSpan = null;
+		for (Span span : word.getDataset().getSpans(word)){
+			String text = span.getAnnotation(textSlot, String.class);
+			if (text != null && isAtOffsets(word, text) && (tokenizedSpan == null || span.size() < tokenizedSpan.size()))
+				tokenizedSpan = span;
+		}
+		return tokenizedSpan;
+	}
+
+	//whether the text has the Word between its offsets, which tells that the text is what the Word was tokenized from
+	private static boolean isAtOffsets(Word word, String text){
+		int start = word.getStartOffset();
+		int end = word.getEndOffset();
+		return 0 <= start && start <= end && end <= text.length() && text.regionMatches(start, word.getWord(), 0, end - start);
+	}
+
+	/**
+	 * Whether a <code>Word</code> is negated: it has a "neg" dependency, or one of the three <code>Word</code>s before it is "not" or "never".
+	 * @return A provider of <code>Boolean</code> values
+	 */
+	public static Function<DataEntity, Boolean> negation(){
+		return entity -> {
+			if (!(entity instanceof Word))
+				return null;
+			Word word = (Word)entity;
+			for (Relation rel : word.getRelations().getRelationsToChildren(DependencyGraph.RELATION_TYPE)){
+				if (rel.annotationEquals("relationShortName", "neg"))
+					return true;
+			}
+			int maxLookingBack = 3;
+			Word currentWord = word;
+			while (maxLookingBack > 0 && currentWord.hasPreviousWord()){
+				currentWord = currentWord.getPreviousWord();
+				maxLookingBack--;
+				String lemma = currentWord.getLemma();
+				if (lemma != null && (lemma.equalsIgnoreCase("not") || lemma.equalsIgnoreCase("never")))
+					return true;
+			}
+			return false;
+		};
+	}
+
+	/**
+	 * The number of dependency relations between a <code>Word</code> and the nearest <code>Word</code> of a <code>Span</code> of
+	 * the given type in the same textual unit, e.g., the distance to the aspect.
+	 * @param spanType
+	 * @return A provider of <code>Integer</code> values, which gives <code>null</code> when there is no such <code>Span</code> or it cannot be reached
+	 */
+	public static Function<DataEntity, Integer> dependencyDistance(String spanType){
+		return entity -> {
+			if (!(entity instanceof Word))
+				return null;
+			Word word = (Word)entity;
+			Span textualUnit = word.getTextualUnit();
+			NavigableSet<Span> spans = word.getDataset().getSpans(textualUnit, spanType);
+			ArrayList<Word> spanWords = new ArrayList<>();
+			for (Span span : spans){
+				spanWords.addAll(span);
+			}
+			if (spanWords.isEmpty())
+				return null;
+			int distance = textualUnit.getDependencyGraph().distance(word, spanWords);
+			return distance < 0 ? null : distance;
+		};
+	}
+}
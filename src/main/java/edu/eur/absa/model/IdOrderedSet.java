@@ -0,0 +1,346 @@
+package edu.eur.absa.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Read-only set of <code>DataEntity</code> objects ordered by their id, which is the natural ordering of <code>DataEntity</code>s.
+ * Since ids are handed out in increasing order by <code>Dataset</code>, new entities almost always come after all existing ones,
+ * so the entities are kept in a plain array that is appended to, instead of in a balanced tree.
+ * <code>Dataset</code> uses this for its span and relation indexes. Only <code>Dataset</code> can add entities, for everyone else it is a read-only set.
+ * Sub sets, head sets, tail sets and the descending set are views that share the same array and are bounded by id, so, just like
+ * the views of a <code>TreeSet</code>, they also show entities that are added later on.
+ *
+ */
+public class IdOrderedSet<E extends DataEntity> extends AbstractSet<E> implements NavigableSet<E> {
+
+	//the array with the entities, shared by a set and all of its views
+	private static class Store {
+		private DataEntity[] entities = new DataEntity[4];
+		private int size = 0;
+	}
+
+	private final Store store;
+	//ids of the lowest and highest entity that can be in this (view of the) set, both inclusive
+	private final int lowId;
+	private final int highId;
+	private final boolean descending;
+
+	IdOrderedSet(){
+		this(new Store(), Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+	}
+
+	private IdOrderedSet(Store store, int lowId, int highId, boolean descending){
+		this.store = store;
+		this.lowId = lowId;
+		this.highId = highId;
+		this.descending = descending;
+	}
+
+	/**
+	 * Add an entity to this set. If its id is higher than all ids in the set, it is simply appended, otherwise it is inserted
+	 * at the right position. Nothing happens if an entity with the same id is already in the set.
+	 * Can only be used on the set itself, not on its views.
+	 * @param entity
+	 * @return true if the set has changed
+	 */
+	boolean append(E entity){
+		int id = entity.getId();
+		int size = store.size;
+		int index = size;
+		if (size > 0 && store.entities[size-1].getId() >= id){
+			index = indexOf(id, 0, size, false);
+			if (index < size && store.entities[index].getId() == id)
+				return false;
+		}
+		if (size == store.entities.length){
+			store.entities = Arrays.copyOf(store.entities, size * 2);
+		}
+		System.arraycopy(store.entities, index, store.entities, index + 1, size - index);
+		store.entities[index] = entity;
+		store.size++;
+		return true;
+	}
+
+	/**
+	 * Add all entities of another set to this set. When all of them have higher ids than the entities in this set, which is 
+	 * the case when merging <code>Dataset</code>s, the whole array is copied at once.
+	 * Can only be used on the set itself, not on its views, and only with another set, not a view.
+	 * @param other
+	 */
+	@SuppressWarnings("unchecked")
+	void appendAll(IdOrderedSet<? extends E> other){
+		Store otherStore = other.store;
+		if (otherStore.size == 0)
+			return;
+		if (store.size > 0 && store.entities[store.size-1].getId() >= otherStore.entities[0].getId()){
+			for (int i = 0; i < otherStore.size; i++){
+				append((E) otherStore.entities[i]);
+			}
+			return;
+		}
+		if (store.size + otherStore.size > store.entities.length)
+			store.entities = Arrays.copyOf(store.entities, Math.max(store.entities.length * 2, store.size + otherStore.size));
+		System.arraycopy(otherStore.entities, 0, store.entities, store.size, otherStore.size);
+		store.size += otherStore.size;
+	}
+
+	/**
+	 * Take an entity out of this set. Can only be used on the set itself, not on its views.
+	 * @param entity
+	 * @return true if the set has changed
+	 */
+	boolean removeEntity(E entity){
+		int id = entity.getId();
+		int index = indexOf(id, 0, store.size, false);
+		if (index >= store.size || store.entities[index].getId() != id)
+			return false;
+		System.arraycopy(store.entities, index + 1, store.entities, index, store.size - index - 1);
+		store.size--;
+		store.entities[store.size] = null;
+		return true;
+	}
+
+	/**
+	 * Take out all entities that are no longer registered in their <code>Dataset</code>, in a single pass over the array.
+	 * Used when textual units are written to the spill file of a <code>Dataset</code>. Can only be used on the set itself, not on its views.
+	 */
+	void removeUnregistered(){
+		int kept = 0;
+		for (int i = 0; i < store.size; i++){
+			DataEntity entity = store.entities[i];
+			if (entity.getDataset().getRegisteredEntity(entity.getId()) == entity)
+				store.entities[kept++] = entity;
+		}
+		Arrays.fill(store.entities, kept, store.size, null);
+		store.size = kept;
+	}
+
+	/**
+	 * Shrink the array to the number of entities in the set, used by {@link Dataset#freeze()}.
+	 */
+	void compact(){
+		if (store.entities.length > store.size)
+			store.entities = Arrays.copyOf(store.entities, Math.max(store.size, 1));
+	}
+
+	//the length of the array with the entities, used by DatasetMemoryReport
+	int capacity(){
+		return store.entities.length;
+	}
+
+	//first index in [from, to) with an entity id >= id (or > id when strict)
+	private int indexOf(int id, int from, int to, boolean strict){
+		int lo = from, hi = to;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			int midId = store.entities[mid].getId();
+			if (midId > id || (midId == id && !strict))
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+		return lo;
+	}
+
+	private int fromIndex(){
+		return lowId == Integer.MIN_VALUE ? 0 : indexOf(lowId, 0, store.size, false);
+	}
+
+	private int toIndex(){
+		return highId == Integer.MAX_VALUE ? store.size : indexOf(highId, 0, store.size, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E entityAt(int index){
+		return (E) store.entities[index];
+	}
+
+	@Override
+	public int size() {
+		return Math.max(0, toIndex() - fromIndex());
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return size() == 0;
+	}
+
+	@Override
+	public boolean contains(Object o){
+		if (o instanceof DataEntity){
+			int id = ((DataEntity) o).getId();
+			if (id < lowId || id > highId)
+				return false;
+			int index = indexOf(id, 0, store.size, false);
+			return index < store.size && store.entities[index].getId() == id;
+		}
+		return false;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>(){
+			final int from = fromIndex();
+			final int to = toIndex();
+			int next = descending ? to - 1 : from;
+
+			@Override
+			public boolean hasNext() {
+				return descending ? next >= from : next < to;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				E e = entityAt(next);
+				next += descending ? -1 : 1;
+				return e;
+			}
+		};
+	}
+
+	@Override
+	public Iterator<E> descendingIterator() {
+		return descendingSet().iterator();
+	}
+
+	@Override
+	public NavigableSet<E> descendingSet() {
+		return new IdOrderedSet<>(store, lowId, highId, !descending);
+	}
+
+	@Override
+	public Comparator<? super E> comparator() {
+		return descending ? Collections.reverseOrder() : null;
+	}
+
+	@Override
+	public E first() {
+		int from = fromIndex(), to = toIndex();
+		if (from >= to)
+			throw new NoSuchElementException();
+		return entityAt(descending ? to - 1 : from);
+	}
+
+	@Override
+	public E last() {
+		int from = fromIndex(), to = toIndex();
+		if (from >= to)
+			throw new NoSuchElementException();
+		return entityAt(descending ? from : to - 1);
+	}
+
+	/*
+	 * The navigation methods work in ascending order on the ids, and return null when there is no such entity in the bounds of this view.
+	 */
+
+	//lowest entity with an id >= id (or > id when strict)
+	private E lowestFrom(int id, boolean strict){
+		int to = toIndex();
+		int index = indexOf(id, fromIndex(), to, strict);
+		return index < to ? entityAt(index) : null;
+	}
+
+	//highest entity with an id <= id (or < id when strict)
+	private E highestUpTo(int id, boolean strict){
+		int from = fromIndex();
+		int index = indexOf(id, from, toIndex(), !strict) - 1;
+		return index >= from ? entityAt(index) : null;
+	}
+
+	@Override
+	public E ceiling(E e) {
+		return descending ? highestUpTo(e.getId(), false) : lowestFrom(e.getId(), false);
+	}
+
+	@Override
+	public E floor(E e) {
+		return descending ? lowestFrom(e.getId(), false) : highestUpTo(e.getId(), false);
+	}
+
+	@Override
+	public E higher(E e) {
+		return descending ? highestUpTo(e.getId(), true) : lowestFrom(e.getId(), true);
+	}
+
+	@Override
+	public E lower(E e) {
+		return descending ? lowestFrom(e.getId(), true) : highestUpTo(e.getId(), true);
+	}
+
+	//new view with the given id bounds, narrowed to the bounds of this view
+	private IdOrderedSet<E> view(long low, long high){
+		int newLow = (int) Math.max(lowId, low);
+		int newHigh = (int) Math.min(highId, high);
+		return new IdOrderedSet<>(store, newLow, newHigh, descending);
+	}
+
+	private static long lowBound(DataEntity e, boolean inclusive){
+		return inclusive ? e.getId() : (long) e.getId() + 1;
+	}
+
+	private static long highBound(DataEntity e, boolean inclusive){
+		return inclusive ? e.getId() : (long) e.getId() - 1;
+	}
+
+	@Override
+	public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+		if (descending){
+			return view(lowBound(toElement, toInclusive), highBound(fromElement, fromInclusive));
+		} else {
+			return view(lowBound(fromElement, fromInclusive), highBound(toElement, toInclusive));
+		}
+	}
+
+	@Override
+	public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+		if (descending){
+			return view(lowBound(toElement, inclusive), highId);
+		} else {
+			return view(lowId, highBound(toElement, inclusive));
+		}
+	}
+
+	@Override
+	public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+		if (descending){
+			return view(lowId, highBound(fromElement, inclusive));
+		} else {
+			return view(lowBound(fromElement, inclusive), highId);
+		}
+	}
+
+	@Override
+	public SortedSet<E> subSet(E fromElement, E toElement) {
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> headSet(E toElement) {
+		return headSet(toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> tailSet(E fromElement) {
+		return tailSet(fromElement, true);
+	}
+
+	@Override
+	public E pollFirst() {
+		throw new UnsupportedOperationException("An IdOrderedSet is read-only");
+	}
+
+	@Override
+	public E pollLast() {
+		throw new UnsupportedOperationException("An IdOrderedSet is read-only");
+	}
+
+}
@@ -13,15 +13,31 @@ public class Relation extends DataEntity {
 	private DataEntity child;
 
 	public Relation(String type, DataEntity parent, DataEntity child){
+		parent.getDataset().checkNotFrozen();
 		this.type = type;
 		this.parent = parent;
-		parent.getRelations().addRelationToChild(this);
 		this.child = child;
-		child.getRelations().addRelationToParent(this);
 		this.dataset = parent.getDataset();
+		//the relation sets of the parent and child are ordered by id, so the id has to be known before this is added to them
 		this.id = dataset.getNextId(this);
+		parent.getRelations().addRelationToChild(this);
+		child.getRelations().addRelationToParent(this);
 		dataset.addRelation(this);
 	}
+	
+	/**
+	 * Creates a <code>Relation</code> with an id that has already been reserved, used when a textual unit is read back from the 
+	 * spill file of its <code>Dataset</code>. Registering it with the <code>Dataset</code> is left to the caller.
+	 */
+	Relation(String type, DataEntity parent, DataEntity child, int id){
+		this.type = type;
+		this.parent = parent;
+		this.child = child;
+		this.dataset = parent.getDataset();
+		this.id = id;
+		parent.getRelations().addRelationToChild(this);
+		child.getRelations().addRelationToParent(this);
+	}
 
 		
 	public DataEntity getParent(){
@@ -42,6 +58,13 @@ public class Relation extends DataEntity {
 				showAnnotations();
 	}
 	
+	@Override
+	public Object putAnnotation(int slot, Object value){
+		Object previousValue = super.putAnnotation(slot, value);
+		dataset.dependencyRelationChanged(this);
+		return previousValue;
+	}
+	
 	@Override
 	public int compareTo(DataEntity anotherAnn) {
 		if (this.id > anotherAnn.getId())
@@ -1,11 +1,17 @@
 package edu.eur.absa.model;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.TreeSet;
 
 /**
  * Model the set of relations an Annotatable can have, since this is not allowed inside an interface,
- * and we don't want to repeat this same code in every implementation of Annotatable
+ * and we don't want to repeat this same code in every implementation of Annotatable.
+ * The methods for a single relation type, and the methods for all relation types when only one type is present, return 
+ * read-only views on the stored relations, so they can be used in inner loops without copying anything.
  * @author Kim Schouten
  *
  */
@@ -13,13 +19,22 @@ public class Relations {
 
 	private HashMap<String, TreeSet<Relation>> relationsToParents = new HashMap<>();
 	private HashMap<String, TreeSet<Relation>> relationsToChildren = new HashMap<>();
+	//read-only views on the sets above, made once per relation type
+	private HashMap<String, NavigableSet<Relation>> relationsToParentsViews = new HashMap<>();
+	private HashMap<String, NavigableSet<Relation>> relationsToChildrenViews = new HashMap<>();
 	
 	public Relations() {
 		
 	}
 
 	
-	public TreeSet<Relation> getAllRelationsToChildren() {
+	/**
+	 * 
+	 * @return A read-only view when there is only one relation type, otherwise a new <code>TreeSet</code> with the relations of all types
+	 */
+	public NavigableSet<Relation> getAllRelationsToChildren() {
+		if (relationsToChildren.size() == 1)
+			return relationsToChildrenViews.values().iterator().next();
 		TreeSet<Relation> allRelations = new TreeSet<>();
 
 		for (String relationType : relationsToChildren.keySet()){
@@ -31,7 +46,13 @@ public class Relations {
 	}
 
 	
-	public TreeSet<Relation> getAllRelationsToParents() {
+	/**
+	 * 
+	 * @return A read-only view when there is only one relation type, otherwise a new <code>TreeSet</code> with the relations of all types
+	 */
+	public NavigableSet<Relation> getAllRelationsToParents() {
+		if (relationsToParents.size() == 1)
+			return relationsToParentsViews.values().iterator().next();
 		TreeSet<Relation> allRelations = new TreeSet<>();
 
 		for (String relationType : relationsToParents.keySet()){
@@ -42,7 +63,23 @@ public class Relations {
 		return allRelations;
 	}
 
+	/**
+	 * 
+	 * @param relationType
+	 * @return A read-only view on the relations of this type (empty if there are none)
+	 */
+	public NavigableSet<Relation> getRelationsToChildren(String relationType) {
+		NavigableSet<Relation> relations = relationsToChildrenViews.get(relationType);
+		if (relations == null)
+			return Collections.emptyNavigableSet();
+		return relations;
+	}
 	
+	/**
+	 * 
+	 * @param relationTypes
+	 * @return A new <code>TreeSet</code> with the relations of all given types
+	 */
 	public TreeSet<Relation> getRelationsToChildren(String... relationTypes) {
 		
 		TreeSet<Relation> allRelations = new TreeSet<>();
@@ -58,12 +95,12 @@ public class Relations {
 		
 	}
 
-	public static TreeSet<Relation> filterRelationsOnAnnotation(TreeSet<Relation> relations, String annotationType, String... allowedAnnotationValues) {
+	public static TreeSet<Relation> filterRelationsOnAnnotation(Collection<Relation> relations, String annotationType, String... allowedAnnotationValues) {
 		TreeSet<Relation> returnSet = new TreeSet<>();
 
 		for (Relation rel : relations){
 			for (String allowedAnnValue : allowedAnnotationValues){
-				if (rel.getAnnotation(annotationType).equals(allowedAnnValue)){
+				if (rel.annotationEquals(annotationType, allowedAnnValue)){
 					//match
 					returnSet.add(rel);
 				}
@@ -73,7 +110,23 @@ public class Relations {
 		return returnSet;
 	}
 	
+	/**
+	 * 
+	 * @param relationType
+	 * @return A read-only view on the relations of this type (empty if there are none)
+	 */
+	public NavigableSet<Relation> getRelationsToParents(String relationType) {
+		NavigableSet<Relation> relations = relationsToParentsViews.get(relationType);
+		if (relations == null)
+			return Collections.emptyNavigableSet();
+		return relations;
+	}
 	
+	/**
+	 * 
+	 * @param relationTypes
+	 * @return A new <code>TreeSet</code> with the relations of all given types
+	 */
 	public TreeSet<Relation> getRelationsToParents(String... relationTypes) {
 		TreeSet<Relation> allRelations = new TreeSet<>();
 
@@ -87,17 +140,31 @@ public class Relations {
 		return allRelations;
 	}
 	
+	Set<String> getChildRelationTypes(){
+		return relationsToChildren.keySet();
+	}
+	
+	Set<String> getParentRelationTypes(){
+		return relationsToParents.keySet();
+	}
+	
 	public void addRelationToChild(Relation relationToChild){
 		String relType = relationToChild.getType();
-		if (!relationsToChildren.containsKey(relType))
-			relationsToChildren.put(relType, new TreeSet<>());
+		if (!relationsToChildren.containsKey(relType)){
+			TreeSet<Relation> relations = new TreeSet<>();
+			relationsToChildren.put(relType, relations);
+			relationsToChildrenViews.put(relType, Collections.unmodifiableNavigableSet(relations));
+		}
 		this.relationsToChildren.get(relType).add(relationToChild);
 	}
 	
 	public void addRelationToParent(Relation relationToParent){
 		String relType = relationToParent.getType();
-		if (!relationsToParents.containsKey(relType))
-			relationsToParents.put(relType, new TreeSet<>());
+		if (!relationsToParents.containsKey(relType)){
+			TreeSet<Relation> relations = new TreeSet<>();
+			relationsToParents.put(relType, relations);
+			relationsToParentsViews.put(relType, Collections.unmodifiableNavigableSet(relations));
+		}
 		this.relationsToParents.get(relType).add(relationToParent);
 	}
 }
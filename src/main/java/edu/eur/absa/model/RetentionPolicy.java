@@ -0,0 +1,71 @@
+package edu.eur.absa.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Declares which parts of a <code>Dataset</code> are still needed, so that {@link Dataset#compact(RetentionPolicy)} can drop the rest.
+ * A new policy keeps everything. Each <code>keep...</code> method restricts one category to the listed types (calling it again adds more types):
+ * <pre>
+ * dataset.compact(new RetentionPolicy()
+ * 		.keepSpanTypes("sentence", "opinion")
+ * 		.keepRelationTypes("deps")
+ * 		.keepAnnotations("lemma", "pos", "URI", "relationShortName", "phraseSentiment", "category", "polarity"));
+ * </pre>
+ * <code>Word</code>s and textual units are always kept, since everything else refers to them. The stored "text" annotation is always
+ * kept as well, since the offsets of the <code>Word</code>s refer to it: it is needed to tokenize again, to derive the text of other 
+ * <code>Span</code>s (see {@link DerivedAnnotations#spanText()}) and to write the <code>Dataset</code> to file. Spans that were tokenized 
+ * on their own, like sentences, take their text with them when they are dropped. Note that annotations of
+ * <code>Relation</code>s are annotations too, e.g., the dependency graph needs "relationShortName".
+ *
+ */
+public class RetentionPolicy {
+
+	//the annotation type that is kept by every policy
+	private static final String TEXT = "text";
+
+	//null means that everything of that category is kept
+	private HashSet<String> spanTypes = null;
+	private HashSet<String> relationTypes = null;
+	private HashSet<String> annotationTypes = null;
+
+	public RetentionPolicy keepSpanTypes(String... spanTypes){
+		if (this.spanTypes == null)
+			this.spanTypes = new HashSet<>();
+		this.spanTypes.addAll(Arrays.asList(spanTypes));
+		return this;
+	}
+
+	public RetentionPolicy keepRelationTypes(String... relationTypes){
+		if (this.relationTypes == null)
+			this.relationTypes = new HashSet<>();
+		this.relationTypes.addAll(Arrays.asList(relationTypes));
+		return this;
+	}
+
+	public RetentionPolicy keepAnnotations(String... annotationTypes){
+		if (this.annotationTypes == null)
+			this.annotationTypes = new HashSet<>();
+		this.annotationTypes.addAll(Arrays.asList(annotationTypes));
+		return this;
+	}
+
+	public boolean keepsSpanType(String spanType){
+		return spanTypes == null || spanTypes.contains(spanType);
+	}
+
+	public boolean keepsRelationType(String relationType){
+		return relationTypes == null || relationTypes.contains(relationType);
+	}
+
+	public boolean keepsAnnotation(String annotationType){
+		return annotationTypes == null || annotationTypes.contains(annotationType) || TEXT.equals(annotationType);
+	}
+
+	@Override
+	public String toString(){
+		return "RetentionPolicy [spanTypes=" + (spanTypes == null ? "all" : spanTypes)
+				+ ", relationTypes=" + (relationTypes == null ? "all" : relationTypes)
+				+ ", annotations=" + (annotationTypes == null ? "all" : annotationTypes + " and " + TEXT) + "]";
+	}
+}
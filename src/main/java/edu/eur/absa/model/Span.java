@@ -1,10 +1,11 @@
 package edu.eur.absa.model;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -17,6 +18,8 @@ import edu.eur.absa.model.exceptions.IllegalSpanException;
  * A Span is an arbitrary sequence of Words that are directly adjacent to one another. Hence, they have to originate from the same textual unit.
  * A <code>Span</code> is the vehicle to add annotations to your textual data.
  * <code>Span</code>s cannot span over multiple textual units as these are by definition independent textual units.
+ * Since the <code>Word</code>s are adjacent, a <code>Span</code> only stores its first and last <code>Word</code>. The <code>Word</code>s themselves 
+ * are stored once, by word order, in the <code>Span</code> that is the textual unit.
  * @author Kim Schouten
  *
  */
@@ -27,28 +30,33 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 	 */
 	private String spanType;
 	
-	private TreeSet<Word> words = new TreeSet<Word>();
+	//the Span covers all Words from firstWord up to and including lastWord (both null when empty)
+	private Word firstWord = null;
+	private Word lastWord = null;
 	
-	private HashMap<Integer, Word> wordsByOrder = new HashMap<>();
+	//only for textual units: all Words of this textual unit, indexed by word order
+	private ArrayList<Word> textualUnitWords = null;
+	//only for textual units: dependency graph of the Words, created on demand
+	private DependencyGraph dependencyGraph = null;
+	//only for textual units: the Words and everything else in this textual unit are in the spill file of the Dataset
+	private boolean spilled = false;
 	/**
 	 * Standard constructor to create a Span object. Note that all words that are contained in a single <code>Span</code> have to originate from the same textual unit.
 	 * @param spanType A textual label denoting the kind of <code>Span</code>. Some basic ones would be "word", "sentence", "aspect", etc.
 	 * @param firstWord
 	 * @param lastWord
-	 * @throws IllegalSpanException If the first and last word do not originate from the textual unit.
+	 * @throws IllegalSpanException If the first and last word do not originate from the textual unit, or the last word is not to the right of the first word.
 	 */
 	public Span(String spanType, Word firstWord, Word lastWord) throws IllegalSpanException{
 		//All words that are contained in a single span have to originate from the same textual unit
 		if (!firstWord.getTextualUnit().equals(lastWord.getTextualUnit()))
 			throw new IllegalSpanException();
+		if (firstWord.getOrder() > lastWord.getOrder())
+			throw new IllegalSpanException();
 		
 		this.spanType = spanType;
-		Word currentWord = firstWord;
-		this.add(currentWord);
-		while (currentWord.hasNextWord() && currentWord != lastWord){
-			currentWord = currentWord.getNextWord();
-			this.add(currentWord);
-		}
+		this.firstWord = firstWord;
+		this.lastWord = lastWord;
 		this.textualUnit = firstWord.getTextualUnit();
 		this.dataset = firstWord.getDataset();
 		this.id = dataset.getNextId(this);
@@ -56,6 +64,30 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 		
 	}
 
+	/**
+	 * Creates a <code>Span</code> with an id that has already been reserved, see {@link TextualUnitBuilder}.
+	 * The builder checks the <code>Word</code>s and registers the <code>Span</code> with the <code>Dataset</code>.
+	 */
+	Span(String spanType, Word firstWord, Word lastWord, int id){
+		this.spanType = spanType;
+		this.firstWord = firstWord;
+		this.lastWord = lastWord;
+		this.textualUnit = firstWord.getTextualUnit();
+		this.dataset = firstWord.getDataset();
+		this.id = id;
+	}
+
+	/**
+	 * Creates an empty <code>Span</code> in the given textual unit with an id that has already been reserved, used when
+	 * a textual unit is read back from the spill file of its <code>Dataset</code>.
+	 */
+	Span(String spanType, Span textualUnit, int id){
+		this.spanType = spanType;
+		this.dataset = textualUnit.getDataset();
+		this.textualUnit = textualUnit;
+		this.id = id;
+	}
+
 	/**
 	 * Special 'empty' Span constructor. This is used to create an empty Span for a new textual unit, since no Words are yet added to it. 
 	 * This Span is its own textual unit so this constructor sets <code>textualUnit=this</code>. 
@@ -66,6 +98,7 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 		this.spanType = spanType;
 		this.dataset = dataset;
 		this.textualUnit = this;
+		this.textualUnitWords = new ArrayList<>();
 		this.id = dataset.getNextId(this);
 		dataset.addSpan(this);
 		
@@ -92,9 +125,14 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 	 * IllegalSpanException is thrown (and caught, but displayed as a warning).
 	 */
 	public boolean add(Word word){
-		if (isEmpty() || (last().hasNextWord() && last().getNextWord().equals(word)) || (first().hasPreviousWord() && first().getPreviousWord().equals(word))){
-			wordsByOrder.put(word.getOrder(), word);
-			return words.add(word);
+		checkNotFrozen();
+		if (isEmpty()){
+			firstWord = word;
+			lastWord = word;
+		} else if (lastWord.hasNextWord() && lastWord.getNextWord().equals(word)){
+			lastWord = word;
+		} else if (firstWord.hasPreviousWord() && firstWord.getPreviousWord().equals(word)){
+			firstWord = word;
 		} else {
 			try {
 				throw new IllegalSpanException("You cannot add a Word to a Span that is not adjacent to the first or last word already in the Span");
@@ -103,15 +141,28 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 			}
 			return false;
 		}
+		if (textualUnitWords != null){
+			setTextualUnitWord(word);
+			wordsChanged();
+		}
+		if (dataset != null)
+			dataset.spanChanged(this);
+		return true;
 	}
 	
 	public boolean addAll(Span span){
+		checkNotFrozen();
 		if (span.isEmpty()){
 			//nothing to add
 			return false;
 		}
-		if (isEmpty() || (last().hasNextWord() && last().getNextWord().equals(span.first())) || (first().hasPreviousWord() && first().getPreviousWord().equals(span.last()))){
-			return words.addAll(span.words);
+		if (isEmpty()){
+			firstWord = span.first();
+			lastWord = span.last();
+		} else if (lastWord.hasNextWord() && lastWord.getNextWord().equals(span.first())){
+			lastWord = span.last();
+		} else if (firstWord.hasPreviousWord() && firstWord.getPreviousWord().equals(span.last())){
+			firstWord = span.first();
 		} else {
 			try {
 				throw new IllegalSpanException("You cannot add the Words from one Span to another Span if the two Spans are not adjacent to each other");
@@ -120,45 +171,340 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 			}
 			return false;
 		}
+		if (textualUnitWords != null){
+			for (Word w : span){
+				setTextualUnitWord(w);
+			}
+			wordsChanged();
+		}
+		if (dataset != null)
+			dataset.spanChanged(this);
+		return true;
 	}
 	
-		
+	/**
+	 * Add a sequence of linked Words at once, used by {@link TextualUnitBuilder}. Like {@link #add(Word)}, the sequence has to be adjacent 
+	 * to the first or last word already in the Span, otherwise an IllegalSpanException is thrown (and caught, but displayed as a warning).
+	 * @param first
+	 * @param last
+	 */
+	boolean addWords(Word first, Word last){
+		checkNotFrozen();
+		if (isEmpty()){
+			firstWord = first;
+			lastWord = last;
+		} else if (lastWord.getNextWord() == first){
+			lastWord = last;
+		} else if (firstWord.getPreviousWord() == last){
+			firstWord = first;
+		} else {
+			try {
+				throw new IllegalSpanException("You cannot add Words to a Span that are not adjacent to the first or last word already in the Span");
+			} catch (IllegalSpanException e){
+				e.printStackTrace();
+			}
+			return false;
+		}
+		if (textualUnitWords != null){
+			textualUnitWords.ensureCapacity(last.getOrder()+1);
+			for (Word w = first; w != last.getNextWord(); w = w.getNextWord()){
+				setTextualUnitWord(w);
+			}
+			wordsChanged();
+		}
+		if (dataset != null)
+			dataset.spanChanged(this);
+		return true;
+	}
+	
+	/**
+	 * Remove a Word from this Span. Since the Words in a Span have to stay adjacent, only the first or last Word can be removed.
+	 * Like {@link #add(Word)}, removing any other Word gives an IllegalSpanException (which is caught, but displayed as a warning).
+	 * The Word is only removed from the Dataset when it has actually been removed from this Span.
+	 * @return false if the Word is not part of this Span, or is in the middle of this Span
+	 */
 	public boolean remove(Word w){
-		dataset.removeAnnotatable((Word) w);
-		return words.remove(w);
+		checkNotFrozen();
+		if (!contains(w))
+			return false;
+		if (firstWord != lastWord && !w.equals(firstWord) && !w.equals(lastWord)){
+			try {
+				throw new IllegalSpanException("You cannot remove a Word from the middle of a Span, since the remaining Words would not be adjacent anymore");
+			} catch (IllegalSpanException e){
+				e.printStackTrace();
+			}
+			return false;
+		}
+		dataset.removeAnnotatable(w);
+		if (firstWord == lastWord){
+			firstWord = null;
+			lastWord = null;
+		} else if (w.equals(lastWord)){
+			lastWord = w.getPreviousWord();
+		} else {
+			firstWord = w.getNextWord();
+		}
+		if (textualUnitWords != null){
+			textualUnitWords.set(w.getOrder(), null);
+			//drop the empty positions at the end of the textual unit
+			while (!textualUnitWords.isEmpty() && textualUnitWords.get(textualUnitWords.size()-1) == null){
+				textualUnitWords.remove(textualUnitWords.size()-1);
+			}
+			wordsChanged();
+		}
+		dataset.spanChanged(this);
+		return true;
 	}
 
 	
 	public Word first(){
-		return words.first();
+		ensureResident();
+		if (firstWord == null)
+			throw new NoSuchElementException();
+		return firstWord;
 	}
 	public Word last(){
-		return words.last();
+		ensureResident();
+		if (lastWord == null)
+			throw new NoSuchElementException();
+		return lastWord;
 	}
 	public boolean isEmpty(){
-		return words.isEmpty();
+		ensureResident();
+		return firstWord == null;
 	}
 	
 	public int size(){
-		return words.size();
+		if (isEmpty())
+			return 0;
+		return lastWord.getOrder() - firstWord.getOrder() + 1;
 	}
 	
+	/**
+	 * Update the position of the given <code>Word</code> in this textual unit after its word order has changed. 
+	 * For other <code>Span</code>s nothing needs to be done, as they only store their first and last <code>Word</code>.
+	 * @param word
+	 */
 	public void resetOrder(Word word){
-		wordsByOrder.remove(word);
-		wordsByOrder.put(word.getOrder(), word);
+		checkNotFrozen();
+		ensureResident();
+		if (textualUnitWords != null){
+			setTextualUnitWord(word);
+			wordsChanged();
+			if (!word.hasNextWord()){
+				//this is now the last word, so anything after it is no longer part of the text
+				while (textualUnitWords.size() > word.getOrder()+1){
+					textualUnitWords.remove(textualUnitWords.size()-1);
+				}
+			}
+		}
+	}
+	
+	private void setTextualUnitWord(Word word){
+		while (textualUnitWords.size() <= word.getOrder()){
+			textualUnitWords.add(null);
+		}
+		textualUnitWords.set(word.getOrder(), word);
+	}
+	
+	/**
+	 * Get the <code>Word</code> with the given word order from the textual unit this <code>Span</code> is in. 
+	 * @param order
+	 * @return The <code>Word</code>, or <code>null</code> if there is no <code>Word</code> with that order
+	 */
+	Word getTextualUnitWord(int order){
+		textualUnit.ensureResident();
+		ArrayList<Word> unitWords = textualUnit.textualUnitWords;
+		if (order < 0 || order >= unitWords.size())
+			return null;
+		return unitWords.get(order);
 	}
 	
 	public Word getWordByOrder(int order){
-		return wordsByOrder.get(order);
+		Word w = getTextualUnitWord(order);
+		if (w != null && contains(w))
+			return w;
+		return null;
 	}
 	
 	/**
-	 * Given a <code>HashSet</code> of <code>Span</code> objects, return the ones that are completely covered by this <code>Span</code> instance. 
+	 * Merge the <code>Word</code>s from <code>first</code> up to and including <code>last</code> into a single <code>Word</code>, e.g., for a 
+	 * multi-word expression. Instead of creating a new <code>Word</code>, <code>first</code> is turned into the merged <code>Word</code> and all
+	 * other <code>Word</code>s in between are removed from the textual unit and from the <code>Dataset</code>. 
+	 * Every <code>Span</code> in the textual unit that started or ended on a removed <code>Word</code> now starts or ends on the merged <code>Word</code>, 
+	 * and the <code>Word</code>s after <code>last</code> are renumbered, all in a single pass over the textual unit.
+	 * <code>Relation</code>s of the removed <code>Word</code>s are left as they are.
+	 * @param first
+	 * @param last
+	 * @param newText The text of the merged <code>Word</code>
+	 * @return The merged <code>Word</code>, which is <code>first</code>
+	 * @throws IllegalSpanException If the <code>Word</code>s are not part of this textual unit, or <code>last</code> comes before <code>first</code>
+	 */
+	public Word mergeWords(Word first, Word last, String newText) throws IllegalSpanException{
+		if (textualUnit != this)
+			return textualUnit.mergeWords(first, last, newText);
+		checkNotFrozen();
+		if (!contains(first) || !contains(last) || first.getOrder() > last.getOrder())
+			throw new IllegalSpanException("Only a sequence of Words from the same textual unit can be merged");
+		int firstOrder = first.getOrder();
+		int lastOrder = last.getOrder();
+		first.setWord(newText);
+		if (firstOrder < lastOrder){
+			//Spans that start or end on a removed Word move to the merged Word
+			for (Span span : dataset.getSpans(this)){
+				if (span == this || span.isEmpty())
+					continue;
+				if (span.firstWord.getOrder() > firstOrder && span.firstWord.getOrder() <= lastOrder){
+					span.firstWord = first;
+					dataset.spanChanged(span);
+				}
+				if (span.lastWord.getOrder() > firstOrder && span.lastWord.getOrder() <= lastOrder){
+					span.lastWord = first;
+					dataset.spanChanged(span);
+				}
+			}
+			for (int order = firstOrder+1; order <= lastOrder; order++){
+				dataset.removeAnnotatable(textualUnitWords.get(order));
+			}
+			if (lastWord == last)
+				lastWord = first;
+			first.mergeWith(last);
+			//renumber the remaining Words and close the gap in the Words by order
+			int removed = lastOrder - firstOrder;
+			int size = textualUnitWords.size();
+			for (int order = lastOrder+1; order < size; order++){
+				Word w = textualUnitWords.get(order);
+				if (w != null)
+					w.setOrder(order - removed);
+				textualUnitWords.set(order - removed, w);
+			}
+			for (int order = size-1; order >= size-removed; order--){
+				textualUnitWords.remove(order);
+			}
+			dataset.wordOrderChanged(first);
+		}
+		wordsChanged();
+		return first;
+	}
+	
+	//the dependency graph, without creating it, used by DatasetMemoryReport
+	DependencyGraph peekDependencyGraph(){
+		return dependencyGraph;
+	}
+	
+	/**
+	 * Get the dependency graph of the textual unit this <code>Span</code> is in, built from the "deps" <code>Relation</code>s between its <code>Word</code>s.
+	 * It is created on the first call and kept until the <code>Word</code>s of the textual unit or their "deps" <code>Relation</code>s change.
+	 * @return
+	 */
+	public DependencyGraph getDependencyGraph(){
+		if (textualUnit != this)
+			return textualUnit.getDependencyGraph();
+		if (dependencyGraph == null)
+			dependencyGraph = new DependencyGraph(this, dataset.getStringDictionary());
+		return dependencyGraph;
+	}
+	
+	/**
+	 * Discard the dependency graph of this textual unit, since its "deps" <code>Relation</code>s have changed.
+	 */
+	void invalidateDependencyGraph(){
+		dependencyGraph = null;
+	}
+	
+	/**
+	 * Compact this textual unit and create the dependency graph, which is otherwise created on demand, used by {@link Dataset#freeze()}.
+	 * @param withDependencyGraph
+	 */
+	void freezeTextualUnit(boolean withDependencyGraph){
+		if (textualUnitWords != null)
+			textualUnitWords.trimToSize();
+		if (withDependencyGraph)
+			getDependencyGraph();
+	}
+	
+	/**
+	 * 
+	 * @return Whether this is a textual unit whose content is only in the spill file of the <code>Dataset</code>, see {@link Dataset#spillToDisk(java.io.File, long)}
+	 */
+	boolean isSpilled(){
+		return spilled;
+	}
+	
+	//read the content of this textual unit back in from the spill file when it is not in memory
+	void ensureResident(){
+		checkNotSpilled();
+		if (spilled)
+			dataset.pageIn(this);
+	}
+	
+	@Override
+	public Relations getRelations(){
+		ensureResident();
+		return super.getRelations();
+	}
+	
+	/**
+	 * Let go of the <code>Word</code>s of this textual unit, as they have been written to the spill file. 
+	 * This textual unit stays in memory, with its own annotations, so it can be used to read the rest back in.
+	 */
+	void spillTextualUnit(){
+		firstWord = null;
+		lastWord = null;
+		textualUnitWords = null;
+		relations = null;
+		wordsChanged();
+		spilled = true;
+	}
+	
+	/**
+	 * Take back the <code>Word</code>s of this textual unit, as read from the spill file.
+	 * @param first The first of the linked <code>Word</code>s, or null when the textual unit has no <code>Word</code>s
+	 * @param last
+	 */
+	void unspillTextualUnit(Word first, Word last){
+		spilled = false;
+		firstWord = first;
+		lastWord = last;
+		textualUnitWords = new ArrayList<>();
+		if (first != null){
+			textualUnitWords.ensureCapacity(last.getOrder()+1);
+			for (Word w = first; w != last.getNextWord(); w = w.getNextWord()){
+				setTextualUnitWord(w);
+			}
+		}
+		wordsChanged();
+	}
+	
+	/**
+	 * Discard everything derived from the <code>Word</code>s of this textual unit, since their ids or dictionary codes have changed.
+	 */
+	void invalidateTextualUnit(){
+		wordsChanged();
+	}
+	
+	//the Words of this textual unit have changed, so everything derived from them is outdated
+	private void wordsChanged(){
+		dependencyGraph = null;
+	}
+	
+	/**
+	 * The Words of this Span as a read-only range view on the Words of the textual unit.
+	 * @return
+	 */
+	private WordRange range(){
+		if (isEmpty())
+			return new WordRange(textualUnit, 0, -1, false);
+		return new WordRange(textualUnit, firstWord.getOrder(), lastWord.getOrder(), false);
+	}
+	
+	/**
+	 * Given a <code>Collection</code> of <code>Span</code> objects, return the ones that are completely covered by this <code>Span</code> instance. 
 	 * This means that every <code>Word</code> in such a <code>Span</code> would also need to be contained within this instance of <code>Span</code>.
 	 * @param spans
 	 * @return
 	 */
-	public TreeSet<Span> getCoveredSpans(TreeSet<Span> spans){
+	public TreeSet<Span> getCoveredSpans(Collection<Span> spans){
 		TreeSet<Span> coveredSpans = new TreeSet<>();
 		for (Span s : spans){
 			if (this.contains(s.first()) && this.contains(s.last())){
@@ -168,12 +514,21 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 		return coveredSpans;
 	}
 	/**
-	 * Given a <code>TreeSet</code> of <code>Span</code> objects, return the ones that completely cover this <code>Span</code> instance. 
+	 * Return the <code>Span</code>s of the given type that are completely covered by this <code>Span</code> instance, such as the opinions 
+	 * in a sentence. This uses the index of the textual unit instead of testing every <code>Span</code> of that type.
+	 * @param spanType The span type to look for, or <code>null</code> for all span types
+	 * @return A new <code>TreeSet</code> with the selected Spans
+	 */
+	public TreeSet<Span> getCoveredSpans(String spanType){
+		return dataset.getCoveredSpans(this, spanType);
+	}
+	/**
+	 * Given a <code>Collection</code> of <code>Span</code> objects, return the ones that completely cover this <code>Span</code> instance. 
 	 * This means that every <code>Word</code> in this instance of <code>Span</code> would also need to be contained within such a <code>Span</code>.
 	 * @param spans
 	 * @return
 	 */
-	public TreeSet<Span> getCoveringSpans(TreeSet<Span> spans){
+	public TreeSet<Span> getCoveringSpans(Collection<Span> spans){
 		TreeSet<Span> coveringSpans = new TreeSet<>();
 		for (Span s : spans){
 			if (s.contains(this.first()) && s.contains(this.last())){
@@ -183,12 +538,12 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 		return coveringSpans;
 	}
 	/**
-	 * Given a <code>TreeSet</code> of <code>Span</code> objects, return the ones that have at least some overlap with this <code>Span</code> instance. 
+	 * Given a <code>Collection</code> of <code>Span</code> objects, return the ones that have at least some overlap with this <code>Span</code> instance. 
 	 * This means that at least one <code>Word</code> in such a <code>Span</code> would also need to be contained within this instance of <code>Span</code>.
 	 * @param spans
 	 * @return
 	 */	
-	public TreeSet<Span> getTouchingSpans(TreeSet<Span> spans){
+	public TreeSet<Span> getTouchingSpans(Collection<Span> spans){
 		TreeSet<Span> touchingSpans = new TreeSet<>();
 		for (Span s : spans){
 			if (s.contains(first()) || this.contains(s.last())){
@@ -198,13 +553,13 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 		return touchingSpans;
 	}
 	/**
-	 * Given a <code>TreeSet</code> of <code>Span</code> objects, return the ones that contain only <code>Word</code>s that have a lower word order than 
+	 * Given a <code>Collection</code> of <code>Span</code> objects, return the ones that contain only <code>Word</code>s that have a lower word order than 
 	 * any word in this instance of <code>Span</code>.
 	 * The returned set of <code>Span</code>s would appear earlier, or to the left, of the text covered by the current <code>Span</code>, without any overlap. 
 	 * @param spans
 	 * @return
 	 */		
-	public TreeSet<Span> getStrictlyLeftSpans(TreeSet<Span> spans){
+	public TreeSet<Span> getStrictlyLeftSpans(Collection<Span> spans){
 		TreeSet<Span> strictlyLeftSpans = new TreeSet<>();
 		for (Span s : spans){
 			if (first().getTextualUnit().equals(s.first().getTextualUnit()) && first().getOrder() > s.last().getOrder()){
@@ -214,13 +569,13 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 		return strictlyLeftSpans;
 	}
 	/**
-	 * Given a <code>TreeSet</code> of <code>Span</code> objects, return the ones that contain only <code>Word</code>s that have a higher word order than 
+	 * Given a <code>Collection</code> of <code>Span</code> objects, return the ones that contain only <code>Word</code>s that have a higher word order than 
 	 * any word in this instance of <code>Span</code>. 
 	 * The returned set of <code>Span</code>s would appear later, or to the right, of the text covered by the current <code>Span</code>, without any overlap.
 	 * @param spans
 	 * @return
 	 */			
-	public TreeSet<Span> getStrictlyRightSpans(TreeSet<Span> spans){
+	public TreeSet<Span> getStrictlyRightSpans(Collection<Span> spans){
 		TreeSet<Span> strictlyRightSpans = new TreeSet<>();
 		for (Span s : spans){
 			if (first().getTextualUnit().equals(s.first().getTextualUnit()) &&  last().getOrder() < s.first().getOrder()){
@@ -280,7 +635,7 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 		}
 		JSONObject annotationsJSON = new JSONObject();
 		spanJSON.put("annotations", annotationsJSON);
-		for (String annotationKey : annotations.keySet()){
+		for (String annotationKey : getAnnotationTypes()){
 			annotationsJSON.put(annotationKey, (Object)getAnnotation(annotationKey));
 		}
 		return spanJSON.toString()+"\n";
@@ -288,27 +643,65 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 
 
 
+	/**
+	 * Iterates over the Words by following the links between them, so it keeps working when the next Words are changed
+	 * during the iteration (e.g., when merging Words into a multi-word expression).
+	 */
 	@Override
 	public Iterator<Word> iterator() {
-		return words.iterator();
+		return new Iterator<Word>(){
+			Word current = null;
+			
+			@Override
+			public boolean hasNext() {
+				if (current == null)
+					return !isEmpty();
+				//fails when the textual unit has been written to the spill file since the previous Word
+				current.checkNotSpilled();
+				return current != lastWord && current.hasNextWord() && current.getOrder() < lastWord.getOrder();
+			}
+
+			@Override
+			public Word next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				current = (current == null) ? firstWord : current.getNextWord();
+				return current;
+			}
+		};
 	}
 
-	@SuppressWarnings("unchecked")
-	public TreeSet<Word> getWords(){
-		return (TreeSet<Word>) words.clone();
-		//return words;
+	/**
+	 * The <code>Word</code>s of this <code>Span</code>, as a read-only view on the <code>Word</code>s of the textual unit, so nothing is copied.
+	 * The view covers the word orders of the <code>Span</code> at the time of the call. Use {@link #copyWords()} for a set that can be changed.
+	 * @return
+	 */
+	public NavigableSet<Word> getWords(){
+		return range();
+	}
+	
+	/**
+	 * 
+	 * @return A new <code>TreeSet</code> with the <code>Word</code>s of this <code>Span</code>
+	 */
+	public TreeSet<Word> copyWords(){
+		TreeSet<Word> words = new TreeSet<>();
+		for (Word w : this){
+			words.add(w);
+		}
+		return words;
 	}
 
 	@Override
 	public Comparator<? super Word> comparator() {
-		return words.comparator();
+		return null;
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends Word> c) {
 		boolean changed = false;
 		for (Word w : c){
-			changed = changed || add(w);
+			changed = add(w) || changed;
 		}
 		return changed;
 	}
@@ -325,18 +718,23 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 	@Override
 	public boolean contains(Object o) {
 		if (o instanceof Word){
-//			//TODO: This is extremely strange: without the cloning, a Word is not always properly found!
-			return ( words.contains((Word)o) || ((TreeSet<Word>)words.clone()).contains((Word)o));
+			Word w = (Word)o;
+			return !isEmpty() && w.getTextualUnit() == textualUnit 
+					&& w.getOrder() >= firstWord.getOrder() && w.getOrder() <= lastWord.getOrder() 
+					&& getTextualUnitWord(w.getOrder()) == w;
 		} else {
 			Framework.log("Incorrect comparison");
 			return false;
 		}
-		//return words.contains(o);
 	}
 
 	@Override
 	public boolean containsAll(Collection<?> c) {
-		return words.containsAll(c);
+		for (Object o : c){
+			if (!contains(o))
+				return false;
+		}
+		return true;
 	}
 
 	@Override
@@ -352,7 +750,7 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 	public boolean removeAll(Collection<?> c) {
 		boolean changed = false;
 		for (Object o : c){
-			changed = changed || remove(o);
+			changed = remove(o) || changed;
 		}
 		return changed;
 	}
@@ -369,53 +767,52 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 
 	@Override
 	public Object[] toArray() {
-		return words.toArray();
+		return getWords().toArray();
 	}
 
 	@Override
 	public <T> T[] toArray(T[] a) {
-		return words.toArray(a);
+		return getWords().toArray(a);
 	}
 
 	@Override
 	public Word ceiling(Word e) {
-		return words.ceiling(e);
+		return range().ceiling(e);
 	}
 
 	@Override
 	public Iterator<Word> descendingIterator() {
-		return words.descendingIterator();
+		return range().descendingIterator();
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public NavigableSet<Word> descendingSet(){
-		return ((TreeSet<Word>)words.clone()).descendingSet();
+		return range().descendingSet();
 	}
 
 	@Override
 	public Word floor(Word e) {
-		return words.floor(e);
+		return range().floor(e);
 	}
 
 	@Override
 	public SortedSet<Word> headSet(Word toElement) {
-		return words.headSet(toElement);
+		return range().headSet(toElement);
 	}
 
 	@Override
 	public NavigableSet<Word> headSet(Word toElement, boolean inclusive) {
-		return words.headSet(toElement, inclusive);
+		return range().headSet(toElement, inclusive);
 	}
 
 	@Override
 	public Word higher(Word e) {
-		return words.higher(e);
+		return range().higher(e);
 	}
 
 	@Override
 	public Word lower(Word e) {
-		return words.lower(e);
+		return range().lower(e);
 	}
 
 	@Override
@@ -440,22 +837,22 @@ public class Span extends DataEntity implements NavigableSet<Word> {
 
 	@Override
 	public SortedSet<Word> subSet(Word fromElement, Word toElement) {
-		return words.subSet(fromElement, toElement);
+		return range().subSet(fromElement, toElement);
 	}
 
 	@Override
 	public NavigableSet<Word> subSet(Word fromElement, boolean fromInclusive, Word toElement, boolean toInclusive) {
-		return words.subSet(fromElement, fromInclusive, toElement, toInclusive);
+		return range().subSet(fromElement, fromInclusive, toElement, toInclusive);
 	}
 
 	@Override
 	public SortedSet<Word> tailSet(Word fromElement) {
-		return words.tailSet(fromElement);
+		return range().tailSet(fromElement);
 	}
 
 	@Override
 	public NavigableSet<Word> tailSet(Word fromElement, boolean inclusive) {
-		return words.tailSet(fromElement, inclusive);
+		return range().tailSet(fromElement, inclusive);
 	}
 
 }
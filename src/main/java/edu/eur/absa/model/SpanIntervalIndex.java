@@ -0,0 +1,278 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interval index over the <code>Span</code>s of a single textual unit. Every non-empty <code>Span</code> is seen as the interval
+ * [first word order, last word order], and the index can answer which <code>Span</code>s contain a given <code>Word</code> or
+ * overlap with a given range of word orders in logarithmic time (plus the size of the answer), instead of scanning all
+ * <code>Span</code>s of the textual unit. It also answers which <code>Span</code>s are covered by a range of word orders, which gives the 
+ * containment hierarchy of the textual unit (e.g., the opinions under a sentence) without testing every candidate.
+ * The index is kept for all <code>Span</code>s together and separately per span type, and each of these is built on the first query.
+ * <p><code>Span</code>s that are added or changed after that are kept in a short list next to the built index, which every query
+ * also looks at, so adding a <code>Span</code> between two queries costs no rebuild. Only when that list grows past about twice the square root
+ * of the number of indexed <code>Span</code>s, the index is built again with all of them. A change to the word order within the textual unit
+ * still drops the whole index. Instances are created and maintained by <code>Dataset</code>.</p>
+ * <p>The built trees are immutable, so queries from multiple threads can use them without locking. Building, replacing and dropping
+ * trees is done while holding the lock on this index, so two threads never build the same tree at once and a tree that takes a
+ * new <code>Span</code> is never replaced by one built before that <code>Span</code> was added.</p>
+ *
+ */
+class SpanIntervalIndex {
+
+	private final Dataset dataset;
+	private final Span textualUnit;
+	//index over all spans of this textual unit, regardless of type
+	private volatile IntervalTree allSpans = null;
+	//index per span type
+	private final ConcurrentHashMap<String, IntervalTree> spansByType = new ConcurrentHashMap<>();
+
+	SpanIntervalIndex(Dataset dataset, Span textualUnit){
+		this.dataset = dataset;
+		this.textualUnit = textualUnit;
+	}
+
+	/**
+	 * Add a <code>Span</code> that has just been added to the <code>Dataset</code>, or whose <code>Word</code>s have changed, 
+	 * to the parts of the index that have already been built.
+	 * @param span
+	 * @param isNew Whether the <code>Span</code> is new, otherwise it may already be in the built index with its old word orders
+	 */
+	synchronized void update(Span span, boolean isNew){
+		if (allSpans != null)
+			allSpans = allSpans.update(span, isNew);
+		IntervalTree tree = spansByType.get(span.getType());
+		if (tree != null)
+			spansByType.put(span.getType(), tree.update(span, isNew));
+	}
+
+	/**
+	 * Mark the whole index as outdated, for instance because the word order within the textual unit has changed.
+	 */
+	synchronized void invalidateAll(){
+		allSpans = null;
+		spansByType.clear();
+	}
+
+	/**
+	 * Get all <code>Span</code>s of the given type that have at least one <code>Word</code> with an order between
+	 * <code>fromOrder</code> and <code>toOrder</code> (both inclusive).
+	 * @param spanType The span type to look for, or <code>null</code> to look at <code>Span</code>s of any type
+	 * @param fromOrder
+	 * @param toOrder
+	 * @return A new <code>TreeSet</code> with the selected Spans
+	 */
+	TreeSet<Span> getOverlappingSpans(String spanType, int fromOrder, int toOrder){
+		TreeSet<Span> result = new TreeSet<>();
+		IntervalTree tree = getTree(spanType);
+		if (tree != null){
+			tree.collect(fromOrder, toOrder, 0, tree.spans.length, result);
+			for (Span span : tree.recentSpans){
+				if (!span.isEmpty() && span.first().getOrder() <= toOrder && span.last().getOrder() >= fromOrder)
+					result.add(span);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get all <code>Span</code>s of the given type of which all <code>Word</code>s have an order between
+	 * <code>fromOrder</code> and <code>toOrder</code> (both inclusive).
+	 * @param spanType The span type to look for, or <code>null</code> to look at <code>Span</code>s of any type
+	 * @param fromOrder
+	 * @param toOrder
+	 * @return A new <code>TreeSet</code> with the selected Spans
+	 */
+	TreeSet<Span> getCoveredSpans(String spanType, int fromOrder, int toOrder){
+		TreeSet<Span> result = new TreeSet<>();
+		IntervalTree tree = getTree(spanType);
+		if (tree != null){
+			tree.collectCovered(fromOrder, toOrder, result);
+			for (Span span : tree.recentSpans){
+				if (!span.isEmpty() && span.first().getOrder() >= fromOrder && span.last().getOrder() <= toOrder)
+					result.add(span);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Build the index for all <code>Span</code>s and for each of the given span types now, instead of on the first query.
+	 * Used when the <code>Dataset</code> is frozen, after which the index is no longer changed and can be queried by multiple threads.
+	 * @param spanTypes
+	 */
+	synchronized void buildAll(Collection<String> spanTypes){
+		allSpans = buildTree(null);
+		for (String spanType : spanTypes){
+			IntervalTree tree = buildTree(spanType);
+			if (tree != null)
+				spansByType.put(spanType, tree);
+		}
+	}
+
+	private IntervalTree getTree(String spanType){
+		IntervalTree tree = spanType == null ? allSpans : spansByType.get(spanType);
+		if (tree != null && !tree.isFull())
+			return tree;
+		return rebuildTree(spanType);
+	}
+
+	//checks again under the lock, another thread may just have built the tree
+	private synchronized IntervalTree rebuildTree(String spanType){
+		if (spanType == null){
+			if (allSpans == null || allSpans.isFull())
+				allSpans = buildTree(null);
+			return allSpans;
+		}
+		IntervalTree tree = spansByType.get(spanType);
+		if (tree == null || tree.isFull()){
+			tree = buildTree(spanType);
+			//do not keep empty trees for span types that do not occur in this textual unit
+			if (tree != null)
+				spansByType.put(spanType, tree);
+		}
+		return tree;
+	}
+
+	private IntervalTree buildTree(String spanType){
+		if (spanType == null)
+			return new IntervalTree(dataset.getSpans(textualUnit));
+		Collection<Span> spans = dataset.getSpans(textualUnit, spanType);
+		if (spans.isEmpty())
+			return null;
+		return new IntervalTree(spans);
+	}
+
+	/**
+	 * Static interval tree: the spans are sorted on their first word order, and the sorted array is read as an implicitly
+	 * balanced binary search tree (the middle element of each range is the root of that range). Every node stores the highest
+	 * last word order found in its subtree, so subtrees that end before the queried range can be skipped.
+	 * The spans that were added or changed after the tree was built are in <code>recentSpans</code>, and once a span in the tree
+	 * has changed, the spans found in the tree are checked against their current word orders.
+	 */
+	private static class IntervalTree {
+
+		private static final Span[] NO_SPANS = new Span[0];
+
+		private final Span[] spans;
+		private final int[] firstOrders;
+		private final int[] lastOrders;
+		private final int[] maxLastOrders;
+		private final Span[] recentSpans;
+		//whether a span in the tree has changed, so its orders above may be outdated
+		private final boolean outdated;
+
+		private IntervalTree(Collection<Span> candidates){
+			ArrayList<Span> selected = new ArrayList<>();
+			if (candidates != null){
+				for (Span span : candidates){
+					if (!span.isEmpty()){
+						selected.add(span);
+					}
+				}
+			}
+			spans = selected.toArray(new Span[selected.size()]);
+			Arrays.sort(spans, new Comparator<Span>(){
+				@Override
+				public int compare(Span s1, Span s2) {
+					int result = Integer.compare(s1.first().getOrder(), s2.first().getOrder());
+					if (result == 0)
+						result = Integer.compare(s1.last().getOrder(), s2.last().getOrder());
+					if (result == 0)
+						result = s1.compareTo(s2);
+					return result;
+				}
+			});
+			firstOrders = new int[spans.length];
+			lastOrders = new int[spans.length];
+			for (int i = 0; i < spans.length; i++){
+				firstOrders[i] = spans[i].first().getOrder();
+				lastOrders[i] = spans[i].last().getOrder();
+			}
+			maxLastOrders = new int[spans.length];
+			computeMaxLastOrders(0, spans.length);
+			recentSpans = NO_SPANS;
+			outdated = false;
+		}
+
+		//the same tree with another recent span
+		private IntervalTree(IntervalTree tree, Span[] recentSpans, boolean outdated){
+			this.spans = tree.spans;
+			this.firstOrders = tree.firstOrders;
+			this.lastOrders = tree.lastOrders;
+			this.maxLastOrders = tree.maxLastOrders;
+			this.recentSpans = recentSpans;
+			this.outdated = outdated;
+		}
+
+		private IntervalTree update(Span span, boolean isNew){
+			for (Span recent : recentSpans){
+				if (recent == span)
+					return this;
+			}
+			Span[] recent = Arrays.copyOf(recentSpans, recentSpans.length + 1);
+			recent[recentSpans.length] = span;
+			return new IntervalTree(this, recent, outdated || !isNew);
+		}
+
+		//too many recent spans to go over on every query, so the tree has to be built again
+		private boolean isFull(){
+			return recentSpans.length > 8 && (long)recentSpans.length * recentSpans.length > 4L * spans.length;
+		}
+
+		private int computeMaxLastOrders(int from, int to){
+			if (from >= to)
+				return Integer.MIN_VALUE;
+			int mid = (from + to) >>> 1;
+			int max = Math.max(lastOrders[mid], Math.max(computeMaxLastOrders(from, mid), computeMaxLastOrders(mid+1, to)));
+			maxLastOrders[mid] = max;
+			return max;
+		}
+
+		//the spans are sorted on their first word order, so the candidates are the consecutive spans that start in the range
+		private void collectCovered(int fromOrder, int toOrder, TreeSet<Span> result){
+			int lo = 0, hi = spans.length;
+			while (lo < hi){
+				int mid = (lo + hi) >>> 1;
+				if (firstOrders[mid] < fromOrder)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			for (int i = lo; i < spans.length && firstOrders[i] <= toOrder; i++){
+				if (lastOrders[i] <= toOrder && (!outdated || isCovered(spans[i], fromOrder, toOrder)))
+					result.add(spans[i]);
+			}
+		}
+
+		private void collect(int fromOrder, int toOrder, int from, int to, TreeSet<Span> result){
+			if (from >= to)
+				return;
+			int mid = (from + to) >>> 1;
+			//nothing in this subtree reaches the queried range
+			if (maxLastOrders[mid] < fromOrder)
+				return;
+			collect(fromOrder, toOrder, from, mid, result);
+			//this node, and everything to the right of it, starts after the queried range
+			if (firstOrders[mid] > toOrder)
+				return;
+			if (lastOrders[mid] >= fromOrder && (!outdated || overlaps(spans[mid], fromOrder, toOrder)))
+				result.add(spans[mid]);
+			collect(fromOrder, toOrder, mid+1, to, result);
+		}
+
+		//a changed span may have moved out of the range, if it moved into it, it is one of the recent spans
+		private static boolean overlaps(Span span, int fromOrder, int toOrder){
+			return !span.isEmpty() && span.first().getOrder() <= toOrder && span.last().getOrder() >= fromOrder;
+		}
+
+		private static boolean isCovered(Span span, int fromOrder, int toOrder){
+			return !span.isEmpty() && span.first().getOrder() >= fromOrder && span.last().getOrder() <= toOrder;
+		}
+	}
+}
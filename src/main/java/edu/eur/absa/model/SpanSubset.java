@@ -0,0 +1,172 @@
+package edu.eur.absa.model;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only set of <code>Span</code>s of a single <code>Dataset</code>, stored as a bit set over the ids of the <code>Span</code>s.
+ * This is what {@link Dataset#createSubSets(String, double...)} returns for the training, validation and test sets. Since ids are dense,
+ * a subset takes one bit per entity in the <code>Dataset</code>, and set operations like union and difference work on 64 ids at a time.
+ * Iterating goes in id order. The ids are only valid in the <code>Dataset</code> the subset was made for, so a subset has to be
+ * created again when its <code>Span</code>s are merged into another <code>Dataset</code>.
+ *
+ */
+public class SpanSubset extends AbstractSet<Span> {
+
+	private final Dataset dataset;
+	private final BitSet ids;
+	private final int size;
+
+	SpanSubset(Dataset dataset, BitSet ids){
+		this.dataset = dataset;
+		this.ids = ids;
+		this.size = ids.cardinality();
+	}
+
+	/**
+	 * Create a subset with the given <code>Span</code>s, which all have to be part of the given <code>Dataset</code>.
+	 * @param dataset
+	 * @param spans
+	 * @throws IllegalArgumentException If one of the <code>Span</code>s is part of another <code>Dataset</code>
+	 */
+	public SpanSubset(Dataset dataset, Collection<Span> spans){
+		this(dataset, toBitSet(dataset, spans));
+	}
+
+	private static BitSet toBitSet(Dataset dataset, Collection<Span> spans){
+		if (spans instanceof SpanSubset){
+			SpanSubset subset = (SpanSubset) spans;
+			if (subset.dataset != dataset)
+				throw new IllegalArgumentException("This subset is part of another Dataset");
+			return (BitSet) subset.ids.clone();
+		}
+		BitSet ids = new BitSet();
+		for (Span span : spans){
+			if (span.getDataset() != dataset)
+				throw new IllegalArgumentException("The Span "+span.getId()+" is part of another Dataset");
+			ids.set(span.getId());
+		}
+		return ids;
+	}
+
+	public Dataset getDataset(){
+		return dataset;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o){
+		if (o instanceof Span){
+			Span span = (Span) o;
+			return span.getDataset() == dataset && ids.get(span.getId());
+		}
+		return false;
+	}
+
+	@Override
+	public Iterator<Span> iterator() {
+		return new Iterator<Span>(){
+			int nextId = ids.nextSetBit(0);
+
+			@Override
+			public boolean hasNext() {
+				return nextId >= 0;
+			}
+
+			@Override
+			public Span next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				Span span = (Span) dataset.getAnnotatable(nextId);
+				nextId = ids.nextSetBit(nextId+1);
+				return span;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param other
+	 * @return A new subset with the Spans that are in this subset, in the other subset, or in both
+	 */
+	public SpanSubset union(SpanSubset other){
+		checkSameDataset(other);
+		BitSet result = (BitSet) ids.clone();
+		result.or(other.ids);
+		return new SpanSubset(dataset, result);
+	}
+
+	/**
+	 *
+	 * @param other
+	 * @return A new subset with the Spans that are in this subset but not in the other subset
+	 */
+	public SpanSubset minus(SpanSubset other){
+		checkSameDataset(other);
+		BitSet result = (BitSet) ids.clone();
+		result.andNot(other.ids);
+		return new SpanSubset(dataset, result);
+	}
+
+	/**
+	 *
+	 * @param other
+	 * @return A new subset with the Spans that are in both subsets
+	 */
+	public SpanSubset intersection(SpanSubset other){
+		checkSameDataset(other);
+		BitSet result = (BitSet) ids.clone();
+		result.and(other.ids);
+		return new SpanSubset(dataset, result);
+	}
+
+	/**
+	 * Union of any number of subsets of the same <code>Dataset</code>.
+	 * @param dataset
+	 * @param subsets
+	 * @return A new subset with the Spans that are in at least one of the given subsets
+	 */
+	public static SpanSubset union(Dataset dataset, Collection<SpanSubset> subsets){
+		BitSet result = new BitSet();
+		for (SpanSubset subset : subsets){
+			if (subset.dataset != dataset)
+				throw new IllegalArgumentException("Subsets of different Datasets cannot be combined");
+			result.or(subset.ids);
+		}
+		return new SpanSubset(dataset, result);
+	}
+
+	/**
+	 *
+	 * @return The ids of the Spans in this subset, in increasing order
+	 */
+	public int[] getIds(){
+		return ids.stream().toArray();
+	}
+
+	private void checkSameDataset(SpanSubset other){
+		if (other.dataset != dataset)
+			throw new IllegalArgumentException("Subsets of different Datasets cannot be combined");
+	}
+
+	@Override
+	public boolean equals(Object o){
+		if (o instanceof SpanSubset){
+			SpanSubset other = (SpanSubset) o;
+			return dataset == other.dataset && ids.equals(other.ids);
+		}
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode(){
+		return super.hashCode();
+	}
+}
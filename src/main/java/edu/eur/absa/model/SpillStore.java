@@ -0,0 +1,595 @@
+package edu.eur.absa.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * The spill file of a <code>Dataset</code> that only keeps part of its textual units in memory, see {@link Dataset#spillToDisk(File, long)}.
+ * Every textual unit that is not in memory has a record in the file with its <code>Word</code>s, <code>Span</code>s and <code>Relation</code>s
+ * and their annotations. The textual unit <code>Span</code> itself stays in memory, with its own annotations, and reading its <code>Word</code>s
+ * reads the record back in. The textual units in memory are kept in least recently used order, and when their estimated size goes over
+ * the memory budget, the least recently used ones are written out until a quarter of the budget is free again, except the textual units
+ * that are kept in memory with {@link #keepInMemory(Span)}. For every entity that is in the file, the id of its textual unit is kept
+ * (four bytes per entity), so {@link #lookup(int)} can read an entity back in by its id.
+ * <p>Records are written in the order of the textual units, and a textual unit that changed is written back in place when it still fits,
+ * so going over the textual units in order reads the file from front to back. Textual units that did not change are not written again.</p>
+ *
+ */
+class SpillStore {
+
+	//kinds of entities in a record
+	private static final byte WORD = 1;
+	private static final byte SPAN = 2;
+	private static final byte EMPTY_SPAN = 3;
+	private static final byte RELATION = 4;
+	//kinds of annotation values
+	private static final byte STRING = 1;
+	private static final byte INTEGER = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte BOOLEAN = 4;
+	private static final byte LONG = 5;
+	private static final byte FLOAT = 6;
+	private static final byte DOUBLE_ARRAY = 7;
+	private static final byte FLOAT_ARRAY = 8;
+	private static final byte INT_ARRAY = 9;
+	private static final byte ENTITY = 10;
+	private static final byte JSON_OBJECT = 11;
+	private static final byte JSON_ARRAY = 12;
+	private static final byte SERIALIZED = 13;
+
+	private final Dataset dataset;
+	private final File file;
+	private final RandomAccessFile data;
+	private long memoryBudget;
+	//estimated heap bytes per entity, from a DatasetMemoryReport of the Dataset before it was spilled
+	private final long bytesPerEntity;
+	//offset, length and reserved length of the record of each textual unit that has been written
+	private final HashMap<Span, long[]> records = new HashMap<>();
+	//the id of the textual unit of each entity that has been written, indexed by the id of the entity
+	private int[] textualUnitIds = new int[0];
+	//the textual units in memory, least recently used first
+	private final LinkedHashMap<Span, ResidentUnit> residentUnits = new LinkedHashMap<>(16, 0.75f, true);
+	private long residentEntities = 0;
+	//changes and lookups are not tracked while textual units are being read or written
+	private boolean busy = false;
+
+	SpillStore(Dataset dataset, File file, long memoryBudget, long bytesPerEntity) throws IOException{
+		this.dataset = dataset;
+		this.file = file;
+		this.memoryBudget = memoryBudget;
+		this.bytesPerEntity = bytesPerEntity;
+		this.data = new RandomAccessFile(file, "rw");
+		data.setLength(0);
+	}
+
+	/**
+	 * Write all given textual units to the spill file, in the given order.
+	 * @param textualUnits
+	 * @throws IOException When a textual unit cannot be spilled, e.g., because a <code>Relation</code> links it to another textual unit.
+	 * Everything is checked before anything is written, so in that case nothing has changed.
+	 */
+	synchronized void spillAll(Collection<Span> textualUnits) throws IOException{
+		busy = true;
+		try {
+			for (Span textualUnit : textualUnits){
+				collectEntities(textualUnit);
+			}
+		} finally {
+			busy = false;
+		}
+		for (Span textualUnit : textualUnits){
+			if (!textualUnit.isSpilled() && !residentUnits.containsKey(textualUnit))
+				residentUnits.put(textualUnit, new ResidentUnit(0));
+		}
+		spill(new ArrayList<>(residentUnits.keySet()));
+	}
+
+	/**
+	 * Read all textual units back in, whatever the memory budget.
+	 */
+	synchronized void loadAll(){
+		memoryBudget = Long.MAX_VALUE;
+		for (Span textualUnit : new ArrayList<>(records.keySet())){
+			if (textualUnit.isSpilled())
+				pageIn(textualUnit);
+		}
+	}
+
+	/**
+	 * Get an entity that is not registered in the <code>Dataset</code>, by reading its textual unit back in when the entity is in the spill file.
+	 * @param id
+	 * @return The entity, or null when it is not in the spill file either
+	 */
+	synchronized DataEntity lookup(int id){
+		if (busy || id <= 0 || id >= textualUnitIds.length || textualUnitIds[id] == 0)
+			return null;
+		DataEntity textualUnit = dataset.getRegisteredEntity(textualUnitIds[id]);
+		if (!(textualUnit instanceof Span) || !((Span)textualUnit).isSpilled())
+			return null;
+		pageIn((Span)textualUnit);
+		return dataset.getRegisteredEntity(id);
+	}
+	
+	/**
+	 * Read the given textual unit in when it is in the spill file, and keep it in memory until it is released as many times.
+	 * @param textualUnit
+	 */
+	synchronized void keepInMemory(Span textualUnit){
+		if (textualUnit.isSpilled())
+			pageIn(textualUnit);
+		ResidentUnit resident = residentUnits.get(textualUnit);
+		if (resident != null)
+			resident.keepCount++;
+	}
+	
+	/**
+	 * Let the least recently used order decide again when the given textual unit is written out, see {@link #keepInMemory(Span)}.
+	 * @param textualUnit
+	 */
+	synchronized void release(Span textualUnit){
+		ResidentUnit resident = residentUnits.get(textualUnit);
+		if (resident != null && resident.keepCount > 0){
+			resident.keepCount--;
+			spillOverBudget(textualUnit);
+		}
+	}
+	
+	synchronized void close() throws IOException{
+		data.close();
+		file.delete();
+	}
+
+	/**
+	 * A textual unit is about to be used: read it back in when it is in the spill file, otherwise mark it as most recently used.
+	 * @param textualUnit
+	 */
+	synchronized void use(Span textualUnit){
+		if (busy)
+			return;
+		if (textualUnit.isSpilled())
+			pageIn(textualUnit);
+		else
+			residentUnits.get(textualUnit);
+	}
+
+	/**
+	 * An entity has been created, changed or removed, so its textual unit has to be written again when it is spilled.
+	 * A textual unit that is in the spill file is read back in first.
+	 * @param entity
+	 * @param isNew Whether the entity has just been registered
+	 */
+	synchronized void changed(DataEntity entity, boolean isNew){
+		if (busy)
+			return;
+		Span textualUnit = Dataset.getTextualUnitOf(entity);
+		if (textualUnit == null)
+			return;
+		if (textualUnit.isSpilled())
+			pageIn(textualUnit);
+		ResidentUnit resident = residentUnits.get(textualUnit);
+		boolean newTextualUnit = (resident == null);
+		if (newTextualUnit){
+			resident = new ResidentUnit(0);
+			residentUnits.put(textualUnit, resident);
+		}
+		resident.changed = true;
+		if (isNew && entity != textualUnit){
+			resident.entities++;
+			residentEntities++;
+		}
+		if (newTextualUnit)
+			spillOverBudget(textualUnit);
+	}
+
+	synchronized void pageIn(Span textualUnit){
+		if (!textualUnit.isSpilled())
+			return;
+		busy = true;
+		int entityCount;
+		try {
+			long[] record = records.get(textualUnit);
+			byte[] bytes = new byte[(int)record[1]];
+			data.seek(record[0]);
+			data.readFully(bytes);
+			DataEntity[] entities = decode(textualUnit, bytes);
+			dataset.registerAll(entities);
+			dataset.indexPagedIn(textualUnit, entities);
+			entityCount = entities.length;
+		} catch (IOException e){
+			throw new UncheckedIOException("Could not read textual unit "+textualUnit.getId()+" from the spill file "+file, e);
+		} finally {
+			busy = false;
+		}
+		residentUnits.put(textualUnit, new ResidentUnit(entityCount));
+		residentEntities += entityCount;
+		spillOverBudget(textualUnit);
+	}
+
+	//write out the least recently used textual units when the ones in memory are over budget, but never the one that is in use
+	//or one that is kept in memory
+	private void spillOverBudget(Span inUse){
+		if (residentEntities * bytesPerEntity <= memoryBudget)
+			return;
+		ArrayList<Span> toSpill = new ArrayList<>();
+		long entities = residentEntities;
+		for (Map.Entry<Span, ResidentUnit> entry : residentUnits.entrySet()){
+			if (entities * bytesPerEntity <= memoryBudget / 4 * 3)
+				break;
+			if (entry.getKey() != inUse && entry.getValue().keepCount == 0){
+				toSpill.add(entry.getKey());
+				entities -= entry.getValue().entities;
+			}
+		}
+		try {
+			spill(toSpill);
+		} catch (IOException e){
+			throw new UncheckedIOException("Could not write to the spill file "+file, e);
+		}
+	}
+
+	private void spill(ArrayList<Span> textualUnits) throws IOException{
+		busy = true;
+		try {
+			for (Span textualUnit : textualUnits){
+				ResidentUnit resident = residentUnits.remove(textualUnit);
+				ArrayList<DataEntity> entities = collectEntities(textualUnit);
+				if (resident.changed || !records.containsKey(textualUnit))
+					write(textualUnit, encode(textualUnit, entities));
+				for (DataEntity entity : entities){
+					setTextualUnitId(entity.getId(), textualUnit.getId());
+					dataset.unregisterSpilled(entity);
+					entity.detachSpilled();
+				}
+				textualUnit.spillTextualUnit();
+				residentEntities -= resident.entities;
+			}
+			dataset.removeSpilledFromIndexes(textualUnits);
+		} finally {
+			busy = false;
+		}
+	}
+
+	//the Words of a textual unit in word order, followed by its other Spans and all Relations in id order
+	private ArrayList<DataEntity> collectEntities(Span textualUnit) throws IOException{
+		ArrayList<DataEntity> entities = new ArrayList<>();
+		if (!textualUnit.isEmpty()){
+			for (Word w = textualUnit.first(); w != textualUnit.last().getNextWord(); w = w.getNextWord()){
+				entities.add(w);
+			}
+		}
+		TreeSet<DataEntity> others = new TreeSet<>();
+		NavigableSet<Span> spans = dataset.getSpans(textualUnit);
+		if (spans != null){
+			for (Span span : spans){
+				if (span != textualUnit)
+					others.add(span);
+			}
+		}
+		ArrayList<DataEntity> linked = new ArrayList<>(entities);
+		linked.addAll(others);
+		linked.add(textualUnit);
+		for (int i = 0; i < linked.size(); i++){
+			Relations relations = linked.get(i).relations;
+			if (relations == null)
+				continue;
+			ArrayList<Relation> rels = new ArrayList<>(relations.getAllRelationsToChildren());
+			rels.addAll(relations.getAllRelationsToParents());
+			for (Relation rel : rels){
+				if (others.add(rel)){
+					if (Dataset.getTextualUnitOf(rel) != textualUnit || Dataset.getTextualUnitOf(rel.getChild()) != textualUnit)
+						throw new IOException("Textual unit "+textualUnit.getId()+" cannot be spilled: "+rel+" links two textual units");
+					linked.add(rel);
+				}
+			}
+		}
+		entities.addAll(others);
+		return entities;
+	}
+
+	private byte[] encode(Span textualUnit, ArrayList<DataEntity> entities) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(entities.size());
+		for (DataEntity entity : entities){
+			out.writeInt(entity.getId());
+			if (entity instanceof Word){
+				Word word = (Word)entity;
+				out.writeByte(WORD);
+				writeString(out, word.getWord());
+				out.writeInt(word.getStartOffset());
+				out.writeInt(word.getEndOffset());
+				out.writeInt(word.getOrder());
+			} else if (entity instanceof Span){
+				Span span = (Span)entity;
+				out.writeByte(span.isEmpty() ? EMPTY_SPAN : SPAN);
+				writeString(out, span.getType());
+				if (!span.isEmpty()){
+					out.writeInt(span.first().getId());
+					out.writeInt(span.last().getId());
+				}
+			} else if (entity instanceof Relation){
+				Relation rel = (Relation)entity;
+				out.writeByte(RELATION);
+				writeString(out, rel.getType());
+				out.writeInt(rel.getParent().getId());
+				out.writeInt(rel.getChild().getId());
+			} else {
+				throw new IOException("Only Words, Spans and Relations can be spilled, not "+entity.getClass().getSimpleName());
+			}
+		}
+		//the annotations come after all entities, so they can refer to any entity in the textual unit
+		for (DataEntity entity : entities){
+			Object[] values = entity.annotationValues;
+			int count = 0;
+			if (values != null){
+				for (Object value : values){
+					if (value != null)
+						count++;
+				}
+			}
+			out.writeInt(count);
+			for (int slot = 0; count > 0 && slot < values.length; slot++){
+				if (values[slot] != null){
+					out.writeInt(slot);
+					writeValue(out, textualUnit, values[slot]);
+				}
+			}
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private DataEntity[] decode(Span textualUnit, byte[] bytes) throws IOException{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		DataEntity[] entities = new DataEntity[in.readInt()];
+		HashMap<Integer, DataEntity> entitiesById = new HashMap<>();
+		entitiesById.put(textualUnit.getId(), textualUnit);
+		Word firstWord = null;
+		Word lastWord = null;
+		for (int i = 0; i < entities.length; i++){
+			int id = in.readInt();
+			byte kind = in.readByte();
+			if (kind != WORD && textualUnit.isSpilled()){
+				//all Words have been read, so the textual unit can take them back before Spans and Relations refer to it
+				textualUnit.unspillTextualUnit(firstWord, lastWord);
+			}
+			DataEntity entity;
+			if (kind == WORD){
+				Word word = new Word(readString(in), in.readInt(), 0, textualUnit, id);
+				word.setEndOffset(in.readInt());
+				word.setOrder(in.readInt());
+				if (lastWord != null)
+					word.linkAfter(lastWord);
+				else
+					firstWord = word;
+				lastWord = word;
+				entity = word;
+			} else if (kind == SPAN){
+				String spanType = readString(in);
+				entity = new Span(spanType, (Word)entitiesById.get(in.readInt()), (Word)entitiesById.get(in.readInt()), id);
+			} else if (kind == EMPTY_SPAN){
+				entity = new Span(readString(in), textualUnit, id);
+			} else if (kind == RELATION){
+				String relationType = readString(in);
+				DataEntity parent = entitiesById.get(in.readInt());
+				DataEntity child = entitiesById.get(in.readInt());
+				if (parent == null || child == null)
+					throw new IOException("The spill file is corrupt: relation "+id+" refers to an unknown entity");
+				entity = new Relation(relationType, parent, child, id);
+			} else {
+				throw new IOException("The spill file is corrupt: unknown entity kind "+kind);
+			}
+			entities[i] = entity;
+			entitiesById.put(id, entity);
+		}
+		if (textualUnit.isSpilled())
+			textualUnit.unspillTextualUnit(firstWord, lastWord);
+		AnnotationSchema schema = dataset.getAnnotationSchema();
+		for (DataEntity entity : entities){
+			int count = in.readInt();
+			if (count == 0)
+				continue;
+			int[] slots = new int[count];
+			Object[] values = new Object[count];
+			int length = 0;
+			for (int i = 0; i < count; i++){
+				slots[i] = in.readInt();
+				values[i] = readValue(in, entitiesById);
+				length = Math.max(length, slots[i]+1);
+			}
+			entity.annotationValues = new Object[length];
+			for (int i = 0; i < count; i++){
+				Object value = values[i];
+				if (schema.isDictionaryEncoded(slots[i]))
+					value = dataset.getStringDictionary().intern((String)value);
+				entity.annotationValues[slots[i]] = value;
+			}
+		}
+		return entities;
+	}
+
+	private void setTextualUnitId(int id, int textualUnitId){
+		if (id >= textualUnitIds.length)
+			textualUnitIds = Arrays.copyOf(textualUnitIds, Math.max(id + 1, textualUnitIds.length * 3 / 2));
+		textualUnitIds[id] = textualUnitId;
+	}
+	
+	//put a record in its old place when it still fits, otherwise at the end of the file
+	private void write(Span textualUnit, byte[] bytes) throws IOException{
+		long[] record = records.get(textualUnit);
+		if (record == null || record[2] < bytes.length){
+			record = new long[]{data.length(), bytes.length, bytes.length};
+			records.put(textualUnit, record);
+		} else {
+			record[1] = bytes.length;
+		}
+		data.seek(record[0]);
+		data.write(bytes);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException{
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException{
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeValue(DataOutputStream out, Span textualUnit, Object value) throws IOException{
+		if (value instanceof String){
+			out.writeByte(STRING);
+			writeString(out, (String)value);
+		} else if (value instanceof Integer){
+			out.writeByte(INTEGER);
+			out.writeInt((Integer)value);
+		} else if (value instanceof Double){
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double)value);
+		} else if (value instanceof Boolean){
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean)value);
+		} else if (value instanceof Long){
+			out.writeByte(LONG);
+			out.writeLong((Long)value);
+		} else if (value instanceof Float){
+			out.writeByte(FLOAT);
+			out.writeFloat((Float)value);
+		} else if (value instanceof double[]){
+			double[] array = (double[])value;
+			out.writeByte(DOUBLE_ARRAY);
+			out.writeInt(array.length);
+			for (double d : array){
+				out.writeDouble(d);
+			}
+		} else if (value instanceof float[]){
+			float[] array = (float[])value;
+			out.writeByte(FLOAT_ARRAY);
+			out.writeInt(array.length);
+			for (float f : array){
+				out.writeFloat(f);
+			}
+		} else if (value instanceof int[]){
+			int[] array = (int[])value;
+			out.writeByte(INT_ARRAY);
+			out.writeInt(array.length);
+			for (int i : array){
+				out.writeInt(i);
+			}
+		} else if (value instanceof DataEntity){
+			DataEntity entity = (DataEntity)value;
+			if (Dataset.getTextualUnitOf(entity) != textualUnit)
+				throw new IOException("Textual unit "+textualUnit.getId()+" cannot be spilled: it has an annotation that refers to another textual unit");
+			out.writeByte(ENTITY);
+			out.writeInt(entity.getId());
+		} else if (value instanceof JSONObject){
+			out.writeByte(JSON_OBJECT);
+			writeString(out, value.toString());
+		} else if (value instanceof JSONArray){
+			out.writeByte(JSON_ARRAY);
+			writeString(out, value.toString());
+		} else if (value instanceof Serializable){
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+			objectOut.writeObject(value);
+			objectOut.close();
+			out.writeByte(SERIALIZED);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		} else {
+			throw new IOException("Annotation values of type "+value.getClass().getName()+" cannot be spilled");
+		}
+	}
+
+	private static Object readValue(DataInputStream in, HashMap<Integer, DataEntity> entitiesById) throws IOException{
+		byte kind = in.readByte();
+		switch (kind){
+		case STRING:
+			return readString(in);
+		case INTEGER:
+			return in.readInt();
+		case DOUBLE:
+			return in.readDouble();
+		case BOOLEAN:
+			return in.readBoolean();
+		case LONG:
+			return in.readLong();
+		case FLOAT:
+			return in.readFloat();
+		case DOUBLE_ARRAY: {
+			double[] array = new double[in.readInt()];
+			for (int i = 0; i < array.length; i++){
+				array[i] = in.readDouble();
+			}
+			return array;
+		}
+		case FLOAT_ARRAY: {
+			float[] array = new float[in.readInt()];
+			for (int i = 0; i < array.length; i++){
+				array[i] = in.readFloat();
+			}
+			return array;
+		}
+		case INT_ARRAY: {
+			int[] array = new int[in.readInt()];
+			for (int i = 0; i < array.length; i++){
+				array[i] = in.readInt();
+			}
+			return array;
+		}
+		case ENTITY:
+			return entitiesById.get(in.readInt());
+		case JSON_OBJECT:
+			return new JSONObject(readString(in));
+		case JSON_ARRAY:
+			return new JSONArray(readString(in));
+		case SERIALIZED: {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))){
+				return objectIn.readObject();
+			} catch (ClassNotFoundException e){
+				throw new IOException("The spill file contains an annotation value of an unknown class", e);
+			}
+		}
+		default:
+			throw new IOException("The spill file is corrupt: unknown value kind "+kind);
+		}
+	}
+
+	private static class ResidentUnit {
+		//the number of entities in the textual unit, not counting the textual unit itself
+		private int entities;
+		private boolean changed = false;
+		//the number of times the textual unit has been kept in memory and not yet released
+		private int keepCount = 0;
+
+		private ResidentUnit(int entities){
+			this.entities = entities;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package edu.eur.absa.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encoding for <code>String</code>s that occur many times within a <code>Dataset</code>, such as tokens, lemmas and part-of-speech tags.
+ * Every distinct <code>String</code> gets a dense integer code, starting at 0, in order of first appearance. Codes are stable for the lifetime of the dictionary.
+ * The dictionary is thread-safe: new <code>String</code>s are added under a lock, lookups do not need one.
+ *
+ */
+public class StringDictionary {
+
+	private ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+	//replaced by a longer copy when full, only written to under the lock
+	private volatile String[] strings = new String[64];
+	private volatile int size = 0;
+
+	/**
+	 * Get the code for the given <code>String</code>, adding it to the dictionary if needed.
+	 * @param s
+	 * @return The code, or -1 if <code>s</code> is <code>null</code>
+	 */
+	public int getCode(String s){
+		if (s == null)
+			return -1;
+		Integer code = codes.get(s);
+		if (code == null){
+			synchronized (this){
+				code = codes.get(s);
+				if (code == null){
+					code = size;
+					if (code == strings.length)
+						strings = Arrays.copyOf(strings, code * 2);
+					strings[code] = s;
+					size = code + 1;
+					//publish the code last, anyone who can see it can also see the String
+					codes.put(s, code);
+				}
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Get the instance of the given <code>String</code> that is kept in the dictionary, adding it if needed. 
+	 * Equal <code>String</code>s that went through this method are the same object, so they can be compared with <code>==</code>.
+	 * @param s
+	 * @return The instance in the dictionary, or <code>null</code> if <code>s</code> is <code>null</code>
+	 */
+	public String intern(String s){
+		return getString(getCode(s));
+	}
+
+	/**
+	 * Get the instance of the given <code>String</code> that is kept in the dictionary, without adding it to the dictionary.
+	 * @param s
+	 * @return The instance in the dictionary, or <code>null</code> if <code>s</code> is not in the dictionary
+	 */
+	public String lookup(String s){
+		return getString(lookupCode(s));
+	}
+
+	/**
+	 * Get the code for the given <code>String</code> without adding it to the dictionary.
+	 * @param s
+	 * @return The code, or -1 if <code>s</code> is not in the dictionary
+	 */
+	public int lookupCode(String s){
+		if (s == null)
+			return -1;
+		Integer code = codes.get(s);
+		if (code == null)
+			return -1;
+		return code;
+	}
+
+	/**
+	 *
+	 * @param code
+	 * @return The <code>String</code> for this code, or <code>null</code> for code -1
+	 */
+	public String getString(int code){
+		if (code < 0)
+			return null;
+		if (code >= size)
+			throw new IndexOutOfBoundsException("Unknown code: "+code);
+		return strings[code];
+	}
+
+	public int size(){
+		return size;
+	}
+}
@@ -0,0 +1,244 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+
+/**
+ * Creates the <code>Word</code>s and <code>Span</code>s of a textual unit in bulk, instead of one <code>new Word(...)</code> at a time.
+ * Tokens and span ranges are collected first, and {@link #build()} then reserves one block of ids for all of them, links the
+ * <code>Word</code>s in a single pass, and registers everything with the <code>Dataset</code> at once. The new <code>Word</code>s
+ * are appended after the <code>Word</code>s the textual unit already has, so the same textual unit can be built in multiple rounds.
+ * <pre>
+ * TextualUnitBuilder builder = new TextualUnitBuilder(textualUnit);
+ * builder.addWords(tokens, startOffsets);
+ * builder.addSpan("aspect", 2, 3);
+ * Word[] words = builder.build();
+ * </pre>
+ *
+ */
+public class TextualUnitBuilder {
+
+	private final Span textualUnit;
+	private final Dataset dataset;
+
+	private String[] words = new String[16];
+	private int[] startOffsets = new int[16];
+	private int wordCount = 0;
+
+	//Spans to create, either over the new Words (by index) or over existing Words of the textual unit
+	private ArrayList<PendingSpan> pendingSpans = new ArrayList<>();
+	//other Spans that get all new Words too, e.g., a sentence in a review
+	private ArrayList<Span> extendedSpans = new ArrayList<>();
+
+	private Word[] builtWords = null;
+	private Span[] builtSpans = null;
+
+	/**
+	 * Start building the given textual unit, which may be empty or already have some <code>Word</code>s.
+	 * @param textualUnit
+	 */
+	public TextualUnitBuilder(Span textualUnit){
+		if (textualUnit.getTextualUnit() != textualUnit)
+			throw new IllegalArgumentException("A TextualUnitBuilder needs a textual unit, not a Span of type "+textualUnit.getType());
+		this.textualUnit = textualUnit;
+		this.dataset = textualUnit.getDataset();
+	}
+
+	/**
+	 * Start building a new, empty textual unit in the given <code>Dataset</code>.
+	 * @param dataset
+	 */
+	public TextualUnitBuilder(Dataset dataset){
+		this(new Span(dataset.getTextualUnitSpanType(), dataset));
+	}
+
+	public Span getTextualUnit(){
+		return textualUnit;
+	}
+
+	/**
+	 *
+	 * @param word
+	 * @param startOffset
+	 * @return The index of the new <code>Word</code> in this builder, to be used in {@link #addSpan(String, int, int)}
+	 */
+	public int addWord(String word, int startOffset){
+		checkNotBuilt();
+		if (wordCount == words.length){
+			words = Arrays.copyOf(words, wordCount * 2);
+			startOffsets = Arrays.copyOf(startOffsets, wordCount * 2);
+		}
+		words[wordCount] = word;
+		startOffsets[wordCount] = startOffset;
+		return wordCount++;
+	}
+
+	/**
+	 * Add a number of tokens at once.
+	 * @param words
+	 * @param startOffsets The start offset of each token
+	 * @return This builder
+	 */
+	public TextualUnitBuilder addWords(String[] words, int[] startOffsets){
+		checkNotBuilt();
+		if (words.length != startOffsets.length)
+			throw new IllegalArgumentException("Every word needs a start offset");
+		int newCount = wordCount + words.length;
+		if (newCount > this.words.length){
+			int capacity = Math.max(newCount, this.words.length * 2);
+			this.words = Arrays.copyOf(this.words, capacity);
+			this.startOffsets = Arrays.copyOf(this.startOffsets, capacity);
+		}
+		System.arraycopy(words, 0, this.words, wordCount, words.length);
+		System.arraycopy(startOffsets, 0, this.startOffsets, wordCount, startOffsets.length);
+		wordCount = newCount;
+		return this;
+	}
+
+	/**
+	 * Add a <code>Span</code> over new <code>Word</code>s that have already been added to this builder.
+	 * @param spanType
+	 * @param firstWord Index of the first <code>Word</code>, as returned by {@link #addWord(String, int)}
+	 * @param lastWord Index of the last <code>Word</code>
+	 * @return The index of the new <code>Span</code> in this builder, see {@link #getSpan(int)}
+	 * @throws IllegalSpanException If the last word is not to the right of the first word, or the words have not been added yet
+	 */
+	public int addSpan(String spanType, int firstWord, int lastWord) throws IllegalSpanException{
+		checkNotBuilt();
+		if (firstWord < 0 || firstWord > lastWord)
+			throw new IllegalSpanException();
+		if (lastWord >= wordCount)
+			throw new IllegalSpanException("This Span ends at word "+lastWord+", but only "+wordCount+" words have been added");
+		pendingSpans.add(new PendingSpan(spanType, firstWord, lastWord, null, null));
+		return pendingSpans.size()-1;
+	}
+
+	/**
+	 * Add a <code>Span</code> over <code>Word</code>s that already exist in the textual unit.
+	 * @param spanType
+	 * @param firstWord
+	 * @param lastWord
+	 * @return The index of the new <code>Span</code> in this builder, see {@link #getSpan(int)}
+	 * @throws IllegalSpanException If the words are not from this textual unit, or the last word is not to the right of the first word
+	 */
+	public int addSpan(String spanType, Word firstWord, Word lastWord) throws IllegalSpanException{
+		checkNotBuilt();
+		if (firstWord.getTextualUnit() != textualUnit || lastWord.getTextualUnit() != textualUnit)
+			throw new IllegalSpanException("The Words of this Span are not from the textual unit of this builder");
+		if (firstWord.getOrder() > lastWord.getOrder())
+			throw new IllegalSpanException();
+		pendingSpans.add(new PendingSpan(spanType, -1, -1, firstWord, lastWord));
+		return pendingSpans.size()-1;
+	}
+
+	/**
+	 * Also add all new <code>Word</code>s to the given <code>Span</code> of the textual unit, e.g., the sentence that is being tokenized.
+	 * The new <code>Word</code>s have to be adjacent to the <code>Word</code>s that <code>Span</code> already has.
+	 * @param span
+	 * @return This builder
+	 */
+	public TextualUnitBuilder extendSpan(Span span){
+		checkNotBuilt();
+		if (span.getTextualUnit() != textualUnit)
+			throw new IllegalArgumentException("This Span is not part of the textual unit of this builder");
+		if (span != textualUnit)
+			extendedSpans.add(span);
+		return this;
+	}
+
+	/**
+	 * Create and register all <code>Word</code>s and <code>Span</code>s. A builder can only be built once.
+	 * @return The new <code>Word</code>s, in order
+	 */
+	public Word[] build(){
+		checkNotBuilt();
+		int spanCount = pendingSpans.size();
+		int firstId = dataset.allocateIds(wordCount + spanCount);
+		DataEntity[] entities = new DataEntity[wordCount + spanCount];
+
+		builtWords = new Word[wordCount];
+		Word previousWord = textualUnit.isEmpty() ? null : textualUnit.last();
+		int order = previousWord == null ? 0 : previousWord.getOrder()+1;
+		for (int i = 0; i < wordCount; i++){
+			Word word = new Word(words[i], startOffsets[i], order++, textualUnit, firstId + i);
+			if (previousWord != null)
+				word.linkAfter(previousWord);
+			builtWords[i] = word;
+			entities[i] = word;
+			previousWord = word;
+		}
+
+		builtSpans = new Span[spanCount];
+		for (int i = 0; i < spanCount; i++){
+			PendingSpan pending = pendingSpans.get(i);
+			Word first = pending.firstWord != null ? pending.firstWord : builtWords[pending.first];
+			Word last = pending.lastWord != null ? pending.lastWord : builtWords[pending.last];
+			Span span = new Span(pending.spanType, first, last, firstId + wordCount + i);
+			builtSpans[i] = span;
+			entities[wordCount + i] = span;
+		}
+		dataset.registerAll(entities);
+
+		if (wordCount > 0){
+			textualUnit.addWords(builtWords[0], builtWords[wordCount-1]);
+			for (Span span : extendedSpans){
+				span.addWords(builtWords[0], builtWords[wordCount-1]);
+			}
+		}
+		dataset.addSpans(Arrays.asList(builtSpans));
+
+		words = null;
+		startOffsets = null;
+		pendingSpans = null;
+		extendedSpans = null;
+		return builtWords;
+	}
+
+	/**
+	 *
+	 * @param index The index of the <code>Word</code> in this builder
+	 * @return The new <code>Word</code>, once the builder has been built
+	 */
+	public Word getWord(int index){
+		checkBuilt();
+		return builtWords[index];
+	}
+
+	/**
+	 *
+	 * @param index The index of the <code>Span</code> in this builder, as returned by <code>addSpan</code>
+	 * @return The new <code>Span</code>, once the builder has been built
+	 */
+	public Span getSpan(int index){
+		checkBuilt();
+		return builtSpans[index];
+	}
+
+	private void checkNotBuilt(){
+		if (builtWords != null)
+			throw new IllegalStateException("This TextualUnitBuilder has already been built");
+	}
+
+	private void checkBuilt(){
+		if (builtWords == null)
+			throw new IllegalStateException("This TextualUnitBuilder has not been built yet");
+	}
+
+	private static class PendingSpan {
+		private final String spanType;
+		private final int first;
+		private final int last;
+		private final Word firstWord;
+		private final Word lastWord;
+
+		private PendingSpan(String spanType, int first, int last, Word firstWord, Word lastWord){
+			this.spanType = spanType;
+			this.first = first;
+			this.last = last;
+			this.firstWord = firstWord;
+			this.lastWord = lastWord;
+		}
+	}
+}
@@ -30,6 +30,20 @@ public class Word extends DataEntity {
 		this.id = dataset.getNextId(this);
 	}
 	
+	/**
+	 * Creates a <code>Word</code> with an id that has already been reserved, see {@link TextualUnitBuilder}.
+	 * Linking it to the other <code>Word</code>s and registering it with the <code>Dataset</code> is left to the builder.
+	 */
+	Word(String word, int startOffset, int order, Span textualUnit, int id){
+		this.word = word;
+		this.startOffset = startOffset;
+		this.endOffset = startOffset+word.length();
+		this.order = order;
+		this.textualUnit = textualUnit;
+		this.dataset = textualUnit.getDataset();
+		this.id = id;
+	}
+	
 	/**
 	 * <p>Creates a basic <code>Word</code> object, using the length of <code>word</code> to compute the <code>endOffset</code>.
 	 * It links this <code>Word</code> object to its containing <code>Dataset</code>.</p>
@@ -76,12 +90,14 @@ public class Word extends DataEntity {
 		return (nextWord != null);
 	}
 	public Word getNextWord(){
+		checkNotSpilled();
 		return nextWord;
 	}
 	public boolean hasPreviousWord(){
 		return (previousWord != null);
 	}
 	public Word getPreviousWord(){
+		checkNotSpilled();
 		return previousWord;
 	}
 	/**
@@ -192,25 +208,55 @@ public class Word extends DataEntity {
 	}
 	
 	public void setPreviousWord(Word w){
+		checkNotFrozen();
 		previousWord = w;
 	}
 	public void setNextWord(Word w){
+		checkNotFrozen();
 		nextWord = w;
 	}
 	public void setWord(String word){
+		checkNotFrozen();
 		this.word = word;
 		endOffset = startOffset + word.length();
 	}
+	/**
+	 * Turn this <code>Word</code> into the merged <code>Word</code> that ends where <code>last</code> ends, 
+	 * by linking it to the <code>Word</code> after <code>last</code>. Used by {@link Span#mergeWords(Word, Word, String)}.
+	 * @param last
+	 */
+	void mergeWith(Word last){
+		nextWord = last.nextWord;
+		if (nextWord != null)
+			nextWord.previousWord = this;
+		endOffset = last.endOffset;
+	}
+	
+	void setOrder(int order){
+		this.order = order;
+	}
+	
+	void setEndOffset(int endOffset){
+		this.endOffset = endOffset;
+	}
+	
+	void linkAfter(Word previousWord){
+		this.previousWord = previousWord;
+		previousWord.nextWord = this;
+	}
+	
 	/**
 	 * If the order of words is changed (by adding or removing a word somewhere), it needs to be updated
-	 *   Not only in the Word objects, but also in all of the Spans that contain this word.
+	 *   Not only in the Word objects, but also in the textual unit that keeps its Words by order. Other Spans
+	 *   only refer to their first and last Word, so they do not need to be updated.
 	 */
 	public void resetOrder(){
-		this.order = previousWord.order+1;
-		for (Span s : dataset.getSpans(this)){
-			s.resetOrder(this);
+		checkNotFrozen();
+		if (this.order != previousWord.order+1){
+			this.order = previousWord.order+1;
+			dataset.wordOrderChanged(this);
 		}
-		
+		textualUnit.resetOrder(this);
 	}
 	
 	//Convenience methods, since these are often used
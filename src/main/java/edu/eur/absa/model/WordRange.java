@@ -0,0 +1,207 @@
+package edu.eur.absa.model;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Read-only view on a consecutive range of <code>Word</code>s within a textual unit, given by the word order of the first and last <code>Word</code>.
+ * The <code>Word</code>s themselves are stored only once, in the textual unit <code>Span</code>, so creating a <code>WordRange</code> does not copy anything.
+ * It is used by <code>Span</code> to return its sub sets, head sets, tail sets and descending set.
+ * The ordering is the natural ordering of <code>Word</code>s (or its reverse for a descending range), which for <code>Word</code>s within one textual unit is the same as their word order.
+ *
+ */
+public class WordRange extends AbstractSet<Word> implements NavigableSet<Word> {
+
+	private final Span textualUnit;
+	//word order of the lowest and highest Word in the range, the range is empty if lowOrder > highOrder
+	private final int lowOrder;
+	private final int highOrder;
+	private final boolean descending;
+
+	WordRange(Span textualUnit, int lowOrder, int highOrder, boolean descending){
+		this.textualUnit = textualUnit;
+		this.lowOrder = lowOrder;
+		this.highOrder = highOrder;
+		this.descending = descending;
+	}
+
+	private Word wordAt(int order){
+		return textualUnit.getTextualUnitWord(order);
+	}
+
+	@Override
+	public int size() {
+		return Math.max(0, highOrder - lowOrder + 1);
+	}
+
+	@Override
+	public boolean isEmpty(){
+		return lowOrder > highOrder;
+	}
+
+	@Override
+	public boolean contains(Object o){
+		if (o instanceof Word){
+			Word w = (Word) o;
+			return w.getTextualUnit() == textualUnit && w.getOrder() >= lowOrder && w.getOrder() <= highOrder && wordAt(w.getOrder()) == w;
+		}
+		return false;
+	}
+
+	@Override
+	public Iterator<Word> iterator() {
+		return new Iterator<Word>(){
+			int nextOrder = descending ? highOrder : lowOrder;
+
+			@Override
+			public boolean hasNext() {
+				return descending ? nextOrder >= lowOrder : nextOrder <= highOrder;
+			}
+
+			@Override
+			public Word next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				Word w = wordAt(nextOrder);
+				nextOrder += descending ? -1 : 1;
+				return w;
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Word> descendingIterator() {
+		return descendingSet().iterator();
+	}
+
+	@Override
+	public NavigableSet<Word> descendingSet() {
+		return new WordRange(textualUnit, lowOrder, highOrder, !descending);
+	}
+
+	@Override
+	public Comparator<? super Word> comparator() {
+		return descending ? Collections.reverseOrder() : null;
+	}
+
+	@Override
+	public Word first() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return wordAt(descending ? highOrder : lowOrder);
+	}
+
+	@Override
+	public Word last() {
+		if (isEmpty())
+			throw new NoSuchElementException();
+		return wordAt(descending ? lowOrder : highOrder);
+	}
+
+	/*
+	 * The navigation methods use binary search on the natural ordering of the Words, so they also work for Words that are not part
+	 * of this range (or even of this textual unit). The four helpers below work in ascending order and return an out of range order
+	 * when there is no such Word.
+	 */
+
+	//lowest order in the range with a Word >= e (or > e when strict)
+	private int lowestFrom(Word e, boolean strict){
+		int lo = lowOrder, hi = highOrder + 1;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			int c = wordAt(mid).compareTo(e);
+			if (c > 0 || (c == 0 && !strict))
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+		return lo;
+	}
+
+	//highest order in the range with a Word <= e (or < e when strict)
+	private int highestUpTo(Word e, boolean strict){
+		return lowestFrom(e, !strict) - 1;
+	}
+
+	private Word wordInRange(int order){
+		return (order >= lowOrder && order <= highOrder) ? wordAt(order) : null;
+	}
+
+	@Override
+	public Word ceiling(Word e) {
+		return wordInRange(descending ? highestUpTo(e, false) : lowestFrom(e, false));
+	}
+
+	@Override
+	public Word floor(Word e) {
+		return wordInRange(descending ? lowestFrom(e, false) : highestUpTo(e, false));
+	}
+
+	@Override
+	public Word higher(Word e) {
+		return wordInRange(descending ? highestUpTo(e, true) : lowestFrom(e, true));
+	}
+
+	@Override
+	public Word lower(Word e) {
+		return wordInRange(descending ? lowestFrom(e, true) : highestUpTo(e, true));
+	}
+
+	@Override
+	public NavigableSet<Word> subSet(Word fromElement, boolean fromInclusive, Word toElement, boolean toInclusive) {
+		if (descending){
+			return new WordRange(textualUnit, lowestFrom(toElement, !toInclusive), highestUpTo(fromElement, !fromInclusive), true);
+		} else {
+			return new WordRange(textualUnit, lowestFrom(fromElement, !fromInclusive), highestUpTo(toElement, !toInclusive), false);
+		}
+	}
+
+	@Override
+	public NavigableSet<Word> headSet(Word toElement, boolean inclusive) {
+		if (descending){
+			return new WordRange(textualUnit, lowestFrom(toElement, !inclusive), highOrder, true);
+		} else {
+			return new WordRange(textualUnit, lowOrder, highestUpTo(toElement, !inclusive), false);
+		}
+	}
+
+	@Override
+	public NavigableSet<Word> tailSet(Word fromElement, boolean inclusive) {
+		if (descending){
+			return new WordRange(textualUnit, lowOrder, highestUpTo(fromElement, !inclusive), true);
+		} else {
+			return new WordRange(textualUnit, lowestFrom(fromElement, !inclusive), highOrder, false);
+		}
+	}
+
+	@Override
+	public SortedSet<Word> subSet(Word fromElement, Word toElement) {
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	@Override
+	public SortedSet<Word> headSet(Word toElement) {
+		return headSet(toElement, false);
+	}
+
+	@Override
+	public SortedSet<Word> tailSet(Word fromElement) {
+		return tailSet(fromElement, true);
+	}
+
+	@Override
+	public Word pollFirst() {
+		throw new UnsupportedOperationException("A WordRange is a read-only view");
+	}
+
+	@Override
+	public Word pollLast() {
+		throw new UnsupportedOperationException("A WordRange is a read-only view");
+	}
+
+}
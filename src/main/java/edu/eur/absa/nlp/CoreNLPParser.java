@@ -7,7 +7,6 @@ import java.util.Properties;
 
 import org.ejml.simple.SimpleMatrix;
 
-import edu.eur.absa.Framework;
 import edu.eur.absa.model.Dataset;
 import edu.eur.absa.model.Relation;
 import edu.eur.absa.model.Span;
@@ -104,15 +103,7 @@ public class CoreNLPParser extends AbstractNLPComponent {
 			Span span = new Span("syntacticPhrase", begin, end);
 			span.putAnnotation("pos", t.label().toString());
 			
-			String fullText = (String)parent.getTextualUnit().getAnnotation("text");
-			if (end.getEndOffset()>fullText.length()){
-				Framework.debug(fullText.length() + "\t" + fullText);
-				Framework.debug(begin.getWord() + "\t" + begin.getStartOffset() + "\t" + end.getWord() + "\t" + end.getEndOffset());
-				Framework.debug(t.label().toString() + "\t" + t.yieldWords().toString() + "\t"+type);
-				
-			}
-			String spanText = fullText.substring(begin.getStartOffset(), end.getEndOffset());
-			span.putAnnotation("text", spanText);
+			//the text of the phrase is not stored, as getAnnotation("text") derives it from the sentence text and the word offsets
 			
 			Word syntacticHead = wordIndex.get( headLeaf.yieldWords().get(0).beginPosition());
 			
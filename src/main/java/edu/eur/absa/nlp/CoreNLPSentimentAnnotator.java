@@ -161,9 +161,9 @@ public class CoreNLPSentimentAnnotator extends AbstractNLPComponent {
 	}
 
 	private static void assignSentiment(DataEntity a, SimpleMatrix sm, String sentimentLabel){
-		ArrayList<Double> sentimentScores = new ArrayList<>();
+		double[] sentimentScores = new double[5];
 		for (int i = 0; i < 5; i++){
-			sentimentScores.add(sm.get(i, 0));
+			sentimentScores[i] = sm.get(i, 0);
 		}
 		a.putAnnotation(sentimentLabel, sentimentScores);
 	}
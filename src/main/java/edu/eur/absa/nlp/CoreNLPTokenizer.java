@@ -7,7 +7,7 @@ import java.util.Properties;
 import edu.eur.absa.Framework;
 import edu.eur.absa.model.Dataset;
 import edu.eur.absa.model.Span;
-import edu.eur.absa.model.Word;
+import edu.eur.absa.model.TextualUnitBuilder;
 import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.OriginalTextAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
@@ -54,24 +54,17 @@ public class CoreNLPTokenizer extends AbstractNLPComponent{
 			Annotation a = new Annotation(originalText);
 			pipeline.annotate(a);
 			List<CoreLabel> tokenAnnotations = a.get(TokensAnnotation.class);
-			Word previousWord = null;
-			if (!textualUnit.isEmpty())
-				previousWord = textualUnit.last();
-				
+			//the new words are appended to the textual unit, and added to the sentence span. If span=textualSpan than this has no effect
+			TextualUnitBuilder builder = new TextualUnitBuilder(textualUnit);
+			builder.extendSpan(span);
 			for (CoreLabel token : tokenAnnotations){
 				String word = token.get(OriginalTextAnnotation.class);
 				int startOffset = token.get(CharacterOffsetBeginAnnotation.class);
 //				int endOffset = token.get(CharacterOffsetEndAnnotation.class);
 //				System.out.println(word + "\t" + startOffset + "\t" + endOffset);
-				if (previousWord == null){
-					previousWord = new Word(word, startOffset, textualUnit, dataset);
-				} else {
-					previousWord = new Word(word, startOffset, previousWord);
-				}
-				//and add the new word to the sentence span. If span=textualSpan than this has no effect
-				if (!textualUnit.equals(span))
-					span.add(previousWord);
+				builder.addWord(word, startOffset);
 			}
+			builder.build();
 		}		
 	}
 
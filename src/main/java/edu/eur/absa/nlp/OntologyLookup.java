@@ -1,13 +1,13 @@
 package edu.eur.absa.nlp;
 
 import java.util.HashMap;
-import java.util.HashSet;
 
 import edu.eur.absa.Framework;
 import edu.eur.absa.external.IOntology;
 import edu.eur.absa.model.Dataset;
 import edu.eur.absa.model.Span;
 import edu.eur.absa.model.Word;
+import edu.eur.absa.model.exceptions.IllegalSpanException;
 
 public class OntologyLookup extends AbstractNLPComponent {
 
@@ -35,15 +35,9 @@ public class OntologyLookup extends AbstractNLPComponent {
 			if (spanAnnotationType != null)
 				span.putAnnotation("URI", lemmaToURI.get(span.getAnnotation(spanAnnotationType)));
 			
-			HashSet<Word> wordsToRemove = new HashSet<>();
-			int wordsToSkip = 0;
+			//merged words are unlinked from the text, so iterating over the span will not visit them anymore
 			for (Word w : span){
 				
-				if (wordsToSkip> 0){
-					wordsToSkip--;
-					continue;
-				}
-				
 				String candidateMultiWord = w.getWord();
 				String candidateMultiLemma = w.getLemma();
 				String URI = lemmaToURI.get(candidateMultiLemma);
@@ -88,31 +82,12 @@ public class OntologyLookup extends AbstractNLPComponent {
 //					Framework.debug("Merging words into one...");
 //					Framework.debug("Multiword: "+multiWord);
 //					Framework.debug("Start: "+w.getWord() + "\tEnd: "+endWord.getWord());
-					int startOffset = w.getStartOffset();
-					int endOffset = endWord.getEndOffset();
-					nextWord = w;
-					//remove all subsequent words after w that are to be included in the merged Word object
-					while (nextWord.hasNextWord() && (!endWord.hasNextWord() || !nextWord.getNextWord().equals(endWord.getNextWord()))){
-						nextWord = nextWord.getNextWord();
-						wordsToRemove.add(nextWord);
-						wordsToSkip++;
-					}
-
-					//instead of constructing a new Word object, we modify the first Word into the longer one
-					// this prevents the Span from protesting since it tries to keep a consecutive list of Words
-					// and adding a new Word in the middle of it will not work
-					w.setWord(multiWord);
-					w.setNextWord(endWord.getNextWord());
-
-					if (endWord.hasNextWord()){
-						endWord.getNextWord().setPreviousWord(w);
-						
-						nextWord = endWord.getNextWord();
-						nextWord.resetOrder();
-						while (nextWord.hasNextWord()){
-							nextWord = nextWord.getNextWord();
-							nextWord.resetOrder();
-						}
+					//instead of constructing a new Word object, the first Word is turned into the longer one, 
+					// the textual unit removes the other Words from all its Spans and renumbers the rest in one go
+					try {
+						span.mergeWords(w, endWord, multiWord);
+					} catch (IllegalSpanException e){
+						e.printStackTrace();
 					}
 					
 //					Framework.debug("Previous word: "+w.getPreviousWord());
@@ -125,13 +100,6 @@ public class OntologyLookup extends AbstractNLPComponent {
 				}
 				
 			}
-			//this is not an ideal situation
-			span.removeAll(wordsToRemove);
-//			Framework.log(span.getTextualUnit().toString());
-//			Framework.log(""+dataset.getSpans(span.getTextualUnit()));
-//			for (Span s : dataset.getSpans(span.getTextualUnit())){
-//				s.removeAll(wordsToRemove);
-//			}
 		}
 		
 		
@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.TreeSet;
+import java.util.NavigableSet;
 
 import org.clulab.discourse.rstparser.DiscourseTree;
 import org.clulab.discourse.rstparser.RSTParser;
@@ -57,7 +57,7 @@ public class RSTDiscourseParser extends AbstractNLPComponent {
 		Processor proc = new CoreNLPProcessor(true, true, ShallowNLPProcessor.WITH_DISCOURSE(), 999);
 	
 		for (Span docSpan : dataset.getSpans(spanType)){
-			TreeSet<Span> sentenceSpans = dataset.getSpans(docSpan, "sentence");
+			NavigableSet<Span> sentenceSpans = dataset.getSpans(docSpan, "sentence");
 			ArrayList<String> textPerSentence = new ArrayList<>();
 			HashMap<Integer, Span> sentencesByOrder = new HashMap<>();
 			
@@ -96,11 +96,8 @@ public class RSTDiscourseParser extends AbstractNLPComponent {
 	public void processDiscourseTree(Span document, HashMap<Integer, Span> sentencesByOrder, DiscourseTree tree, Span parentNode, String nodeType, String relationLabel){
 		String relation = tree.relationLabel();
 		
-		String text = "";
-		//nodes that span multiple sentence do not have this value set properly!
-		if (tree.rawText() != null){
-			text = tree.rawText();
-		}
+		//the raw text of the node is not stored (and for nodes that span multiple sentences it is not set properly anyway),
+		//as getAnnotation("text") derives it from the sentence texts and the word offsets
 		
 		int startSentence = tree.firstToken().sentence();
 		int startWord = tree.firstToken().token();
@@ -135,7 +132,6 @@ public class RSTDiscourseParser extends AbstractNLPComponent {
 		//Apparently, the parser says that all nodes are nuclei, which is obviously a bug somewhere in the library
 		// so tree.kind() is always "Nucleus"
 		rstNode.putAnnotation("type", nodeType);
-		rstNode.putAnnotation("rawText", text);
 		
 		if (parentNode != null){
 			//child node, link to parent span (and to nucleus if it is a satellite)
@@ -175,7 +171,7 @@ public class RSTDiscourseParser extends AbstractNLPComponent {
 //				}
 //			}
 			
-			TreeSet<Relation> existingChildren = parentNode.getRelations().getAllRelationsToChildren();
+			NavigableSet<Relation> existingChildren = parentNode.getRelations().getAllRelationsToChildren();
 			if (!existingChildren.isEmpty()){
 				Framework.log("Children: "+existingChildren);
 				Span otherNode = (Span) existingChildren.first().getChild();
@@ -0,0 +1,86 @@
+package edu.eur.absa.data;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import edu.eur.absa.model.Dataset;
+import edu.eur.absa.model.Span;
+import edu.eur.absa.model.Word;
+import junit.framework.TestCase;
+
+public class DatasetJSONSentimentTest extends TestCase {
+
+	//sentiment scores as CoreNLPSentimentAnnotator stores them, including whole numbers that JSON writes without a fraction
+	private static final double[] PHRASE_SENTIMENT = {0.0, 0.125, 1.0, 1.0E-5, 0.1 + 0.2};
+	private static final double[] WORD_SENTIMENT = {0.2, 0.2, 0.2, 0.2, 0.2};
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException{
+		file = File.createTempFile("dataset", ".json");
+	}
+
+	@Override
+	protected void tearDown(){
+		file.delete();
+	}
+
+	public void testSentimentVectorsRoundTrip() throws Exception{
+		Dataset dataset = new Dataset("test", "review");
+		Span review = new Span("review", dataset);
+		Word first = new Word("good", 0, review, dataset);
+		Word second = new Word("food", 5, first);
+		review.putAnnotation("phraseSentiment", PHRASE_SENTIMENT);
+		first.putAnnotation("wordSentiment", WORD_SENTIMENT);
+		second.putAnnotation("wordSentiment", new double[5]);
+		
+		for (boolean prettyJSON : new boolean[]{false, true}){
+			new DatasetJSONWriter(prettyJSON).write(dataset, file);
+			Dataset read = new DatasetJSONReader().read(file);
+			assertEquals(double[].class, read.getAnnotationDataTypes().get("phraseSentiment"));
+			assertEquals(double[].class, read.getAnnotationDataTypes().get("wordSentiment"));
+			Span readReview = read.getSpans("review").first();
+			//the values come back exactly, as double[] and not as a List of boxed numbers
+			assertTrue(readReview.getAnnotation("phraseSentiment") instanceof double[]);
+			assertTrue(Arrays.equals(PHRASE_SENTIMENT, readReview.getDoubles("phraseSentiment")));
+			assertTrue(Arrays.equals(WORD_SENTIMENT, readReview.first().getDoubles("wordSentiment")));
+			assertTrue(Arrays.equals(new double[5], readReview.last().getDoubles("wordSentiment")));
+		}
+	}
+
+	public void testOtherPrimitiveVectorsRoundTrip() throws Exception{
+		Dataset dataset = new Dataset("test", "review");
+		Span review = new Span("review", dataset);
+		new Word("good", 0, review, dataset);
+		review.putAnnotation("floats", new float[]{0.1f, 2f, -3.5f});
+		review.putAnnotation("counts", new int[]{0, 7, -1});
+		review.putAnnotation("empty", new double[0]);
+		
+		new DatasetJSONWriter().write(dataset, file);
+		Span readReview = new DatasetJSONReader().read(file).getSpans("review").first();
+		assertTrue(Arrays.equals(new float[]{0.1f, 2f, -3.5f}, readReview.getAnnotation("floats", float[].class)));
+		assertTrue(Arrays.equals(new int[]{0, 7, -1}, readReview.getAnnotation("counts", int[].class)));
+		assertEquals(0, readReview.getDoubles("empty").length);
+		//getDoubles converts the other vectors
+		assertEquals(2.0, readReview.getDoubles("floats")[1]);
+		assertEquals(7.0, readReview.getDoubles("counts")[1]);
+	}
+
+	public void testSentimentListsFromOlderFiles() throws Exception{
+		//before the sentiment scores were stored as double[], they were written as a List of Doubles
+		String json = "{\"textualUnitSpanType\":\"review\",\"performedNLPTasks\":[],"
+				+"\"annotationDataTypes\":{\"phraseSentiment\":\"java.util.ArrayList\"},"
+				+"\"textualUnits\":[{\"id\":1,\"annotations\":{\"phraseSentiment\":[0,0.25,0.5,0.25,0]}}],"
+				+"\"words\":[{\"id\":2,\"word\":\"good\",\"startOffset\":0,\"order\":0,\"textualUnitId\":1,\"annotations\":{}}],"
+				+"\"spans\":[],\"relations\":[]}";
+		try (Writer writer = new FileWriter(file)){
+			writer.write(json);
+		}
+		Span review = new DatasetJSONReader().read(file).getSpans("review").first();
+		assertTrue(Arrays.equals(new double[]{0, 0.25, 0.5, 0.25, 0}, review.getDoubles("phraseSentiment")));
+	}
+}
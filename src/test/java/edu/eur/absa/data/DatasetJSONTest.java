@@ -0,0 +1,113 @@
+package edu.eur.absa.data;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import edu.eur.absa.model.Dataset;
+import edu.eur.absa.model.Relation;
+import edu.eur.absa.model.Span;
+import edu.eur.absa.model.Word;
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import edu.eur.absa.nlp.NLPTask;
+import junit.framework.TestCase;
+
+public class DatasetJSONTest extends TestCase {
+
+	private static final String TEXT = "w0 w1 \"w2\" w3 w4 w5";
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException{
+		file = File.createTempFile("dataset", ".json");
+	}
+
+	@Override
+	protected void tearDown(){
+		file.delete();
+	}
+
+	public void testRoundTrip() throws Exception{
+		roundTrip(false);
+	}
+
+	public void testPrettyRoundTrip() throws Exception{
+		roundTrip(true);
+	}
+
+	private void roundTrip(boolean prettyJSON) throws Exception{
+		Dataset dataset = reviews(20);
+		new DatasetJSONWriter(prettyJSON).write(dataset, file);
+		Dataset read = new DatasetJSONReader().read(file);
+		assertEquals("review", read.getTextualUnitSpanType());
+		assertEquals(20, read.getSpans("review").size());
+		assertEquals(20, read.getSpans("aspect").size());
+		assertEquals(100, read.getRelations("deps").size());
+		assertEquals(dataset.getCurrentId(), read.getCurrentId());
+		assertTrue(read.getPerformedNLPTasks().contains(NLPTask.TOKENIZATION));
+		Span review = read.getSpans("review").last();
+		assertEquals(6, review.size());
+		assertEquals(TEXT, review.getAnnotation("text"));
+		assertEquals(1.5, review.first().getDoubles("vec")[0]);
+		assertEquals("w2", review.getWordByOrder(2).getWord());
+		assertEquals(TEXT.indexOf("w3"), review.getWordByOrder(3).getStartOffset());
+		assertEquals("NN", review.first().getAnnotation("pos"));
+		Span aspect = read.getSpans(review, "aspect").first();
+		assertEquals("positive", aspect.getAnnotation("polarity"));
+		assertSame(review.getWordByOrder(1), aspect.first());
+		assertSame(review.getWordByOrder(2), aspect.last());
+		assertEquals(3, review.getDependencyGraph().neighborhood(review.first(), 2).size());
+		assertEquals("dep", read.getRelations("deps").first().getAnnotation("relationShortName"));
+	}
+
+	public void testSectionsInAnyOrder() throws Exception{
+		//files written before the sections had a fixed order
+		String json = "{\"relations\":[{\"id\":9,\"type\":\"deps\",\"parentId\":2,\"childId\":3,\"annotations\":{\"relationShortName\":\"nsubj\"}}],"
+				+"\"spans\":[{\"id\":4,\"spanType\":\"aspect\",\"firstWordId\":2,\"lastWordId\":3,\"textualUnitId\":1,\"annotations\":{}}],"
+				+"\"words\":[{\"id\":2,\"word\":\"good\",\"startOffset\":0,\"order\":0,\"textualUnitId\":1,\"annotations\":{\"pos\":\"JJ\"}},"
+				+"{\"id\":3,\"word\":\"food\",\"startOffset\":5,\"order\":1,\"textualUnitId\":1,\"annotations\":{}}],"
+				+"\"annotationDataTypes\":{\"pos\":\"java.lang.String\",\"relationShortName\":\"java.lang.String\"},"
+				+"\"textualUnits\":[{\"id\":1,\"annotations\":{}}],\"textualUnitSpanType\":\"review\",\"performedNLPTasks\":[\"TOKENIZATION\"]}";
+		try (Writer writer = new FileWriter(file)){
+			writer.write(json);
+		}
+		Dataset read = new DatasetJSONReader().read(file);
+		Span review = read.getSpans("review").first();
+		assertEquals(2, review.size());
+		assertEquals("JJ", review.first().getAnnotation("pos"));
+		assertEquals(1, read.getSpans(review, "aspect").size());
+		Relation rel = read.getRelations("deps").first();
+		assertEquals("nsubj", rel.getAnnotation("relationShortName"));
+		assertSame(review.first(), rel.getParent());
+		assertSame(review.last(), rel.getChild());
+		assertTrue(read.getPerformedNLPTasks().contains(NLPTask.TOKENIZATION));
+	}
+
+	//reviews of six Words, with a chain of "deps" Relations and an "aspect" over the second and third Word
+	private static Dataset reviews(int nrOfReviews) throws IllegalSpanException{
+		Dataset dataset = new Dataset("test", "review");
+		dataset.getPerformedNLPTasks().add(NLPTask.TOKENIZATION);
+		String[] tokens = {"w0", "w1", "w2", "w3", "w4", "w5"};
+		for (int i = 0; i < nrOfReviews; i++){
+			Span review = new Span("review", dataset);
+			review.putAnnotation("text", TEXT);
+			Word previousWord = null;
+			for (String token : tokens){
+				Word word;
+				if (previousWord == null){
+					word = new Word(token, TEXT.indexOf(token), review, dataset);
+					word.putAnnotation("vec", new double[]{1.5, 2});
+				} else {
+					word = new Word(token, TEXT.indexOf(token), previousWord);
+					new Relation("deps", previousWord, word).putAnnotation("relationShortName", "dep");
+				}
+				word.putAnnotation("pos", previousWord == null ? "NN" : "VB");
+				previousWord = word;
+			}
+			new Span("aspect", review.getWordByOrder(1), review.getWordByOrder(2)).putAnnotation("polarity", "positive");
+		}
+		return dataset;
+	}
+}
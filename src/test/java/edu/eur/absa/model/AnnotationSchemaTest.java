@@ -0,0 +1,68 @@
+package edu.eur.absa.model;
+
+import junit.framework.TestCase;
+
+public class AnnotationSchemaTest extends TestCase {
+
+	public void testSlotsAreHandedOutOnce(){
+		AnnotationSchema schema = new AnnotationSchema();
+		assertEquals(-1, schema.getSlot("pos"));
+		int pos = schema.getOrCreateSlot("pos", String.class);
+		int score = schema.getOrCreateSlot("score", Double.class);
+		assertEquals(0, pos);
+		assertEquals(1, score);
+		assertEquals(pos, schema.getOrCreateSlot("pos", Integer.class));
+		assertEquals(pos, schema.getSlot("pos"));
+		assertEquals("score", schema.getAnnotationType(score));
+		assertEquals(String.class, schema.getDataType(pos));
+		assertEquals(Double.class, schema.getDataType("score"));
+		assertTrue(schema.isDictionaryEncoded(pos));
+		assertFalse(schema.isDictionaryEncoded(score));
+		assertEquals(2, schema.size());
+	}
+
+	public void testAnnotationRoundTripByNameAndSlot(){
+		Dataset dataset = new Dataset("test", "review");
+		Span review = new Span("review", dataset);
+		Word word = new Word("good", 0, review, dataset);
+		word.putAnnotation("pos", "JJ");
+		word.putAnnotation("score", 0.5);
+		AnnotationSchema schema = dataset.getAnnotationSchema();
+		int pos = schema.getSlot("pos");
+		int score = schema.getSlot("score");
+		assertEquals("JJ", word.getAnnotation(pos, String.class));
+		assertEquals(0.5, word.getAnnotation(score, Double.class));
+		assertNull(word.putAnnotation(schema.getOrCreateSlot("lemma", String.class), "good"));
+		assertEquals("good", word.getAnnotation("lemma"));
+		assertEquals("JJ", word.putAnnotation(pos, "ADJ"));
+		assertEquals("ADJ", word.getAnnotation("pos"));
+		//the span gets the same slots, without values for the other annotation types
+		review.putAnnotation("score", 1.0);
+		assertFalse(review.hasAnnotation(pos));
+		assertEquals(1.0, review.getAnnotation(score, Double.class));
+		//storing null removes the annotation
+		word.putAnnotation(score, null);
+		assertFalse(word.hasAnnotation("score"));
+		assertEquals(2, word.getAnnotationTypes().size());
+		assertTrue(word.getAnnotationTypes().contains("lemma"));
+		assertEquals("{pos=ADJ, lemma=good}", word.showAnnotations());
+	}
+
+	public void testWrongDataType(){
+		Dataset dataset = new Dataset("test", "review");
+		Span review = new Span("review", dataset);
+		review.putAnnotation("score", 0.5);
+		try {
+			review.putAnnotation("score", "high");
+			fail("The score annotation holds Doubles");
+		} catch (ClassCastException e){
+			//expected
+		}
+		try {
+			review.getAnnotation(dataset.getAnnotationSchema().getSlot("score"), String.class);
+			fail("The score annotation holds Doubles");
+		} catch (ClassCastException e){
+			//expected
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package edu.eur.absa.model;
+
+import junit.framework.TestCase;
+
+public class DataEntityTest extends TestCase {
+
+	private Dataset dataset;
+	private Span text;
+	private Word word;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "text");
+		text = new Span("text", dataset);
+		word = new Word("dogs", 0, text, dataset);
+		//"lemma" is dictionary encoded, "comment" is a plain String annotation
+		word.putAnnotation("lemma", "dog");
+		word.putAnnotation("comment", "dog");
+		word.putAnnotation("count", 3);
+	}
+
+	public void testAnnotationEqualsWithCode(){
+		StringDictionary dictionary = dataset.getStringDictionary();
+		int dog = dictionary.lookupCode("dog");
+		int cat = dictionary.getCode("cat");
+		assertTrue(dog >= 0);
+		assertTrue(word.annotationEquals("lemma", dog));
+		assertFalse(word.annotationEquals("lemma", cat));
+		//a value that is not dictionary encoded is compared with the String for the code
+		assertTrue(word.annotationEquals("comment", dog));
+		assertFalse(word.annotationEquals("comment", cat));
+		assertFalse(word.annotationEquals("missing", dog));
+		assertFalse(word.annotationEquals("lemma", -1));
+	}
+
+	public void testAnnotationEqualsWithCodeAndValueAgree(){
+		StringDictionary dictionary = dataset.getStringDictionary();
+		for (String value : new String[]{"dog", "cat", "dogs"}){
+			int code = dictionary.getCode(value);
+			for (String annotationType : new String[]{"lemma", "comment", "missing"}){
+				assertEquals(word.annotationEquals(annotationType, value), word.annotationEquals(annotationType, code));
+			}
+		}
+	}
+
+	public void testAnnotationEqualsWithCodeOnDerivedAnnotation(){
+		dataset.addDerivedAnnotation("shout", String.class, entity -> entity.getAnnotation("lemma", String.class).toUpperCase());
+		int code = dataset.getStringDictionary().getCode("DOG");
+		assertTrue(word.annotationEquals("shout", code));
+		assertTrue(word.annotationEquals("shout", "DOG"));
+	}
+
+	public void testIntegerValuesAreNotCodes(){
+		assertTrue(word.annotationEquals("count", Integer.valueOf(3)));
+		assertFalse(word.annotationEquals("count", dataset.getStringDictionary().getCode("3")));
+	}
+
+	public void testQueryResolvesValuesToCodes(){
+		Word cats = new Word("cats", 5, word);
+		cats.putAnnotation("lemma", "cat");
+		cats.putAnnotation("comment", "dog");
+		assertEquals(1, dataset.query().where("lemma", "dog").count());
+		assertSame(word, dataset.query().where("lemma", "dog").getEntities().first());
+		assertEquals(2, dataset.query().where("comment", "dog").count());
+		assertEquals(1, dataset.query().where("comment", "dog").where("lemma", "cat").count());
+		//values that are not in the dictionary, or are no Strings, are compared as they are
+		assertEquals(0, dataset.query().where("lemma", "horse").count());
+		assertEquals(1, dataset.query().where("count", 3).count());
+		assertEquals(1, dataset.getAnnotatedEntities("lemma", "cat").size());
+	}
+}
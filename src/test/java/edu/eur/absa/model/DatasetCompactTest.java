@@ -0,0 +1,40 @@
+package edu.eur.absa.model;
+
+import junit.framework.TestCase;
+
+public class DatasetCompactTest extends TestCase {
+
+	public void testCompact(){
+		Dataset dataset = TestDatasets.reviews("test", 3);
+		int currentId = dataset.getCurrentId();
+		dataset.compact(new RetentionPolicy().keepSpanTypes("aspect").keepRelationTypes("deps").keepAnnotations("pos", "relationShortName"));
+		assertEquals(3, dataset.getSpans("review").size());
+		assertEquals(3, dataset.getSpans("aspect").size());
+		assertEquals(3 * (TestDatasets.WORDS_PER_REVIEW - 1), dataset.getRelations("deps").size());
+		assertEquals(currentId, dataset.getCurrentId());
+		Span review = dataset.getSpans("review").first();
+		assertEquals("NN", review.first().getPOS());
+		assertNull(review.first().getLemma());
+		assertNull(dataset.getSpans("aspect").first().getAnnotation("polarity"));
+		assertEquals("dep", dataset.getRelations("deps").first().getAnnotation("relationShortName"));
+		assertEquals(2, review.getDependencyGraph().neighborhood(review.first(), 1).size());
+	}
+
+	public void testDroppedSpanTypes(){
+		Dataset dataset = TestDatasets.reviews("test", 2);
+		dataset.compact(new RetentionPolicy().keepSpanTypes("sentence"));
+		assertTrue(dataset.getSpans("aspect") == null || dataset.getSpans("aspect").isEmpty());
+		assertEquals(2, dataset.getSpans("review").size());
+		Span review = dataset.getSpans("review").first();
+		assertTrue(dataset.getSpans(review, "aspect").isEmpty());
+	}
+
+	public void testTextIsAlwaysKept() throws Exception{
+		Dataset dataset = TestDatasets.reviews("test", 2);
+		Span review = dataset.getSpans("review").last();
+		Span phrase = new Span("syntacticPhrase", review.getWordByOrder(2), review.getWordByOrder(4));
+		dataset.compact(new RetentionPolicy().keepSpanTypes("syntacticPhrase").keepAnnotations("lemma", "pos"));
+		assertEquals("w0 w1 w2 w3 w4 w5", review.getAnnotation("text"));
+		assertEquals("w2 w3 w4", phrase.getAnnotation("text"));
+	}
+}
@@ -0,0 +1,175 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class DatasetConcurrencyTest extends TestCase {
+
+	private static final int THREADS = 8;
+	private static final int UNITS_PER_THREAD = 25;
+	private static final int WORDS_PER_UNIT = 30;
+	private static final int SPANS_PER_UNIT = 40;
+
+	private Dataset dataset;
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "text");
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@Override
+	protected void tearDown(){
+		executor.shutdownNow();
+	}
+
+	public void testParallelAddSpan() throws Exception{
+		dataset.setConcurrent(true);
+		List<Callable<List<DataEntity>>> tasks = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++){
+			final long seed = t;
+			tasks.add(() -> fillUnits(new Random(seed)));
+		}
+		List<DataEntity> created = new ArrayList<>();
+		for (List<DataEntity> entities : runAll(tasks)){
+			created.addAll(entities);
+		}
+		dataset.setConcurrent(false);
+		
+		//every entity got its own id, and can be found with it
+		HashSet<Integer> ids = new HashSet<>();
+		for (DataEntity entity : created){
+			assertTrue(ids.add(entity.getId()));
+			assertSame(entity, dataset.getAnnotatable(entity.getId()));
+		}
+		assertEquals(created.size(), dataset.getCurrentId());
+		
+		//the dataset-wide indexes have every Span exactly once, in id order
+		int units = THREADS * UNITS_PER_THREAD;
+		assertEquals(units, dataset.getSpans("text").size());
+		assertEquals(units * (1 + SPANS_PER_UNIT), dataset.getSpans().size());
+		int spansOfTypes = 0;
+		for (String spanType : new String[]{"text", "aspect", "sentence", "opinion"}){
+			NavigableSet<Span> spans = dataset.getSpans(spanType);
+			assertIdOrder(spans);
+			spansOfTypes += spans.size();
+		}
+		assertEquals(dataset.getSpans().size(), spansOfTypes);
+		assertIdOrder(dataset.getSpans());
+		
+		//the per-unit indexes agree with the dataset-wide ones
+		int spansInUnits = 0;
+		for (Span unit : dataset.getSpans("text")){
+			assertIdOrder(dataset.getSpans(unit));
+			for (Span span : dataset.getSpans(unit)){
+				assertSame(unit, span.getTextualUnit());
+				assertTrue(dataset.getSpans(span.getType()).contains(span));
+				assertTrue(dataset.getSpans(unit, span.getType()).contains(span));
+			}
+			spansInUnits += dataset.getSpans(unit).size();
+			checkAgainstScan(unit);
+		}
+		assertEquals(dataset.getSpans().size(), spansInUnits);
+	}
+
+	public void testParallelQueries() throws Exception{
+		dataset.setConcurrent(true);
+		fillUnits(new Random(3));
+		dataset.setConcurrent(false);
+		//none of the interval indexes have been built for this type yet, so the threads all build them at the same time
+		List<Callable<List<DataEntity>>> tasks = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++){
+			tasks.add(() -> {
+				for (Span unit : dataset.getSpans("text")){
+					checkAgainstScan(unit);
+				}
+				return new ArrayList<>();
+			});
+		}
+		runAll(tasks);
+	}
+
+	//create textual units with words and spans, querying the interval indexes of each unit while its spans are added
+	private List<DataEntity> fillUnits(Random random) throws IllegalSpanException{
+		String[] spanTypes = {"aspect", "sentence", "opinion"};
+		List<DataEntity> created = new ArrayList<>();
+		for (int u = 0; u < UNITS_PER_THREAD; u++){
+			Span unit = new Span("text", dataset);
+			created.add(unit);
+			Word previousWord = new Word("w0", 0, unit, dataset);
+			created.add(previousWord);
+			for (int i = 1; i < WORDS_PER_UNIT; i++){
+				previousWord = new Word("w"+i, 3 * i, previousWord);
+				created.add(previousWord);
+			}
+			for (int s = 0; s < SPANS_PER_UNIT; s++){
+				int first = random.nextInt(WORDS_PER_UNIT);
+				int last = Math.min(WORDS_PER_UNIT - 1, first + random.nextInt(5));
+				//"opinion" spans are never queried here, their indexes are left for testParallelQueries
+				String spanType = spanTypes[s % spanTypes.length];
+				created.add(new Span(spanType, unit.getWordByOrder(first), unit.getWordByOrder(last)));
+				if (!spanType.equals("opinion"))
+					dataset.getSpans(spanType, unit.getWordByOrder(random.nextInt(WORDS_PER_UNIT)));
+			}
+		}
+		return created;
+	}
+
+	private <T> List<T> runAll(List<Callable<T>> tasks) throws Exception{
+		List<Future<T>> futures = executor.invokeAll(tasks);
+		List<T> results = new ArrayList<>();
+		for (Future<T> future : futures){
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e){
+				if (e.getCause() instanceof Error)
+					throw (Error)e.getCause();
+				throw (Exception)e.getCause();
+			}
+		}
+		return results;
+	}
+
+	private static void assertIdOrder(NavigableSet<Span> spans){
+		int previousId = 0;
+		for (Span span : spans){
+			assertTrue(span.getId() > previousId);
+			previousId = span.getId();
+		}
+	}
+
+	//compare the interval index of a unit with a scan over its Spans
+	private void checkAgainstScan(Span unit){
+		for (Word word : unit.getWords()){
+			for (String spanType : new String[]{"aspect", "opinion", null}){
+				TreeSet<Span> containing = new TreeSet<>();
+				for (Span span : dataset.getSpans(unit)){
+					if (span.contains(word) && (spanType == null || spanType.equals(span.getType())))
+						containing.add(span);
+				}
+				assertEquals(containing, spanType == null ? dataset.getSpans(word) : dataset.getSpans(spanType, word));
+			}
+		}
+		for (Span sentence : dataset.getSpans(unit, "sentence")){
+			TreeSet<Span> covered = new TreeSet<>();
+			for (Span opinion : dataset.getSpans(unit, "opinion")){
+				if (opinion.first().getOrder() >= sentence.first().getOrder() && opinion.last().getOrder() <= sentence.last().getOrder())
+					covered.add(opinion);
+			}
+			assertEquals(covered, dataset.getCoveredSpans(sentence, "opinion"));
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package edu.eur.absa.model;
+
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+import org.openjdk.jol.vm.VirtualMachine;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the estimates of {@link DatasetMemoryReport} against the sizes that JOL measures on the running JVM.
+ * The footprint of an entity is measured as the difference between two <code>Dataset</code>s that only differ in those entities,
+ * so it includes the annotations, <code>Relations</code> and index entries that come with it.
+ *
+ */
+public class DatasetMemoryReportTest extends TestCase {
+
+	private static final int NR_OF_REVIEWS = 500;
+	//the estimate may be this much off from the measured footprint
+	private static final double TOLERANCE = 0.05;
+
+	//the report assumes 12 byte headers, 4 byte references, 8 byte alignment and compact Latin-1 Strings
+	private static boolean isReportedLayout(){
+		VirtualMachine vm = VM.current();
+		return vm.objectHeaderSize() == 12 && vm.sizeOfField("object") == 4 && vm.objectAlignment() == 8
+				&& vm.sizeOf(new byte[8]) == vm.sizeOf(new String("01234567").getBytes());
+	}
+
+	public void testShallowSizes(){
+		if (!isReportedLayout())
+			return;
+		DatasetMemoryReport report = new DatasetMemoryReport(new Dataset("test", "review"));
+		for (Class<?> type : new Class<?>[]{Word.class, Span.class, Relation.class, Relations.class, IdOrderedSet.class}){
+			assertEquals(type.getSimpleName(), ClassLayout.parseClass(type).instanceSize(), report.shallowSize(type));
+		}
+	}
+
+	public void testWordFootprint(){
+		if (!isReportedLayout())
+			return;
+		long[] small = measure(TestDatasets.reviews("test", NR_OF_REVIEWS, false, false));
+		long[] large = measure(TestDatasets.reviews("test", 2 * NR_OF_REVIEWS, false, false));
+		//every review adds its Words and the review Span itself
+		assertClose("Word", large[1] - small[1], large[0] - small[0], NR_OF_REVIEWS * TestDatasets.WORDS_PER_REVIEW);
+	}
+
+	public void testSpanFootprint(){
+		if (!isReportedLayout())
+			return;
+		long[] without = measure(TestDatasets.reviews("test", NR_OF_REVIEWS, false, false));
+		long[] with = measure(TestDatasets.reviews("test", NR_OF_REVIEWS, false, true));
+		assertClose("Span", with[1] - without[1], with[0] - without[0], NR_OF_REVIEWS);
+	}
+
+	public void testRelationFootprint(){
+		if (!isReportedLayout())
+			return;
+		long[] without = measure(TestDatasets.reviews("test", NR_OF_REVIEWS, false, false));
+		long[] with = measure(TestDatasets.reviews("test", NR_OF_REVIEWS, true, false));
+		assertClose("Relation", with[1] - without[1], with[0] - without[0], NR_OF_REVIEWS * (TestDatasets.WORDS_PER_REVIEW - 1));
+	}
+
+	public void testBreakdownAddsUp(){
+		Dataset dataset = TestDatasets.reviews("test", 10);
+		DatasetMemoryReport report = dataset.createMemoryReport();
+		assertEquals(Long.valueOf(10 * TestDatasets.WORDS_PER_REVIEW), report.getCountByEntityClass().get("Word"));
+		assertEquals(Long.valueOf(10), report.getCountBySpanType().get("aspect"));
+		long total = 0;
+		for (long bytes : report.getBytesByEntityClass().values()){
+			total += bytes;
+		}
+		for (long bytes : report.getBytesByIndex().values()){
+			total += bytes;
+		}
+		assertEquals(total, report.getTotalBytes());
+	}
+
+	//the estimated and the measured bytes of a Dataset, measured first, since the report creates views on some maps
+	private static long[] measure(Dataset dataset){
+		long measured = GraphLayout.parseInstance(dataset).totalSize();
+		long estimated = new DatasetMemoryReport(dataset).getTotalBytes();
+		return new long[]{measured, estimated};
+	}
+
+	private static void assertClose(String entityClass, long estimated, long measured, int count){
+		double error = Math.abs(estimated - measured) / (double) measured;
+		assertTrue(entityClass+": estimated "+(estimated / count)+" bytes each, measured "+(measured / count)+" bytes each", error <= TOLERANCE);
+	}
+}
@@ -0,0 +1,169 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class DatasetMergeTest extends TestCase {
+
+	public void testIdsAfterMerge() throws Exception{
+		Dataset dataset = new Dataset("train", "review");
+		Dataset moreData = new Dataset("test", "review");
+		addReview(dataset, 10, false);
+		//more than a page of the registry, so several pages are taken over
+		addReview(moreData, 5000, false);
+		addReview(moreData, 20, false);
+		int lastId = dataset.getCurrentId();
+		List<DataEntity> moved = entities(moreData);
+		
+		dataset.mergeDataset(moreData);
+		int previousId = lastId;
+		for (DataEntity entity : moved){
+			//same relative order, after the entities that were already there
+			assertTrue(entity.getId() > previousId);
+			previousId = entity.getId();
+			assertSame(entity, dataset.getAnnotatable(entity.getId()));
+			assertSame(dataset, entity.getDataset());
+		}
+		assertEquals(lastId + moved.size(), entities(dataset).size());
+		assertTrue(dataset.getCurrentId() >= previousId);
+		//new entities get ids after the merged ones
+		Span review = addReview(dataset, 3, false);
+		assertTrue(review.getId() > previousId);
+		assertSame(review, dataset.getAnnotatable(review.getId()));
+		
+		assertEquals(0, moreData.getCurrentId());
+		assertTrue(moreData.getSpans().isEmpty());
+	}
+
+	public void testIndexesAfterMerge() throws Exception{
+		Dataset dataset = new Dataset("train", "review");
+		Dataset moreData = new Dataset("test", "review");
+		Span review1 = addReview(dataset, 6, true);
+		Span review2 = addReview(moreData, 6, true);
+		Span review3 = addReview(moreData, 8, true);
+		//build an interval index before the merge
+		assertEquals(1, moreData.getSpans("aspect", review2.getWordByOrder(1)).size());
+		
+		dataset.mergeDataset(moreData);
+		assertEquals(list(review1, review2, review3), new ArrayList<>(dataset.getSpans("review")));
+		ArrayList<Span> aspects = new ArrayList<>(dataset.getSpans("aspect"));
+		assertEquals(3, aspects.size());
+		assertSame(review1, aspects.get(0).getTextualUnit());
+		assertSame(review3, aspects.get(2).getTextualUnit());
+		assertEquals(2, dataset.getSpans(review3).size());
+		assertEquals(1, dataset.getSpans(review2, "aspect").size());
+		assertEquals(1, dataset.getSpans("aspect", review2.getWordByOrder(1)).size());
+		assertEquals(1, dataset.getCoveredSpans(review3, "aspect").size());
+		assertEquals(5 + 5 + 7, dataset.getRelations("deps").size());
+		assertEquals(dataset.getSpans().size(), dataset.getSpans("review").size() + dataset.getSpans("aspect").size());
+	}
+
+	public void testAnnotationsAfterMerge() throws Exception{
+		Dataset dataset = new Dataset("train", "review");
+		Dataset moreData = new Dataset("test", "review");
+		//the annotation types are first used in another order, so they have other slots in both Datasets
+		dataset.getAnnotationSchema().getOrCreateSlot("polarity", String.class);
+		Span review1 = addReview(dataset, 6, true);
+		Span review2 = addReview(moreData, 6, true);
+		assertFalse(dataset.getAnnotationSchema().getSlot("pos") == moreData.getAnnotationSchema().getSlot("pos"));
+		Word word = review2.getWordByOrder(0);
+		Span aspect = moreData.getSpans(review2, "aspect").first();
+		
+		dataset.mergeDataset(moreData);
+		assertEquals("NN", word.getAnnotation("pos", String.class));
+		assertEquals("l0", word.getAnnotation("lemma", String.class));
+		assertEquals("positive", aspect.getAnnotation("polarity", String.class));
+		assertEquals(review1.getAnnotation("text", String.class), review2.getAnnotation("text", String.class));
+		//dictionary encoded values are the instances of the dictionary of this Dataset
+		assertSame(review1.getWordByOrder(0).getAnnotation("pos", String.class), word.getAnnotation("pos", String.class));
+		assertTrue(word.annotationEquals("pos", "NN"));
+		assertEquals(2, dataset.query().where("pos", "NN").count());
+	}
+
+	public void testAnnotationIndexesAfterMerge() throws Exception{
+		Dataset dataset = new Dataset("train", "review");
+		Dataset moreData = new Dataset("test", "review");
+		dataset.addAnnotationIndex("pos").addAnnotationIndex("polarity");
+		//moreData has only one of the indexes, the other one is filled during the merge
+		moreData.addAnnotationIndex("pos");
+		addReview(dataset, 6, true);
+		Span review2 = addReview(moreData, 6, true);
+		Span aspect2 = moreData.getSpans(review2, "aspect").first();
+		aspect2.putAnnotation("polarity", "negative");
+		
+		dataset.mergeDataset(moreData);
+		assertEquals(2, dataset.getAnnotatedEntities("pos", "NN").size());
+		assertEquals(10, dataset.getAnnotatedEntities("pos", "VB").size());
+		assertSame(review2.getWordByOrder(0), dataset.getAnnotatedEntities("pos", "NN").last());
+		assertEquals(1, dataset.getAnnotatedEntities("polarity", "positive").size());
+		assertSame(aspect2, dataset.getAnnotatedEntities("polarity", "negative").first());
+		//the merged indexes are still kept up to date
+		aspect2.putAnnotation("polarity", "positive");
+		assertEquals(2, dataset.getAnnotatedEntities("polarity", "positive").size());
+		assertTrue(dataset.getAnnotatedEntities("polarity", "negative").isEmpty());
+	}
+
+	public void testIncompatibleDatasets(){
+		Dataset dataset = new Dataset("train", "review");
+		Dataset moreData = new Dataset("test", "review");
+		addReview(dataset, 3, true);
+		addReview(moreData, 3, true);
+		moreData.getSpans("review").first().putAnnotation("rating", 4);
+		try {
+			dataset.mergeDataset(moreData);
+			fail("Datasets with different annotations cannot be merged");
+		} catch (Exception e){
+			//expected
+		}
+		assertEquals(1, dataset.getSpans("review").size());
+		assertEquals(1, moreData.getSpans("review").size());
+	}
+
+	//a review with a chain of dependencies between its words and an aspect over the second and third word
+	private static Span addReview(Dataset dataset, int nrOfWords, boolean withAnnotations){
+		Span review = new Span("review", dataset);
+		StringBuilder text = new StringBuilder();
+		Word previousWord = null;
+		for (int i = 0; i < nrOfWords; i++){
+			Word word = previousWord == null ? new Word("w"+i, 0, review, dataset) : new Word("w"+i, 3 * i, previousWord);
+			if (withAnnotations){
+				word.putAnnotation("pos", i == 0 ? "NN" : "VB");
+				word.putAnnotation("lemma", "l"+i);
+				if (previousWord != null)
+					new Relation("deps", previousWord, word).putAnnotation("relationShortName", "dep");
+			}
+			text.append(word.getWord()).append(' ');
+			previousWord = word;
+		}
+		if (withAnnotations){
+			review.putAnnotation("text", text.toString().trim());
+			try {
+				new Span("aspect", review.getWordByOrder(1), review.getWordByOrder(2)).putAnnotation("polarity", "positive");
+			} catch (IllegalSpanException e){
+				throw new IllegalStateException(e);
+			}
+		}
+		return review;
+	}
+
+	private static List<DataEntity> entities(Dataset dataset){
+		List<DataEntity> entities = new ArrayList<>();
+		Iterator<DataEntity> it = dataset.getDataEntityIterator();
+		while (it.hasNext()){
+			entities.add(it.next());
+		}
+		return entities;
+	}
+
+	private static List<Span> list(Span... spans){
+		List<Span> list = new ArrayList<>();
+		for (Span span : spans){
+			list.add(span);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,82 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class DatasetPartitionTest extends TestCase {
+
+	public void testPartitionAndReassemble() throws IllegalSpanException{
+		Dataset dataset = TestDatasets.reviews("test", 10);
+		int currentId = dataset.getCurrentId();
+		Span lastAspect = dataset.getSpans("aspect").last();
+		int lastAspectId = lastAspect.getId();
+		ArrayList<Dataset> shards = dataset.partition(3);
+		assertEquals(3, shards.size());
+		int reviews = 0;
+		for (Dataset shard : shards){
+			assertTrue(shard.isShard());
+			reviews += shard.getSpans("review").size();
+			for (Span aspect : shard.getSpans("aspect")){
+				assertSame(aspect, shard.getAnnotatable(aspect.getId()));
+				assertEquals(aspect.getId(), shard.getLocalId(shard.getGlobalId(aspect.getId())));
+			}
+		}
+		assertEquals(10, reviews);
+		assertNull(dataset.getAnnotatable(lastAspectId));
+		//a new entity in a shard gets a new id after reassembling
+		Dataset lastShard = shards.get(2);
+		Span review = lastShard.getSpans("review").last();
+		Span newSpan = new Span("phrase", review.first(), review.first());
+		Dataset reassembled = Dataset.reassemble(shards);
+		assertSame(dataset, reassembled);
+		assertFalse(dataset.isShard());
+		assertEquals(10, dataset.getSpans("review").size());
+		assertEquals(lastAspectId, lastAspect.getId());
+		assertSame(lastAspect, dataset.getAnnotatable(lastAspectId));
+		assertEquals(currentId + 1, newSpan.getId());
+		assertEquals("positive", lastAspect.getAnnotation("polarity"));
+		assertSame(newSpan, dataset.getAnnotatable(currentId + 1));
+	}
+
+	public void testPartitionWithoutTextualUnits(){
+		Dataset dataset = new Dataset("test", "review");
+		try {
+			dataset.partition(2);
+			fail("A Dataset without textual units cannot be partitioned");
+		} catch (IllegalStateException e){
+			//expected
+		}
+		//the Dataset can still be used
+		TestDatasets.addReview(dataset);
+		assertEquals(1, dataset.getSpans("review").size());
+	}
+
+	public void testShardCannotBeCompacted(){
+		Dataset dataset = TestDatasets.reviews("test", 4);
+		ArrayList<Dataset> shards = dataset.partition(2);
+		try {
+			shards.get(0).compact(new RetentionPolicy().keepAnnotations("pos"));
+			fail("A shard shares its AnnotationSchema with the Dataset");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		Dataset.reassemble(shards);
+		assertEquals("l1", dataset.getSpans("aspect").first().first().getLemma());
+	}
+
+	public void testReassembleNeedsAllShards(){
+		Dataset dataset = TestDatasets.reviews("test", 4);
+		ArrayList<Dataset> shards = dataset.partition(2);
+		try {
+			Dataset.reassemble(Collections.singletonList(shards.get(0)));
+			fail("All shards are needed");
+		} catch (IllegalArgumentException e){
+			//expected
+		}
+		Dataset.reassemble(shards);
+		assertEquals(4, dataset.getSpans("review").size());
+	}
+}
@@ -0,0 +1,169 @@
+package edu.eur.absa.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class DatasetQueryTest extends TestCase {
+
+	private static final String[] CATEGORIES = {"FOOD#QUALITY", "SERVICE#GENERAL", "AMBIENCE#GENERAL"};
+	private static final String[] POLARITIES = {"positive", "negative", "neutral"};
+	private static final int WORDS = 20;
+
+	private Dataset dataset;
+
+	@Override
+	protected void setUp() throws IllegalSpanException{
+		dataset = new Dataset("test", "review");
+		Random random = new Random(21);
+		for (int r = 0; r < 15; r++){
+			Span review = new Span("review", dataset);
+			Word previousWord = new Word("w0", 0, review, dataset);
+			previousWord.putAnnotation("pos", "NN");
+			for (int i = 1; i < WORDS; i++){
+				Word word = new Word("w"+i, 3 * i, previousWord);
+				word.putAnnotation("pos", i % 3 == 0 ? "NN" : "JJ");
+				new Relation("deps", previousWord, word).putAnnotation("relationShortName", i % 2 == 0 ? "amod" : "nsubj");
+				previousWord = word;
+			}
+			span(review, "sentence", 0, 9);
+			span(review, "sentence", 10, 19);
+			for (int i = 0; i < 8; i++){
+				int first = random.nextInt(WORDS);
+				Span opinion = span(review, "opinion", first, Math.min(WORDS - 1, first + random.nextInt(3)));
+				opinion.putAnnotation("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+				if (random.nextBoolean())
+					opinion.putAnnotation("polarity", POLARITIES[random.nextInt(POLARITIES.length)]);
+			}
+		}
+	}
+
+	public void testAnnotationIndexAgainstScan(){
+		//the same lookups without and with an index
+		TreeSet<DataEntity> food = new TreeSet<>(dataset.getAnnotatedEntities("category", "FOOD#QUALITY"));
+		TreeSet<DataEntity> nouns = new TreeSet<>(dataset.getAnnotatedEntities("pos", "NN"));
+		assertFalse(food.isEmpty());
+		assertFalse(nouns.isEmpty());
+		assertNull(dataset.getAnnotationValues("category"));
+		dataset.addAnnotationIndex("category").addAnnotationIndex("pos");
+		assertTrue(dataset.hasAnnotationIndex("category"));
+		assertFalse(dataset.hasAnnotationIndex("polarity"));
+		assertEquals(food, dataset.getAnnotatedEntities("category", "FOOD#QUALITY"));
+		assertEquals(nouns, dataset.getAnnotatedEntities("pos", "NN"));
+		assertEquals(new HashSet<Object>(Arrays.asList(CATEGORIES)), dataset.getAnnotationValues("category"));
+		assertTrue(dataset.getAnnotatedEntities("category", "DRINKS#PRICES").isEmpty());
+		//ordered by id
+		int previousId = 0;
+		for (DataEntity entity : dataset.getAnnotatedEntities("pos", "NN")){
+			assertTrue(entity.getId() > previousId);
+			previousId = entity.getId();
+		}
+	}
+
+	public void testAnnotationIndexIsKeptUpToDate() throws IllegalSpanException{
+		dataset.addAnnotationIndex("category");
+		Span opinion = (Span)dataset.getAnnotatedEntities("category", "FOOD#QUALITY").first();
+		int food = dataset.getAnnotatedEntities("category", "FOOD#QUALITY").size();
+		int drinks = dataset.getAnnotatedEntities("category", "DRINKS#PRICES").size();
+		//changing a value moves the entity to the other value
+		opinion.putAnnotation("category", "DRINKS#PRICES");
+		assertEquals(food - 1, dataset.getAnnotatedEntities("category", "FOOD#QUALITY").size());
+		assertEquals(drinks + 1, dataset.getAnnotatedEntities("category", "DRINKS#PRICES").size());
+		assertTrue(dataset.getAnnotationValues("category").contains("DRINKS#PRICES"));
+		//new entities are added, removed entities are taken out
+		Span review = dataset.getSpans("review").first();
+		Span added = span(review, "opinion", 0, 0);
+		added.putAnnotation("category", "DRINKS#PRICES");
+		assertSame(added, dataset.getAnnotatedEntities("category", "DRINKS#PRICES").last());
+		dataset.removeAnnotatable(opinion);
+		assertFalse(dataset.getAnnotatedEntities("category", "DRINKS#PRICES").contains(opinion));
+		//the index is read-only
+		try {
+			dataset.getAnnotatedEntities("category", "DRINKS#PRICES").clear();
+			fail("The annotation index is read-only");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+	}
+
+	public void testCollectionValuesAreKeyedAsAWhole(){
+		dataset.addAnnotationIndex("labels");
+		Span review = dataset.getSpans("review").first();
+		HashSet<String> labels = new HashSet<>(Arrays.asList("a", "b"));
+		review.putAnnotation("labels", labels);
+		assertSame(review, dataset.getAnnotatedEntities("labels", new HashSet<>(Arrays.asList("b", "a"))).first());
+		assertTrue(dataset.getAnnotatedEntities("labels", "a").isEmpty());
+	}
+
+	public void testQueriesAgainstScan(){
+		for (boolean indexed : new boolean[]{false, true}){
+			if (indexed)
+				dataset.addAnnotationIndex("category").addAnnotationIndex("polarity").addAnnotationIndex("pos");
+			Span review = dataset.getSpans("review").higher(dataset.getSpans("review").first());
+			Span sentence = dataset.getSpans(review, "sentence").last();
+			
+			assertEquals(scan("opinion", null, "category", "FOOD#QUALITY", null, null), 
+					dataset.query().spanType("opinion").where("category", "FOOD#QUALITY").getSpans());
+			assertEquals(scan("opinion", review, "category", "SERVICE#GENERAL", "polarity", "negative"), 
+					dataset.query().spanType("opinion").inTextualUnit(review).where("category", "SERVICE#GENERAL")
+					.where("polarity", "negative").getSpans());
+			assertEquals(scan("opinion", review, "category", "AMBIENCE#GENERAL", null, null).size(), 
+					dataset.query().spanType("opinion").inTextualUnit(review).where("category", "AMBIENCE#GENERAL").count());
+			
+			TreeSet<Span> covered = new TreeSet<>();
+			for (Span opinion : scan("opinion", review, "polarity", "positive", null, null)){
+				if (sentence.contains(opinion.first()) && sentence.contains(opinion.last()))
+					covered.add(opinion);
+			}
+			assertEquals(covered, dataset.query().spanType("opinion").coveredBy(sentence).where("polarity", "positive").getSpans());
+			
+			TreeSet<DataEntity> nouns = new TreeSet<>();
+			for (Word word : review){
+				if ("NN".equals(word.getAnnotation("pos")))
+					nouns.add(word);
+			}
+			assertEquals(nouns, dataset.query().entityClass(Word.class).inTextualUnit(review).where("pos", "NN").getEntities());
+			
+			int amod = 0;
+			for (Relation rel : dataset.getRelations("deps")){
+				if ("amod".equals(rel.getAnnotation("relationShortName")))
+					amod++;
+			}
+			assertEquals(amod, dataset.query().relationType("deps").where("relationShortName", "amod").getRelations().size());
+			assertEquals(dataset.getSpans("sentence").size(), dataset.query().spanType("sentence").count());
+			assertEquals(0, dataset.query().spanType("opinion").where("category", "DRINKS#PRICES").count());
+		}
+	}
+
+	public void testQueryOnFrozenDataset(){
+		dataset.addAnnotationIndex("category");
+		int before = dataset.query().spanType("opinion").where("category", "FOOD#QUALITY").count();
+		dataset.freeze();
+		assertEquals(before, dataset.query().spanType("opinion").where("category", "FOOD#QUALITY").count());
+		assertEquals(before, dataset.getAnnotatedEntities("category", "FOOD#QUALITY").size());
+	}
+
+	//all Spans of the given type (and textual unit) that have both annotations, by looking at every entity
+	private TreeSet<Span> scan(String spanType, Span textualUnit, String type1, Object value1, String type2, Object value2){
+		TreeSet<Span> result = new TreeSet<>();
+		Iterator<DataEntity> it = dataset.getDataEntityIterator();
+		while (it.hasNext()){
+			DataEntity entity = it.next();
+			if (entity instanceof Span && ((Span)entity).getType().equals(spanType)
+					&& (textualUnit == null || entity.getTextualUnit() == textualUnit)
+					&& value1.equals(entity.getAnnotation(type1))
+					&& (type2 == null || value2.equals(entity.getAnnotation(type2))))
+				result.add((Span)entity);
+		}
+		return result;
+	}
+
+	private static Span span(Span review, String spanType, int first, int last) throws IllegalSpanException{
+		return new Span(spanType, review.getWordByOrder(first), review.getWordByOrder(last));
+	}
+}
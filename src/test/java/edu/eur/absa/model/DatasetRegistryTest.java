@@ -0,0 +1,117 @@
+package edu.eur.absa.model;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+public class DatasetRegistryTest extends TestCase {
+
+	//ids per page of the registry in Dataset
+	private static final int PAGE_SIZE = 4096;
+
+	private Dataset dataset;
+	private Span text;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "text");
+		text = new Span("text", dataset);
+	}
+
+	public void testLookupAcrossPages(){
+		Word[] words = addWords(2 * PAGE_SIZE + 10);
+		assertTrue(dataset.getCurrentId() > 2 * PAGE_SIZE);
+		for (Word word : words){
+			assertSame(word, dataset.getAnnotatable(word.getId()));
+		}
+		for (int id : new int[]{PAGE_SIZE - 1, PAGE_SIZE, PAGE_SIZE + 1, 2 * PAGE_SIZE - 1, 2 * PAGE_SIZE}){
+			DataEntity entity = dataset.getAnnotatable(id);
+			assertNotNull(entity);
+			assertEquals(id, entity.getId());
+		}
+		//the entities on both sides of a page boundary are still linked up
+		Word last = (Word)dataset.getAnnotatable(PAGE_SIZE - 1);
+		assertSame(dataset.getAnnotatable(PAGE_SIZE), last.getNextWord());
+	}
+
+	public void testIdsOutsideTheRegistry(){
+		addWords(PAGE_SIZE + 1);
+		assertNull(dataset.getAnnotatable(-1));
+		assertNull(dataset.getAnnotatable(0));
+		assertNull(dataset.getAnnotatable(dataset.getCurrentId() + 1));
+		//on a page that does not exist yet, and far beyond the page table
+		assertNull(dataset.getAnnotatable(3 * PAGE_SIZE));
+		assertNull(dataset.getAnnotatable(1000 * PAGE_SIZE));
+	}
+
+	public void testIteratorAcrossPages(){
+		addWords(3 * PAGE_SIZE);
+		int count = 0;
+		int previousId = 0;
+		Iterator<DataEntity> it = dataset.getDataEntityIterator();
+		while (it.hasNext()){
+			DataEntity entity = it.next();
+			assertTrue(entity.getId() > previousId);
+			previousId = entity.getId();
+			count++;
+		}
+		assertEquals(dataset.getCurrentId(), count);
+		assertEquals(dataset.getCurrentId(), previousId);
+	}
+
+	public void testRemoveAtPageBoundaries(){
+		addWords(2 * PAGE_SIZE + 10);
+		int[] removedIds = {PAGE_SIZE - 1, PAGE_SIZE, 2 * PAGE_SIZE - 1, 2 * PAGE_SIZE};
+		for (int id : removedIds){
+			dataset.removeAnnotatable(dataset.getAnnotatable(id));
+		}
+		for (int id : removedIds){
+			assertNull(dataset.getAnnotatable(id));
+		}
+		assertNotNull(dataset.getAnnotatable(PAGE_SIZE - 2));
+		assertNotNull(dataset.getAnnotatable(PAGE_SIZE + 1));
+		assertNotNull(dataset.getAnnotatable(2 * PAGE_SIZE + 1));
+		
+		int count = 0;
+		Iterator<DataEntity> it = dataset.getDataEntityIterator();
+		while (it.hasNext()){
+			int id = it.next().getId();
+			for (int removedId : removedIds){
+				assertTrue(id != removedId);
+			}
+			count++;
+		}
+		assertEquals(dataset.getCurrentId() - removedIds.length, count);
+	}
+
+	public void testBlockOfIdsAcrossPageBoundary(){
+		//fill up the first page up to a few ids before its end, so the block of the builder crosses into the next page
+		addWords(PAGE_SIZE - 6);
+		Span unit = new Span("text", dataset);
+		TextualUnitBuilder builder = new TextualUnitBuilder(unit);
+		for (int i = 0; i < 20; i++){
+			builder.addWord("b"+i, 3 * i);
+		}
+		Word[] words = builder.build();
+		assertTrue(words[0].getId() < PAGE_SIZE);
+		assertTrue(words[words.length-1].getId() > PAGE_SIZE);
+		for (Word word : words){
+			assertSame(word, dataset.getAnnotatable(word.getId()));
+		}
+		//ids handed out one at a time continue after the block
+		Word next = new Word("next", 60, words[words.length-1]);
+		assertEquals(words[words.length-1].getId() + 1, next.getId());
+		assertSame(next, dataset.getAnnotatable(next.getId()));
+	}
+
+	//add Words to the textual unit until the ids of the Dataset have reached the given number
+	private Word[] addWords(int lastId){
+		Word[] words = new Word[lastId - dataset.getCurrentId()];
+		Word previousWord = text.isEmpty() ? null : text.last();
+		for (int i = 0; i < words.length; i++){
+			previousWord = previousWord == null ? new Word("w"+i, 0, text, dataset) : new Word("w"+i, 3 * i, previousWord);
+			words[i] = previousWord;
+		}
+		return words;
+	}
+}
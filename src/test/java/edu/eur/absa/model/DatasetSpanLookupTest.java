@@ -0,0 +1,118 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class DatasetSpanLookupTest extends TestCase {
+
+	private Dataset dataset;
+	private Span firstUnit;
+	private Span secondUnit;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "review");
+		firstUnit = unit(8);
+		secondUnit = unit(5);
+	}
+
+	public void testSpansByTextualUnitAndType() throws IllegalSpanException{
+		Span sentence1 = span(firstUnit, "sentence", 0, 3);
+		Span aspect1 = span(firstUnit, "aspect", 1, 2);
+		Span sentence2 = span(firstUnit, "sentence", 4, 7);
+		Span aspect2 = span(secondUnit, "aspect", 0, 0);
+		Span aspect3 = span(firstUnit, "aspect", 5, 6);
+		
+		assertEquals(list(sentence1, sentence2), list(dataset.getSpans(firstUnit, "sentence")));
+		assertEquals(list(aspect1, aspect3), list(dataset.getSpans(firstUnit, "aspect")));
+		assertEquals(list(aspect2), list(dataset.getSpans(secondUnit, "aspect")));
+		assertEquals(list(firstUnit, sentence1, aspect1, sentence2, aspect3), list(dataset.getSpans(firstUnit)));
+		assertEquals(list(secondUnit, aspect2), list(dataset.getSpans(secondUnit)));
+		//the textual unit is a Span of its own type in its own unit
+		assertEquals(list(firstUnit), list(dataset.getSpans(firstUnit, "review")));
+	}
+
+	public void testSpansByType() throws IllegalSpanException{
+		Span aspect1 = span(secondUnit, "aspect", 1, 3);
+		Span aspect2 = span(firstUnit, "aspect", 2, 2);
+		Span sentence = span(firstUnit, "sentence", 0, 7);
+		
+		//ordered by id, not by textual unit
+		assertEquals(list(aspect1, aspect2), list(dataset.getSpans("aspect")));
+		assertEquals(list(sentence), list(dataset.getSpans("sentence")));
+		assertEquals(list(firstUnit, secondUnit), list(dataset.getSpans("review")));
+		assertEquals(list(firstUnit, secondUnit, aspect1, aspect2, sentence), list(dataset.getSpans()));
+	}
+
+	public void testMissingTypes() throws IllegalSpanException{
+		span(firstUnit, "aspect", 0, 1);
+		assertNull(dataset.getSpans("opinion"));
+		assertTrue(dataset.getSpans(firstUnit, "opinion").isEmpty());
+		assertTrue(dataset.getSpans(secondUnit, "aspect").isEmpty());
+	}
+
+	public void testViewsShowLaterSpans() throws IllegalSpanException{
+		NavigableSet<Span> byUnitAndType = dataset.getSpans(firstUnit, "aspect");
+		Span aspect1 = span(firstUnit, "aspect", 0, 1);
+		//the first Span of a type in a unit creates the set, after that the same set is returned and kept up to date
+		byUnitAndType = dataset.getSpans(firstUnit, "aspect");
+		NavigableSet<Span> byType = dataset.getSpans("aspect");
+		NavigableSet<Span> byUnit = dataset.getSpans(firstUnit);
+		Span aspect2 = span(firstUnit, "aspect", 3, 4);
+		span(secondUnit, "aspect", 0, 1);
+		
+		assertSame(byUnitAndType, dataset.getSpans(firstUnit, "aspect"));
+		assertEquals(list(aspect1, aspect2), list(byUnitAndType));
+		assertEquals(3, byType.size());
+		assertTrue(byUnit.contains(aspect2));
+		assertEquals(list(aspect2), list(byUnitAndType.tailSet(aspect1, false)));
+	}
+
+	public void testReadOnly() throws IllegalSpanException{
+		Span aspect = span(firstUnit, "aspect", 0, 1);
+		try {
+			dataset.getSpans(firstUnit, "aspect").add(span(firstUnit, "sentence", 0, 1));
+			fail("The span index should be read-only");
+		} catch (UnsupportedOperationException e){
+		}
+		try {
+			dataset.getSpans("aspect").remove(aspect);
+			fail("The span index should be read-only");
+		} catch (UnsupportedOperationException e){
+		}
+		try {
+			dataset.getSpans(firstUnit).clear();
+			fail("The span index should be read-only");
+		} catch (UnsupportedOperationException e){
+		}
+		assertEquals(list(aspect), list(dataset.getSpans(firstUnit, "aspect")));
+	}
+
+	private Span unit(int nrOfWords){
+		Span unit = new Span("review", dataset);
+		Word previousWord = new Word("w0", 0, unit, dataset);
+		for (int i = 1; i < nrOfWords; i++){
+			previousWord = new Word("w"+i, 3 * i, previousWord);
+		}
+		return unit;
+	}
+
+	private static Span span(Span unit, String spanType, int first, int last) throws IllegalSpanException{
+		return new Span(spanType, unit.getWordByOrder(first), unit.getWordByOrder(last));
+	}
+
+	private static List<Span> list(Span... spans){
+		List<Span> list = new ArrayList<>();
+		Collections.addAll(list, spans);
+		return list;
+	}
+
+	private static List<Span> list(NavigableSet<Span> spans){
+		return new ArrayList<>(spans);
+	}
+}
@@ -0,0 +1,191 @@
+package edu.eur.absa.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+public class DatasetSpillTest extends TestCase {
+
+	private File spillFile;
+
+	@Override
+	protected void setUp() throws IOException{
+		spillFile = File.createTempFile("spill", ".bin");
+	}
+
+	@Override
+	protected void tearDown(){
+		spillFile.delete();
+	}
+
+	public void testStreamingPassAndLoad() throws IOException{
+		Dataset dataset = TestDatasets.reviews("test", 50);
+		int currentId = dataset.getCurrentId();
+		dataset.spillToDisk(spillFile, dataset.createMemoryReport().getTotalBytes() / 10);
+		assertTrue(dataset.isSpilledToDisk());
+		assertTrue(spillFile.length() > 0);
+		int reviews = 0;
+		for (Span review : dataset.getSpans("review")){
+			assertEquals(TestDatasets.WORDS_PER_REVIEW, review.size());
+			assertEquals("w3", review.getWordByOrder(3).getWord());
+			assertEquals("VB", review.getWordByOrder(2).getPOS());
+			assertEquals(3, review.getDependencyGraph().neighborhood(review.first(), 2).size());
+			Span aspect = dataset.getSpans(review, "aspect").first();
+			assertEquals("positive", aspect.getAnnotation("polarity"));
+			assertEquals(1, dataset.getSpans("aspect", review.getWordByOrder(1)).size());
+			review.last().putAnnotation("seen", "yes");
+			reviews++;
+		}
+		assertEquals(50, reviews);
+		for (Span review : dataset.getSpans("review")){
+			assertEquals("yes", review.last().getAnnotation("seen"));
+		}
+		//the textual units that changed in the first pass have all been written now, and nothing changes anymore
+		long length = spillFile.length();
+		for (Span review : dataset.getSpans("review")){
+			assertEquals("yes", review.last().getAnnotation("seen"));
+		}
+		assertEquals(length, spillFile.length());
+		dataset.loadFromDisk();
+		assertFalse(dataset.isSpilledToDisk());
+		assertFalse(spillFile.exists());
+		assertEquals(50, dataset.getSpans("aspect").size());
+		assertEquals(50 * (TestDatasets.WORDS_PER_REVIEW - 1), dataset.getRelations("deps").size());
+		assertEquals(currentId, dataset.getCurrentId());
+		Iterator<DataEntity> entities = dataset.getDataEntityIterator();
+		int count = 0;
+		while (entities.hasNext()){
+			DataEntity entity = entities.next();
+			assertSame(entity, dataset.getAnnotatable(entity.getId()));
+			count++;
+		}
+		assertEquals(currentId, count);
+		dataset.freeze();
+	}
+
+	public void testDatasetWideViewsThrowWhileSpilled() throws IOException{
+		Dataset dataset = TestDatasets.reviews("test", 5);
+		dataset.addAnnotationIndex("polarity");
+		dataset.spillToDisk(spillFile, 1);
+		assertEquals(5, dataset.getSpans("review").size());
+		try {
+			dataset.getSpans("aspect");
+			fail("Only part of the aspects is in memory");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		try {
+			dataset.getSpans();
+			fail("Only part of the Spans is in memory");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		try {
+			dataset.getRelations("deps");
+			fail("Only part of the Relations is in memory");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		try {
+			dataset.getDataEntityIterator();
+			fail("Only part of the entities is in memory");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		try {
+			dataset.getAnnotatedEntities("polarity", "positive");
+			fail("The annotation index only covers the textual units in memory");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		//a query within a textual unit does not need the dataset-wide indexes
+		Span review = dataset.getSpans("review").last();
+		assertEquals(1, dataset.query().spanType("aspect").where("polarity", "positive").inTextualUnit(review).count());
+		dataset.loadFromDisk();
+		assertEquals(5, dataset.getAnnotatedEntities("polarity", "positive").size());
+	}
+
+	public void testLookupReadsTextualUnitBackIn() throws IOException{
+		Dataset dataset = TestDatasets.reviews("test", 10);
+		ArrayList<Integer> aspectIds = new ArrayList<>();
+		for (Span aspect : dataset.getSpans("aspect")){
+			aspectIds.add(aspect.getId());
+		}
+		SpanSubset aspects = new SpanSubset(dataset, dataset.getSpans("aspect"));
+		dataset.spillToDisk(spillFile, 1);
+		for (int id : aspectIds){
+			DataEntity aspect = dataset.getAnnotatable(id);
+			assertNotNull(aspect);
+			assertEquals("positive", aspect.getAnnotation("polarity"));
+		}
+		int count = 0;
+		for (Span aspect : aspects){
+			assertEquals("w1", aspect.first().getWord());
+			assertEquals("w2", aspect.last().getWord());
+			count++;
+		}
+		assertEquals(10, count);
+		assertNull(dataset.getAnnotatable(dataset.getCurrentId() + 1));
+		dataset.loadFromDisk();
+	}
+
+	public void testSpilledObjectsCannotBeUsed() throws IOException{
+		Dataset dataset = TestDatasets.reviews("test", 3);
+		Word word = dataset.getSpans("review").first().first();
+		Span aspect = dataset.getSpans("aspect").first();
+		dataset.spillToDisk(spillFile, 1);
+		try {
+			word.getAnnotation("pos");
+			fail("The Word has been written to the spill file");
+		} catch (IllegalStateException e){
+			//expected
+		}
+		try {
+			aspect.putAnnotation("polarity", "negative");
+			fail("The Span has been written to the spill file");
+		} catch (IllegalStateException e){
+			//expected
+		}
+		Word pagedIn = (Word) dataset.getAnnotatable(word.getId());
+		assertNotSame(word, pagedIn);
+		assertEquals("NN", pagedIn.getPOS());
+		dataset.loadFromDisk();
+		assertEquals("positive", dataset.getSpans("aspect").first().getAnnotation("polarity"));
+	}
+
+	public void testKeepInMemory() throws IOException{
+		Dataset dataset = TestDatasets.reviews("test", 4);
+		dataset.spillToDisk(spillFile, 1);
+		Span first = dataset.getSpans("review").first();
+		Span last = dataset.getSpans("review").last();
+		//with a budget of one byte, reading in another textual unit writes out the one that is being iterated
+		Iterator<Word> words = first.iterator();
+		words.next();
+		last.first();
+		try {
+			words.next();
+			fail("The textual unit has been written to the spill file");
+		} catch (IllegalStateException e){
+			//expected
+		}
+		dataset.keepInMemory(first);
+		Word word = first.first();
+		for (Span review : dataset.getSpans("review")){
+			assertEquals(TestDatasets.WORDS_PER_REVIEW, review.size());
+		}
+		assertEquals("NN", word.getPOS());
+		assertSame(word, first.first());
+		dataset.releaseFromMemory(first);
+		last.first();
+		try {
+			word.getPOS();
+			fail("The textual unit has been released");
+		} catch (IllegalStateException e){
+			//expected
+		}
+		dataset.loadFromDisk();
+	}
+}
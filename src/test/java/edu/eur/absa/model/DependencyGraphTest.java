@@ -0,0 +1,143 @@
+package edu.eur.absa.model;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+public class DependencyGraphTest extends TestCase {
+
+	private static final int WORDS = 30;
+
+	private Dataset dataset;
+	private Span text;
+	private Word[] words;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "text");
+		text = new Span("text", dataset);
+		words = new Word[WORDS];
+		words[0] = new Word("w0", 0, text, dataset);
+		for (int i = 1; i < WORDS; i++){
+			words[i] = new Word("w"+i, 3 * i, words[i-1]);
+		}
+	}
+
+	public void testNeighborhoodAgainstRecursiveWindow(){
+		Random random = new Random(5);
+		addRandomForest(random);
+		DependencyGraph graph = text.getDependencyGraph();
+		for (int i = 0; i < 200; i++){
+			TreeSet<Word> span = new TreeSet<>();
+			int first = random.nextInt(WORDS);
+			span.addAll(Arrays.asList(words).subList(first, Math.min(WORDS, first + 1 + random.nextInt(3))));
+			int distance = random.nextInt(4);
+			//a window of distance d in the ontology algorithms is d+1 dependency relations
+			assertEquals(depWindow(span, distance), graph.neighborhood(span, distance + 1));
+			if (span.size() == 1)
+				assertEquals(depWindow(span, distance), graph.neighborhood(span.first(), distance + 1));
+		}
+		assertEquals(set(words[7]), graph.neighborhood(words[7], 0));
+	}
+
+	public void testDistanceAgainstRecursiveWindow(){
+		Random random = new Random(9);
+		addRandomForest(random);
+		DependencyGraph graph = text.getDependencyGraph();
+		for (int i = 0; i < 100; i++){
+			TreeSet<Word> others = set(words[random.nextInt(WORDS)], words[random.nextInt(WORDS)]);
+			Word word = words[random.nextInt(WORDS)];
+			assertEquals(distanceByWindow(word, others), graph.distance(word, others));
+		}
+		assertEquals(0, graph.distance(words[3], set(words[3], words[20])));
+	}
+
+	public void testChainAndUnreachableWords(){
+		//w0 - w1 - ... - w9 as a chain, the rest of the Words have no dependencies
+		for (int i = 1; i < 10; i++){
+			dep(words[i-1], words[i], "dep");
+		}
+		DependencyGraph graph = text.getDependencyGraph();
+		assertEquals(set(words[3], words[4], words[5], words[6], words[7]), graph.neighborhood(words[5], 2));
+		assertEquals(9, graph.distance(words[9], set(words[0])));
+		assertEquals(-1, graph.distance(words[15], set(words[0])));
+		assertEquals(set(words[15]), graph.neighborhood(words[15], 3));
+	}
+
+	public void testRelationsOutsideTheUnitAreLeftOut(){
+		Span otherText = new Span("text", dataset);
+		Word otherWord = new Word("x", 0, otherText, dataset);
+		dep(words[1], words[2], "amod");
+		new Relation("deps", text, words[1]).putAnnotation("relationShortName", "root");
+		dep(words[2], otherWord, "dep");
+		DependencyGraph graph = text.getDependencyGraph();
+		assertEquals(set(words[1], words[2]), graph.neighborhood(words[1], 5));
+		assertEquals(1, graph.getEndEdge(1) - graph.getFirstEdge(1));
+		int edge = graph.getFirstEdge(1);
+		assertEquals(2, graph.getTarget(edge));
+		assertEquals("amod", graph.getRelationShortName(edge));
+		assertTrue(graph.isTowardsDependent(edge));
+		assertFalse(graph.isTowardsDependent(graph.getFirstEdge(2)));
+	}
+
+	public void testGraphFollowsNewRelations(){
+		dep(words[0], words[1], "dep");
+		DependencyGraph graph = text.getDependencyGraph();
+		assertEquals(set(words[0], words[1]), graph.neighborhood(words[0], 3));
+		dep(words[1], words[2], "dep");
+		assertNotSame(graph, text.getDependencyGraph());
+		assertEquals(set(words[0], words[1], words[2]), text.getDependencyGraph().neighborhood(words[0], 3));
+	}
+
+	//two dependency trees over the Words, each Word has a governor with a lower order except the roots w0 and w15
+	private void addRandomForest(Random random){
+		for (int i = 1; i < WORDS; i++){
+			if (i == WORDS / 2)
+				continue;
+			int rootOfTree = i < WORDS / 2 ? 0 : WORDS / 2;
+			dep(words[rootOfTree + random.nextInt(i - rootOfTree)], words[i], "dep"+random.nextInt(3));
+		}
+	}
+
+	private static void dep(DataEntity governor, DataEntity dependent, String shortName){
+		new Relation("deps", governor, dependent).putAnnotation("relationShortName", shortName);
+	}
+
+	private static TreeSet<Word> set(Word... words){
+		return new TreeSet<>(Arrays.asList(words));
+	}
+
+	//getDepWindow as the ontology algorithms had it before the dependency graph
+	private static TreeSet<Word> depWindow(TreeSet<Word> span, int distance){
+		TreeSet<Word> scope = new TreeSet<Word>();
+		scope.addAll(span);
+		for (Word word : span){
+			for (Relation rel : word.getRelations().getRelationsToChildren("deps")){
+				if (rel.getChild() instanceof Word)
+					scope.add((Word)rel.getChild());
+			}
+			for (Relation rel : word.getRelations().getRelationsToParents("deps")){
+				if (rel.getParent() instanceof Word)
+					scope.add((Word)rel.getParent());
+			}
+		}
+		if (distance > 0){
+			return depWindow(scope, distance-1);
+		} else {
+			return scope;
+		}
+	}
+
+	//the number of relations to the nearest of the others, as the smallest window around the others that has the Word
+	private static int distanceByWindow(Word word, TreeSet<Word> others){
+		if (others.contains(word))
+			return 0;
+		for (int distance = 0; distance < WORDS; distance++){
+			if (depWindow(others, distance).contains(word))
+				return distance + 1;
+		}
+		return -1;
+	}
+}
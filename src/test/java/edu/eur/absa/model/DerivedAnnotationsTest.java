@@ -0,0 +1,102 @@
+package edu.eur.absa.model;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class DerivedAnnotationsTest extends TestCase {
+
+	//a review that is tokenized per sentence, so the offsets of the Words are relative to the text of their sentence
+	private static Span reviewOfTwoSentences() throws IllegalSpanException{
+		Dataset dataset = new Dataset("test", "review");
+		Span review = new Span("review", dataset);
+		review.putAnnotation("text", "The food was great.  Service, not so much.");
+		Word the = new Word("The", 0, review, dataset);
+		Word food = new Word("food", 4, the);
+		Word was = new Word("was", 9, food);
+		Word great = new Word("great", 13, was);
+		Word dot = new Word(".", 18, great);
+		new Span("sentence", the, dot).putAnnotation("text", "The food was great.");
+		Word service = new Word("Service", 0, dot);
+		Word comma = new Word(",", 7, service);
+		Word not = new Word("not", 9, comma);
+		Word so = new Word("so", 13, not);
+		Word much = new Word("much", 16, so);
+		Word end = new Word(".", 20, much);
+		new Span("sentence", service, end).putAnnotation("text", "Service, not so much.");
+		return review;
+	}
+
+	public void testSpanTextInFirstSentence() throws IllegalSpanException{
+		Span review = reviewOfTwoSentences();
+		Span phrase = new Span("syntacticPhrase", review.getWordByOrder(1), review.getWordByOrder(3));
+		assertEquals("food was great", phrase.getAnnotation("text"));
+	}
+
+	public void testSpanTextInLaterSentence() throws IllegalSpanException{
+		Span review = reviewOfTwoSentences();
+		Span phrase = new Span("syntacticPhrase", review.getWordByOrder(7), review.getWordByOrder(9));
+		assertEquals("not so much", phrase.getAnnotation("text"));
+	}
+
+	public void testSpanTextOverSentences() throws IllegalSpanException{
+		Span review = reviewOfTwoSentences();
+		Span phrase = new Span("syntacticPhrase", review.getWordByOrder(3), review.getWordByOrder(6));
+		assertEquals("great. Service,", phrase.getAnnotation("text"));
+	}
+
+	public void testStoredTextIsKept() throws IllegalSpanException{
+		Span review = reviewOfTwoSentences();
+		assertEquals("Service, not so much.", review.getDataset().getSpans("sentence").last().getAnnotation("text"));
+	}
+
+	public void testSpanTextWithoutSentenceText() throws IllegalSpanException{
+		Span review = reviewOfTwoSentences();
+		Span secondSentence = review.getDataset().getSpans("sentence").last();
+		secondSentence.putAnnotation("text", null);
+		//the offsets also fit in the text of the review, but the Words are not there
+		Span phrase = new Span("syntacticPhrase", review.getWordByOrder(7), review.getWordByOrder(9));
+		assertEquals("not so much", phrase.getAnnotation("text"));
+	}
+
+	public void testSpanTextWithoutStoredText() throws IllegalSpanException{
+		Dataset dataset = new Dataset("test", "review");
+		Span review = new Span("review", dataset);
+		Word first = new Word("good", 0, review, dataset);
+		Word second = new Word("food", 5, first);
+		assertEquals("good food", new Span("syntacticPhrase", first, second).getAnnotation("text"));
+	}
+
+	public void testSpanTextOnlyForPhrases() throws IllegalSpanException{
+		Span review = reviewOfTwoSentences();
+		Span discoursePhrase = new Span("discoursePhrase", review.getWordByOrder(0), review.getWordByOrder(2));
+		assertEquals("The food was", discoursePhrase.getAnnotation("text"));
+		Span opinion = new Span("opinion", review.getWordByOrder(1), review.getWordByOrder(1));
+		assertFalse(opinion.hasAnnotation("text"));
+		assertNull(opinion.getAnnotation("text"));
+		assertTrue(new Span("syntacticPhrase", review.getWordByOrder(1), review.getWordByOrder(1)).hasAnnotation("text"));
+	}
+
+	public void testSentenceContext() throws IllegalSpanException{
+		Span review = reviewOfTwoSentences();
+		Dataset dataset = review.getDataset();
+		DerivedAnnotations.addSentenceContext(dataset);
+		assertTrue(dataset.hasDerivedAnnotation("containingSentence"));
+		assertTrue(dataset.hasDerivedAnnotation("negated"));
+		Span opinion = new Span("opinion", review.getWordByOrder(5), review.getWordByOrder(5));
+		assertSame(dataset.getSpans("sentence").last(), opinion.getAnnotation("containingSentence", Span.class));
+		review.getWordByOrder(8).putAnnotation("lemma", "not");
+		assertTrue(review.getWordByOrder(9).getAnnotation("negated", Boolean.class));
+		assertFalse(review.getWordByOrder(1).getAnnotation("negated", Boolean.class));
+	}
+
+	public void testSentenceContextIsAddedOnce() throws IllegalSpanException{
+		Span review = reviewOfTwoSentences();
+		Dataset dataset = review.getDataset();
+		dataset.addDerivedAnnotation("containingSentence", Span.class, entity -> review);
+		//an annotation that is already there is kept, with the values it has computed
+		DerivedAnnotations.addSentenceContext(dataset);
+		Span opinion = new Span("opinion", review.getWordByOrder(1), review.getWordByOrder(1));
+		assertSame(review, opinion.getAnnotation("containingSentence", Span.class));
+		assertTrue(dataset.hasDerivedAnnotation("negated"));
+	}
+}
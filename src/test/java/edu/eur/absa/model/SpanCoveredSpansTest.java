@@ -0,0 +1,108 @@
+package edu.eur.absa.model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class SpanCoveredSpansTest extends TestCase {
+
+	private static final int WORDS = 25;
+
+	private Dataset dataset;
+	private Span review1;
+	private Span review2;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "review");
+		review1 = review();
+		review2 = review();
+	}
+
+	public void testOpinionsUnderASentence() throws IllegalSpanException{
+		Span sentence = span(review1, "sentence", 5, 12);
+		Span atStart = span(review1, "opinion", 5, 6);
+		Span atEnd = span(review1, "opinion", 12, 12);
+		Span whole = span(review1, "opinion", 5, 12);
+		span(review1, "opinion", 4, 6);
+		span(review1, "opinion", 12, 13);
+		span(review1, "opinion", 0, 20);
+		//the same word orders, but in another textual unit
+		span(review2, "opinion", 6, 7);
+		Span aspect = span(review1, "aspect", 7, 8);
+		
+		assertEquals(set(atStart, whole, atEnd), sentence.getCoveredSpans("opinion"));
+		assertEquals(set(atStart, whole, atEnd), dataset.getCoveredSpans(sentence, "opinion"));
+		assertEquals(set(sentence, atStart, whole, atEnd, aspect), sentence.getCoveredSpans((String)null));
+		assertTrue(sentence.getCoveredSpans("review").isEmpty());
+		assertTrue(sentence.getCoveredSpans("unknown").isEmpty());
+		//a whole review covers everything in it
+		assertEquals(dataset.getSpans(review1, "opinion"), review1.getCoveredSpans("opinion"));
+	}
+
+	public void testAgainstScan() throws IllegalSpanException{
+		Random random = new Random(17);
+		for (Span review : new Span[]{review1, review2}){
+			for (int i = 0; i < 60; i++){
+				int first = random.nextInt(WORDS);
+				span(review, i % 4 == 0 ? "sentence" : "opinion", first, Math.min(WORDS - 1, first + random.nextInt(8)));
+			}
+		}
+		for (Span sentence : dataset.getSpans("sentence")){
+			//the scan that callers used before there was an index
+			assertEquals(sentence.getCoveredSpans(dataset.getSpans(sentence.getTextualUnit(), "opinion")), sentence.getCoveredSpans("opinion"));
+			assertEquals(sentence.getCoveredSpans(dataset.getSpans(sentence.getTextualUnit())), sentence.getCoveredSpans((String)null));
+		}
+		HashSet<Span> expected = new HashSet<>();
+		for (Span sentence : dataset.getSpans("sentence")){
+			expected.addAll(sentence.getCoveredSpans(dataset.getSpans("opinion")));
+		}
+		assertEquals(expected, dataset.getSubSpans(dataset.getSpans("sentence"), "opinion"));
+	}
+
+	public void testAfterChanges() throws IllegalSpanException{
+		Span sentence = span(review1, "sentence", 3, 9);
+		Span opinion = span(review1, "opinion", 8, 10);
+		assertTrue(sentence.getCoveredSpans("opinion").isEmpty());
+		//taking off the last Word brings the opinion under the sentence
+		opinion.remove(opinion.last());
+		assertEquals(set(opinion), sentence.getCoveredSpans("opinion"));
+		//growing the sentence on the left does not change that, adding a new opinion does
+		sentence.add(review1.getWordByOrder(2));
+		Span added = span(review1, "opinion", 2, 3);
+		assertEquals(set(added, opinion), sentence.getCoveredSpans("opinion"));
+		//the sentence no longer covers the opinion when it loses its last Words
+		sentence.remove(sentence.last());
+		sentence.remove(sentence.last());
+		assertEquals(set(added), sentence.getCoveredSpans("opinion"));
+	}
+
+	public void testEmptySpans() throws IllegalSpanException{
+		Span empty = new Span("sentence", review1);
+		span(review1, "opinion", 0, 1);
+		Span emptyOpinion = new Span("opinion", review1);
+		assertTrue(empty.getCoveredSpans("opinion").isEmpty());
+		assertFalse(review1.getCoveredSpans("opinion").contains(emptyOpinion));
+	}
+
+	private Span review(){
+		Span review = new Span("review", dataset);
+		Word previousWord = new Word("w0", 0, review, dataset);
+		for (int i = 1; i < WORDS; i++){
+			previousWord = new Word("w"+i, 3 * i, previousWord);
+		}
+		return review;
+	}
+
+	private static Span span(Span review, String spanType, int first, int last) throws IllegalSpanException{
+		return new Span(spanType, review.getWordByOrder(first), review.getWordByOrder(last));
+	}
+
+	private static TreeSet<Span> set(Span... spans){
+		return new TreeSet<>(Arrays.asList(spans));
+	}
+}
@@ -0,0 +1,121 @@
+package edu.eur.absa.model;
+
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class SpanIntervalIndexTest extends TestCase {
+
+	private static final int WORDS = 40;
+
+	private Dataset dataset;
+	private Span text;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "text");
+		text = new Span("text", dataset);
+		Word previousWord = new Word("t0", 0, text, dataset);
+		for (int i = 1; i < WORDS; i++){
+			previousWord = new Word("t"+i, 3 * i, previousWord);
+		}
+	}
+
+	public void testContainingAndCoveredSpans() throws IllegalSpanException{
+		Span sentence = span("sentence", 0, 9);
+		Span aspect = span("aspect", 2, 3);
+		Span other = span("aspect", 8, 12);
+		Word word = text.getWordByOrder(3);
+		assertEquals(set(text, sentence, aspect), dataset.getSpans(word));
+		assertEquals(set(aspect), dataset.getSpans("aspect", word));
+		assertEquals(set(text, sentence, other), dataset.getSpans(text.getWordByOrder(9)));
+		assertEquals(set(aspect), dataset.getCoveredSpans(sentence, "aspect"));
+		assertEquals(set(sentence, aspect), dataset.getCoveredSpans(sentence, null));
+		assertEquals(set(aspect, other), dataset.getOverlappingSpans(sentence, "aspect"));
+		assertTrue(dataset.getSpans("aspect", text.getWordByOrder(20)).isEmpty());
+	}
+
+	public void testAddingSpansBetweenQueries() throws IllegalSpanException{
+		Random random = new Random(7);
+		for (int i = 0; i < 300; i++){
+			int first = random.nextInt(WORDS);
+			int last = Math.min(WORDS - 1, first + random.nextInt(6));
+			span(i % 3 == 0 ? "sentence" : "aspect", first, last);
+			checkAgainstScan(random);
+		}
+	}
+
+	public void testChangingSpansBetweenQueries() throws IllegalSpanException{
+		Random random = new Random(11);
+		TreeSet<Span> aspects = new TreeSet<>();
+		for (int i = 0; i < 60; i++){
+			int first = random.nextInt(WORDS - 5);
+			aspects.add(span("aspect", first, first + 4));
+		}
+		checkAgainstScan(random);
+		for (Span aspect : aspects){
+			//take words off both ends, or add one, so the span covers other word orders than in the built index
+			if (random.nextBoolean()){
+				aspect.remove(aspect.last());
+				aspect.remove(aspect.first());
+			} else if (aspect.last().hasNextWord()){
+				aspect.add(aspect.last().getNextWord());
+			}
+			checkAgainstScan(random);
+		}
+		Span aspect = aspects.first();
+		while (!aspect.isEmpty()){
+			aspect.remove(aspect.first());
+		}
+		checkAgainstScan(random);
+	}
+
+	public void testWordOrderChange() throws IllegalSpanException{
+		Span before = span("aspect", 10, 11);
+		Span after = span("aspect", 20, 22);
+		assertEquals(set(after), dataset.getSpans("aspect", text.getWordByOrder(21)));
+		text.mergeWords(text.getWordByOrder(12), text.getWordByOrder(16), "merged");
+		assertEquals(set(after), dataset.getSpans("aspect", text.getWordByOrder(17)));
+		assertTrue(dataset.getSpans("aspect", text.getWordByOrder(20)).isEmpty());
+		assertEquals(set(before), dataset.getCoveredSpans(span("sentence", 9, 12), "aspect"));
+	}
+
+	private Span span(String spanType, int first, int last) throws IllegalSpanException{
+		return new Span(spanType, text.getWordByOrder(first), text.getWordByOrder(last));
+	}
+
+	private static TreeSet<Span> set(Span... spans){
+		TreeSet<Span> set = new TreeSet<>();
+		for (Span span : spans){
+			set.add(span);
+		}
+		return set;
+	}
+
+	//compare the index with a scan over all Spans of the textual unit
+	private void checkAgainstScan(Random random){
+		Word word = text.getWordByOrder(random.nextInt(WORDS));
+		for (String spanType : new String[]{"aspect", "sentence", null}){
+			TreeSet<Span> containing = new TreeSet<>();
+			for (Span span : dataset.getSpans(text)){
+				if (span.contains(word) && (spanType == null || spanType.equals(span.getType())))
+					containing.add(span);
+			}
+			assertEquals(containing, spanType == null ? dataset.getSpans(word) : dataset.getSpans(spanType, word));
+		}
+		NavigableSet<Span> sentences = dataset.getSpans(text, "sentence");
+		if (sentences.isEmpty())
+			return;
+		Span sentence = sentences.last();
+		TreeSet<Span> covered = new TreeSet<>();
+		for (Span aspect : dataset.getSpans(text, "aspect")){
+			if (!aspect.isEmpty() && !sentence.isEmpty() && aspect.first().getOrder() >= sentence.first().getOrder() 
+					&& aspect.last().getOrder() <= sentence.last().getOrder())
+				covered.add(aspect);
+		}
+		assertEquals(covered, dataset.getCoveredSpans(sentence, "aspect"));
+	}
+}
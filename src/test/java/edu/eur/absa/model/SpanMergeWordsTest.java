@@ -0,0 +1,152 @@
+package edu.eur.absa.model;
+
+import java.util.TreeSet;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class SpanMergeWordsTest extends TestCase {
+
+	private static final String[] TOKENS = {"I", "went", "to", "new", "york", "city", "ice", "cream", "shop", "today"};
+
+	private Dataset dataset;
+	private Span text;
+	private Word[] words;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "text");
+		text = new Span("text", dataset);
+		words = new Word[TOKENS.length];
+		int offset = 0;
+		for (int i = 0; i < TOKENS.length; i++){
+			words[i] = i == 0 ? new Word(TOKENS[i], offset, text, dataset) : new Word(TOKENS[i], offset, words[i-1]);
+			offset += TOKENS[i].length() + 1;
+		}
+	}
+
+	public void testMergeAdjacentMultiWordTokens() throws IllegalSpanException{
+		Span sentence = span("sentence", 0, 9);
+		Span place = span("aspect", 3, 5);
+		Span food = span("aspect", 6, 8);
+		//"new york city" and then "ice cream shop", which starts right after it
+		Word newYorkCity = text.mergeWords(words[3], words[5], "new york city");
+		Word iceCreamShop = text.mergeWords(words[6], words[8], "ice cream shop");
+		assertSame(words[3], newYorkCity);
+		assertSame(words[6], iceCreamShop);
+		
+		checkWords("I", "went", "to", "new york city", "ice cream shop", "today");
+		assertEquals(words[3].getStartOffset(), newYorkCity.getStartOffset());
+		assertEquals(words[5].getEndOffset(), newYorkCity.getEndOffset());
+		assertEquals(words[8].getEndOffset(), iceCreamShop.getEndOffset());
+		//both aspects are now a single Word, next to each other
+		assertEquals(1, place.size());
+		assertSame(newYorkCity, place.first());
+		assertEquals(1, food.size());
+		assertSame(iceCreamShop, food.first());
+		assertEquals(6, sentence.size());
+		for (int i : new int[]{4, 5, 7, 8}){
+			assertNull(dataset.getAnnotatable(words[i].getId()));
+		}
+		assertEquals(set(place), dataset.getSpans("aspect", newYorkCity));
+		assertEquals(set(food), dataset.getCoveredSpans(span("sentence", 4, 5), "aspect"));
+	}
+
+	public void testMergeOverlappingMultiWordTokens() throws IllegalSpanException{
+		Span newYork = span("aspect", 3, 4);
+		Span yorkCity = span("aspect", 4, 5);
+		Span city = span("aspect", 5, 5);
+		//"new york" first, then "york city" overlaps with it, so it is merged together with the merged Word into "new york city"
+		Word merged = text.mergeWords(words[3], words[4], "new york");
+		checkWords("I", "went", "to", "new york", "city", "ice", "cream", "shop", "today");
+		assertSame(merged, yorkCity.first());
+		assertSame(words[5], yorkCity.last());
+		
+		merged = text.mergeWords(merged, words[5], "new york city");
+		checkWords("I", "went", "to", "new york city", "ice", "cream", "shop", "today");
+		for (Span aspect : new Span[]{newYork, yorkCity, city}){
+			assertEquals(1, aspect.size());
+			assertSame(merged, aspect.first());
+		}
+		assertEquals(set(newYork, yorkCity, city), dataset.getSpans("aspect", merged));
+		assertEquals(words[5].getEndOffset(), merged.getEndOffset());
+	}
+
+	public void testMergeAtTheEndAndStart() throws IllegalSpanException{
+		Span last = span("aspect", 8, 9);
+		text.mergeWords(words[8], words[9], "shop today");
+		text.mergeWords(words[0], words[1], "I went");
+		checkWords("I went", "to", "new", "york", "city", "ice", "cream", "shop today");
+		assertSame(words[8], text.last());
+		assertFalse(words[8].hasNextWord());
+		assertSame(words[8], last.first());
+		assertSame(words[8], last.last());
+	}
+
+	public void testSpansAroundTheMergedWords() throws IllegalSpanException{
+		Span before = span("aspect", 1, 2);
+		Span startsInside = span("aspect", 4, 7);
+		Span endsInside = span("aspect", 2, 4);
+		Span after = span("aspect", 7, 8);
+		text.mergeWords(words[3], words[5], "new york city");
+		assertSame(words[1], before.first());
+		assertSame(words[2], before.last());
+		assertSame(words[3], startsInside.first());
+		assertSame(words[7], startsInside.last());
+		assertEquals(3, startsInside.size());
+		assertSame(words[3], endsInside.last());
+		assertEquals(2, endsInside.size());
+		assertEquals(5, words[7].getOrder());
+		assertEquals(2, after.size());
+	}
+
+	public void testSingleWordAndInvalidMerges() throws IllegalSpanException{
+		text.mergeWords(words[2], words[2], "into");
+		checkWords("I", "went", "into", "new", "york", "city", "ice", "cream", "shop", "today");
+		try {
+			text.mergeWords(words[5], words[3], "backwards");
+			fail("The last Word cannot come before the first");
+		} catch (IllegalSpanException e){
+			//expected
+		}
+		Span other = new Span("text", dataset);
+		Word elsewhere = new Word("elsewhere", 0, other, dataset);
+		try {
+			text.mergeWords(words[0], elsewhere, "nothing");
+			fail("Words of another textual unit cannot be merged");
+		} catch (IllegalSpanException e){
+			//expected
+		}
+		assertEquals(TOKENS.length, text.size());
+	}
+
+	private Span span(String spanType, int first, int last) throws IllegalSpanException{
+		return new Span(spanType, text.getWordByOrder(first), text.getWordByOrder(last));
+	}
+
+	private static TreeSet<Span> set(Span... spans){
+		TreeSet<Span> set = new TreeSet<>();
+		for (Span span : spans){
+			set.add(span);
+		}
+		return set;
+	}
+
+	//the Words of the textual unit, by order and through their links, have exactly these texts
+	private void checkWords(String... expected){
+		assertEquals(expected.length, text.size());
+		Word word = text.first();
+		assertNull(word.getPreviousWord());
+		for (int order = 0; order < expected.length; order++){
+			assertEquals(expected[order], word.getWord());
+			assertEquals(order, word.getOrder());
+			assertSame(word, text.getWordByOrder(order));
+			if (order + 1 < expected.length){
+				assertSame(word, word.getNextWord().getPreviousWord());
+				word = word.getNextWord();
+			}
+		}
+		assertSame(word, text.last());
+		assertFalse(word.hasNextWord());
+	}
+}
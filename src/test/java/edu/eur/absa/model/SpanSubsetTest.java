@@ -0,0 +1,50 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+public class SpanSubsetTest extends TestCase {
+
+	public void testSpansOfAnotherDatasetAreRejected(){
+		Dataset dataset = TestDatasets.reviews("train", 3);
+		Dataset other = TestDatasets.reviews("test", 2);
+		try {
+			new SpanSubset(dataset, other.getSpans("aspect"));
+			fail("Spans of another Dataset cannot be part of a subset");
+		} catch (IllegalArgumentException e){
+			//expected
+		}
+		SpanSubset otherSubset = new SpanSubset(other, other.getSpans("aspect"));
+		try {
+			new SpanSubset(dataset, otherSubset);
+			fail("A subset of another Dataset cannot be copied");
+		} catch (IllegalArgumentException e){
+			//expected
+		}
+	}
+
+	public void testSubsetAfterMerge() throws Exception{
+		Dataset dataset = TestDatasets.reviews("train", 3);
+		Dataset other = TestDatasets.reviews("test", 2);
+		ArrayList<Span> testSpans = new ArrayList<>(other.getSpans("aspect"));
+		dataset.mergeDataset(other);
+		SpanSubset testSet = new SpanSubset(dataset, testSpans);
+		assertEquals(2, testSet.size());
+		for (Span span : testSet){
+			assertTrue(testSpans.contains(span));
+		}
+	}
+
+	public void testSetOperations(){
+		Dataset dataset = TestDatasets.reviews("train", 4);
+		SpanSubset all = new SpanSubset(dataset, dataset.getSpans("aspect"));
+		ArrayList<Span> firstTwo = new ArrayList<>(all);
+		firstTwo.subList(2, firstTwo.size()).clear();
+		SpanSubset first = new SpanSubset(dataset, firstTwo);
+		SpanSubset rest = all.minus(first);
+		assertEquals(2, rest.size());
+		assertEquals(0, rest.intersection(first).size());
+		assertEquals(all, rest.union(first));
+	}
+}
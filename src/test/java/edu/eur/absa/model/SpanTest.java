@@ -0,0 +1,47 @@
+package edu.eur.absa.model;
+
+import junit.framework.TestCase;
+
+public class SpanTest extends TestCase {
+
+	public void testRemoveLastWord(){
+		Dataset dataset = TestDatasets.reviews("test", 1);
+		Span review = dataset.getSpans("review").first();
+		Word last = review.last();
+		Word previous = last.getPreviousWord();
+		assertTrue(review.remove(last));
+		assertEquals(previous, review.last());
+		assertEquals(TestDatasets.WORDS_PER_REVIEW - 1, review.size());
+		assertNull(dataset.getAnnotatable(last.getId()));
+	}
+
+	public void testRemoveWordFromOtherSpan(){
+		Dataset dataset = TestDatasets.reviews("test", 1);
+		Span review = dataset.getSpans("review").first();
+		Span aspect = dataset.getSpans("aspect").first();
+		Word word = review.last();
+		assertFalse(aspect.remove(word));
+		assertSame(word, dataset.getAnnotatable(word.getId()));
+		assertEquals(TestDatasets.WORDS_PER_REVIEW, review.size());
+	}
+
+	public void testRemoveMiddleWord(){
+		Dataset dataset = TestDatasets.reviews("test", 1);
+		Span review = dataset.getSpans("review").first();
+		Word middle = review.getWordByOrder(2);
+		assertFalse(review.remove(middle));
+		assertSame(middle, dataset.getAnnotatable(middle.getId()));
+		assertTrue(review.contains(middle));
+		assertEquals(TestDatasets.WORDS_PER_REVIEW, review.size());
+	}
+
+	public void testRemoveAsCollection(){
+		Dataset dataset = TestDatasets.reviews("test", 1);
+		Span review = dataset.getSpans("review").first();
+		assertFalse(review.remove((Object) review.getWordByOrder(2)));
+		assertTrue(review.remove((Object) review.first()));
+		assertEquals(TestDatasets.WORDS_PER_REVIEW - 1, review.size());
+		assertFalse(review.remove("w1"));
+		assertEquals(TestDatasets.WORDS_PER_REVIEW - 1, review.size());
+	}
+}
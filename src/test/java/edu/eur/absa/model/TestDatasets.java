@@ -0,0 +1,63 @@
+package edu.eur.absa.model;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+
+/**
+ * Small <code>Dataset</code>s for the tests: reviews of six <code>Word</code>s ("w0 w1 w2 w3 w4 w5"), with a chain of "deps"
+ * <code>Relation</code>s between consecutive <code>Word</code>s and one "aspect" <code>Span</code> over the second and third <code>Word</code>.
+ *
+ */
+class TestDatasets {
+
+	static final int WORDS_PER_REVIEW = 6;
+
+	private TestDatasets(){
+	}
+
+	static Dataset reviews(String name, int nrOfReviews){
+		return reviews(name, nrOfReviews, true, true);
+	}
+
+	static Dataset reviews(String name, int nrOfReviews, boolean withRelations, boolean withAspects){
+		Dataset dataset = new Dataset(name, "review");
+		for (int i = 0; i < nrOfReviews; i++){
+			addReview(dataset, withRelations, withAspects);
+		}
+		return dataset;
+	}
+
+	static Span addReview(Dataset dataset){
+		return addReview(dataset, true, true);
+	}
+
+	static Span addReview(Dataset dataset, boolean withRelations, boolean withAspects){
+		Span review = new Span("review", dataset);
+		StringBuilder text = new StringBuilder();
+		Word previousWord = null;
+		for (int i = 0; i < WORDS_PER_REVIEW; i++){
+			if (i > 0)
+				text.append(' ');
+			Word word;
+			if (previousWord == null){
+				word = new Word("w"+i, text.length(), review, dataset);
+			} else {
+				word = new Word("w"+i, text.length(), previousWord);
+				if (withRelations)
+					new Relation("deps", previousWord, word).putAnnotation("relationShortName", "dep");
+			}
+			text.append(word.getWord());
+			word.putAnnotation("pos", i == 0 ? "NN" : "VB");
+			word.putAnnotation("lemma", "l"+i);
+			previousWord = word;
+		}
+		review.putAnnotation("text", text.toString());
+		if (withAspects){
+			try {
+				new Span("aspect", review.getWordByOrder(1), review.getWordByOrder(2)).putAnnotation("polarity", "positive");
+			} catch (IllegalSpanException e){
+				throw new IllegalStateException(e);
+			}
+		}
+		return review;
+	}
+}
@@ -0,0 +1,172 @@
+package edu.eur.absa.model;
+
+import java.util.Iterator;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class TextualUnitBuilderTest extends TestCase {
+
+	private static final String[] FIRST_SENTENCE = {"The", "pizza", "was", "great", "."};
+	private static final String[] SECOND_SENTENCE = {"Slow", "service", "though", "."};
+
+	public void testSameAsWordByWord() throws IllegalSpanException{
+		Dataset expected = new Dataset("word by word", "review");
+		Dataset built = new Dataset("builder", "review");
+		for (int r = 0; r < 3; r++){
+			//word by word: an empty sentence first, then every Word on its own, then the aspects
+			Span review = new Span("review", expected);
+			Span sentence = new Span("sentence", review);
+			Word[] words = addWordByWord(review, FIRST_SENTENCE, 0);
+			for (Word word : words){
+				sentence.add(word);
+			}
+			new Span("aspect", words[1], words[1]);
+			new Span("opinion", words[0], words[3]);
+			
+			TextualUnitBuilder builder = new TextualUnitBuilder(built);
+			Span builtSentence = new Span("sentence", builder.getTextualUnit());
+			builder.addWords(FIRST_SENTENCE, offsets(FIRST_SENTENCE, 0)).extendSpan(builtSentence);
+			builder.addSpan("aspect", 1, 1);
+			builder.addSpan("opinion", 0, 3);
+			Word[] builtWords = builder.build();
+			assertEquals(FIRST_SENTENCE.length, builtWords.length);
+			assertSame(builtWords[2], builder.getWord(2));
+			assertEquals("opinion", builder.getSpan(1).getType());
+		}
+		assertEquals(describe(expected), describe(built));
+	}
+
+	public void testBuildingInRounds() throws IllegalSpanException{
+		Dataset expected = new Dataset("word by word", "review");
+		Dataset built = new Dataset("builder", "review");
+		
+		Span review = new Span("review", expected);
+		Word[] first = addWordByWord(review, FIRST_SENTENCE, 0);
+		new Span("sentence", first[0], first[first.length-1]);
+		Word[] second = addWordByWord(review, SECOND_SENTENCE, 30);
+		new Span("sentence", second[0], second[second.length-1]);
+		new Span("aspect", second[1], second[1]);
+		//a Span over Words of both rounds
+		new Span("opinion", first[3], second[1]);
+		
+		TextualUnitBuilder builder = new TextualUnitBuilder(built);
+		builder.addWords(FIRST_SENTENCE, offsets(FIRST_SENTENCE, 0));
+		builder.addSpan("sentence", 0, FIRST_SENTENCE.length-1);
+		Word[] builtFirst = builder.build();
+		Span builtReview = builder.getTextualUnit();
+		builder = new TextualUnitBuilder(builtReview);
+		for (int i = 0; i < SECOND_SENTENCE.length; i++){
+			assertEquals(i, builder.addWord(SECOND_SENTENCE[i], offsets(SECOND_SENTENCE, 30)[i]));
+		}
+		builder.addSpan("sentence", 0, SECOND_SENTENCE.length-1);
+		builder.addSpan("aspect", 1, 1);
+		builder.build();
+		//Spans over Words that already exist need another round
+		builder = new TextualUnitBuilder(builtReview);
+		builder.addSpan("opinion", builtFirst[3], builtReview.getWordByOrder(FIRST_SENTENCE.length + 1));
+		assertEquals(0, builder.build().length);
+		
+		assertEquals(describe(expected), describe(built));
+		assertEquals(FIRST_SENTENCE.length + SECOND_SENTENCE.length, builtReview.size());
+	}
+
+	public void testInvalidUse() throws IllegalSpanException{
+		Dataset dataset = new Dataset("builder", "review");
+		TextualUnitBuilder builder = new TextualUnitBuilder(dataset);
+		builder.addWords(FIRST_SENTENCE, offsets(FIRST_SENTENCE, 0));
+		try {
+			builder.addSpan("aspect", 3, FIRST_SENTENCE.length);
+			fail("A Span cannot end after the last Word");
+		} catch (IllegalSpanException e){
+			//expected
+		}
+		try {
+			builder.addSpan("aspect", 3, 2);
+			fail("A Span cannot end before it starts");
+		} catch (IllegalSpanException e){
+			//expected
+		}
+		try {
+			builder.getWord(0);
+			fail("There are no Words before the builder is built");
+		} catch (IllegalStateException e){
+			//expected
+		}
+		Word[] words = builder.build();
+		try {
+			builder.addWord("again", 50);
+			fail("A builder can only be built once");
+		} catch (IllegalStateException e){
+			//expected
+		}
+		try {
+			new TextualUnitBuilder(new Span("sentence", words[0], words[1]));
+			fail("Only a textual unit can be built");
+		} catch (IllegalArgumentException e){
+			//expected
+		}
+		Span otherReview = new Span("review", dataset);
+		try {
+			new TextualUnitBuilder(otherReview).addSpan("aspect", words[0], words[1]);
+			fail("Words of another textual unit cannot be used");
+		} catch (IllegalSpanException e){
+			//expected
+		}
+	}
+
+	private static Word[] addWordByWord(Span textualUnit, String[] tokens, int firstOffset){
+		int[] offsets = offsets(tokens, firstOffset);
+		Word[] words = new Word[tokens.length];
+		Word previousWord = textualUnit.isEmpty() ? null : textualUnit.last();
+		for (int i = 0; i < tokens.length; i++){
+			words[i] = previousWord == null ? new Word(tokens[i], offsets[i], textualUnit, textualUnit.getDataset()) 
+					: new Word(tokens[i], offsets[i], previousWord);
+			previousWord = words[i];
+		}
+		return words;
+	}
+
+	private static int[] offsets(String[] tokens, int firstOffset){
+		int[] offsets = new int[tokens.length];
+		int offset = firstOffset;
+		for (int i = 0; i < tokens.length; i++){
+			offsets[i] = offset;
+			offset += tokens[i].length() + 1;
+		}
+		return offsets;
+	}
+
+	//everything about the entities and indexes of a Dataset that both ways of building it should agree on
+	private static String describe(Dataset dataset){
+		StringBuilder sb = new StringBuilder();
+		sb.append("last id ").append(dataset.getCurrentId()).append('\n');
+		Iterator<DataEntity> it = dataset.getDataEntityIterator();
+		while (it.hasNext()){
+			DataEntity entity = it.next();
+			sb.append(entity.getId()).append(' ').append(entity.getClass().getSimpleName()).append(" unit ").append(entity.getTextualUnit().getId());
+			if (entity instanceof Word){
+				Word word = (Word) entity;
+				sb.append(' ').append(word.getWord()).append(' ').append(word.getStartOffset()).append('-').append(word.getEndOffset())
+						.append(" order ").append(word.getOrder())
+						.append(" previous ").append(word.getPreviousWord() == null ? 0 : word.getPreviousWord().getId())
+						.append(" next ").append(word.hasNextWord() ? word.getNextWord().getId() : 0);
+				assertSame(word, word.getTextualUnit().getWordByOrder(word.getOrder()));
+				sb.append(" in ");
+				for (Span span : dataset.getSpans(word)){
+					sb.append(span.getId()).append(',');
+				}
+			} else {
+				Span span = (Span) entity;
+				sb.append(' ').append(span.getType()).append(" size ").append(span.size());
+				if (!span.isEmpty())
+					sb.append(" words ").append(span.first().getId()).append('-').append(span.last().getId());
+				assertTrue(dataset.getSpans(span.getType()).contains(span));
+				assertTrue(dataset.getSpans(span.getTextualUnit(), span.getType()).contains(span));
+			}
+			sb.append('\n');
+		}
+		sb.append("spans ").append(dataset.getSpans().size());
+		return sb.toString();
+	}
+}
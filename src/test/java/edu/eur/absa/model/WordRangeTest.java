@@ -0,0 +1,180 @@
+package edu.eur.absa.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import edu.eur.absa.model.exceptions.IllegalSpanException;
+import junit.framework.TestCase;
+
+public class WordRangeTest extends TestCase {
+
+	private static final int WORDS = 12;
+
+	private Dataset dataset;
+	private Span text;
+	private Word outside;
+
+	@Override
+	protected void setUp(){
+		dataset = new Dataset("test", "text");
+		text = new Span("text", dataset);
+		Word previousWord = new Word("w0", 0, text, dataset);
+		for (int i = 1; i < WORDS; i++){
+			previousWord = new Word("w"+i, 3 * i, previousWord);
+		}
+		//a Word of another textual unit, which is ordered after all Words above
+		outside = new Word("x", 0, new Span("text", dataset), dataset);
+	}
+
+	public void testNavigationAgainstTreeSet() throws IllegalSpanException{
+		Random random = new Random(13);
+		for (int i = 0; i < 100; i++){
+			int first = random.nextInt(WORDS);
+			int last = first + random.nextInt(WORDS - first);
+			Span span = new Span("aspect", text.getWordByOrder(first), text.getWordByOrder(last));
+			NavigableSet<Word> view = span.getWords();
+			TreeSet<Word> copy = span.copyWords();
+			assertTrue(view instanceof WordRange);
+			checkNavigation(copy, view, random);
+			checkNavigation(copy.descendingSet(), view.descendingSet(), random);
+			Word from = text.getWordByOrder(random.nextInt(WORDS));
+			Word to = text.getWordByOrder(random.nextInt(WORDS));
+			if (from.compareTo(to) <= 0){
+				boolean fromInclusive = random.nextBoolean();
+				boolean toInclusive = random.nextBoolean();
+				checkNavigation(copy.subSet(from, fromInclusive, to, toInclusive), view.subSet(from, fromInclusive, to, toInclusive), random);
+				checkNavigation(copy.descendingSet().subSet(to, toInclusive, from, fromInclusive), 
+						view.descendingSet().subSet(to, toInclusive, from, fromInclusive), random);
+			}
+			checkNavigation(copy.headSet(from, true), view.headSet(from, true), random);
+			checkNavigation(copy.tailSet(from, false), view.tailSet(from, false), random);
+			checkNavigation(copy.descendingSet().headSet(from, false), view.descendingSet().headSet(from, false), random);
+			checkNavigation(copy.descendingSet().tailSet(from, true), view.descendingSet().tailSet(from, true), random);
+			//the Span answers through a view as well
+			checkNavigation(copy.headSet(from, false), span.headSet(from, false), random);
+			checkNavigation(copy.tailSet(from, true), span.tailSet(from, true), random);
+		}
+	}
+
+	public void testEmptyRange(){
+		Span empty = new Span("aspect", text);
+		NavigableSet<Word> view = empty.getWords();
+		assertTrue(view.isEmpty());
+		assertEquals(0, view.size());
+		assertFalse(view.iterator().hasNext());
+		assertNull(view.ceiling(text.first()));
+		assertTrue(view.descendingSet().isEmpty());
+		try {
+			view.first();
+			fail("An empty range has no first Word");
+		} catch (NoSuchElementException e){
+			//expected
+		}
+	}
+
+	public void testViewIsReadOnly() throws IllegalSpanException{
+		Span span = new Span("aspect", text.getWordByOrder(2), text.getWordByOrder(5));
+		NavigableSet<Word> view = span.getWords();
+		try {
+			view.add(text.getWordByOrder(6));
+			fail("A WordRange is read-only");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		try {
+			view.remove(text.getWordByOrder(5));
+			fail("A WordRange is read-only");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		try {
+			view.pollFirst();
+			fail("A WordRange is read-only");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		try {
+			Iterator<Word> it = view.descendingSet().iterator();
+			it.next();
+			it.remove();
+			fail("A WordRange is read-only");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		assertEquals(4, span.size());
+		//the copy can be changed, without changing the Span
+		TreeSet<Word> copy = span.copyWords();
+		copy.remove(text.getWordByOrder(5));
+		assertEquals(3, copy.size());
+		assertEquals(4, span.size());
+	}
+
+	public void testViewCoversTheWordsAtTheTimeOfTheCall() throws IllegalSpanException{
+		Span span = new Span("aspect", text.getWordByOrder(2), text.getWordByOrder(3));
+		NavigableSet<Word> view = span.getWords();
+		span.add(text.getWordByOrder(4));
+		assertEquals(2, view.size());
+		assertEquals(3, span.getWords().size());
+		assertTrue(span.getWords().contains(text.getWordByOrder(4)));
+		assertFalse(span.getWords().contains(outside));
+	}
+
+	public void testRelationViews(){
+		Word governor = text.getWordByOrder(0);
+		NavigableSet<Relation> none = governor.getRelations().getRelationsToChildren("deps");
+		assertTrue(none.isEmpty());
+		Relation first = new Relation("deps", governor, text.getWordByOrder(1));
+		NavigableSet<Relation> deps = governor.getRelations().getRelationsToChildren("deps");
+		assertSame(deps, governor.getRelations().getRelationsToChildren("deps"));
+		Relation second = new Relation("deps", governor, text.getWordByOrder(2));
+		//the view shows Relations that are added later on
+		assertEquals(list(first, second), new ArrayList<>(deps));
+		assertSame(deps, governor.getRelations().getAllRelationsToChildren());
+		assertEquals(list(first), new ArrayList<>(text.getWordByOrder(1).getRelations().getRelationsToParents("deps")));
+		try {
+			deps.add(first);
+			fail("The relation view is read-only");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		//with a second relation type, all relations are collected in a new set
+		Relation other = new Relation("coref", governor, text.getWordByOrder(3));
+		NavigableSet<Relation> all = governor.getRelations().getAllRelationsToChildren();
+		assertEquals(list(first, second, other), new ArrayList<>(all));
+		all.clear();
+		assertEquals(2, deps.size());
+		assertEquals(list(first, second, other), new ArrayList<>(governor.getRelations().getRelationsToChildren("deps", "coref")));
+	}
+
+	//the view has to answer every question the same way as the TreeSet copy
+	private void checkNavigation(NavigableSet<Word> expected, NavigableSet<Word> view, Random random){
+		assertEquals(new ArrayList<>(expected), new ArrayList<>(view));
+		assertEquals(expected.size(), view.size());
+		assertEquals(expected.isEmpty(), view.isEmpty());
+		if (!expected.isEmpty()){
+			assertSame(expected.first(), view.first());
+			assertSame(expected.last(), view.last());
+		}
+		for (int i = 0; i < 4; i++){
+			Word word = random.nextInt(WORDS + 1) == WORDS ? outside : text.getWordByOrder(random.nextInt(WORDS));
+			assertEquals(expected.contains(word), view.contains(word));
+			assertSame(expected.ceiling(word), view.ceiling(word));
+			assertSame(expected.floor(word), view.floor(word));
+			assertSame(expected.higher(word), view.higher(word));
+			assertSame(expected.lower(word), view.lower(word));
+		}
+	}
+
+	private static List<Relation> list(Relation... relations){
+		List<Relation> list = new ArrayList<>();
+		for (Relation relation : relations){
+			list.add(relation);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,25 @@
+package edu.eur.absa.model;
+
+import junit.framework.TestCase;
+
+public class WordTest extends TestCase {
+
+	public void testPutAnnotationOnFrozenDataset(){
+		Dataset dataset = TestDatasets.reviews("test", 1).freeze();
+		Span review = dataset.getSpans("review").first();
+		try {
+			review.first().putAnnotation("pos", "JJ");
+			fail("A frozen Dataset cannot be changed");
+		} catch (UnsupportedOperationException e){
+			//expected
+		}
+		assertEquals("NN", review.first().getPOS());
+	}
+
+	public void testPutAnnotation(){
+		Dataset dataset = TestDatasets.reviews("test", 1);
+		Span review = dataset.getSpans("review").first();
+		assertEquals("NN", review.first().putAnnotation("pos", "JJ"));
+		assertEquals("JJ", review.first().getPOS());
+	}
+}